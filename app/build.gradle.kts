@@ -77,6 +77,10 @@ dependencies {
     implementation(libs.androidx.room.ktx)
     ksp(libs.androidx.room.compiler)
 
+    // Paging
+    implementation(libs.androidx.paging.runtime)
+    implementation(libs.androidx.paging.compose)
+
     // Coroutines
     implementation(libs.kotlinx.coroutines.android)
 
@@ -105,6 +109,8 @@ dependencies {
     implementation("com.google.code.gson:gson:2.10.1")
 
     testImplementation(libs.junit)
+    // In-memory SQLite for the query plan tests
+    testImplementation(libs.sqlite.jdbc)
     androidTestImplementation(libs.androidx.junit)
     androidTestImplementation(libs.androidx.espresso.core)
     androidTestImplementation(platform(libs.androidx.compose.bom))
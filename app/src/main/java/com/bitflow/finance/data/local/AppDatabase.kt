@@ -11,6 +11,9 @@ import com.bitflow.finance.data.local.dao.InvoiceDao
 import com.bitflow.finance.data.local.dao.UserAccountDao
 import com.bitflow.finance.data.local.dao.FriendDao
 import com.bitflow.finance.data.local.dao.SplitDao
+import com.bitflow.finance.data.local.dao.MonthlyRollupDao
+import com.bitflow.finance.data.local.dao.LedgerDao
+import com.bitflow.finance.data.local.dao.TagDao
 import com.bitflow.finance.data.local.entity.AccountEntity
 import com.bitflow.finance.data.local.entity.CategoryEntity
 import com.bitflow.finance.data.local.entity.LearningRuleEntity
@@ -22,6 +25,18 @@ import com.bitflow.finance.data.local.entity.SplitGroupEntity
 import com.bitflow.finance.data.local.entity.SplitGroupMemberEntity
 import com.bitflow.finance.data.local.entity.SplitExpenseEntity
 import com.bitflow.finance.data.local.entity.SplitExpenseShareEntity
+import com.bitflow.finance.data.local.entity.MonthlyRollupEntity
+import com.bitflow.finance.data.local.entity.AccountLedgerEntity
+import com.bitflow.finance.data.local.entity.AccountDailyLedgerEntity
+import com.bitflow.finance.data.local.entity.LedgerBatchEntity
+import com.bitflow.finance.data.local.entity.TransactionFtsEntity
+import com.bitflow.finance.data.local.entity.InvoiceFtsEntity
+import com.bitflow.finance.data.local.entity.TransactionTagEntity
+import com.bitflow.finance.domain.model.MerchantExtractor
+import com.bitflow.finance.domain.model.Money
+import com.bitflow.finance.domain.model.TransactionFingerprint
+import com.bitflow.finance.domain.model.TransactionReference
+import java.time.LocalDate
 
 @Database(
     entities = [
@@ -35,9 +50,16 @@ import com.bitflow.finance.data.local.entity.SplitExpenseShareEntity
         SplitGroupEntity::class,
         SplitGroupMemberEntity::class,
         SplitExpenseEntity::class,
-        SplitExpenseShareEntity::class
+        SplitExpenseShareEntity::class,
+        MonthlyRollupEntity::class,
+        AccountLedgerEntity::class,
+        AccountDailyLedgerEntity::class,
+        LedgerBatchEntity::class,
+        TransactionFtsEntity::class,
+        InvoiceFtsEntity::class,
+        TransactionTagEntity::class
     ],
-    version = 10,
+    version = 23,
     exportSchema = false
 )
 @TypeConverters(Converters::class)
@@ -50,6 +72,9 @@ abstract class AppDatabase : RoomDatabase() {
     abstract fun userAccountDao(): UserAccountDao
     abstract fun friendDao(): FriendDao
     abstract fun splitDao(): SplitDao
+    abstract fun monthlyRollupDao(): MonthlyRollupDao
+    abstract fun ledgerDao(): LedgerDao
+    abstract fun tagDao(): TagDao
     
     companion object {
         // Built-in Indian expense categories - accessible to all users (userId = NULL)
@@ -429,5 +454,235 @@ abstract class AppDatabase : RoomDatabase() {
                 insertBuiltInCategories(database)
             }
         }
+        
+        val MIGRATION_10_11 = object : androidx.room.migration.Migration(10, 11) {
+            override fun migrate(database: androidx.sqlite.db.SupportSQLiteDatabase) {
+                // Content fingerprint for import deduplication (NULL for manual entries)
+                database.execSQL("ALTER TABLE transactions ADD COLUMN fingerprint INTEGER")
+                // A lookup, not a constraint: identical rows may legitimately repeat in a statement
+                database.execSQL("CREATE INDEX IF NOT EXISTS idx_fingerprint ON transactions(fingerprint)")
+                
+                backfillFingerprints(database)
+            }
+        }
+        
+        /** Rows read per batch by the column backfills below */
+        private const val BACKFILL_BATCH_SIZE = 500
+        
+        /**
+         * Compute fingerprints for existing transactions in id order, one batch at a time.
+         * Repeated rows share their fingerprint, so a re-import counts every stored occurrence.
+         */
+        private fun backfillFingerprints(database: androidx.sqlite.db.SupportSQLiteDatabase) {
+            val update = database.compileStatement("UPDATE transactions SET fingerprint = ? WHERE id = ?")
+            var lastId = 0L
+            var total = 0
+            
+            while (true) {
+                var batchCount = 0
+                database.query(
+                    "SELECT id, accountId, txnDate, amount, description, reference FROM transactions " +
+                        "WHERE id > ? ORDER BY id LIMIT $BACKFILL_BATCH_SIZE",
+                    arrayOf<Any>(lastId)
+                ).use { cursor ->
+                    while (cursor.moveToNext()) {
+                        val id = cursor.getLong(0)
+                        val fingerprint = TransactionFingerprint.of(
+                            accountId = cursor.getLong(1),
+                            date = LocalDate.parse(cursor.getString(2)),
+                            // Still REAL rupees at this version; amounts become paise in MIGRATION_18_19
+                            amountPaise = Money.toPaise(cursor.getDouble(3)),
+                            description = cursor.getString(4) ?: "",
+                            reference = if (cursor.isNull(5)) null else cursor.getString(5)
+                        )
+                        update.bindLong(1, fingerprint)
+                        update.bindLong(2, id)
+                        update.executeUpdateDelete()
+                        
+                        lastId = id
+                        batchCount++
+                    }
+                }
+                total += batchCount
+                if (batchCount < BACKFILL_BATCH_SIZE) break
+            }
+            update.close()
+            println("[AppDatabase] Backfilled fingerprints for $total transactions")
+        }
+        
+        val MIGRATION_11_12 = object : androidx.room.migration.Migration(11, 12) {
+            override fun migrate(database: androidx.sqlite.db.SupportSQLiteDatabase) {
+                // Normalised reference number for duplicate and reconciliation lookups
+                database.execSQL("ALTER TABLE transactions ADD COLUMN referenceNorm TEXT")
+                database.execSQL("CREATE INDEX IF NOT EXISTS idx_user_account_reference ON transactions(userId, accountId, referenceNorm)")
+                
+                backfillReferenceNorms(database)
+            }
+        }
+        
+        /**
+         * Normalise stored references in id order, one batch at a time
+         */
+        private fun backfillReferenceNorms(database: androidx.sqlite.db.SupportSQLiteDatabase) {
+            val update = database.compileStatement("UPDATE transactions SET referenceNorm = ? WHERE id = ?")
+            var lastId = 0L
+            var total = 0
+            
+            while (true) {
+                var batchCount = 0
+                database.query(
+                    "SELECT id, reference FROM transactions " +
+                        "WHERE id > ? AND reference IS NOT NULL ORDER BY id LIMIT $BACKFILL_BATCH_SIZE",
+                    arrayOf<Any>(lastId)
+                ).use { cursor ->
+                    while (cursor.moveToNext()) {
+                        val id = cursor.getLong(0)
+                        val referenceNorm = TransactionReference.normalise(cursor.getString(1))
+                        if (referenceNorm != null) {
+                            update.bindString(1, referenceNorm)
+                            update.bindLong(2, id)
+                            update.executeUpdateDelete()
+                            total++
+                        }
+                        
+                        lastId = id
+                        batchCount++
+                    }
+                }
+                if (batchCount < BACKFILL_BATCH_SIZE) break
+            }
+            update.close()
+            println("[AppDatabase] Backfilled normalised references for $total transactions")
+        }
+        
+        val MIGRATION_12_13 = object : androidx.room.migration.Migration(12, 13) {
+            override fun migrate(database: androidx.sqlite.db.SupportSQLiteDatabase) {
+                // Trigger-maintained monthly totals for dashboards
+                database.execSQL(MonthlyRollup.CREATE_TABLE_SQL)
+                database.execSQL(MonthlyRollup.REBUILD_SQL)
+                MonthlyRollup.createTriggers(database)
+            }
+        }
+        
+        val MIGRATION_13_14 = object : androidx.room.migration.Migration(13, 14) {
+            override fun migrate(database: androidx.sqlite.db.SupportSQLiteDatabase) {
+                // Trigger-maintained running-balance ledger
+                database.execSQL(BalanceLedger.CREATE_LEDGER_TABLE_SQL)
+                database.execSQL(BalanceLedger.CREATE_DAILY_TABLE_SQL)
+                BalanceLedger.rebuild(database)
+                BalanceLedger.createTriggers(database)
+                
+                // Balances are now initialBalance + ledger net: keep each account's current
+                // balance (it may have been set from a statement) by moving it into initialBalance
+                database.execSQL(
+                    "UPDATE accounts SET initialBalance = currentBalance - " +
+                        "COALESCE((SELECT net FROM account_ledger WHERE account_ledger.accountId = accounts.id), 0)"
+                )
+            }
+        }
+
+        val MIGRATION_14_15 = object : androidx.room.migration.Migration(14, 15) {
+            override fun migrate(database: androidx.sqlite.db.SupportSQLiteDatabase) {
+                // Keyset-paged feed: widen idx_user_date so (txnDate, createdAt, id) cursors seek and stay sorted
+                database.execSQL("DROP INDEX IF EXISTS idx_user_date")
+                database.execSQL("CREATE INDEX IF NOT EXISTS idx_user_date_created ON transactions(userId, txnDate, createdAt)")
+            }
+        }
+
+        val MIGRATION_15_16 = object : androidx.room.migration.Migration(15, 16) {
+            override fun migrate(database: androidx.sqlite.db.SupportSQLiteDatabase) {
+                // Full-text search index over description, merchant, notes and reference
+                TransactionSearch.create(database)
+            }
+        }
+
+        val MIGRATION_16_17 = object : androidx.room.migration.Migration(16, 17) {
+            override fun migrate(database: androidx.sqlite.db.SupportSQLiteDatabase) {
+                // Invoice dashboard totals read date ranges; records search uses a full-text index
+                database.execSQL("CREATE INDEX IF NOT EXISTS idx_invoice_user_date ON invoices(userId, date)")
+                InvoiceSearch.create(database)
+            }
+        }
+
+        val MIGRATION_17_18 = object : androidx.room.migration.Migration(17, 18) {
+            override fun migrate(database: androidx.sqlite.db.SupportSQLiteDatabase) {
+                // Dates as epoch-day integers and timestamps as epoch millis instead of ISO strings
+                EpochDates.migrate(database)
+            }
+        }
+
+        val MIGRATION_18_19 = object : androidx.room.migration.Migration(18, 19) {
+            override fun migrate(database: androidx.sqlite.db.SupportSQLiteDatabase) {
+                // Money as INTEGER paise: exact SUMs and primitive dedup keys
+                PaiseAmounts.migrate(database)
+            }
+        }
+
+        val MIGRATION_19_20 = object : androidx.room.migration.Migration(19, 20) {
+            override fun migrate(database: androidx.sqlite.db.SupportSQLiteDatabase) {
+                // Tags move from a comma-joined column into the transaction_tags join table
+                TransactionTags.migrate(database)
+            }
+        }
+
+        val MIGRATION_20_21 = object : androidx.room.migration.Migration(20, 21) {
+            override fun migrate(database: androidx.sqlite.db.SupportSQLiteDatabase) {
+                // Index review: idx_dedup leads with userId and replaces its prefix idx_user_account_date;
+                // merchant and category lookups get their own indexes
+                database.execSQL("DROP INDEX IF EXISTS idx_user_account_date")
+                database.execSQL("DROP INDEX IF EXISTS idx_dedup")
+                TableRebuild.TRANSACTION_INDEXES.forEach { database.execSQL(it) }
+            }
+        }
+
+        val MIGRATION_21_22 = object : androidx.room.migration.Migration(21, 22) {
+            override fun migrate(database: androidx.sqlite.db.SupportSQLiteDatabase) {
+                // merchantName is now filled on write; derive it once for the rows stored before
+                backfillMerchantNames(database)
+            }
+        }
+
+        /**
+         * Extract merchants for stored transactions in id order, one batch at a time.
+         * Rows without a recognisable merchant stay NULL.
+         */
+        private fun backfillMerchantNames(database: androidx.sqlite.db.SupportSQLiteDatabase) {
+            val update = database.compileStatement("UPDATE transactions SET merchantName = ? WHERE id = ?")
+            var lastId = 0L
+            var total = 0
+
+            while (true) {
+                var batchCount = 0
+                database.query(
+                    "SELECT id, description FROM transactions " +
+                        "WHERE id > ? AND merchantName IS NULL ORDER BY id LIMIT $BACKFILL_BATCH_SIZE",
+                    arrayOf<Any>(lastId)
+                ).use { cursor ->
+                    while (cursor.moveToNext()) {
+                        val id = cursor.getLong(0)
+                        val merchantName = MerchantExtractor.extractOrNull(cursor.getString(1) ?: "")
+                        if (merchantName != null) {
+                            update.bindString(1, merchantName)
+                            update.bindLong(2, id)
+                            update.executeUpdateDelete()
+                            total++
+                        }
+
+                        lastId = id
+                        batchCount++
+                    }
+                }
+                if (batchCount < BACKFILL_BATCH_SIZE) break
+            }
+            update.close()
+            println("[AppDatabase] Backfilled merchant names for $total transactions")
+        }
+
+        val MIGRATION_22_23 = object : androidx.room.migration.Migration(22, 23) {
+            override fun migrate(database: androidx.sqlite.db.SupportSQLiteDatabase) {
+                // Imports auto-categorise before inserting and keep the predicting rule's confidence
+                database.execSQL("ALTER TABLE transactions ADD COLUMN confidenceScore REAL")
+            }
+        }
     }
 }
@@ -0,0 +1,156 @@
+package com.bitflow.finance.data.local
+
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * SQL for the running-balance ledger ([com.bitflow.finance.data.local.entity.AccountLedgerEntity]
+ * and [com.bitflow.finance.data.local.entity.AccountDailyLedgerEntity])
+ *
+ * The ledger stores each account's net movement (income minus expenses), both in
+ * total and as a closing figure per transaction day. A balance is the account's
+ * initialBalance plus that net, so changing or reconciling the opening balance
+ * never rewrites the ledger. Figures are whole paise, like transactions.amount.
+ *
+ * Like [MonthlyRollup], the ledger is maintained by triggers on the transactions
+ * table inside the writing transaction. A back-dated transaction shifts the
+ * closing figure of its day and every later day of the account, which costs
+ * O(later days), not O(transactions). [createTriggers] runs on every open.
+ *
+ * Batch writes (imports) would pay that per row. Inside a batch ([OPEN_BATCH_SQL]
+ * to [CLOSE_BATCH_SQL], one transaction) the triggers only record each day's
+ * change in ledger_batch; [SETTLE_BATCH_SQL] then shifts every affected closing
+ * figure in one UPDATE. Days added during the batch start from the pre-batch
+ * closing, like every other day, so the settled figures are the same.
+ */
+object BalanceLedger {
+
+    const val CREATE_LEDGER_TABLE_SQL = "CREATE TABLE IF NOT EXISTS account_ledger (" +
+        "accountId INTEGER NOT NULL, userId TEXT NOT NULL, net INTEGER NOT NULL, count INTEGER NOT NULL, " +
+        "PRIMARY KEY(accountId))"
+
+    const val CREATE_DAILY_TABLE_SQL = "CREATE TABLE IF NOT EXISTS account_daily_ledger (" +
+        "accountId INTEGER NOT NULL, day INTEGER NOT NULL, userId TEXT NOT NULL, netChange INTEGER NOT NULL, " +
+        "closingNet INTEGER NOT NULL, count INTEGER NOT NULL, PRIMARY KEY(accountId, day))"
+
+    const val CREATE_BATCH_TABLE_SQL = "CREATE TABLE IF NOT EXISTS ledger_batch (" +
+        "accountId INTEGER NOT NULL, day INTEGER NOT NULL, delta INTEGER NOT NULL, PRIMARY KEY(accountId, day))"
+
+    // Marker row of an open batch; account ids start at 1
+    private const val BATCH_MARKER = "accountId = 0"
+
+    // Signed effect of a transaction on its account (see signedAmount); legacy DEBIT/CREDIT rows are still stored
+    private const val SIGNED_AMOUNT = "CASE WHEN direction IN ('INCOME', 'CREDIT') THEN amount " +
+        "WHEN direction IN ('EXPENSE', 'DEBIT') THEN -amount ELSE 0 END"
+
+    const val CLEAR_LEDGER_SQL = "DELETE FROM account_ledger"
+
+    const val CLEAR_DAILY_SQL = "DELETE FROM account_daily_ledger"
+
+    const val REBUILD_LEDGER_SQL = "INSERT INTO account_ledger (accountId, userId, net, count) " +
+        "SELECT accountId, MIN(userId), SUM($SIGNED_AMOUNT), COUNT(*) FROM transactions GROUP BY accountId"
+
+    const val REBUILD_DAILY_SQL = "INSERT INTO account_daily_ledger (accountId, day, userId, netChange, closingNet, count) " +
+        "SELECT accountId, txnDate, MIN(userId), SUM($SIGNED_AMOUNT), 0, COUNT(*) FROM transactions " +
+        "GROUP BY accountId, txnDate"
+
+    /** Fill closingNet as the running sum of netChange (run after [REBUILD_DAILY_SQL]) */
+    const val REBUILD_CLOSINGS_SQL = "UPDATE account_daily_ledger SET closingNet = (" +
+        "SELECT SUM(d.netChange) FROM account_daily_ledger d " +
+        "WHERE d.accountId = account_daily_ledger.accountId AND d.day <= account_daily_ledger.day)"
+
+    const val OPEN_BATCH_SQL = "INSERT OR REPLACE INTO ledger_batch (accountId, day, delta) VALUES (0, 0, 0)"
+
+    /** Apply the open batch's per-day changes to the closing figures of their and later days */
+    const val SETTLE_BATCH_SQL = "UPDATE account_daily_ledger SET closingNet = closingNet + (" +
+        "SELECT SUM(b.delta) FROM ledger_batch b " +
+        "WHERE b.accountId = account_daily_ledger.accountId AND b.day <= account_daily_ledger.day) " +
+        "WHERE accountId IN (SELECT accountId FROM ledger_batch WHERE accountId <> 0) " +
+        "AND day >= (SELECT MIN(b.day) FROM ledger_batch b WHERE b.accountId = account_daily_ledger.accountId)"
+
+    const val CLOSE_BATCH_SQL = "DELETE FROM ledger_batch"
+
+    /**
+     * Recompute both ledger tables from the transactions table
+     */
+    fun rebuild(db: SupportSQLiteDatabase) {
+        db.execSQL(CLEAR_LEDGER_SQL)
+        db.execSQL(CLEAR_DAILY_SQL)
+        db.execSQL(REBUILD_LEDGER_SQL)
+        db.execSQL(REBUILD_DAILY_SQL)
+        db.execSQL(REBUILD_CLOSINGS_SQL)
+    }
+
+    fun createTriggers(db: SupportSQLiteDatabase) {
+        // The triggers write ledger_batch, so it has to exist at every schema version they are created at
+        db.execSQL(CREATE_BATCH_TABLE_SQL)
+        db.execSQL(
+            """
+            CREATE TRIGGER IF NOT EXISTS trg_balance_ledger_insert AFTER INSERT ON transactions
+            BEGIN
+                ${add("NEW")}
+            END
+            """
+        )
+        db.execSQL(
+            """
+            CREATE TRIGGER IF NOT EXISTS trg_balance_ledger_delete AFTER DELETE ON transactions
+            BEGIN
+                ${subtract("OLD")}
+            END
+            """
+        )
+        db.execSQL(
+            """
+            CREATE TRIGGER IF NOT EXISTS trg_balance_ledger_update
+            AFTER UPDATE OF userId, accountId, txnDate, direction, amount ON transactions
+            BEGIN
+                ${subtract("OLD")}
+                ${add("NEW")}
+            END
+            """
+        )
+    }
+
+    private fun add(row: String) = """
+        INSERT OR IGNORE INTO account_ledger (accountId, userId, net, count)
+        VALUES ($row.accountId, $row.userId, 0, 0);
+        UPDATE account_ledger SET net = net + ${signedAmount(row)}, count = count + 1
+        WHERE accountId = $row.accountId;
+        INSERT OR IGNORE INTO account_daily_ledger (accountId, day, userId, netChange, closingNet, count)
+        VALUES ($row.accountId, $row.txnDate, $row.userId, 0, COALESCE((
+            SELECT closingNet FROM account_daily_ledger
+            WHERE accountId = $row.accountId AND day < $row.txnDate ORDER BY day DESC LIMIT 1
+        ), 0), 0);
+        UPDATE account_daily_ledger SET netChange = netChange + ${signedAmount(row)}, count = count + 1
+        WHERE accountId = $row.accountId AND day = $row.txnDate;
+        ${shiftClosings(row, "+")}
+    """
+
+    private fun subtract(row: String) = """
+        UPDATE account_ledger SET net = net - ${signedAmount(row)}, count = count - 1
+        WHERE accountId = $row.accountId;
+        DELETE FROM account_ledger WHERE accountId = $row.accountId AND count <= 0;
+        UPDATE account_daily_ledger SET netChange = netChange - ${signedAmount(row)}, count = count - 1
+        WHERE accountId = $row.accountId AND day = $row.txnDate;
+        ${shiftClosings(row, "-")}
+        DELETE FROM account_daily_ledger WHERE accountId = $row.accountId AND day = $row.txnDate AND count <= 0;
+    """
+
+    /**
+     * Shift the closing figures from the row's day on, or inside a batch record the
+     * change for [SETTLE_BATCH_SQL]
+     */
+    private fun shiftClosings(row: String, sign: String) = """
+        UPDATE account_daily_ledger SET closingNet = closingNet $sign ${signedAmount(row)}
+        WHERE accountId = $row.accountId AND day >= $row.txnDate
+        AND NOT EXISTS (SELECT 1 FROM ledger_batch WHERE $BATCH_MARKER);
+        INSERT OR IGNORE INTO ledger_batch (accountId, day, delta)
+        SELECT $row.accountId, $row.txnDate, 0 FROM ledger_batch WHERE $BATCH_MARKER;
+        UPDATE ledger_batch SET delta = delta $sign ${signedAmount(row)}
+        WHERE accountId = $row.accountId AND day = $row.txnDate;
+    """
+
+    private fun signedAmount(row: String) =
+        "(CASE WHEN $row.direction IN ('INCOME', 'CREDIT') THEN $row.amount " +
+            "WHEN $row.direction IN ('EXPENSE', 'DEBIT') THEN -$row.amount ELSE 0 END)"
+}
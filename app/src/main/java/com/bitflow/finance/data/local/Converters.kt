@@ -6,39 +6,33 @@ import com.bitflow.finance.domain.model.CategoryType
 import com.bitflow.finance.domain.model.TransactionDirection
 import java.time.LocalDate
 import java.time.LocalDateTime
-import java.time.format.DateTimeFormatter
+import java.time.ZoneOffset
 
 class Converters {
+    // Date-times are stored as epoch milliseconds of the local date-time read as UTC,
+    // dates as epoch days (see EpochDates): integer comparisons, no text parsing on read
     @TypeConverter
-    fun fromTimestamp(value: String?): LocalDateTime? {
-        return value?.let { LocalDateTime.parse(it) }
-    }
-
-    @TypeConverter
-    fun dateToTimestamp(date: LocalDateTime?): String? {
-        return date?.toString()
+    fun fromTimestamp(value: Long?): LocalDateTime? {
+        return value?.let {
+            LocalDateTime.ofEpochSecond(Math.floorDiv(it, 1000L), Math.floorMod(it, 1000L).toInt() * 1_000_000, ZoneOffset.UTC)
+        }
     }
 
     @TypeConverter
-    fun fromDateString(value: String?): LocalDate? {
-        return value?.let { LocalDate.parse(it) }
+    fun dateToTimestamp(date: LocalDateTime?): Long? {
+        return date?.toInstant(ZoneOffset.UTC)?.toEpochMilli()
     }
 
     @TypeConverter
-    fun dateToString(date: LocalDate?): String? {
-        return date?.toString()
+    fun fromEpochDay(value: Long?): LocalDate? {
+        return value?.let { LocalDate.ofEpochDay(it) }
     }
 
     @TypeConverter
-    fun fromStringList(value: String?): List<String> {
-        return value?.split(",")?.map { it.trim() } ?: emptyList()
+    fun dateToEpochDay(date: LocalDate?): Long? {
+        return date?.toEpochDay()
     }
 
-    @TypeConverter
-    fun toStringList(list: List<String>?): String {
-        return list?.joinToString(",") ?: ""
-    }
-    
     @TypeConverter
     fun fromAccountType(value: String) = AccountType.valueOf(value)
     @TypeConverter
@@ -0,0 +1,96 @@
+package com.bitflow.finance.data.local
+
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * Integer date storage ([Converters]): LocalDate columns hold the epoch day and
+ * LocalDateTime columns epoch milliseconds, the local date-time read as UTC so values
+ * round-trip exactly whatever the device time zone.
+ *
+ * Up to version 17 both were ISO strings: every range filter compared text, every
+ * index entry carried a 10- or 23-byte key and every row read parsed strings.
+ * [migrate] converts the stored values. SQLite cannot change a column's type, so
+ * each affected table is copied into a new one; indexes, search and ledger triggers
+ * are recreated and the derived tables rebuilt against the integer days.
+ */
+object EpochDates {
+
+    // Julian day number of 1970-01-01T00:00Z
+    private const val UNIX_EPOCH_JULIAN_DAY = 2440587.5
+
+    /** SQL converting an ISO date column to its epoch day (NULL stays NULL) */
+    fun epochDaySql(column: String) = "CAST(julianday($column) - $UNIX_EPOCH_JULIAN_DAY AS INTEGER)"
+
+    /** SQL converting an ISO date-time column to epoch milliseconds, read as UTC */
+    fun epochMillisSql(column: String) =
+        "(CAST(strftime('%s', $column) AS INTEGER) * 1000 + CAST(substr(strftime('%f', $column), 4) AS INTEGER))"
+
+    private const val CREATE_TRANSACTIONS_SQL = "CREATE TABLE IF NOT EXISTS `transactions_new` (" +
+        "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `userId` TEXT NOT NULL, `accountId` INTEGER NOT NULL, " +
+        "`txnDate` INTEGER NOT NULL, `valueDate` INTEGER, `description` TEXT NOT NULL, `reference` TEXT, " +
+        "`amount` REAL NOT NULL, `direction` TEXT NOT NULL, `categoryId` INTEGER, `merchantName` TEXT, " +
+        "`tags` TEXT NOT NULL, `billPhotoUri` TEXT, `notes` TEXT, `balanceAfterTxn` REAL, " +
+        "`isAutoCategorized` INTEGER NOT NULL, `createdAt` INTEGER NOT NULL, `updatedAt` INTEGER NOT NULL, " +
+        "`fingerprint` INTEGER, `referenceNorm` TEXT)"
+
+    private const val CREATE_LEARNING_RULES_SQL = "CREATE TABLE IF NOT EXISTS `learning_rules_new` (" +
+        "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `userId` TEXT NOT NULL, `merchantPattern` TEXT NOT NULL, " +
+        "`categoryId` INTEGER NOT NULL, `confidenceScore` REAL NOT NULL, `usageCount` INTEGER NOT NULL, " +
+        "`createdAt` INTEGER NOT NULL, `lastUsedAt` INTEGER NOT NULL)"
+
+    private val TRANSACTION_COLUMNS = listOf(
+        "id", "userId", "accountId", "txnDate", "valueDate", "description", "reference", "amount", "direction",
+        "categoryId", "merchantName", "tags", "billPhotoUri", "notes", "balanceAfterTxn", "isAutoCategorized",
+        "createdAt", "updatedAt", "fingerprint", "referenceNorm"
+    )
+
+    private val LEARNING_RULE_COLUMNS = listOf(
+        "id", "userId", "merchantPattern", "categoryId", "confidenceScore", "usageCount", "createdAt", "lastUsedAt"
+    )
+
+    /**
+     * Convert a version 17 database (ISO string dates) to integer dates
+     */
+    fun migrate(db: SupportSQLiteDatabase) {
+        migrateTransactions(db)
+        migrateLearningRules(db)
+
+        // Derived tables: the rollup keys months off txnDate, the daily ledger is keyed by it
+        db.execSQL("DELETE FROM ${MonthlyRollup.TABLE}")
+        db.execSQL(MonthlyRollup.REBUILD_SQL)
+        MonthlyRollup.createTriggers(db)
+        db.execSQL("DROP TABLE IF EXISTS account_daily_ledger")
+        db.execSQL(BalanceLedger.CREATE_DAILY_TABLE_SQL)
+        BalanceLedger.rebuild(db)
+        BalanceLedger.createTriggers(db)
+    }
+
+    private fun migrateTransactions(db: SupportSQLiteDatabase) {
+        db.execSQL(CREATE_TRANSACTIONS_SQL)
+        TableRebuild.copy(
+            db, "transactions",
+            TRANSACTION_COLUMNS.associateWith { column ->
+                when (column) {
+                    "txnDate", "valueDate" -> epochDaySql(column)
+                    "createdAt", "updatedAt" -> epochMillisSql(column)
+                    else -> column
+                }
+            }
+        )
+        TableRebuild.restoreTransactionIndexes(db)
+    }
+
+    private fun migrateLearningRules(db: SupportSQLiteDatabase) {
+        db.execSQL(CREATE_LEARNING_RULES_SQL)
+        TableRebuild.copy(
+            db, "learning_rules",
+            LEARNING_RULE_COLUMNS.associateWith { column ->
+                if (column == "createdAt" || column == "lastUsedAt") epochMillisSql(column) else column
+            }
+        )
+        db.execSQL(
+            "CREATE INDEX IF NOT EXISTS `index_learning_rules_userId_merchantPattern` " +
+                "ON `learning_rules` (`userId`, `merchantPattern`)"
+        )
+    }
+}
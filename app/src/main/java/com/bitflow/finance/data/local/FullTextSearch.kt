@@ -0,0 +1,45 @@
+package com.bitflow.finance.data.local
+
+import java.util.Locale
+
+/**
+ * Helpers shared by the FTS4 search tables ([TransactionSearch], [InvoiceSearch])
+ */
+object FullTextSearch {
+
+    // FTS4's simple tokenizer splits on ASCII punctuation and treats non-ASCII as word characters
+    private val WORD_SEPARATORS = Regex("""[^\p{L}\p{N}]+""")
+
+    /**
+     * Lowercased words of user input. Lowercase so words like "or" / "not" are never
+     * read as FTS operators.
+     */
+    fun words(text: String): List<String> =
+        text.lowercase(Locale.ROOT).split(WORD_SEPARATORS).filter { it.isNotEmpty() }
+
+    /**
+     * MATCH expression requiring every word as a prefix, or null if there are none
+     */
+    fun prefixMatch(words: List<String>): String? =
+        words.distinct().takeIf { it.isNotEmpty() }?.joinToString(" ") { "$it*" }
+
+    fun rebuildSql(ftsTable: String) = "INSERT INTO $ftsTable($ftsTable) VALUES('rebuild')"
+
+    /**
+     * The triggers Room generates for an external-content FTS entity (same names and
+     * bodies), for creating the table in a migration
+     */
+    fun contentSyncTriggers(ftsTable: String, contentTable: String, columns: List<String>): List<String> {
+        val names = columns.joinToString(", ") { "`$it`" }
+        val values = columns.joinToString(", ") { "NEW.`$it`" }
+        val delete = "DELETE FROM `$ftsTable` WHERE `docid`=OLD.`rowid`;"
+        val insert = "INSERT INTO `$ftsTable`(`docid`, $names) VALUES (NEW.`rowid`, $values);"
+        val prefix = "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_${ftsTable}"
+        return listOf(
+            "${prefix}_BEFORE_UPDATE BEFORE UPDATE ON `$contentTable` BEGIN $delete END",
+            "${prefix}_BEFORE_DELETE BEFORE DELETE ON `$contentTable` BEGIN $delete END",
+            "${prefix}_AFTER_UPDATE AFTER UPDATE ON `$contentTable` BEGIN $insert END",
+            "${prefix}_AFTER_INSERT AFTER INSERT ON `$contentTable` BEGIN $insert END"
+        )
+    }
+}
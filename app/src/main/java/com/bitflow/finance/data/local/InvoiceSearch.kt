@@ -0,0 +1,24 @@
+package com.bitflow.finance.data.local
+
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * SQL for the invoices_fts table ([com.bitflow.finance.data.local.entity.InvoiceFtsEntity]),
+ * the migration counterpart of what Room creates on a fresh install
+ */
+object InvoiceSearch {
+
+    const val CREATE_TABLE_SQL = "CREATE VIRTUAL TABLE IF NOT EXISTS `invoices_fts` USING FTS4(" +
+        "`clientName` TEXT NOT NULL, `invoiceNumber` TEXT NOT NULL, content=`invoices`)"
+
+    private val INDEXED_COLUMNS = listOf("clientName", "invoiceNumber")
+
+    /**
+     * Create the table and its triggers, then index the existing invoices
+     */
+    fun create(db: SupportSQLiteDatabase) {
+        db.execSQL(CREATE_TABLE_SQL)
+        FullTextSearch.contentSyncTriggers("invoices_fts", "invoices", INDEXED_COLUMNS).forEach { db.execSQL(it) }
+        db.execSQL(FullTextSearch.rebuildSql("invoices_fts"))
+    }
+}
@@ -0,0 +1,93 @@
+package com.bitflow.finance.data.local
+
+import androidx.sqlite.db.SupportSQLiteDatabase
+import java.time.YearMonth
+
+/**
+ * SQL for the monthly_rollup table ([com.bitflow.finance.data.local.entity.MonthlyRollupEntity])
+ *
+ * The rollup is kept in step with the transactions table by AFTER INSERT / UPDATE /
+ * DELETE triggers, so it changes in the same SQLite transaction as the rows it
+ * summarises, whichever path wrote them (single insert, batch import, bulk category
+ * update, delete). Triggers are not part of Room's schema, so [createTriggers] runs
+ * on every open with IF NOT EXISTS. Totals are whole paise, like transactions.amount.
+ *
+ * minSdk 26 ships SQLite 3.18, which has no UPSERT: each trigger first inserts an
+ * empty bucket with INSERT OR IGNORE and then adjusts it, and empty buckets are
+ * removed when their count drops to zero.
+ */
+object MonthlyRollup {
+
+    const val TABLE = "monthly_rollup"
+
+    /** Recompute the rollup from the transactions table (table must be empty) */
+    const val REBUILD_SQL = """
+        INSERT INTO monthly_rollup (userId, accountId, categoryId, yyyymm, direction, total, count)
+        SELECT userId, accountId, COALESCE(categoryId, 0),
+            CAST(strftime('%Y%m', txnDate * 86400, 'unixepoch') AS INTEGER),
+            direction, SUM(amount), COUNT(*)
+        FROM transactions
+        GROUP BY 1, 2, 3, 4, 5
+    """
+
+    const val CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS monthly_rollup (" +
+        "userId TEXT NOT NULL, accountId INTEGER NOT NULL, categoryId INTEGER NOT NULL, " +
+        "yyyymm INTEGER NOT NULL, direction TEXT NOT NULL, total INTEGER NOT NULL, count INTEGER NOT NULL, " +
+        "PRIMARY KEY(userId, accountId, categoryId, yyyymm, direction))"
+
+    /** Lower and upper yyyymm bounds covering every month */
+    const val ALL_MONTHS_FROM = 0
+    const val ALL_MONTHS_TO = 999_912
+
+    fun yyyymm(month: YearMonth): Int = month.year * 100 + month.monthValue
+
+    fun createTriggers(db: SupportSQLiteDatabase) {
+        db.execSQL(
+            """
+            CREATE TRIGGER IF NOT EXISTS trg_monthly_rollup_insert AFTER INSERT ON transactions
+            BEGIN
+                ${add("NEW")}
+            END
+            """
+        )
+        db.execSQL(
+            """
+            CREATE TRIGGER IF NOT EXISTS trg_monthly_rollup_delete AFTER DELETE ON transactions
+            BEGIN
+                ${subtract("OLD")}
+            END
+            """
+        )
+        db.execSQL(
+            """
+            CREATE TRIGGER IF NOT EXISTS trg_monthly_rollup_update
+            AFTER UPDATE OF userId, accountId, categoryId, txnDate, direction, amount ON transactions
+            BEGIN
+                ${subtract("OLD")}
+                ${add("NEW")}
+            END
+            """
+        )
+    }
+
+    private fun add(row: String) = """
+        INSERT OR IGNORE INTO monthly_rollup (userId, accountId, categoryId, yyyymm, direction, total, count)
+        VALUES ($row.userId, $row.accountId, COALESCE($row.categoryId, 0), ${monthOf(row)}, $row.direction, 0, 0);
+        UPDATE monthly_rollup SET total = total + $row.amount, count = count + 1
+        WHERE ${keyOf(row)};
+    """
+
+    private fun subtract(row: String) = """
+        UPDATE monthly_rollup SET total = total - $row.amount, count = count - 1
+        WHERE ${keyOf(row)};
+        DELETE FROM monthly_rollup WHERE ${keyOf(row)} AND count <= 0;
+    """
+
+    private fun keyOf(row: String) =
+        "userId = $row.userId AND accountId = $row.accountId AND categoryId = COALESCE($row.categoryId, 0) " +
+            "AND yyyymm = ${monthOf(row)} AND direction = $row.direction"
+
+    // txnDate is an epoch day (see EpochDates); its UTC midnight falls on the same calendar day
+    private fun monthOf(row: String) =
+        "CAST(strftime('%Y%m', $row.txnDate * 86400, 'unixepoch') AS INTEGER)"
+}
@@ -0,0 +1,98 @@
+package com.bitflow.finance.data.local
+
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * Money columns as whole paise ([com.bitflow.finance.domain.model.Money])
+ *
+ * Up to version 18 transaction amounts, the rollup and ledger figures and split
+ * amounts were REAL rupees: SUMs accumulated binary rounding error and equality
+ * checks needed tolerances. [migrate] rewrites them as INTEGER paise, keeping the
+ * column names so the trigger and rollup SQL is unchanged, and rebuilds the
+ * derived tables from the converted amounts. Account balances and invoices stay REAL.
+ */
+object PaiseAmounts {
+
+    /** SQL converting a REAL rupee column to INTEGER paise (NULL stays NULL) */
+    fun paiseSql(column: String) = "CAST(ROUND($column * 100) AS INTEGER)"
+
+    private const val CREATE_TRANSACTIONS_SQL = "CREATE TABLE IF NOT EXISTS `transactions_new` (" +
+        "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `userId` TEXT NOT NULL, `accountId` INTEGER NOT NULL, " +
+        "`txnDate` INTEGER NOT NULL, `valueDate` INTEGER, `description` TEXT NOT NULL, `reference` TEXT, " +
+        "`amount` INTEGER NOT NULL, `direction` TEXT NOT NULL, `categoryId` INTEGER, `merchantName` TEXT, " +
+        "`tags` TEXT NOT NULL, `billPhotoUri` TEXT, `notes` TEXT, `balanceAfterTxn` INTEGER, " +
+        "`isAutoCategorized` INTEGER NOT NULL, `createdAt` INTEGER NOT NULL, `updatedAt` INTEGER NOT NULL, " +
+        "`fingerprint` INTEGER, `referenceNorm` TEXT)"
+
+    private const val CREATE_SPLIT_EXPENSES_SQL = "CREATE TABLE IF NOT EXISTS `split_expenses_new` (" +
+        "`expenseId` TEXT NOT NULL, `groupId` TEXT NOT NULL, `description` TEXT NOT NULL, " +
+        "`totalAmount` INTEGER NOT NULL, `paidBy` TEXT NOT NULL, `expenseDate` INTEGER NOT NULL, " +
+        "`category` TEXT, `notes` TEXT, `createdAt` INTEGER NOT NULL, `isSettled` INTEGER NOT NULL, " +
+        "PRIMARY KEY(`expenseId`))"
+
+    private const val CREATE_SPLIT_SHARES_SQL = "CREATE TABLE IF NOT EXISTS `split_expense_shares_new` (" +
+        "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `expenseId` TEXT NOT NULL, `userId` TEXT NOT NULL, " +
+        "`shareAmount` INTEGER NOT NULL, `isPaid` INTEGER NOT NULL, `paidAt` INTEGER)"
+
+    private val TRANSACTION_COLUMNS = listOf(
+        "id", "userId", "accountId", "txnDate", "valueDate", "description", "reference", "amount", "direction",
+        "categoryId", "merchantName", "tags", "billPhotoUri", "notes", "balanceAfterTxn", "isAutoCategorized",
+        "createdAt", "updatedAt", "fingerprint", "referenceNorm"
+    )
+
+    private val SPLIT_EXPENSE_COLUMNS = listOf(
+        "expenseId", "groupId", "description", "totalAmount", "paidBy", "expenseDate", "category", "notes",
+        "createdAt", "isSettled"
+    )
+
+    private val SPLIT_SHARE_COLUMNS = listOf("id", "expenseId", "userId", "shareAmount", "isPaid", "paidAt")
+
+    /**
+     * Convert a version 18 database (REAL rupees) to INTEGER paise
+     */
+    fun migrate(db: SupportSQLiteDatabase) {
+        db.execSQL(CREATE_TRANSACTIONS_SQL)
+        TableRebuild.copy(db, "transactions", TRANSACTION_COLUMNS.associateWith { column ->
+            if (column == "amount" || column == "balanceAfterTxn") paiseSql(column) else column
+        })
+        TableRebuild.restoreTransactionIndexes(db)
+
+        db.execSQL(CREATE_SPLIT_EXPENSES_SQL)
+        TableRebuild.copy(db, "split_expenses", presentColumns(db, "split_expenses", SPLIT_EXPENSE_COLUMNS, "totalAmount"))
+        db.execSQL("CREATE INDEX IF NOT EXISTS `index_split_expenses_groupId` ON `split_expenses` (`groupId`)")
+        db.execSQL("CREATE INDEX IF NOT EXISTS `index_split_expenses_paidBy` ON `split_expenses` (`paidBy`)")
+        db.execSQL("CREATE INDEX IF NOT EXISTS `index_split_expenses_expenseDate` ON `split_expenses` (`expenseDate`)")
+
+        db.execSQL(CREATE_SPLIT_SHARES_SQL)
+        TableRebuild.copy(db, "split_expense_shares", presentColumns(db, "split_expense_shares", SPLIT_SHARE_COLUMNS, "shareAmount"))
+        db.execSQL("CREATE INDEX IF NOT EXISTS `index_split_expense_shares_expenseId` ON `split_expense_shares` (`expenseId`)")
+        db.execSQL("CREATE INDEX IF NOT EXISTS `index_split_expense_shares_userId` ON `split_expense_shares` (`userId`)")
+
+        // Derived tables are recreated with INTEGER figures and summed again from the paise amounts
+        db.execSQL("DROP TABLE IF EXISTS ${MonthlyRollup.TABLE}")
+        db.execSQL(MonthlyRollup.CREATE_TABLE_SQL)
+        db.execSQL(MonthlyRollup.REBUILD_SQL)
+        MonthlyRollup.createTriggers(db)
+        db.execSQL("DROP TABLE IF EXISTS account_ledger")
+        db.execSQL("DROP TABLE IF EXISTS account_daily_ledger")
+        db.execSQL(BalanceLedger.CREATE_LEDGER_TABLE_SQL)
+        db.execSQL(BalanceLedger.CREATE_DAILY_TABLE_SQL)
+        BalanceLedger.rebuild(db)
+        BalanceLedger.createTriggers(db)
+    }
+
+    /**
+     * Copy expressions for the [columns] the old table has; split tables created by
+     * MIGRATION_9_10 lack some entity columns, which are left NULL (or, for ids, assigned)
+     */
+    private fun presentColumns(
+        db: SupportSQLiteDatabase,
+        table: String,
+        columns: List<String>,
+        amountColumn: String
+    ): Map<String, String> {
+        val existing = TableRebuild.columnsOf(db, table)
+        return columns.filter { it in existing }
+            .associateWith { column -> if (column == amountColumn) paiseSql(column) else column }
+    }
+}
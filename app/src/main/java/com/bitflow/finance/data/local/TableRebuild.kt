@@ -0,0 +1,55 @@
+package com.bitflow.finance.data.local
+
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * Column type changes for migrations. SQLite cannot alter a column in place, so the
+ * rows are copied into `<table>_new` (created by the caller with the target schema),
+ * the old table is dropped, which also drops its indexes and triggers, and the copy
+ * is renamed. Row ids are kept, so AUTOINCREMENT sequences and FTS docids stay valid.
+ */
+object TableRebuild {
+
+    /** Indexes of the transactions table, as declared on TransactionEntity */
+    val TRANSACTION_INDEXES = listOf(
+        "CREATE INDEX IF NOT EXISTS `idx_user_date_created` ON `transactions` (`userId`, `txnDate`, `createdAt`)",
+        "CREATE INDEX IF NOT EXISTS `idx_dedup` ON `transactions` (`userId`, `accountId`, `txnDate`, `amount`, `description`)",
+        "CREATE INDEX IF NOT EXISTS `idx_fingerprint` ON `transactions` (`fingerprint`)",
+        "CREATE INDEX IF NOT EXISTS `idx_user_account_reference` ON `transactions` (`userId`, `accountId`, `referenceNorm`)",
+        "CREATE INDEX IF NOT EXISTS `idx_user_merchant_date` ON `transactions` (`userId`, `merchantName`, `txnDate`)",
+        "CREATE INDEX IF NOT EXISTS `idx_user_category` ON `transactions` (`userId`, `categoryId`)"
+    )
+
+    /**
+     * Copy [table] into the already created `<table>_new` and swap it in
+     * @param columns Target column name to the SQL expression reading it from the old table
+     */
+    fun copy(db: SupportSQLiteDatabase, table: String, columns: Map<String, String>) {
+        db.execSQL(
+            "INSERT INTO ${table}_new (${columns.keys.joinToString(", ")}) " +
+                "SELECT ${columns.values.joinToString(", ")} FROM $table"
+        )
+        db.execSQL("DROP TABLE $table")
+        db.execSQL("ALTER TABLE ${table}_new RENAME TO $table")
+    }
+
+    /**
+     * Column names of an existing table (older installs may lack columns added to an entity later)
+     */
+    fun columnsOf(db: SupportSQLiteDatabase, table: String): Set<String> {
+        val names = HashSet<String>()
+        db.query("PRAGMA table_info($table)").use { cursor ->
+            val nameIndex = cursor.getColumnIndexOrThrow("name")
+            while (cursor.moveToNext()) names.add(cursor.getString(nameIndex))
+        }
+        return names
+    }
+
+    /**
+     * Recreate the transactions indexes and search sync triggers after a rebuild
+     */
+    fun restoreTransactionIndexes(db: SupportSQLiteDatabase) {
+        TRANSACTION_INDEXES.forEach { db.execSQL(it) }
+        TransactionSearch.createTriggers(db)
+    }
+}
@@ -0,0 +1,36 @@
+package com.bitflow.finance.data.local
+
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * SQL for the transactions_fts table ([com.bitflow.finance.data.local.entity.TransactionFtsEntity])
+ *
+ * On a fresh install Room creates the table and its content-sync triggers itself;
+ * the statements here are the same ones, for migrating an existing database. Prefix
+ * indexes of 2 and 3 characters keep short "word*" queries from scanning the
+ * whole term list.
+ */
+object TransactionSearch {
+
+    const val CREATE_TABLE_SQL = "CREATE VIRTUAL TABLE IF NOT EXISTS `transactions_fts` USING FTS4(" +
+        "`description` TEXT NOT NULL, `merchantName` TEXT, `notes` TEXT, `reference` TEXT, " +
+        "content=`transactions`, prefix=`2,3`)"
+
+    private val INDEXED_COLUMNS = listOf("description", "merchantName", "notes", "reference")
+
+    /**
+     * Create the table and its triggers, then index the existing transactions
+     */
+    fun create(db: SupportSQLiteDatabase) {
+        db.execSQL(CREATE_TABLE_SQL)
+        createTriggers(db)
+        db.execSQL(FullTextSearch.rebuildSql("transactions_fts"))
+    }
+
+    /**
+     * The content-sync triggers on the transactions table
+     */
+    fun createTriggers(db: SupportSQLiteDatabase) {
+        FullTextSearch.contentSyncTriggers("transactions_fts", "transactions", INDEXED_COLUMNS).forEach { db.execSQL(it) }
+    }
+}
@@ -0,0 +1,80 @@
+package com.bitflow.finance.data.local
+
+import com.bitflow.finance.data.parser.AmountParser
+
+/**
+ * Search box input split into an FTS4 match expression and an amount range, both
+ * applied in SQL
+ *
+ * Words become prefix terms that must all occur in the description, merchant,
+ * notes or reference ("amaz pay" matches "AMAZON PAY"). Numeric tokens filter the
+ * amount instead: `250` (exact), `100-500` or `100..500`, `>500`, `>=500`, `<200`,
+ * `<=200`. Currency symbols and thousands separators are ignored (`₹1,200`);
+ * digit runs longer than an amount (UPI / cheque numbers) are searched as words.
+ *
+ * @param match FTS4 MATCH expression, or null if the input has no words
+ * @param minPaise Inclusive lower amount bound, in paise
+ * @param maxPaise Inclusive upper amount bound, in paise
+ */
+data class TransactionSearchQuery(
+    val match: String?,
+    val minPaise: Long = ANY_MIN_PAISE,
+    val maxPaise: Long = ANY_MAX_PAISE
+) {
+    val hasAmountFilter: Boolean
+        get() = minPaise != ANY_MIN_PAISE || maxPaise != ANY_MAX_PAISE
+
+    companion object {
+        const val ANY_MIN_PAISE = Long.MIN_VALUE
+        const val ANY_MAX_PAISE = Long.MAX_VALUE
+
+        // Up to 7 integer digits; longer digit runs are reference numbers and searched as words
+        private const val NUMBER = """\d{1,7}(?:\.\d+)?"""
+        private val EXACT = Regex("^($NUMBER)$")
+        private val RANGE = Regex("""^($NUMBER)(?:-|\.\.)($NUMBER)$""")
+        private val COMPARISON = Regex("^(>=|<=|>|<)($NUMBER)$")
+
+        val EMPTY = TransactionSearchQuery(match = null)
+
+        fun parse(input: String?): TransactionSearchQuery {
+            if (input.isNullOrBlank()) return EMPTY
+
+            var minPaise = ANY_MIN_PAISE
+            var maxPaise = ANY_MAX_PAISE
+            val terms = mutableListOf<String>()
+
+            for (token in input.trim().split(Regex("""\s+"""))) {
+                val amount = token.replace("₹", "").replace(",", "")
+                val exact = EXACT.matchEntire(amount)
+                val range = RANGE.matchEntire(amount)
+                val comparison = COMPARISON.matchEntire(amount)
+                when {
+                    exact != null -> {
+                        val value = AmountParser.parsePaise(exact.groupValues[1])
+                        minPaise = maxOf(minPaise, value)
+                        maxPaise = minOf(maxPaise, value)
+                    }
+                    range != null -> {
+                        val low = AmountParser.parsePaise(range.groupValues[1])
+                        val high = AmountParser.parsePaise(range.groupValues[2])
+                        minPaise = maxOf(minPaise, minOf(low, high))
+                        maxPaise = minOf(maxPaise, maxOf(low, high))
+                    }
+                    comparison != null -> {
+                        val (operator, number) = comparison.destructured
+                        val value = AmountParser.parsePaise(number)
+                        when (operator) {
+                            ">" -> minPaise = maxOf(minPaise, value + 1)
+                            ">=" -> minPaise = maxOf(minPaise, value)
+                            "<" -> maxPaise = minOf(maxPaise, value - 1)
+                            "<=" -> maxPaise = minOf(maxPaise, value)
+                        }
+                    }
+                    else -> terms.addAll(FullTextSearch.words(token))
+                }
+            }
+
+            return TransactionSearchQuery(FullTextSearch.prefixMatch(terms), minPaise, maxPaise)
+        }
+    }
+}
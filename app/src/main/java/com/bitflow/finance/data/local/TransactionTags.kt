@@ -0,0 +1,90 @@
+package com.bitflow.finance.data.local
+
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * SQL for the transaction_tags table ([com.bitflow.finance.data.local.entity.TransactionTagEntity])
+ *
+ * Up to version 19 tags were a comma-joined TEXT column on transactions, split and
+ * trimmed on every row read even when empty. [migrate] moves them into the join
+ * table and rebuilds transactions without the column. The triggers keep the tag
+ * rows' userId in step with their transaction and drop them with it; [createTriggers]
+ * runs on every open.
+ */
+object TransactionTags {
+
+    const val CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS `transaction_tags` (" +
+        "`transactionId` INTEGER NOT NULL, `tag` TEXT NOT NULL, `userId` TEXT NOT NULL, " +
+        "PRIMARY KEY(`transactionId`, `tag`))"
+
+    const val CREATE_INDEX_SQL = "CREATE INDEX IF NOT EXISTS `idx_user_tag` ON `transaction_tags` (`userId`, `tag`)"
+
+    /**
+     * Tags as stored: trimmed, blanks dropped, each tag once
+     */
+    fun normalise(tags: Collection<String>): List<String> =
+        tags.mapNotNull { tag -> tag.trim().takeIf { it.isNotEmpty() } }.distinct()
+
+    // Split the legacy comma-joined column, one (transactionId, tag) row per element
+    private const val SPLIT_LEGACY_SQL = """
+        INSERT OR IGNORE INTO transaction_tags (transactionId, tag, userId)
+        WITH RECURSIVE split(transactionId, userId, tag, rest) AS (
+            SELECT id, userId, '', tags || ',' FROM transactions WHERE tags != ''
+            UNION ALL
+            SELECT transactionId, userId, trim(substr(rest, 1, instr(rest, ',') - 1)),
+                substr(rest, instr(rest, ',') + 1)
+            FROM split WHERE rest != ''
+        )
+        SELECT transactionId, tag, userId FROM split WHERE tag != ''
+    """
+
+    private const val CREATE_TRANSACTIONS_SQL = "CREATE TABLE IF NOT EXISTS `transactions_new` (" +
+        "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `userId` TEXT NOT NULL, `accountId` INTEGER NOT NULL, " +
+        "`txnDate` INTEGER NOT NULL, `valueDate` INTEGER, `description` TEXT NOT NULL, `reference` TEXT, " +
+        "`amount` INTEGER NOT NULL, `direction` TEXT NOT NULL, `categoryId` INTEGER, `merchantName` TEXT, " +
+        "`billPhotoUri` TEXT, `notes` TEXT, `balanceAfterTxn` INTEGER, " +
+        "`isAutoCategorized` INTEGER NOT NULL, `createdAt` INTEGER NOT NULL, `updatedAt` INTEGER NOT NULL, " +
+        "`fingerprint` INTEGER, `referenceNorm` TEXT)"
+
+    private val TRANSACTION_COLUMNS = listOf(
+        "id", "userId", "accountId", "txnDate", "valueDate", "description", "reference", "amount", "direction",
+        "categoryId", "merchantName", "billPhotoUri", "notes", "balanceAfterTxn", "isAutoCategorized",
+        "createdAt", "updatedAt", "fingerprint", "referenceNorm"
+    )
+
+    /**
+     * Convert a version 19 database (comma-joined tags column) to the join table
+     */
+    fun migrate(db: SupportSQLiteDatabase) {
+        db.execSQL(CREATE_TABLE_SQL)
+        db.execSQL(CREATE_INDEX_SQL)
+        db.execSQL(SPLIT_LEGACY_SQL)
+
+        db.execSQL(CREATE_TRANSACTIONS_SQL)
+        TableRebuild.copy(db, "transactions", TRANSACTION_COLUMNS.associateWith { it })
+        TableRebuild.restoreTransactionIndexes(db)
+        // Dropping the old table dropped the derived-table triggers with it
+        MonthlyRollup.createTriggers(db)
+        BalanceLedger.createTriggers(db)
+        createTriggers(db)
+    }
+
+    fun createTriggers(db: SupportSQLiteDatabase) {
+        db.execSQL(
+            """
+            CREATE TRIGGER IF NOT EXISTS trg_transaction_tags_delete AFTER DELETE ON transactions
+            BEGIN
+                DELETE FROM transaction_tags WHERE transactionId = OLD.id;
+            END
+            """
+        )
+        db.execSQL(
+            """
+            CREATE TRIGGER IF NOT EXISTS trg_transaction_tags_user AFTER UPDATE OF userId ON transactions
+            BEGIN
+                UPDATE transaction_tags SET userId = NEW.userId WHERE transactionId = NEW.id;
+            END
+            """
+        )
+    }
+}
@@ -8,12 +8,20 @@ import androidx.room.Update
 import com.bitflow.finance.data.local.entity.AccountEntity
 import kotlinx.coroutines.flow.Flow
 
+// Accounts with currentBalance read from the running-balance ledger (initialBalance + net, net in paise)
+private const val SELECT_ACCOUNTS_WITH_BALANCE = """
+    SELECT accounts.id, accounts.userId, accounts.name, accounts.type, accounts.color, accounts.icon,
+        accounts.initialBalance, accounts.initialBalance + COALESCE(account_ledger.net, 0) / 100.0 AS currentBalance,
+        accounts.currency
+    FROM accounts LEFT JOIN account_ledger ON account_ledger.accountId = accounts.id
+"""
+
 @Dao
 interface AccountDao {
-    @Query("SELECT * FROM accounts WHERE userId = :userId")
+    @Query("$SELECT_ACCOUNTS_WITH_BALANCE WHERE accounts.userId = :userId")
     fun getAllAccounts(userId: String): Flow<List<AccountEntity>>
 
-    @Query("SELECT * FROM accounts WHERE id = :id AND userId = :userId")
+    @Query("$SELECT_ACCOUNTS_WITH_BALANCE WHERE accounts.id = :id AND accounts.userId = :userId")
     suspend fun getAccountById(id: Long, userId: String): AccountEntity?
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
@@ -22,6 +30,23 @@ interface AccountDao {
     @Update
     suspend fun updateAccount(account: AccountEntity)
     
-    @Query("UPDATE accounts SET currentBalance = :newBalance WHERE id = :accountId AND userId = :userId")
+    /**
+     * Set the current balance by moving the opening balance; the ledger net is unchanged
+     */
+    @Query("""
+        UPDATE accounts SET
+            initialBalance = :newBalance - COALESCE((SELECT net FROM account_ledger WHERE accountId = :accountId), 0) / 100.0,
+            currentBalance = :newBalance
+        WHERE id = :accountId AND userId = :userId
+    """)
     suspend fun updateBalance(accountId: Long, newBalance: Double, userId: String)
+    
+    /**
+     * Shift the opening balance (and so every ledger balance) by [offset]
+     */
+    @Query("""
+        UPDATE accounts SET initialBalance = initialBalance + :offset, currentBalance = currentBalance + :offset
+        WHERE id = :accountId AND userId = :userId
+    """)
+    suspend fun adjustOpeningBalance(accountId: Long, offset: Double, userId: String)
 }
@@ -12,6 +12,30 @@ interface InvoiceDao {
     @Query("SELECT * FROM invoices WHERE userId = :userId ORDER BY date DESC")
     fun getAllInvoices(userId: String): Flow<List<InvoiceEntity>>
 
+    /**
+     * Invoices whose client name or number contains every word of [match] as a
+     * prefix (an FTS4 expression, see FullTextSearch.prefixMatch), newest first
+     */
+    @Query("""
+        SELECT * FROM invoices
+        WHERE userId = :userId AND id IN (SELECT docid FROM invoices_fts WHERE invoices_fts MATCH :match)
+        ORDER BY date DESC
+    """)
+    fun searchInvoices(match: String, userId: String): Flow<List<InvoiceEntity>>
+
+    /**
+     * Paid and unpaid totals and counts of invoices dated in [fromMillis, toMillis)
+     * (idx_invoice_user_date range)
+     */
+    @Query("""
+        SELECT COALESCE(SUM(CASE WHEN isPaid = 1 THEN amount END), 0) AS paidTotal,
+            COUNT(CASE WHEN isPaid = 1 THEN 1 END) AS paidCount,
+            COALESCE(SUM(CASE WHEN isPaid = 0 THEN amount END), 0) AS unpaidTotal,
+            COUNT(CASE WHEN isPaid = 0 THEN 1 END) AS unpaidCount
+        FROM invoices WHERE userId = :userId AND date >= :fromMillis AND date < :toMillis
+    """)
+    fun getTotals(fromMillis: Long, toMillis: Long, userId: String): Flow<InvoiceTotals>
+
     @Query("SELECT * FROM invoices WHERE id = :id AND userId = :userId")
     suspend fun getInvoiceById(id: Long, userId: String): InvoiceEntity?
 
@@ -24,3 +48,16 @@ interface InvoiceDao {
     @Query("DELETE FROM invoices WHERE id = :id AND userId = :userId")
     suspend fun deleteInvoice(id: Long, userId: String)
 }
+
+data class InvoiceTotals(
+    val paidTotal: Double,
+    val paidCount: Int,
+    val unpaidTotal: Double,
+    val unpaidCount: Int
+) {
+    val total: Double
+        get() = paidTotal + unpaidTotal
+
+    val count: Int
+        get() = paidCount + unpaidCount
+}
@@ -0,0 +1,107 @@
+package com.bitflow.finance.data.local.dao
+
+import androidx.room.Dao
+import androidx.room.Query
+import androidx.room.Transaction
+import com.bitflow.finance.data.local.BalanceLedger
+import com.bitflow.finance.data.local.entity.AccountDailyLedgerEntity
+import com.bitflow.finance.data.local.entity.AccountLedgerEntity
+import java.time.LocalDate
+
+/**
+ * Reads of the trigger-maintained balance ledger, plus the queries the consistency
+ * checker compares it against
+ */
+@Dao
+interface LedgerDao {
+
+    /**
+     * Net movement in paise up to and including [date] (closing figure of the last day
+     * with transactions on or before it), or null if the account has none by then
+     */
+    @Query("""
+        SELECT closingNet FROM account_daily_ledger
+        WHERE accountId = :accountId AND day <= :date
+        ORDER BY day DESC LIMIT 1
+    """)
+    suspend fun getClosingNetOn(accountId: Long, date: LocalDate): Long?
+
+    @Query("SELECT * FROM account_ledger WHERE userId = :userId")
+    suspend fun getLedger(userId: String): List<AccountLedgerEntity>
+
+    @Query("SELECT * FROM account_daily_ledger WHERE accountId = :accountId ORDER BY day")
+    suspend fun getDailyLedger(accountId: Long): List<AccountDailyLedgerEntity>
+
+    /**
+     * Consistency check: what account_ledger should contain, computed from transactions
+     */
+    @Query("""
+        SELECT accountId, MIN(userId) AS userId,
+            SUM(CASE WHEN direction IN ('INCOME', 'CREDIT') THEN amount
+                WHEN direction IN ('EXPENSE', 'DEBIT') THEN -amount ELSE 0 END) AS net,
+            COUNT(*) AS count
+        FROM transactions WHERE userId = :userId GROUP BY accountId
+    """)
+    suspend fun computeLedger(userId: String): List<AccountLedgerEntity>
+
+    /**
+     * Consistency check: per-day movement of an account computed from transactions
+     * (closingNet is left 0; the checker accumulates it)
+     */
+    @Query("""
+        SELECT accountId, txnDate AS day, MIN(userId) AS userId,
+            SUM(CASE WHEN direction IN ('INCOME', 'CREDIT') THEN amount
+                WHEN direction IN ('EXPENSE', 'DEBIT') THEN -amount ELSE 0 END) AS netChange,
+            0 AS closingNet, COUNT(*) AS count
+        FROM transactions WHERE userId = :userId AND accountId = :accountId GROUP BY txnDate ORDER BY txnDate
+    """)
+    suspend fun computeDailyLedger(accountId: Long, userId: String): List<AccountDailyLedgerEntity>
+
+    @Query(BalanceLedger.CLEAR_LEDGER_SQL)
+    suspend fun clearLedger()
+
+    @Query(BalanceLedger.CLEAR_DAILY_SQL)
+    suspend fun clearDailyLedger()
+
+    @Query(BalanceLedger.REBUILD_LEDGER_SQL)
+    suspend fun insertLedgerFromTransactions()
+
+    @Query(BalanceLedger.REBUILD_DAILY_SQL)
+    suspend fun insertDailyLedgerFromTransactions()
+
+    @Query(BalanceLedger.REBUILD_CLOSINGS_SQL)
+    suspend fun fillDailyClosings()
+
+    @Query(BalanceLedger.OPEN_BATCH_SQL)
+    suspend fun openBatch()
+
+    @Query(BalanceLedger.SETTLE_BATCH_SQL)
+    suspend fun settleBatch()
+
+    @Query(BalanceLedger.CLOSE_BATCH_SQL)
+    suspend fun closeBatch()
+
+    /**
+     * Run the transactions writes in [block] as one ledger batch: later days' closing
+     * figures are shifted once at the end instead of once per written row
+     */
+    @Transaction
+    suspend fun batch(block: suspend () -> Unit) {
+        openBatch()
+        block()
+        settleBatch()
+        closeBatch()
+    }
+
+    /**
+     * Recompute the whole ledger from the transactions table
+     */
+    @Transaction
+    suspend fun rebuild() {
+        clearLedger()
+        clearDailyLedger()
+        insertLedgerFromTransactions()
+        insertDailyLedgerFromTransactions()
+        fillDailyClosings()
+    }
+}
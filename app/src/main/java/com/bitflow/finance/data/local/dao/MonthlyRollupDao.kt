@@ -0,0 +1,42 @@
+package com.bitflow.finance.data.local.dao
+
+import androidx.room.Dao
+import androidx.room.Query
+import androidx.room.Transaction
+import com.bitflow.finance.data.local.MonthlyRollup
+import kotlinx.coroutines.flow.Flow
+
+/**
+ * Reads of the trigger-maintained monthly_rollup table; cost is O(months), not O(transactions)
+ */
+@Dao
+interface MonthlyRollupDao {
+
+    /**
+     * Totals per direction for months in [fromMonth, toMonth] (yyyymm, inclusive),
+     * optionally for a single account (null = all accounts)
+     */
+    @Query("""
+        SELECT direction, SUM(total) AS totalPaise, SUM(count) AS count FROM monthly_rollup
+        WHERE userId = :userId AND yyyymm BETWEEN :fromMonth AND :toMonth
+        AND (:accountId IS NULL OR accountId = :accountId)
+        GROUP BY direction
+    """)
+    fun getDirectionTotals(fromMonth: Int, toMonth: Int, accountId: Long?, userId: String): Flow<List<DirectionTotal>>
+
+    @Query("DELETE FROM monthly_rollup")
+    suspend fun clear()
+
+    @Query(MonthlyRollup.REBUILD_SQL)
+    suspend fun insertFromTransactions()
+
+    /**
+     * Recompute the rollup from scratch, e.g. after restoring a database copied
+     * from elsewhere; the triggers keep it current afterwards
+     */
+    @Transaction
+    suspend fun rebuild() {
+        clear()
+        insertFromTransactions()
+    }
+}
@@ -2,6 +2,7 @@ package com.bitflow.finance.data.local.dao
 
 import androidx.room.*
 import com.bitflow.finance.data.local.entity.*
+import com.bitflow.finance.domain.model.Money
 import kotlinx.coroutines.flow.Flow
 
 @Dao
@@ -77,8 +78,8 @@ interface SplitDao {
     @Query("""
         SELECT 
             :userId as userId,
-            SUM(CASE WHEN ses.userId = :userId AND ses.isPaid = 0 THEN ses.shareAmount ELSE 0 END) as owingAmount,
-            SUM(CASE WHEN se.paidBy = :userId AND ses.userId != :userId AND ses.isPaid = 0 THEN ses.shareAmount ELSE 0 END) as owedAmount
+            SUM(CASE WHEN ses.userId = :userId AND ses.isPaid = 0 THEN ses.shareAmount ELSE 0 END) as owingPaise,
+            SUM(CASE WHEN se.paidBy = :userId AND ses.userId != :userId AND ses.isPaid = 0 THEN ses.shareAmount ELSE 0 END) as owedPaise
         FROM split_expense_shares ses
         JOIN split_expenses se ON ses.expenseId = se.expenseId
         WHERE se.groupId = :groupId
@@ -88,6 +89,9 @@ interface SplitDao {
 
 data class GroupBalance(
     val userId: String,
-    val owingAmount: Double,  // Amount user owes to others
-    val owedAmount: Double    // Amount others owe to user
-)
+    val owingPaise: Long,  // Amount user owes to others
+    val owedPaise: Long    // Amount others owe to user
+) {
+    val owingAmount: Double get() = Money.toRupees(owingPaise)
+    val owedAmount: Double get() = Money.toRupees(owedPaise)
+}
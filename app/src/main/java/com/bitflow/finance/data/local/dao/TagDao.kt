@@ -0,0 +1,85 @@
+package com.bitflow.finance.data.local.dao
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+import com.bitflow.finance.data.local.entity.TransactionEntity
+import com.bitflow.finance.data.local.entity.TransactionTagEntity
+import com.bitflow.finance.domain.model.Money
+import com.bitflow.finance.domain.model.TransactionDirection
+import kotlinx.coroutines.flow.Flow
+import java.time.LocalDate
+
+/**
+ * Tags of transactions (transaction_tags); tag lookups go through the (userId, tag) index
+ */
+@Dao
+interface TagDao {
+
+    @Query("SELECT tag FROM transaction_tags WHERE transactionId = :transactionId ORDER BY tag")
+    suspend fun getTags(transactionId: Long): List<String>
+
+    /**
+     * Tags of several transactions at once, for screens that show tags on list rows
+     */
+    @Query("SELECT * FROM transaction_tags WHERE transactionId IN (:transactionIds) ORDER BY transactionId, tag")
+    suspend fun getTagsFor(transactionIds: List<Long>): List<TransactionTagEntity>
+
+    @Query("SELECT DISTINCT tag FROM transaction_tags WHERE userId = :userId ORDER BY tag")
+    fun getAllTags(userId: String): Flow<List<String>>
+
+    @Query("""
+        SELECT t.* FROM transaction_tags g JOIN transactions t ON t.id = g.transactionId
+        WHERE g.userId = :userId AND g.tag = :tag
+        ORDER BY t.txnDate DESC, t.createdAt DESC, t.id DESC
+    """)
+    fun getTransactionsWithTag(tag: String, userId: String): Flow<List<TransactionEntity>>
+
+    /**
+     * Totals and row counts per tag for one direction within a date range, largest first;
+     * a transaction with several tags counts towards each of them
+     */
+    @Query("""
+        SELECT g.tag AS tag, SUM(t.amount) AS totalPaise, COUNT(*) AS count
+        FROM transaction_tags g JOIN transactions t ON t.id = g.transactionId
+        WHERE g.userId = :userId AND t.direction = :direction AND t.txnDate BETWEEN :startDate AND :endDate
+        GROUP BY g.tag
+        ORDER BY totalPaise DESC
+    """)
+    fun getTagTotals(
+        direction: TransactionDirection,
+        startDate: LocalDate,
+        endDate: LocalDate,
+        userId: String
+    ): Flow<List<TagTotal>>
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    suspend fun insertTags(tags: List<TransactionTagEntity>)
+
+    @Query("DELETE FROM transaction_tags WHERE transactionId = :transactionId")
+    suspend fun deleteTags(transactionId: Long)
+
+    /**
+     * Replace a transaction's tags with [tags] (already normalised, see TransactionTags.normalise)
+     */
+    @Transaction
+    suspend fun replaceTags(transactionId: Long, userId: String, tags: List<String>) {
+        deleteTags(transactionId)
+        if (tags.isNotEmpty()) {
+            insertTags(tags.map { TransactionTagEntity(transactionId, it, userId) })
+        }
+    }
+}
+
+/**
+ * Sum (in paise) and row count of the transactions carrying one tag
+ */
+data class TagTotal(
+    val tag: String,
+    val totalPaise: Long,
+    val count: Int
+) {
+    val total: Double get() = Money.toRupees(totalPaise)
+}
@@ -6,8 +6,19 @@ import androidx.room.OnConflictStrategy
 import androidx.room.Query
 import androidx.room.Update
 import com.bitflow.finance.data.local.entity.TransactionEntity
+import com.bitflow.finance.domain.model.Money
+import com.bitflow.finance.domain.model.TransactionDirection
 import kotlinx.coroutines.flow.Flow
 import java.time.LocalDate
+import java.time.LocalDateTime
+
+// Filters of the paged transaction feed; :match is an FTS4 expression or NULL (see TransactionSearchQuery)
+private const val FEED_FILTER = """
+    userId = :userId AND txnDate BETWEEN :startDate AND :endDate
+    AND (:accountId IS NULL OR accountId = :accountId)
+    AND amount BETWEEN :minPaise AND :maxPaise
+    AND (:match IS NULL OR id IN (SELECT docid FROM transactions_fts WHERE transactions_fts MATCH :match))
+"""
 
 @Dao
 interface TransactionDao {
@@ -17,24 +28,136 @@ interface TransactionDao {
     @Query("SELECT * FROM transactions WHERE userId = :userId ORDER BY txnDate DESC")
     fun getAllTransactions(userId: String): Flow<List<TransactionEntity>>
 
+    /**
+     * Transaction feed, keyset-paged on (txnDate, createdAt, id), newest first:
+     * the first page, the page after a cursor and the page before one (returned
+     * oldest first). Each page is an index seek on idx_user_date_created instead of
+     * an OFFSET scan over every earlier row.
+     */
+    @Query("""
+        SELECT * FROM transactions WHERE $FEED_FILTER
+        ORDER BY txnDate DESC, createdAt DESC, id DESC LIMIT :limit
+    """)
+    suspend fun getFeedFirstPage(
+        userId: String, startDate: LocalDate, endDate: LocalDate, accountId: Long?,
+        match: String?, minPaise: Long, maxPaise: Long, limit: Int
+    ): List<TransactionEntity>
+
+    @Query("""
+        SELECT * FROM transactions WHERE $FEED_FILTER
+        AND txnDate <= :txnDate
+        AND (txnDate < :txnDate OR createdAt < :createdAt OR (createdAt = :createdAt AND id < :id))
+        ORDER BY txnDate DESC, createdAt DESC, id DESC LIMIT :limit
+    """)
+    suspend fun getFeedPageAfter(
+        userId: String, startDate: LocalDate, endDate: LocalDate, accountId: Long?,
+        match: String?, minPaise: Long, maxPaise: Long,
+        txnDate: LocalDate, createdAt: LocalDateTime, id: Long, limit: Int
+    ): List<TransactionEntity>
+
+    @Query("""
+        SELECT * FROM transactions WHERE $FEED_FILTER
+        AND txnDate >= :txnDate
+        AND (txnDate > :txnDate OR createdAt > :createdAt OR (createdAt = :createdAt AND id > :id))
+        ORDER BY txnDate ASC, createdAt ASC, id ASC LIMIT :limit
+    """)
+    suspend fun getFeedPageBefore(
+        userId: String, startDate: LocalDate, endDate: LocalDate, accountId: Long?,
+        match: String?, minPaise: Long, maxPaise: Long,
+        txnDate: LocalDate, createdAt: LocalDateTime, id: Long, limit: Int
+    ): List<TransactionEntity>
+
+    @Query("SELECT COUNT(*) FROM transactions WHERE $FEED_FILTER")
+    fun countFeed(
+        userId: String, startDate: LocalDate, endDate: LocalDate, accountId: Long?,
+        match: String?, minPaise: Long, maxPaise: Long
+    ): Flow<Int>
+
+    /**
+     * Full-text search, best matches first: ranked by how many times the terms occur
+     * in the row (offsets() lists four numbers per occurrence), then newest first
+     */
+    @Query("""
+        SELECT transactions.* FROM transactions
+        JOIN (
+            SELECT docid, offsets(transactions_fts) AS hits FROM transactions_fts
+            WHERE transactions_fts MATCH :match
+        ) AS fts ON fts.docid = transactions.id
+        WHERE userId = :userId AND amount BETWEEN :minPaise AND :maxPaise
+        ORDER BY length(fts.hits) - length(replace(fts.hits, ' ', '')) DESC, txnDate DESC, createdAt DESC, id DESC
+        LIMIT :limit
+    """)
+    fun searchRanked(match: String, minPaise: Long, maxPaise: Long, userId: String, limit: Int): Flow<List<TransactionEntity>>
+
     @Query("SELECT * FROM transactions WHERE userId = :userId AND txnDate BETWEEN :startDate AND :endDate ORDER BY txnDate DESC")
     fun getTransactionsInPeriod(startDate: LocalDate, endDate: LocalDate, userId: String): Flow<List<TransactionEntity>>
 
+    /**
+     * Analysis: totals and row counts per direction within a date range,
+     * optionally for a single account (null = all accounts)
+     */
+    @Query("""
+        SELECT direction, SUM(amount) AS totalPaise, COUNT(*) AS count FROM transactions
+        WHERE userId = :userId AND txnDate BETWEEN :startDate AND :endDate
+        AND (:accountId IS NULL OR accountId = :accountId)
+        GROUP BY direction
+    """)
+    fun getDirectionTotals(startDate: LocalDate, endDate: LocalDate, accountId: Long?, userId: String): Flow<List<DirectionTotal>>
+
+    /**
+     * Analysis: totals and row counts per category for one direction within a date range,
+     * optionally for a single account (null = all accounts)
+     */
+    @Query("""
+        SELECT categoryId, SUM(amount) AS totalPaise, COUNT(*) AS count FROM transactions
+        WHERE userId = :userId AND direction = :direction AND txnDate BETWEEN :startDate AND :endDate
+        AND (:accountId IS NULL OR accountId = :accountId)
+        GROUP BY categoryId
+    """)
+    fun getCategoryTotals(
+        direction: TransactionDirection,
+        startDate: LocalDate,
+        endDate: LocalDate,
+        accountId: Long?,
+        userId: String
+    ): Flow<List<CategoryTotal>>
+
     @Insert(onConflict = OnConflictStrategy.IGNORE)
     suspend fun insertTransaction(transaction: TransactionEntity): Long
 
+    /**
+     * Batch insert
+     * @return Row IDs in input order, -1 for ignored rows
+     */
     @Insert(onConflict = OnConflictStrategy.IGNORE)
-    suspend fun insertTransactions(transactions: List<TransactionEntity>)
+    suspend fun insertTransactions(transactions: List<TransactionEntity>): List<Long>
 
     @Update
     suspend fun updateTransaction(transaction: TransactionEntity)
     
-    @Query("SELECT * FROM transactions WHERE userId = :userId AND accountId = :accountId AND txnDate = :date AND amount = :amount AND description = :description")
-    suspend fun findExistingTransaction(accountId: Long, date: LocalDate, amount: Double, description: String, userId: String): TransactionEntity?
+    @Query("SELECT * FROM transactions WHERE userId = :userId AND accountId = :accountId AND txnDate = :date AND amount = :amountPaise AND description = :description")
+    suspend fun findExistingTransaction(accountId: Long, date: LocalDate, amountPaise: Long, description: String, userId: String): TransactionEntity?
 
     @Query("SELECT * FROM transactions WHERE id = :id AND userId = :userId")
     suspend fun getTransactionById(id: Long, userId: String): TransactionEntity?
     
+    /**
+     * Import deduplication: stored transactions carrying any of these fingerprints
+     * (idx_fingerprint lookup; a fingerprint may be shared by repeated rows or a collision)
+     */
+    @Query("SELECT * FROM transactions WHERE fingerprint IN (:fingerprints)")
+    suspend fun findByFingerprints(fingerprints: List<Long>): List<TransactionEntity>
+    
+    /**
+     * Stored transactions of an account carrying any of these normalised references
+     * (idx_user_account_reference lookup)
+     */
+    @Query("""
+        SELECT referenceNorm, txnDate, amount AS amountPaise, direction FROM transactions
+        WHERE userId = :userId AND accountId = :accountId AND referenceNorm IN (:references)
+    """)
+    suspend fun findReferenceMatches(accountId: Long, references: List<String>, userId: String): List<ReferenceMatch>
+    
     /**
      * Bulk update transactions to new category (for category merge/delete)
      */
@@ -61,7 +184,7 @@ interface TransactionDao {
     /**
      * Get recent transactions (for home screen)
      */
-    @Query("SELECT * FROM transactions WHERE userId = :userId ORDER BY txnDate DESC, createdAt DESC LIMIT :limit")
+    @Query("SELECT * FROM transactions WHERE userId = :userId ORDER BY txnDate DESC, createdAt DESC, id DESC LIMIT :limit")
     fun getRecentTransactions(limit: Int = 5, userId: String): Flow<List<TransactionEntity>>
     
     /**
@@ -75,20 +198,36 @@ interface TransactionDao {
      */
     @Query("SELECT * FROM transactions WHERE userId = :userId AND accountId = :accountId")
     suspend fun getAllTransactionsSync(accountId: Long, userId: String): List<TransactionEntity>
-    
-    /**
-     * Performance optimization: Calculate balance directly in database
-     */
-    @Query("""
-        SELECT :initialBalance + 
-        COALESCE((SELECT SUM(amount) FROM transactions WHERE userId = :userId AND accountId = :accountId AND direction = 'INCOME'), 0) -
-        COALESCE((SELECT SUM(amount) FROM transactions WHERE userId = :userId AND accountId = :accountId AND direction = 'EXPENSE'), 0)
-    """)
-    suspend fun calculateBalance(accountId: Long, initialBalance: Double, userId: String): Double
-    
-    /**
-     * Get the most recent transaction with a recorded balance
-     */
-    @Query("SELECT * FROM transactions WHERE userId = :userId AND accountId = :accountId ORDER BY txnDate DESC, createdAt DESC LIMIT 1")
-    suspend fun getLatestTransactionWithBalance(accountId: Long, userId: String): TransactionEntity?
+}
+
+/**
+ * A stored transaction matched by its normalised reference
+ */
+data class ReferenceMatch(
+    val referenceNorm: String,
+    val txnDate: LocalDate,
+    val amountPaise: Long,
+    val direction: TransactionDirection
+)
+
+/**
+ * Sum (in paise) and row count of one direction's transactions
+ */
+data class DirectionTotal(
+    val direction: TransactionDirection,
+    val totalPaise: Long,
+    val count: Int
+) {
+    val total: Double get() = Money.toRupees(totalPaise)
+}
+
+/**
+ * Sum (in paise) and row count of one category's transactions (categoryId null = uncategorised)
+ */
+data class CategoryTotal(
+    val categoryId: Long?,
+    val totalPaise: Long,
+    val count: Int
+) {
+    val total: Double get() = Money.toRupees(totalPaise)
 }
@@ -0,0 +1,23 @@
+package com.bitflow.finance.data.local.entity
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import java.time.LocalDate
+
+/**
+ * Running balance ledger: one account's movement on one transaction day.
+ * Closing balance of the day = account initialBalance + closingNet, which is in paise. Maintained by
+ * triggers (see [com.bitflow.finance.data.local.BalanceLedger]).
+ */
+@Entity(
+    tableName = "account_daily_ledger",
+    primaryKeys = ["accountId", "day"]
+)
+data class AccountDailyLedgerEntity(
+    val accountId: Long,
+    val day: LocalDate,
+    val userId: String,
+    @ColumnInfo(name = "netChange") val netChangePaise: Long, // Income minus expenses on this day
+    @ColumnInfo(name = "closingNet") val closingNetPaise: Long, // Net movement up to and including this day
+    val count: Int
+)
@@ -13,6 +13,6 @@ data class AccountEntity(
     val color: Int,
     val icon: String,
     val initialBalance: Double,
-    val currentBalance: Double,
+    val currentBalance: Double, // Stored copy; AccountDao reads derive it from the balance ledger
     val currency: String = "₹"
 )
@@ -0,0 +1,18 @@
+package com.bitflow.finance.data.local.entity
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+
+/**
+ * Running balance ledger: net movement of one account over all its transactions.
+ * Current balance = account initialBalance + net, which is in paise. Maintained by triggers
+ * (see [com.bitflow.finance.data.local.BalanceLedger]); never written by the app directly.
+ */
+@Entity(tableName = "account_ledger")
+data class AccountLedgerEntity(
+    @PrimaryKey val accountId: Long,
+    val userId: String,
+    @ColumnInfo(name = "net") val netPaise: Long, // Income minus expenses
+    val count: Int
+)
@@ -1,9 +1,15 @@
 package com.bitflow.finance.data.local.entity
 
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 
-@Entity(tableName = "invoices")
+@Entity(
+    tableName = "invoices",
+    indices = [
+        Index(value = ["userId", "date"], name = "idx_invoice_user_date")
+    ]
+)
 data class InvoiceEntity(
     @PrimaryKey(autoGenerate = true)
     val id: Long = 0,
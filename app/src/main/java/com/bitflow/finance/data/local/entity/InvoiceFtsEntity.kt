@@ -0,0 +1,18 @@
+package com.bitflow.finance.data.local.entity
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Fts4
+import androidx.room.PrimaryKey
+
+/**
+ * FTS4 index over the client name and number of [InvoiceEntity], kept in step by
+ * Room's content-sync triggers (see [com.bitflow.finance.data.local.InvoiceSearch])
+ */
+@Fts4(contentEntity = InvoiceEntity::class)
+@Entity(tableName = "invoices_fts")
+data class InvoiceFtsEntity(
+    @PrimaryKey @ColumnInfo(name = "rowid") val rowId: Long,
+    val clientName: String,
+    val invoiceNumber: String
+)
@@ -0,0 +1,20 @@
+package com.bitflow.finance.data.local.entity
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import java.time.LocalDate
+
+/**
+ * Open batch write: one account's pending net change on one day, in paise, whose
+ * effect on later closing figures is applied once when the batch closes. Only holds
+ * rows inside a batch transaction (see [com.bitflow.finance.data.local.BalanceLedger]).
+ */
+@Entity(
+    tableName = "ledger_batch",
+    primaryKeys = ["accountId", "day"]
+)
+data class LedgerBatchEntity(
+    val accountId: Long,
+    val day: LocalDate,
+    @ColumnInfo(name = "delta") val deltaPaise: Long // Income minus expenses written on this day in the batch
+)
@@ -0,0 +1,24 @@
+package com.bitflow.finance.data.local.entity
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import com.bitflow.finance.domain.model.TransactionDirection
+
+/**
+ * Materialised monthly totals of the transactions table.
+ * Maintained by SQLite triggers on every insert, update and delete of a transaction
+ * (see [com.bitflow.finance.data.local.MonthlyRollup]); never written by the app directly.
+ */
+@Entity(
+    tableName = "monthly_rollup",
+    primaryKeys = ["userId", "accountId", "categoryId", "yyyymm", "direction"]
+)
+data class MonthlyRollupEntity(
+    val userId: String,
+    val accountId: Long,
+    val categoryId: Long, // 0 = uncategorised (NULL categoryId is folded into 0)
+    val yyyymm: Int, // e.g. 202408
+    val direction: TransactionDirection,
+    @ColumnInfo(name = "total") val totalPaise: Long,
+    val count: Int
+)
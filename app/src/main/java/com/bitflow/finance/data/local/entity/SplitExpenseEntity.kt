@@ -1,5 +1,6 @@
 package com.bitflow.finance.data.local.entity
 
+import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.Index
 import androidx.room.PrimaryKey
@@ -19,7 +20,7 @@ data class SplitExpenseEntity(
     @PrimaryKey val expenseId: String, // UUID
     val groupId: String,
     val description: String,
-    val totalAmount: Double,
+    @ColumnInfo(name = "totalAmount") val totalAmountPaise: Long,
     val paidBy: String, // userId who paid
     val expenseDate: Long,  // Timestamp
     val category: String? = null,
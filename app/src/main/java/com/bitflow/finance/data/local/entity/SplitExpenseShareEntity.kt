@@ -1,5 +1,6 @@
 package com.bitflow.finance.data.local.entity
 
+import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.Index
 import androidx.room.PrimaryKey
@@ -19,7 +20,7 @@ data class SplitExpenseShareEntity(
     @PrimaryKey(autoGenerate = true) val id: Long = 0,
     val expenseId: String,
     val userId: String, // Who owes this amount
-    val shareAmount: Double, // Amount this person owes
+    @ColumnInfo(name = "shareAmount") val shareAmountPaise: Long, // Amount this person owes
     val isPaid: Boolean = false, // Whether this person has settled their share
     val paidAt: Long? = null
 )
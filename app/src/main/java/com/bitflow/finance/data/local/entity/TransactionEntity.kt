@@ -1,5 +1,6 @@
 package com.bitflow.finance.data.local.entity
 
+import androidx.room.ColumnInfo
 import androidx.room.Entity
 import androidx.room.Index
 import androidx.room.PrimaryKey
@@ -10,9 +11,14 @@ import java.time.LocalDateTime
 @Entity(
     tableName = "transactions",
     indices = [
-        Index(value = ["userId", "accountId", "txnDate"], name = "idx_user_account_date"),
-        Index(value = ["userId", "txnDate"], name = "idx_user_date"),
-        Index(value = ["accountId", "txnDate", "amount", "description"], name = "idx_dedup")
+        // Feed order (txnDate, createdAt, id); id is the rowid, which every index already ends with
+        Index(value = ["userId", "txnDate", "createdAt"], name = "idx_user_date_created"),
+        // Also serves per-account reads ordered by date (userId, accountId, txnDate prefix)
+        Index(value = ["userId", "accountId", "txnDate", "amount", "description"], name = "idx_dedup"),
+        Index(value = ["fingerprint"], name = "idx_fingerprint"),
+        Index(value = ["userId", "accountId", "referenceNorm"], name = "idx_user_account_reference"),
+        Index(value = ["userId", "merchantName", "txnDate"], name = "idx_user_merchant_date"),
+        Index(value = ["userId", "categoryId"], name = "idx_user_category")
     ]
 )
 data class TransactionEntity(
@@ -23,15 +29,17 @@ data class TransactionEntity(
     val valueDate: LocalDate?,
     val description: String,
     val reference: String?,
-    val amount: Double,
+    @ColumnInfo(name = "amount") val amountPaise: Long, // See Money
     val direction: TransactionDirection,
     val categoryId: Long?,
-    val merchantName: String? = null, // For auto-learning and subscription detection
-    val tags: List<String>,
+    val merchantName: String? = null, // MerchantExtractor.extractOrNull(description), set on write
     val billPhotoUri: String?,
     val notes: String?,
-    val balanceAfterTxn: Double? = null, // Balance from bank statement
+    @ColumnInfo(name = "balanceAfterTxn") val balanceAfterTxnPaise: Long? = null, // Balance from bank statement
     val isAutoCategorized: Boolean = false, // Track if category was predicted
+    val confidenceScore: Float? = null, // Confidence of the learning rule that predicted it
     val createdAt: LocalDateTime,
-    val updatedAt: LocalDateTime
+    val updatedAt: LocalDateTime,
+    val fingerprint: Long? = null, // Statement import content hash; NULL for manual entries
+    val referenceNorm: String? = null // TransactionReference.normalise(reference), for reference lookups
 )
@@ -0,0 +1,22 @@
+package com.bitflow.finance.data.local.entity
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Fts4
+import androidx.room.PrimaryKey
+
+/**
+ * FTS4 index over the searchable text of [TransactionEntity]. External content: the
+ * text lives only in transactions, and Room's content-sync triggers keep the index
+ * in step with every insert, update and delete (see
+ * [com.bitflow.finance.data.local.TransactionSearch]).
+ */
+@Fts4(contentEntity = TransactionEntity::class, prefix = [2, 3])
+@Entity(tableName = "transactions_fts")
+data class TransactionFtsEntity(
+    @PrimaryKey @ColumnInfo(name = "rowid") val rowId: Long,
+    val description: String,
+    val merchantName: String?,
+    val notes: String?,
+    val reference: String?
+)
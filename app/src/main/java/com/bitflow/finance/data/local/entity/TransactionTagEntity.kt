@@ -0,0 +1,23 @@
+package com.bitflow.finance.data.local.entity
+
+import androidx.room.Entity
+import androidx.room.Index
+
+/**
+ * One tag on one transaction. Tags live here rather than on the transactions row,
+ * so reading a transaction list never decodes them; screens that show tags load
+ * them separately ([com.bitflow.finance.data.local.dao.TagDao]). Rows of a deleted
+ * transaction are removed by a trigger (see [com.bitflow.finance.data.local.TransactionTags]).
+ */
+@Entity(
+    tableName = "transaction_tags",
+    primaryKeys = ["transactionId", "tag"],
+    indices = [
+        Index(value = ["userId", "tag"], name = "idx_user_tag")
+    ]
+)
+data class TransactionTagEntity(
+    val transactionId: Long,
+    val tag: String,
+    val userId: String // Copied from the transaction so tag queries filter without a join
+)
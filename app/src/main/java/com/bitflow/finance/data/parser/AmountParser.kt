@@ -0,0 +1,144 @@
+package com.bitflow.finance.data.parser
+
+/**
+ * Amount parsing for bank statement cells
+ *
+ * Reads the amount straight from the characters of the cell, without regex
+ * cleanup or intermediate strings, and returns whole paise so no floating point
+ * rounding is involved while parsing.
+ *
+ * Accepted input:
+ * - Indian and western digit grouping: "1,23,456.78", "123,456.78", "123456.78"
+ * - Currency markers before or after the number: "₹", "Rs", "Rs.", "INR", "$"
+ * - Sign: leading "-" or "+", trailing "-", parentheses "(500.00)", "Dr" / "Cr" suffix
+ * - Rupee-only suffix "/-" as in "1,000/-"
+ *
+ * Negative amounts (leading/trailing minus, parentheses, "Dr") are returned as
+ * negative paise. More than two fraction digits are rounded half-up.
+ */
+object AmountParser {
+
+    /** Returned when the text is not an amount */
+    const val INVALID = Long.MIN_VALUE
+
+    // Guards the paise accumulator against overflow (~9.2e14 rupees)
+    private const val MAX_RUPEES = Long.MAX_VALUE / 1_000
+
+    /**
+     * Parse an amount from [text] between [start] (inclusive) and [end] (exclusive)
+     * @return Amount in paise, or [INVALID]
+     */
+    fun parsePaise(text: CharSequence, start: Int = 0, end: Int = text.length): Long {
+        var i = start
+        var e = end
+        while (i < e && text[i].isWhitespace()) i++
+        while (e > i && text[e - 1].isWhitespace()) e--
+        if (i >= e) return INVALID
+
+        var negative = false
+        if (text[i] == '(') {
+            if (text[e - 1] != ')') return INVALID
+            negative = true
+            i++
+            e--
+        }
+
+        // Prefix: sign and currency markers
+        while (i < e) {
+            val ch = text[i]
+            when {
+                ch == '-' -> { negative = true; i++ }
+                ch == '+' || ch == '₹' || ch == '$' || ch.isWhitespace() -> i++
+                matchesWord(text, i, e, "INR") -> i += 3
+                matchesWord(text, i, e, "Rs") -> {
+                    i += 2
+                    if (i < e && text[i] == '.') i++
+                }
+                else -> break
+            }
+        }
+
+        // Number: grouped integer part and optional fraction
+        var rupees = 0L
+        var paise = 0L
+        var integerDigits = 0
+        var fractionDigits = 0
+        var roundUp = false
+        var seenPoint = false
+        while (i < e) {
+            val ch = text[i]
+            when {
+                ch in '0'..'9' -> {
+                    val digit = ch - '0'
+                    if (!seenPoint) {
+                        rupees = rupees * 10 + digit
+                        if (rupees > MAX_RUPEES) return INVALID
+                        integerDigits++
+                    } else {
+                        if (fractionDigits < 2) {
+                            paise = paise * 10 + digit
+                        } else if (fractionDigits == 2) {
+                            roundUp = digit >= 5
+                        }
+                        fractionDigits++
+                    }
+                }
+                ch == ',' -> {
+                    if (integerDigits == 0 || seenPoint) return INVALID
+                }
+                ch == '.' -> {
+                    if (seenPoint) return INVALID
+                    seenPoint = true
+                }
+                else -> break
+            }
+            i++
+        }
+        if (integerDigits == 0 && fractionDigits == 0) return INVALID
+        if (fractionDigits == 1) paise *= 10
+
+        // Suffix: Dr/Cr marker, trailing sign, currency, "/-"
+        while (i < e) {
+            val ch = text[i]
+            when {
+                ch.isWhitespace() || ch == '₹' -> i++
+                ch == '-' -> { negative = true; i++ }
+                ch == '/' && i + 1 < e && text[i + 1] == '-' -> i += 2
+                matchesWord(text, i, e, "Dr") -> {
+                    negative = true
+                    i += 2
+                    if (i < e && text[i] == '.') i++
+                }
+                matchesWord(text, i, e, "Cr") -> {
+                    i += 2
+                    if (i < e && text[i] == '.') i++
+                }
+                matchesWord(text, i, e, "INR") -> i += 3
+                else -> return INVALID
+            }
+        }
+
+        val total = rupees * 100 + paise + if (roundUp) 1 else 0
+        return if (negative) -total else total
+    }
+
+    /**
+     * Parse an amount in paise, treating blank or malformed cells as zero
+     */
+    fun parsePaiseOrZero(text: CharSequence?): Long {
+        if (text == null) return 0L
+        val paise = parsePaise(text)
+        return if (paise == INVALID) 0L else paise
+    }
+
+    /**
+     * Case-insensitive match of [word] at [index] without allocating
+     */
+    private fun matchesWord(text: CharSequence, index: Int, end: Int, word: String): Boolean {
+        if (end - index < word.length) return false
+        for (offset in word.indices) {
+            if (!text[index + offset].equals(word[offset], ignoreCase = true)) return false
+        }
+        return true
+    }
+}
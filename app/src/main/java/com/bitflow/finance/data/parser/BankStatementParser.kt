@@ -1,8 +1,8 @@
 package com.bitflow.finance.data.parser
 
-import com.bitflow.finance.domain.model.ActivityType
+import java.io.BufferedReader
 import java.io.InputStream
-import java.time.LocalDate
+import java.io.InputStreamReader
 
 /**
  * Interface for parsing bank statements from different formats
@@ -13,7 +13,27 @@ interface BankStatementParser {
      * @param inputStream The statement file input stream
      * @return ParseResult containing transactions and detected current balance
      */
-    fun parse(inputStream: InputStream): ParseResult
+    fun parse(inputStream: InputStream): ParseResult =
+        parseLines(BufferedReader(InputStreamReader(inputStream)).lineSequence()).toParseResult()
+
+    /**
+     * Streaming parse of CSV/TSV text lines
+     * @param lines Statement lines in file order (consumed once)
+     * @return StatementStream yielding transactions and tracking the current balance
+     * @throws StatementParsingException if the header cannot be found or mapped
+     */
+    fun parseLines(lines: Sequence<String>): StatementStream =
+        parseRows(lines.mapIndexed { index, line -> RawRow.fromCsvLine(index, line) })
+
+    /**
+     * Streaming parse of typed rows: locate the header eagerly, then parse data
+     * rows lazily as the returned stream is consumed. Typed cells (dates and
+     * numbers from Excel) are used as-is; text cells are parsed.
+     * @param rows Statement rows in file order (consumed once)
+     * @return StatementStream yielding transactions and tracking the current balance
+     * @throws StatementParsingException if the header cannot be found or mapped
+     */
+    fun parseRows(rows: Sequence<RawRow>): StatementStream
     
     /**
      * Get the name of this parser for logging/debugging
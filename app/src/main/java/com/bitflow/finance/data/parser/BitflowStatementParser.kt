@@ -1,12 +1,9 @@
 package com.bitflow.finance.data.parser
 
 import com.bitflow.finance.domain.model.ActivityType
-import java.io.BufferedReader
-import java.io.InputStream
-import java.io.InputStreamReader
+import com.bitflow.finance.domain.model.Money
 import java.time.LocalDate
-import java.time.format.DateTimeFormatter
-import java.time.format.DateTimeParseException
+import kotlin.math.abs
 
 /**
  * Parser for Bitflow-style bank statements
@@ -28,133 +25,72 @@ class BitflowStatementParser : BankStatementParser {
             "description" to "withdrawal",
             "narration" to "withdrawal"
         )
-        
-        // Date formats
-        private val DATE_FORMATS = listOf(
-            DateTimeFormatter.ofPattern("dd MMM yyyy"),
-            DateTimeFormatter.ofPattern("dd/MM/yyyy"),
-            DateTimeFormatter.ofPattern("dd-MM-yyyy"),
-            DateTimeFormatter.ofPattern("yyyy-MM-dd"),
-            DateTimeFormatter.ofPattern("dd MMM yy")
-        )
     }
     
     override fun getParserName(): String = "Bitflow Statement Parser"
     
-    override fun parse(inputStream: InputStream): ParseResult {
-        val reader = BufferedReader(InputStreamReader(inputStream))
-        val lines = reader.readLines()
-        
-        println("[Bitflow Parser] Scanning ${lines.size} lines for header...")
+    override fun parseRows(rows: Sequence<RawRow>): StatementStream {
+        val iterator = rows.iterator()
         
-        // Step 1: Find header row
-        val headerRowIndex = findHeaderRow(lines)
-        if (headerRowIndex == -1) {
-            throw StatementParsingException("Bitflow format header not found in first 40 lines")
-        }
+        // Step 1: Find header row (only the first 40 rows are inspected)
+        val (headerRowIndex, headerRow) = findHeaderRow(iterator)
+            ?: throw StatementParsingException("Bitflow format header not found in first 40 lines")
         
         println("[Bitflow Parser] Found header at row $headerRowIndex")
         
         // Step 2: Parse header to get column indices
-        val headerLine = lines[headerRowIndex]
-        val columnMapping = parseHeader(headerLine)
+        val columnMapping = parseHeader(headerRow)
         
         println("[Bitflow Parser] Column mapping: $columnMapping")
         
-        // Step 3: Parse data rows
-        val transactions = mutableListOf<ParsedTransaction>()
-        
-        for (i in (headerRowIndex + 1) until lines.size) {
-            try {
-                val line = lines[i].trim()
-                if (line.isEmpty()) continue
+        // Step 3: Parse data rows lazily, one row at a time
+        val transactions = sequence {
+            while (iterator.hasNext()) {
+                val row = iterator.next()
+                if (row.isBlank()) continue
                 
-                val transaction = parseDataRow(line, columnMapping)
+                val transaction = try {
+                    parseDataRow(row, columnMapping)
+                } catch (e: Exception) {
+                    println("[Bitflow Parser] Skipping row ${row.rowIndex + 1}: ${e.message}")
+                    null
+                }
                 if (transaction != null) {
-                    transactions.add(transaction)
+                    yield(transaction)
                 }
-            } catch (e: Exception) {
-                println("[Bitflow Parser] Skipping row ${i + 1}: ${e.message}")
             }
         }
         
-        println("[Bitflow Parser] Parsed ${transactions.size} transactions")
-        
         // Step 4: SMART BALANCE DETECTION
-        val detectedBalance = detectCurrentBalance(transactions)
-        println("[Bitflow Parser] Detected current balance: ₹$detectedBalance")
-        
-        return ParseResult(transactions, detectedBalance)
+        // - DESCENDING file (first date > last date): current balance is in FIRST row
+        // - ASCENDING file (first date < last date): current balance is in LAST row
+        return StatementStream(transactions, FileOrderBalanceDetector())
     }
     
     /**
-     * Smart balance detection: Detect file order and extract current balance
-     * 
-     * Logic:
-     * - If first transaction date > last transaction date: File is DESCENDING (newest first)
-     *   → Current balance is in FIRST row
-     * - If first transaction date < last transaction date: File is ASCENDING (oldest first)
-     *   → Current balance is in LAST row
+     * Scan at most the first 40 rows for the header
+     * @return Header row index and row, or null if no header was found
      */
-    private fun detectCurrentBalance(transactions: List<ParsedTransaction>): Double {
-        if (transactions.isEmpty()) return 0.0
-        
-        // Get transactions with valid balance data
-        val withBalance = transactions.filter { it.balanceAfterTxn > 0.0 }
-        if (withBalance.isEmpty()) return 0.0
-        
-        if (withBalance.size == 1) {
-            return withBalance.first().balanceAfterTxn
-        }
-        
-        // Compare first and last transaction dates
-        val firstDate = withBalance.first().txnDate
-        val lastDate = withBalance.last().txnDate
-        
-        return when {
-            firstDate.isAfter(lastDate) -> {
-                // DESCENDING: Newest transaction first → Current balance is FIRST row
-                val balance = withBalance.first().balanceAfterTxn
-                println("[Bitflow Parser] 📊 File order: DESCENDING (newest first)")
-                println("[Bitflow Parser] ✓ Using FIRST row balance: ₹$balance")
-                balance
-            }
-            firstDate.isBefore(lastDate) -> {
-                // ASCENDING: Oldest transaction first → Current balance is LAST row
-                val balance = withBalance.last().balanceAfterTxn
-                println("[Bitflow Parser] 📊 File order: ASCENDING (oldest first)")
-                println("[Bitflow Parser] ✓ Using LAST row balance: ₹$balance")
-                balance
-            }
-            else -> {
-                // Unclear ordering (all same date?) - use latest by balance or first available
-                val balance = withBalance.maxByOrNull { it.balanceAfterTxn }?.balanceAfterTxn ?: 0.0
-                println("[Bitflow Parser] 📊 File order: UNCLEAR (same dates)")
-                println("[Bitflow Parser] ⚠️ Using highest balance: ₹$balance")
-                balance
-            }
-        }
-    }
-    
-    private fun findHeaderRow(lines: List<String>): Int {
-        val searchLimit = minOf(40, lines.size)
-        
-        for (i in 0 until searchLimit) {
-            val line = lines[i].lowercase()
+    private fun findHeaderRow(rows: Iterator<RawRow>): Pair<Int, RawRow>? {
+        var i = 0
+        while (i < 40 && rows.hasNext()) {
+            val row = rows.next()
+            val line = row.toCsvLine().lowercase()
             
             // Check if this line contains Bitflow header keywords
             for ((keyword1, keyword2) in HEADER_KEYWORDS) {
                 if (line.contains(keyword1) && line.contains(keyword2)) {
-                    return i
+                    return i to row
                 }
             }
+            i++
         }
         
-        return -1
+        return null
     }
     
-    private fun parseHeader(headerLine: String): ColumnMapping {
-        val columns = CsvUtils.splitCsvLine(headerLine).map { it.trim() }
+    private fun parseHeader(headerRow: RawRow): ColumnMapping {
+        val columns = headerRow.cells.map { it.asText().trim() }
         
         var dateIndex = -1
         var particularsIndex = -1
@@ -213,99 +149,84 @@ class BitflowStatementParser : BankStatementParser {
         )
     }
     
-    private fun parseDataRow(line: String, mapping: ColumnMapping): ParsedTransaction? {
-        val columns = CsvUtils.splitCsvLine(line).map { it.trim() }
-        
+    private fun parseDataRow(row: RawRow, mapping: ColumnMapping): ParsedTransaction? {
         // Ensure we have enough columns
-        if (columns.size <= mapping.dateIndex || columns.size <= mapping.particularsIndex) {
+        if (row.size <= mapping.dateIndex || row.size <= mapping.particularsIndex) {
             return null
         }
         
-        // Parse date
-        val dateStr = columns[mapping.dateIndex]
-        if (dateStr.isBlank() || dateStr == "-" || dateStr.equals("date", ignoreCase = true)) {
-            return null
-        }
-        
-        val txnDate = parseDate(dateStr) ?: return null
+        // Parse date (Excel date cells are used directly)
+        val txnDate = parseDateCell(row[mapping.dateIndex]) ?: return null
         
         // Parse particulars/description
-        val particulars = columns[mapping.particularsIndex].trim()
+        val particulars = row[mapping.particularsIndex].asText().trim()
         if (particulars.isBlank() || particulars.equals("particulars", ignoreCase = true)) {
             return null
         }
         
         // Parse reference (optional)
-        val reference = if (mapping.referenceIndex != -1 && columns.size > mapping.referenceIndex) {
-            columns[mapping.referenceIndex].takeIf { it.isNotBlank() && it != "-" }
+        val reference = if (mapping.referenceIndex != -1) {
+            row[mapping.referenceIndex].asText().trim().takeIf { it.isNotBlank() && it != "-" }
         } else null
         
-        // Parse amounts
-        var withdrawalAmount = 0.0
-        var depositAmount = 0.0
-        
-        if (mapping.withdrawalIndex != -1 && columns.size > mapping.withdrawalIndex) {
-            withdrawalAmount = parseAmount(columns[mapping.withdrawalIndex])
-        }
-        
-        if (mapping.depositIndex != -1 && columns.size > mapping.depositIndex) {
-            depositAmount = parseAmount(columns[mapping.depositIndex])
-        }
+        // Parse amounts (Excel numeric cells are used directly; the column decides the direction)
+        val withdrawalAmount = if (mapping.withdrawalIndex != -1) abs(parseAmountCell(row[mapping.withdrawalIndex])) else 0L
+        val depositAmount = if (mapping.depositIndex != -1) abs(parseAmountCell(row[mapping.depositIndex])) else 0L
         
         // Determine transaction type and amount
         val (amount, type) = when {
-            withdrawalAmount > 0.0 -> withdrawalAmount to ActivityType.EXPENSE
-            depositAmount > 0.0 -> depositAmount to ActivityType.INCOME
+            withdrawalAmount > 0 -> withdrawalAmount to ActivityType.EXPENSE
+            depositAmount > 0 -> depositAmount to ActivityType.INCOME
             else -> return null // Skip rows with no amount
         }
         
         // Parse balance (optional)
-        val balance = if (mapping.balanceIndex != -1 && columns.size > mapping.balanceIndex) {
-            parseAmount(columns[mapping.balanceIndex])
-        } else 0.0
+        val balance = if (mapping.balanceIndex != -1) parseAmountCell(row[mapping.balanceIndex]) else 0L
         
         return ParsedTransaction(
             txnDate = txnDate,
             valueDate = txnDate,
             description = particulars,
             reference = reference,
-            amount = amount,
+            amountPaise = amount,
             direction = type,
-            balanceAfterTxn = balance
+            balanceAfterTxnPaise = balance
         )
     }
     
-    private fun parseDate(dateStr: String): LocalDate? {
-        for (formatter in DATE_FORMATS) {
-            try {
-                return LocalDate.parse(dateStr, formatter)
-            } catch (e: DateTimeParseException) {
-                // Try next format
+    private fun parseDateCell(cell: RawCell): LocalDate? {
+        return when (cell) {
+            is RawCell.Date -> cell.value
+            is RawCell.Text -> {
+                val dateStr = cell.value.trim()
+                if (dateStr.isBlank() || dateStr == "-" || dateStr.equals("date", ignoreCase = true)) {
+                    null
+                } else {
+                    parseDate(dateStr)
+                }
             }
+            else -> null
         }
-        
-        println("[Bitflow Parser] Failed to parse date: $dateStr")
-        return null
     }
     
-    private fun parseAmount(amountStr: String): Double {
-        if (amountStr.isBlank() || amountStr == "-" || amountStr == "0" || amountStr == "0.00") {
-            return 0.0
+    private fun parseAmountCell(cell: RawCell): Long {
+        return when (cell) {
+            is RawCell.Number -> Money.toPaise(cell.value)
+            is RawCell.Text -> parseAmount(cell.value.trim())
+            else -> 0L
         }
+    }
+    
+    private fun parseDate(dateStr: String): LocalDate? {
+        val date = StatementDateResolver.resolve(dateStr)
+        if (date != null) return date
         
-        return try {
-            // Remove commas, currency symbols, and spaces
-            amountStr.replace(",", "")
-                .replace("₹", "")
-                .replace("INR", "")
-                .replace(" ", "")
-                .trim()
-                .toDoubleOrNull() ?: 0.0
-        } catch (e: Exception) {
-            0.0
-        }
+        println("[Bitflow Parser] Failed to parse date: $dateStr")
+        return null
     }
     
+    private fun parseAmount(amountStr: String): Long = AmountParser.parsePaiseOrZero(amountStr)
+    
     private data class ColumnMapping(
         val dateIndex: Int,
         val particularsIndex: Int,
@@ -1,125 +1,217 @@
 package com.bitflow.finance.data.parser
 
+import org.apache.poi.poifs.filesystem.FileMagic
+import org.apache.poi.ss.usermodel.Cell
 import org.apache.poi.ss.usermodel.CellType
 import org.apache.poi.ss.usermodel.DateUtil
 import org.apache.poi.ss.usermodel.Row
 import org.apache.poi.ss.usermodel.WorkbookFactory
+import java.io.Closeable
 import java.io.InputStream
-import java.time.LocalDate
 import java.time.ZoneId
+import java.util.concurrent.ArrayBlockingQueue
+import kotlin.concurrent.thread
 
 /**
- * Utility for reading Excel files and converting them to text format
+ * Utility for reading Excel files as typed rows, or as text lines
  * that can be parsed by the text-based parsers
+ *
+ * Reading uses the POI event APIs (SAX for XLSX, HSSF records for XLS), so no
+ * Workbook object model is built.
  */
 object ExcelReader {
-    
+
+    /** Rows the reader thread may run ahead of the consumer */
+    private const val ROW_BUFFER_SIZE = 64
+
+    private val END_OF_ROWS = Any()
+
     /**
      * Read an Excel file and convert it to CSV-like text format
-     * 
+     *
      * @param inputStream Excel file input stream
      * @return List of lines as if reading a CSV file
      */
     fun readExcelAsLines(inputStream: InputStream): List<String> {
-        val lines = mutableListOf<String>()
-        
+        val lines = readExcelLines(inputStream).toList()
+        println("[Excel Reader] Read ${lines.size} lines from Excel")
+        return lines
+    }
+
+    /**
+     * Read an Excel file as a sequence of CSV-like lines
+     *
+     * @param inputStream Excel file input stream
+     * @return Lines as if reading a CSV file
+     */
+    fun readExcelLines(inputStream: InputStream): Sequence<String> {
+        return readRows(inputStream).map { row ->
+            val line = row.toCsvLine()
+
+            // Debug first 20 rows
+            if (row.rowIndex < 20) {
+                println("[Excel Reader] Row ${row.rowIndex}: $line")
+            }
+            line
+        }
+    }
+
+    /**
+     * Read the first sheet of an Excel file as typed rows
+     *
+     * The event APIs push rows, so they run on a reader thread and hand rows over
+     * through a small bounded queue: rows are produced as they are consumed and the
+     * stream goes to POI as is, without a copy of the file. Read errors surface from
+     * the sequence's iterator as [StatementParsingException]. A consumer that stops
+     * early should close the iterator ([Closeable]) to stop the reader thread.
+     *
+     * @param inputStream Excel file input stream (must stay open until the rows are consumed)
+     * @return Rows in sheet order (empty rows are skipped); can be iterated once
+     */
+    fun readRows(inputStream: InputStream): Sequence<RawRow> =
+        Sequence { PushedRowIterator { onRow -> readRows(inputStream, onRow) } }.constrainOnce()
+
+    /**
+     * Push the first sheet of an Excel file row by row, without building a Workbook
+     *
+     * @param inputStream Excel file input stream
+     * @param onRow Called for every non-empty row, in sheet order
+     */
+    fun readRows(inputStream: InputStream, onRow: (RawRow) -> Unit) {
+        val input = FileMagic.prepareToCheckMagic(inputStream)
+
+        when (val magic = FileMagic.valueOf(input)) {
+            FileMagic.OOXML -> XlsxEventReader.read(input, onRow)
+            FileMagic.OLE2 -> XlsEventReader.read(input, onRow)
+            else -> throw StatementParsingException("Unsupported Excel format: $magic")
+        }
+    }
+
+    /**
+     * Workbook (DOM) based reader, kept as the baseline the event readers are measured against
+     */
+    internal fun readRowsWithWorkbook(inputStream: InputStream, onRow: (RawRow) -> Unit) {
         try {
-            val workbook = WorkbookFactory.create(inputStream)
-            val sheet = workbook.getSheetAt(0) // First sheet
-            
-            println("[Excel Reader] Reading sheet: ${sheet.sheetName}")
-            println("[Excel Reader] Total rows: ${sheet.lastRowNum + 1}")
-            
-            for (rowIndex in 0..sheet.lastRowNum) {
-                val row = sheet.getRow(rowIndex) ?: continue
-                val cells = mutableListOf<String>()
-                
-                // Read all cells in the row
-                for (cellIndex in 0 until row.lastCellNum) {
-                    val cell = row.getCell(cellIndex)
-                    val cellValue = getCellValueAsString(cell)
-                    // Quote values that contain commas to prevent CSV parsing issues
-                    val quotedValue = if (cellValue.contains(",")) {
-                        "\"$cellValue\""
-                    } else {
-                        cellValue
-                    }
-                    cells.add(quotedValue)
-                }
-                
-                // Join cells with comma (CSV format)
-                val line = cells.joinToString(",")
-                lines.add(line)
-                
-                // Debug first 20 rows
-                if (rowIndex < 20) {
-                    println("[Excel Reader] Row $rowIndex: $line")
+            WorkbookFactory.create(inputStream).use { workbook ->
+                val sheet = workbook.getSheetAt(0) // First sheet
+
+                println("[Excel Reader] Reading sheet: ${sheet.sheetName}")
+                println("[Excel Reader] Total rows: ${sheet.lastRowNum + 1}")
+
+                for (rowIndex in 0..sheet.lastRowNum) {
+                    val row = sheet.getRow(rowIndex) ?: continue
+                    onRow(toRawRow(row))
                 }
             }
-            
-            workbook.close()
-            println("[Excel Reader] Read ${lines.size} lines from Excel")
-            
         } catch (e: Exception) {
             println("[Excel Reader] Error reading Excel: ${e.message}")
             e.printStackTrace()
             throw e
         }
-        
-        return lines
     }
-    
+
+    private fun toRawRow(row: Row): RawRow {
+        val cells = ArrayList<RawCell>(maxOf(row.lastCellNum.toInt(), 0))
+        for (cellIndex in 0 until row.lastCellNum) {
+            cells.add(getCellValue(row.getCell(cellIndex)))
+        }
+        return RawRow(row.rowNum, cells)
+    }
+
     /**
-     * Get cell value as string, handling different cell types
+     * Get typed cell value, handling different cell types
      */
-    private fun getCellValueAsString(cell: org.apache.poi.ss.usermodel.Cell?): String {
-        if (cell == null) return ""
-        
+    private fun getCellValue(cell: Cell?): RawCell {
+        if (cell == null) return RawCell.Empty
+
         return try {
             when (cell.cellType) {
-                CellType.STRING -> cell.stringCellValue.trim()
-                
+                CellType.STRING -> RawCell.Text(cell.stringCellValue.trim())
+
                 CellType.NUMERIC -> {
                     if (DateUtil.isCellDateFormatted(cell)) {
                         // Date cell
-                        val date = cell.dateCellValue
-                        val localDate = date.toInstant()
+                        val localDate = cell.dateCellValue.toInstant()
                             .atZone(ZoneId.systemDefault())
                             .toLocalDate()
-                        localDate.toString()
+                        RawCell.Date(localDate)
                     } else {
-                        // Numeric cell
-                        val numValue = cell.numericCellValue
-                        // If it's a whole number, don't show decimals
-                        if (numValue == numValue.toLong().toDouble()) {
-                            numValue.toLong().toString()
-                        } else {
-                            numValue.toString()
-                        }
+                        RawCell.Number(cell.numericCellValue)
                     }
                 }
-                
-                CellType.BOOLEAN -> cell.booleanCellValue.toString()
-                
+
+                CellType.BOOLEAN -> RawCell.Bool(cell.booleanCellValue)
+
                 CellType.FORMULA -> {
                     try {
-                        cell.numericCellValue.toString()
+                        RawCell.Number(cell.numericCellValue)
                     } catch (e: Exception) {
                         try {
-                            cell.stringCellValue
+                            RawCell.Text(cell.stringCellValue)
                         } catch (e2: Exception) {
-                            ""
+                            RawCell.Empty
                         }
                     }
                 }
-                
-                CellType.BLANK -> ""
-                
-                else -> ""
+
+                else -> RawCell.Empty
             }
         } catch (e: Exception) {
             println("[Excel Reader] Error reading cell: ${e.message}")
-            ""
+            RawCell.Empty
+        }
+    }
+
+    /**
+     * Iterator over the rows a push-style [read] emits on its own thread
+     */
+    private class PushedRowIterator(read: ((RawRow) -> Unit) -> Unit) : Iterator<RawRow>, Closeable {
+
+        // Rows, then END_OF_ROWS or the reader's exception
+        private val queue = ArrayBlockingQueue<Any>(ROW_BUFFER_SIZE)
+        private var next: Any? = null
+
+        @Volatile
+        private var closed = false
+
+        private val reader = thread(name = "ExcelReader", isDaemon = true) {
+            val last = try {
+                read { queue.put(it) }
+                END_OF_ROWS
+            } catch (e: InterruptedException) {
+                return@thread // Closed by the consumer
+            } catch (e: Throwable) {
+                // POI may wrap the interrupt; nobody would take the error from a full queue
+                if (closed) return@thread
+                e
+            }
+            try {
+                queue.put(last)
+            } catch (e: InterruptedException) {
+                // Closed by the consumer
+            }
+        }
+
+        override fun hasNext(): Boolean {
+            val item = next ?: queue.take().also { next = it }
+            if (item is Throwable) {
+                println("[Excel Reader] Error reading Excel: ${item.message}")
+                throw item as? StatementParsingException
+                    ?: StatementParsingException("Failed to read Excel file: ${item.message}", item)
+            }
+            return item !== END_OF_ROWS
+        }
+
+        override fun next(): RawRow {
+            if (!hasNext()) throw NoSuchElementException()
+            val row = next as RawRow
+            next = null
+            return row
+        }
+
+        override fun close() {
+            closed = true
+            reader.interrupt()
         }
     }
 }
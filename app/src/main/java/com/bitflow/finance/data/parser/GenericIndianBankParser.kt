@@ -1,7 +1,5 @@
 package com.bitflow.finance.data.parser
 
-import java.io.InputStream
-
 /**
  * Generic fallback parser that tries to handle common Indian bank statement formats
  * This parser is more lenient and tries multiple column name variations
@@ -26,20 +24,29 @@ class GenericIndianBankParser : BankStatementParser {
     
     override fun getParserName(): String = "Generic Indian Bank Parser"
     
-    override fun parse(inputStream: InputStream): ParseResult {
+    override fun parseRows(rows: Sequence<RawRow>): StatementStream {
         println("[Generic Parser] Using generic Indian bank parser")
         
+        // Buffer only the header search window so both strategies can inspect it;
+        // the remaining rows stay unread until the winning parser consumes them
+        val iterator = rows.iterator()
+        val preview = mutableListOf<RawRow>()
+        while (preview.size < 40 && iterator.hasNext()) {
+            preview.add(iterator.next())
+        }
+        val remaining = Sequence { iterator }
+        
         // Try SBI parser first
         return try {
             println("[Generic Parser] Attempting SBI-style parsing...")
-            SbiStatementParser().parse(inputStream)
+            SbiStatementParser().parseRows(preview.asSequence() + remaining)
         } catch (e: Exception) {
             println("[Generic Parser] SBI parsing failed: ${e.message}")
             
             // Try Bitflow parser
             try {
                 println("[Generic Parser] Attempting Bitflow-style parsing...")
-                BitflowStatementParser().parse(inputStream)
+                BitflowStatementParser().parseRows(preview.asSequence() + remaining)
             } catch (e2: Exception) {
                 println("[Generic Parser] Bitflow parsing also failed: ${e2.message}")
                 throw StatementParsingException("Generic parser failed to parse file", e2)
@@ -0,0 +1,76 @@
+package com.bitflow.finance.data.parser
+
+import java.time.LocalDate
+
+/**
+ * Typed value of a single spreadsheet cell
+ */
+sealed class RawCell {
+    object Empty : RawCell()
+    data class Text(val value: String) : RawCell()
+    data class Number(val value: Double) : RawCell()
+    data class Date(val value: LocalDate) : RawCell()
+    data class Bool(val value: Boolean) : RawCell()
+
+    /**
+     * Text form of the cell, matching what the workbook-based reader produced
+     * (ISO dates, whole numbers without decimals)
+     */
+    fun asText(): String = when (this) {
+        is Empty -> ""
+        is Text -> value
+        is Number -> if (value == value.toLong().toDouble()) value.toLong().toString() else value.toString()
+        is Date -> value.toString()
+        is Bool -> value.toString()
+    }
+}
+
+/**
+ * One spreadsheet row with typed cells
+ *
+ * @param rowIndex Zero-based row number in the sheet
+ * @param cells Cells in column order; missing cells are [RawCell.Empty]
+ */
+class RawRow(
+    val rowIndex: Int,
+    val cells: List<RawCell>
+) {
+    operator fun get(index: Int): RawCell = cells.getOrNull(index) ?: RawCell.Empty
+
+    val size: Int
+        get() = cells.size
+
+    /**
+     * True when every cell is empty or whitespace
+     */
+    fun isBlank(): Boolean = cells.all { it is RawCell.Empty || (it is RawCell.Text && it.value.isBlank()) }
+
+    /**
+     * Join all cells with commas (CSV format), quoting values that contain commas
+     */
+    fun toCsvLine(): String {
+        val line = StringBuilder()
+        cells.forEachIndexed { index, cell ->
+            if (index > 0) line.append(',')
+            val cellValue = cell.asText()
+            if (cellValue.contains(",")) {
+                line.append('"').append(cellValue).append('"')
+            } else {
+                line.append(cellValue)
+            }
+        }
+        return line.toString()
+    }
+
+    companion object {
+        /**
+         * Row of text cells from a CSV/TSV line (delimiter auto-detected)
+         */
+        fun fromCsvLine(rowIndex: Int, line: String): RawRow {
+            val cells = CsvUtils.splitCsvLine(line).map { value ->
+                if (value.isEmpty()) RawCell.Empty else RawCell.Text(value)
+            }
+            return RawRow(rowIndex, cells)
+        }
+    }
+}
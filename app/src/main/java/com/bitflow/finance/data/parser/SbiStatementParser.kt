@@ -1,12 +1,9 @@
 package com.bitflow.finance.data.parser
 
 import com.bitflow.finance.domain.model.ActivityType
-import java.io.BufferedReader
-import java.io.InputStream
-import java.io.InputStreamReader
+import com.bitflow.finance.domain.model.Money
 import java.time.LocalDate
-import java.time.format.DateTimeFormatter
-import java.time.format.DateTimeParseException
+import kotlin.math.abs
 
 /**
  * Parser for SBI (State Bank of India) bank statements
@@ -32,133 +29,57 @@ class SbiStatementParser : BankStatementParser {
             "txn date" to "dr.",
             "txn date" to "dr"
         )
-        
-        // Date formats commonly used by SBI
-        // Note: MMM is case-insensitive and matches 3-letter month abbreviations (Jan, Feb, etc.)
-        private val DATE_FORMATS = listOf(
-            DateTimeFormatter.ofPattern("d MMM yyyy").withLocale(java.util.Locale.ENGLISH),  // "1 Aug 2024"
-            DateTimeFormatter.ofPattern("dd MMM yyyy").withLocale(java.util.Locale.ENGLISH), // "01 Aug 2024"
-            DateTimeFormatter.ofPattern("d/M/yyyy"),     // "1/8/2024"
-            DateTimeFormatter.ofPattern("dd/MM/yyyy"),   // "01/08/2024"
-            DateTimeFormatter.ofPattern("d-M-yyyy"),     // "1-8-2024"
-            DateTimeFormatter.ofPattern("dd-MM-yyyy"),   // "01-08-2024"
-            DateTimeFormatter.ofPattern("d MMM yy").withLocale(java.util.Locale.ENGLISH),    // "1 Aug 24"
-            DateTimeFormatter.ofPattern("dd MMM yy").withLocale(java.util.Locale.ENGLISH),   // "01 Aug 24"
-            DateTimeFormatter.ofPattern("yyyy-MM-dd")    // "2024-08-01"
-        )
     }
     
     override fun getParserName(): String = "SBI Statement Parser"
     
-    override fun parse(inputStream: InputStream): ParseResult {
-        val reader = BufferedReader(InputStreamReader(inputStream))
-        val lines = reader.readLines()
-        
-        println("[SBI Parser] Scanning ${lines.size} lines for header...")
+    override fun parseRows(rows: Sequence<RawRow>): StatementStream {
+        val iterator = rows.iterator()
         
-        // Step 1: Find header row
-        val headerRowIndex = findHeaderRow(lines)
-        if (headerRowIndex == -1) {
-            throw StatementParsingException("SBI format header not found in first 40 lines")
-        }
+        // Step 1: Find header row (only the first 40 rows are inspected)
+        val (headerRowIndex, headerRow) = findHeaderRow(iterator)
+            ?: throw StatementParsingException("SBI format header not found in first 40 lines")
         
         println("[SBI Parser] Found header at row $headerRowIndex")
         
         // Step 2: Parse header to get column indices
-        val headerLine = lines[headerRowIndex]
-        val columnMapping = parseHeader(headerLine)
+        val columnMapping = parseHeader(headerRow)
         
         println("[SBI Parser] Column mapping: $columnMapping")
         
-        // Step 3: Parse data rows
-        val transactions = mutableListOf<ParsedTransaction>()
-        
-        for (i in (headerRowIndex + 1) until lines.size) {
-            try {
-                val line = lines[i].trim()
-                if (line.isEmpty()) continue
+        // Step 3: Parse data rows lazily, one row at a time
+        val transactions = sequence {
+            while (iterator.hasNext()) {
+                val row = iterator.next()
+                if (row.isBlank()) continue
                 
-                val transaction = parseDataRow(line, columnMapping)
+                val transaction = try {
+                    parseDataRow(row, columnMapping)
+                } catch (e: Exception) {
+                    println("[SBI Parser] Skipping row ${row.rowIndex + 1}: ${e.message}")
+                    null
+                }
                 if (transaction != null) {
-                    transactions.add(transaction)
+                    yield(transaction)
                 }
-            } catch (e: Exception) {
-                println("[SBI Parser] Skipping row ${i + 1}: ${e.message}")
             }
         }
         
-        println("[SBI Parser] Parsed ${transactions.size} transactions")
-        
-        // Step 4: SMART BALANCE DETECTION
-        val detectedBalance = detectCurrentBalance(transactions)
-        println("[SBI Parser] Detected current balance: ₹$detectedBalance")
-        
-        return ParseResult(transactions, detectedBalance)
+        // Step 4: SMART BALANCE DETECTION (latest date, file order aware)
+        return StatementStream(transactions, LatestDateBalanceDetector())
     }
     
     /**
-     * Smart balance detection: Find the latest date and pick the correct balance based on file order.
-     * 
-     * Logic:
-     * 1. Find the latest date in the file.
-     * 2. Get all transactions on that date.
-     * 3. Determine if file is Descending (Newest First) or Ascending (Oldest First) based on dates.
-     * 4. Pick the appropriate row (First or Last) from the latest date's transactions.
+     * Scan at most the first 40 rows for the header
+     * @return Header row index and row, or null if no header was found
      */
-    private fun detectCurrentBalance(transactions: List<ParsedTransaction>): Double {
-        if (transactions.isEmpty()) return 0.0
-        
-        // 1. Filter out "Opening Balance" rows to ensure we don't pick them
-        val validTransactions = transactions.filter { 
-            it.balanceAfterTxn > 0.0 && 
-            !it.description.contains("Opening Balance", ignoreCase = true) &&
-            !it.description.contains("Brought Forward", ignoreCase = true) &&
-            !it.description.contains("B/F", ignoreCase = true)
-        }
+    private fun findHeaderRow(rows: Iterator<RawRow>): Pair<Int, RawRow>? {
+        println("[SBI Parser] Searching for header in first 40 lines...")
         
-        if (validTransactions.isEmpty()) {
-            return transactions.lastOrNull { it.balanceAfterTxn > 0.0 }?.balanceAfterTxn ?: 0.0
-        }
-
-        // 2. Find the latest date among all valid transactions
-        val latestDate = validTransactions.maxOf { it.txnDate }
-        
-        // 3. Get all transactions that happened on that latest date
-        val txnsOnLatestDate = validTransactions.filter { it.txnDate == latestDate }
-        
-        // 4. Determine file order using the FULL list of transactions (Dates only)
-        // If the first transaction is newer than the last, it's Descending.
-        val firstDate = transactions.first().txnDate
-        val lastDate = transactions.last().txnDate
-        val isDescending = firstDate.isAfter(lastDate)
-        
-        val finalTransaction = if (isDescending) {
-            // Descending (Newest First): The "latest" transaction is the FIRST one in the list
-            txnsOnLatestDate.first()
-        } else {
-            // Ascending (Oldest First) or Single Day: The "latest" transaction is the LAST one in the list
-            txnsOnLatestDate.last()
-        }
-        
-        println("[SBI Parser] Latest date found: $latestDate")
-        println("[SBI Parser] File order detected (by date): ${if (isDescending) "DESCENDING" else "ASCENDING"}")
-        println("[SBI Parser] ✓ Selected balance from latest transaction: ₹${finalTransaction.balanceAfterTxn}")
-        
-        return finalTransaction.balanceAfterTxn
-    }
-
-    /**
-     * Removed complex math-based order detection as per user request.
-     * Relying strictly on Date comparison and List position.
-     */
-    
-    private fun findHeaderRow(lines: List<String>): Int {
-        val searchLimit = minOf(40, lines.size)
-        
-        println("[SBI Parser] Searching for header in first $searchLimit lines...")
-        
-        for (i in 0 until searchLimit) {
-            val line = lines[i].lowercase()
+        var i = 0
+        while (i < 40 && rows.hasNext()) {
+            val row = rows.next()
+            val line = row.toCsvLine().lowercase()
             
             // Print first 20 lines for debugging
             if (i < 20) {
@@ -169,17 +90,18 @@ class SbiStatementParser : BankStatementParser {
             for ((keyword1, keyword2) in HEADER_KEYWORDS) {
                 if (line.contains(keyword1) && line.contains(keyword2)) {
                     println("[SBI Parser] Found header match at line $i with keywords: [$keyword1, $keyword2]")
-                    return i
+                    return i to row
                 }
             }
+            i++
         }
         
         println("[SBI Parser] No header found matching SBI keywords")
-        return -1
+        return null
     }
     
-    private fun parseHeader(headerLine: String): ColumnMapping {
-        val columns = CsvUtils.splitCsvLine(headerLine).map { it.trim() }
+    private fun parseHeader(headerRow: RawRow): ColumnMapping {
+        val columns = headerRow.cells.map { it.asText().trim() }
         
         println("[SBI Parser] Header columns (${columns.size}): ${columns.joinToString(" | ")}")
         
@@ -247,13 +169,11 @@ class SbiStatementParser : BankStatementParser {
     
     private var debugRowCount = 0
     
-    private fun parseDataRow(line: String, mapping: ColumnMapping): ParsedTransaction? {
-        val columns = CsvUtils.splitCsvLine(line).map { it.trim() }
-        
+    private fun parseDataRow(row: RawRow, mapping: ColumnMapping): ParsedTransaction? {
         // Debug: Print first 3 data rows to see column structure
         if (debugRowCount < 3) {
-            println("[SBI Parser] Data row #$debugRowCount has ${columns.size} columns:")
-            columns.forEachIndexed { i, col -> 
+            println("[SBI Parser] Data row #$debugRowCount has ${row.size} columns:")
+            row.cells.forEachIndexed { i, cell -> 
                 val label = when(i) {
                     mapping.dateIndex -> "DATE"
                     mapping.descriptionIndex -> "DESC"
@@ -262,109 +182,93 @@ class SbiStatementParser : BankStatementParser {
                     mapping.balanceIndex -> "BALANCE"
                     else -> ""
                 }
-                println("[SBI Parser]   Col[$i]$label: '$col'")
+                println("[SBI Parser]   Col[$i]$label: '${cell.asText()}'")
             }
             debugRowCount++
         }
         
         // Ensure we have enough columns
-        if (columns.size <= mapping.dateIndex || columns.size <= mapping.descriptionIndex) {
+        if (row.size <= mapping.dateIndex || row.size <= mapping.descriptionIndex) {
             return null
         }
         
-        // Parse date
-        val dateStr = columns[mapping.dateIndex]
-        if (dateStr.isBlank() || dateStr == "-" || dateStr.equals("date", ignoreCase = true)) {
-            return null
-        }
-        
-        val txnDate = parseDate(dateStr) ?: return null
+        // Parse date (Excel date cells are used directly)
+        val txnDate = parseDateCell(row[mapping.dateIndex]) ?: return null
         
         // Parse description
-        val description = columns[mapping.descriptionIndex].trim()
+        val description = row[mapping.descriptionIndex].asText().trim()
         if (description.isBlank() || description.equals("description", ignoreCase = true)) {
             return null
         }
         
         // Parse reference (optional)
-        val reference = if (mapping.referenceIndex != -1 && columns.size > mapping.referenceIndex) {
-            columns[mapping.referenceIndex].takeIf { it.isNotBlank() && it != "-" }
+        val reference = if (mapping.referenceIndex != -1) {
+            row[mapping.referenceIndex].asText().trim().takeIf { it.isNotBlank() && it != "-" }
         } else null
         
-        // Parse amounts
-        var debitAmount = 0.0
-        var creditAmount = 0.0
-        
-        val debitStr = if (mapping.debitIndex != -1 && columns.size > mapping.debitIndex) {
-            columns[mapping.debitIndex]
-        } else ""
-        
-        val creditStr = if (mapping.creditIndex != -1 && columns.size > mapping.creditIndex) {
-            columns[mapping.creditIndex]
-        } else ""
-        
-        debitAmount = parseAmount(debitStr)
-        creditAmount = parseAmount(creditStr)
+        // Parse amounts (Excel numeric cells are used directly; the column decides the direction)
+        val debitAmount = if (mapping.debitIndex != -1) abs(parseAmountCell(row[mapping.debitIndex])) else 0L
+        val creditAmount = if (mapping.creditIndex != -1) abs(parseAmountCell(row[mapping.creditIndex])) else 0L
         
         // Debug logging for first few transactions
-        if (debitAmount > 0 || creditAmount > 0) {
-            println("[SBI Parser] Row: debit='$debitStr'($debitAmount), credit='$creditStr'($creditAmount), desc='${description.take(30)}'")
+        if (debugRowCount <= 3 && (debitAmount > 0 || creditAmount > 0)) {
+            println("[SBI Parser] Row: debitPaise=$debitAmount, creditPaise=$creditAmount, desc='${description.take(30)}'")
         }
         
         // Determine transaction type and amount
         val (amount, type) = when {
-            debitAmount > 0.0 -> debitAmount to ActivityType.EXPENSE
-            creditAmount > 0.0 -> creditAmount to ActivityType.INCOME
+            debitAmount > 0 -> debitAmount to ActivityType.EXPENSE
+            creditAmount > 0 -> creditAmount to ActivityType.INCOME
             else -> return null // Skip rows with no amount
         }
         
         // Parse balance (optional)
-        val balance = if (mapping.balanceIndex != -1 && columns.size > mapping.balanceIndex) {
-            parseAmount(columns[mapping.balanceIndex])
-        } else 0.0
+        val balance = if (mapping.balanceIndex != -1) parseAmountCell(row[mapping.balanceIndex]) else 0L
         
         return ParsedTransaction(
             txnDate = txnDate,
             valueDate = txnDate,
             description = description,
             reference = reference,
-            amount = amount,
+            amountPaise = amount,
             direction = type,
-            balanceAfterTxn = balance
+            balanceAfterTxnPaise = balance
         )
     }
     
-    private fun parseDate(dateStr: String): LocalDate? {
-        for (formatter in DATE_FORMATS) {
-            try {
-                return LocalDate.parse(dateStr, formatter)
-            } catch (e: DateTimeParseException) {
-                // Try next format
+    private fun parseDateCell(cell: RawCell): LocalDate? {
+        return when (cell) {
+            is RawCell.Date -> cell.value
+            is RawCell.Text -> {
+                val dateStr = cell.value.trim()
+                if (dateStr.isBlank() || dateStr == "-" || dateStr.equals("date", ignoreCase = true)) {
+                    null
+                } else {
+                    parseDate(dateStr)
+                }
             }
+            else -> null
         }
-        
-        println("[SBI Parser] Failed to parse date: $dateStr")
-        return null
     }
     
-    private fun parseAmount(amountStr: String): Double {
-        if (amountStr.isBlank() || amountStr == "-" || amountStr == "0" || amountStr == "0.00") {
-            return 0.0
+    private fun parseAmountCell(cell: RawCell): Long {
+        return when (cell) {
+            is RawCell.Number -> Money.toPaise(cell.value)
+            is RawCell.Text -> parseAmount(cell.value.trim())
+            else -> 0L
         }
+    }
+    
+    private fun parseDate(dateStr: String): LocalDate? {
+        val date = StatementDateResolver.resolve(dateStr)
+        if (date != null) return date
         
-        return try {
-            // Remove commas, currency symbols, and spaces
-            amountStr.replace(",", "")
-                .replace("₹", "")
-                .replace("INR", "")
-                .replace(" ", "")
-                .trim()
-                .toDoubleOrNull() ?: 0.0
-        } catch (e: Exception) {
-            0.0
-        }
+        println("[SBI Parser] Failed to parse date: $dateStr")
+        return null
     }
     
+    private fun parseAmount(amountStr: String): Long = AmountParser.parsePaiseOrZero(amountStr)
+    
     private data class ColumnMapping(
         val dateIndex: Int,
         val descriptionIndex: Int,
@@ -0,0 +1,140 @@
+package com.bitflow.finance.data.parser
+
+import java.time.LocalDate
+
+/**
+ * Date parsing for bank statement rows without DateTimeFormatter
+ *
+ * Each cell is tokenized in a single pass; field order, separator and month style
+ * are read from the text itself, so rows may change layout within a file (e.g. a
+ * summary line in another format). No exceptions are used for control flow and no
+ * intermediate strings are created.
+ *
+ * Supported layouts (day first, as Indian banks print them, plus ISO):
+ * - dd/MM/yyyy, d/M/yyyy, dd-MM-yyyy, dd.MM.yyyy
+ * - dd-MM-yy
+ * - dd MMM yyyy, d MMM yy, dd-MMM-yy
+ * - yyyy-MM-dd
+ * An optional trailing time ("01/08/2024 10:15") is ignored. Numeric dates are
+ * always read day first: "03/04/2024" is 3 April, and a US "12/31/2024" is rejected.
+ */
+object StatementDateResolver {
+
+    /**
+     * Parse a date cell
+     * @return The date, or null if the text is not a supported date
+     */
+    fun resolve(text: CharSequence): LocalDate? {
+        val yyyymmdd = DateTokenizer.parse(text)
+        return if (yyyymmdd == DateTokenizer.INVALID) null else DateTokenizer.toLocalDate(yyyymmdd)
+    }
+}
+
+/**
+ * Single-pass tokenizer for statement dates
+ *
+ * Results are returned as a yyyyMMdd Int, so parsing allocates nothing.
+ */
+internal object DateTokenizer {
+
+    const val INVALID = 0
+
+    private const val MONTH_NAMES = "janfebmaraprmayjunjulaugsepoctnovdec"
+
+    /**
+     * Parse a date
+     * @return The date as yyyyMMdd, or [INVALID]
+     */
+    fun parse(text: CharSequence): Int {
+        var start = 0
+        var end = text.length
+        while (start < end && text[start].isWhitespace()) start++
+        while (end > start && text[end - 1].isWhitespace()) end--
+        if (end - start < 6) return INVALID
+
+        // First field: day, or year for ISO dates
+        var i = start
+        var first = 0
+        var firstDigits = 0
+        while (i < end && firstDigits < 4 && text[i] in '0'..'9') {
+            first = first * 10 + (text[i] - '0')
+            firstDigits++
+            i++
+        }
+        if (firstDigits == 0 || firstDigits == 3 || i >= end) return INVALID
+
+        val separator = text[i]
+        if (separator != '/' && separator != '-' && separator != ' ' && separator != '.') return INVALID
+        i++
+
+        // Month: one or two digits, or a name of at least three letters
+        var month = 0
+        if (i < end && text[i] in '0'..'9') {
+            var monthDigits = 0
+            while (i < end && monthDigits < 2 && text[i] in '0'..'9') {
+                month = month * 10 + (text[i] - '0')
+                monthDigits++
+                i++
+            }
+        } else {
+            month = monthFromName(text, i, end)
+            if (month == 0) return INVALID
+            while (i < end && text[i].isLetter()) i++
+        }
+        if (i >= end || text[i] != separator) return INVALID
+        i++
+
+        // Last field: year, or day for ISO dates
+        var last = 0
+        var lastDigits = 0
+        while (i < end && lastDigits < 4 && text[i] in '0'..'9') {
+            last = last * 10 + (text[i] - '0')
+            lastDigits++
+            i++
+        }
+        // Anything after the date must be a time part
+        if (i < end && !text[i].isWhitespace() && text[i] != 'T') return INVALID
+
+        val day: Int
+        val year: Int
+        if (firstDigits == 4) {
+            if (lastDigits == 0 || lastDigits > 2) return INVALID
+            year = first
+            day = last
+        } else {
+            if (lastDigits != 2 && lastDigits != 4) return INVALID
+            day = first
+            year = if (lastDigits == 2) 2000 + last else last
+        }
+
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) return INVALID
+
+        return year * 10_000 + month * 100 + day
+    }
+
+    fun toLocalDate(yyyymmdd: Int): LocalDate =
+        LocalDate.of(yyyymmdd / 10_000, yyyymmdd / 100 % 100, yyyymmdd % 100)
+
+    /**
+     * Month number from the first three letters at [index], or 0
+     */
+    private fun monthFromName(text: CharSequence, index: Int, end: Int): Int {
+        if (end - index < 3) return 0
+        val a = text[index].lowercaseChar()
+        val b = text[index + 1].lowercaseChar()
+        val c = text[index + 2].lowercaseChar()
+        for (month in 0 until 12) {
+            val offset = month * 3
+            if (MONTH_NAMES[offset] == a && MONTH_NAMES[offset + 1] == b && MONTH_NAMES[offset + 2] == c) {
+                return month + 1
+            }
+        }
+        return 0
+    }
+
+    private fun daysInMonth(year: Int, month: Int): Int = when (month) {
+        2 -> if ((year % 4 == 0 && year % 100 != 0) || year % 400 == 0) 29 else 28
+        4, 6, 9, 11 -> 30
+        else -> 31
+    }
+}
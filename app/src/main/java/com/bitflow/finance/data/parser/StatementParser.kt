@@ -1,6 +1,7 @@
 package com.bitflow.finance.data.parser
 
 import com.bitflow.finance.domain.model.ActivityType
+import com.bitflow.finance.domain.model.Money
 import com.tom_roush.pdfbox.android.PDFBoxResourceLoader
 import com.tom_roush.pdfbox.pdmodel.PDDocument
 import com.tom_roush.pdfbox.text.PDFTextStripper
@@ -15,6 +16,7 @@ import java.time.LocalDate
 import java.time.ZoneId
 import java.time.format.DateTimeFormatter
 import java.util.Locale
+import kotlin.math.abs
 import android.content.Context
 
 data class ParsedTransaction(
@@ -22,10 +24,14 @@ data class ParsedTransaction(
     val valueDate: LocalDate?,
     val description: String,
     val reference: String?,
-    val amount: Double,
+    val amountPaise: Long,
     val direction: ActivityType,
-    val balanceAfterTxn: Double
-)
+    val balanceAfterTxnPaise: Long
+) {
+    // Rupee views for display and balance detection; stored and compared as paise
+    val amount: Double get() = Money.toRupees(amountPaise)
+    val balanceAfterTxn: Double get() = Money.toRupees(balanceAfterTxnPaise)
+}
 
 /**
  * Result of parsing a bank statement
@@ -160,14 +166,6 @@ class UniversalStatementParser : StatementParser {
             // SBI: "DD MMM YY  Description  Ref  Debit  Credit  Balance"
             
             var inTransactionSection = false
-            val datePatterns = listOf(
-                DateTimeFormatter.ofPattern("dd/MM/yyyy", Locale.ENGLISH),
-                DateTimeFormatter.ofPattern("dd-MM-yyyy", Locale.ENGLISH),
-                DateTimeFormatter.ofPattern("dd MMM yyyy", Locale.ENGLISH),
-                DateTimeFormatter.ofPattern("dd-MMM-yyyy", Locale.ENGLISH),
-                DateTimeFormatter.ofPattern("dd MMM yy", Locale.ENGLISH),
-                DateTimeFormatter.ofPattern("dd-MMM-yy", Locale.ENGLISH)
-            )
             
             for (line in lines) {
                 val trimmed = line.trim()
@@ -192,7 +190,7 @@ class UniversalStatementParser : StatementParser {
                 if (!inTransactionSection) continue
                 
                 // Try to parse transaction line
-                val parsed = parseTransactionLine(trimmed, datePatterns)
+                val parsed = parseTransactionLine(trimmed)
                 if (parsed != null) {
                     transactions.add(parsed)
                 }
@@ -210,7 +208,7 @@ class UniversalStatementParser : StatementParser {
     /**
      * Parse a single transaction line from PDF text
      */
-    private fun parseTransactionLine(line: String, datePatterns: List<DateTimeFormatter>): ParsedTransaction? {
+    private fun parseTransactionLine(line: String): ParsedTransaction? {
         try {
             // Split by multiple spaces (2 or more)
             val parts = line.split(Regex("\\s{2,}"))
@@ -221,25 +219,19 @@ class UniversalStatementParser : StatementParser {
             var startIdx = 0
             
             for (i in 0 until minOf(3, parts.size)) {
-                for (formatter in datePatterns) {
-                    try {
-                        txnDate = LocalDate.parse(parts[i].trim(), formatter)
-                        startIdx = i + 1
-                        break
-                    } catch (e: Exception) {
-                        // Try next format
-                    }
+                txnDate = StatementDateResolver.resolve(parts[i])
+                if (txnDate != null) {
+                    startIdx = i + 1
+                    break
                 }
-                if (txnDate != null) break
             }
             
             if (txnDate == null) return null
             
-            // Extract amounts (look for numbers with commas/dots)
-            val amountPattern = Regex("[0-9,]+\\.?[0-9]*")
-            val amounts = parts.mapNotNull { part ->
-                val cleaned = part.replace(",", "")
-                amountPattern.find(cleaned)?.value?.toDoubleOrNull()
+            // Extract amounts (columns after the date that read as amounts)
+            val amounts = parts.drop(startIdx).mapNotNull { part ->
+                val paise = AmountParser.parsePaise(part)
+                if (paise == AmountParser.INVALID) null else abs(paise)
             }.filter { it > 0 }
             
             if (amounts.isEmpty()) return null
@@ -252,16 +244,16 @@ class UniversalStatementParser : StatementParser {
             // Or: Date | Description | Withdrawal | Deposit | Balance
             val isDebit = amounts.size >= 2 && amounts[0] > 0
             val amount = amounts[0]
-            val balance = amounts.lastOrNull() ?: 0.0
+            val balance = amounts.lastOrNull() ?: 0L
             
             return ParsedTransaction(
                 txnDate = txnDate,
                 valueDate = null,
                 description = description,
                 reference = null,
-                amount = amount,
+                amountPaise = amount,
                 direction = if (isDebit) ActivityType.EXPENSE else ActivityType.INCOME,
-                balanceAfterTxn = balance
+                balanceAfterTxnPaise = balance
             )
         } catch (e: Exception) {
             return null
@@ -413,47 +405,18 @@ class UniversalStatementParser : StatementParser {
                 if (cells.isEmpty() || cells.size <= maxRequiredIndex) continue
                 
                 try {
-                    val dateStr = cells.getOrNull(dateIndex)?.replace(Regex("[^a-zA-Z0-9-]"), "")
+                    val dateStr = cells.getOrNull(dateIndex)
                     if (dateStr.isNullOrEmpty()) continue
 
-                        val txnDate = try {
-                            LocalDate.parse(dateStr, dateFormatter)
-                        } catch (e: Exception) {
-                             // Fallback manual parsing for dd-MMM-yy
-                            val parts = dateStr.split("-")
-                            if (parts.size == 3) {
-                                val day = parts[0].toInt()
-                                val monthStr = parts[1].lowercase(Locale.ENGLISH)
-                                val yearPart = parts[2].toInt()
-                                val year = if (yearPart < 100) 2000 + yearPart else yearPart
-                                val month = when {
-                                    monthStr.startsWith("jan") -> 1
-                                    monthStr.startsWith("feb") -> 2
-                                    monthStr.startsWith("mar") -> 3
-                                    monthStr.startsWith("apr") -> 4
-                                    monthStr.startsWith("may") -> 5
-                                    monthStr.startsWith("jun") -> 6
-                                    monthStr.startsWith("jul") -> 7
-                                    monthStr.startsWith("aug") -> 8
-                                    monthStr.startsWith("sep") -> 9
-                                    monthStr.startsWith("oct") -> 10
-                                    monthStr.startsWith("nov") -> 11
-                                    monthStr.startsWith("dec") -> 12
-                                    else -> throw e
-                                }
-                                LocalDate.of(year, month, day)
-                            } else {
-                                throw e
-                            }
+                        val txnDate = StatementDateResolver.resolve(dateStr)
+                        if (txnDate == null) {
+                            println("[Excel] Skipping row with unrecognised date: $dateStr")
+                            continue
                         }
 
-                        val valueDateStr = cells.getOrNull(valueDateIndex)?.replace(Regex("[^a-zA-Z0-9-]"), "")
+                        val valueDateStr = cells.getOrNull(valueDateIndex)
                         val valueDate = if (!valueDateStr.isNullOrEmpty()) {
-                             try {
-                                LocalDate.parse(valueDateStr, dateFormatter)
-                            } catch (e: Exception) {
-                                null
-                            }
+                            StatementDateResolver.resolve(valueDateStr)
                         } else null
 
                         val description = cells.getOrNull(descIndex) ?: ""
@@ -462,9 +425,8 @@ class UniversalStatementParser : StatementParser {
                         // Handle different column formats
                         val (amount, direction) = if (amountIndex >= 0 && typeIndex >= 0) {
                             // Format: Amount + Type (Dr/Cr)
-                            val amountStr = cells.getOrNull(amountIndex)?.replace(Regex("[^0-9.]"), "") ?: ""
+                            val amt = abs(AmountParser.parsePaiseOrZero(cells.getOrNull(amountIndex)))
                             val typeStr = cells.getOrNull(typeIndex) ?: ""
-                            val amt = amountStr.toDoubleOrNull() ?: 0.0
                             val dir = when {
                                 typeStr.contains("Dr", ignoreCase = true) || typeStr.contains("Debit", ignoreCase = true) -> ActivityType.EXPENSE
                                 typeStr.contains("Cr", ignoreCase = true) || typeStr.contains("Credit", ignoreCase = true) -> ActivityType.INCOME
@@ -473,18 +435,15 @@ class UniversalStatementParser : StatementParser {
                             Pair(amt, dir)
                         } else {
                             // Format: Separate Debit/Credit columns
-                            val debitStr = cells.getOrNull(debitIndex)?.replace(Regex("[^0-9.]"), "") ?: ""
-                            val creditStr = cells.getOrNull(creditIndex)?.replace(Regex("[^0-9.]"), "") ?: ""
-                            val debit = debitStr.toDoubleOrNull() ?: 0.0
-                            val credit = creditStr.toDoubleOrNull() ?: 0.0
+                            val debit = abs(AmountParser.parsePaiseOrZero(cells.getOrNull(debitIndex)))
+                            val credit = abs(AmountParser.parsePaiseOrZero(cells.getOrNull(creditIndex)))
                             
                             if (debit > 0) Pair(debit, ActivityType.EXPENSE)
                             else if (credit > 0) Pair(credit, ActivityType.INCOME)
-                            else Pair(0.0, ActivityType.EXPENSE)
+                            else Pair(0L, ActivityType.EXPENSE)
                         }
                         
-                        val balanceStr = cells.getOrNull(balanceIndex)?.replace(Regex("[^0-9.]"), "") ?: "0"
-                        val balance = balanceStr.toDoubleOrNull() ?: 0.0
+                        val balance = AmountParser.parsePaiseOrZero(cells.getOrNull(balanceIndex))
 
                         if (amount > 0) {
 
@@ -494,9 +453,9 @@ class UniversalStatementParser : StatementParser {
                                     valueDate = valueDate,
                                     description = description,
                                     reference = reference,
-                                    amount = amount,
+                                    amountPaise = amount,
                                     direction = direction,
-                                    balanceAfterTxn = balance
+                                    balanceAfterTxnPaise = balance
                                 )
                             )
                         }
@@ -530,7 +489,6 @@ class UniversalStatementParser : StatementParser {
         var creditIndex = -1
         var balanceIndex = -1
 
-        val dateFormatter = DateTimeFormatter.ofPattern("dd-MMM-yy", Locale.ENGLISH)
 
         reader.useLines { lines ->
             lines.forEach { line ->
@@ -562,64 +520,23 @@ class UniversalStatementParser : StatementParser {
                     if (tokens.size <= maxOf(dateIndex, descIndex, debitIndex, creditIndex)) return@forEach // Skip incomplete rows
                     
                     try {
-                        val dateStr = tokens.getOrNull(dateIndex)?.trim()?.replace(Regex("[^a-zA-Z0-9- ]"), "")
+                        val dateStr = tokens.getOrNull(dateIndex)?.trim()
                         if (dateStr.isNullOrEmpty() || dateStr.length < 6) return@forEach // Skip invalid dates
 
-                        val txnDate = try {
-                            LocalDate.parse(dateStr, dateFormatter)
-                        } catch (e: Exception) {
-                            // Fallback manual parsing for various formats
-                            try {
-                                // Try space-separated format: "1 Feb 2022" or dash-separated "01-Apr-24"
-                                val parts = if (dateStr.contains(" ")) dateStr.split(" ") else dateStr.split("-")
-                                if (parts.size == 3) {
-                                    val day = parts[0].trim().toIntOrNull() ?: throw e
-                                    val monthStr = parts[1].trim().lowercase(Locale.ENGLISH)
-                                    val yearPart = parts[2].trim().toIntOrNull() ?: throw e
-                                    val year = if (yearPart < 100) 2000 + yearPart else yearPart
-                                    val month = when {
-                                        monthStr.startsWith("jan") -> 1
-                                        monthStr.startsWith("feb") -> 2
-                                        monthStr.startsWith("mar") -> 3
-                                        monthStr.startsWith("apr") -> 4
-                                        monthStr.startsWith("may") -> 5
-                                        monthStr.startsWith("jun") -> 6
-                                        monthStr.startsWith("jul") -> 7
-                                        monthStr.startsWith("aug") -> 8
-                                        monthStr.startsWith("sep") -> 9
-                                        monthStr.startsWith("oct") -> 10
-                                        monthStr.startsWith("nov") -> 11
-                                        monthStr.startsWith("dec") -> 12
-                                        else -> throw e
-                                    }
-                                    LocalDate.of(year, month, day)
-                                } else {
-                                    throw e
-                                }
-                            } catch (ex: Exception) {
-                                return@forEach // Skip this row if date parsing fails
-                            }
-                        }
+                        // Skip this row if date parsing fails
+                        val txnDate = StatementDateResolver.resolve(dateStr) ?: return@forEach
                         
-                        val valueDateStr = tokens.getOrNull(valueDateIndex)?.trim()?.replace(Regex("[^a-zA-Z0-9- ]"), "")
+                        val valueDateStr = tokens.getOrNull(valueDateIndex)?.trim()
                         val valueDate = if (!valueDateStr.isNullOrEmpty()) {
-                            try {
-                                LocalDate.parse(valueDateStr, dateFormatter)
-                            } catch (e: Exception) {
-                                null // ValueDate is optional, just skip if parsing fails
-                            }
+                            StatementDateResolver.resolve(valueDateStr) // ValueDate is optional, null if parsing fails
                         } else null
                         
                         val description = tokens.getOrNull(descIndex)?.trim() ?: ""
                         val reference = tokens.getOrNull(refIndex)?.trim()
                         
-                        val debitStr = tokens.getOrNull(debitIndex)?.replace(Regex("[^0-9.]"), "") ?: ""
-                        val creditStr = tokens.getOrNull(creditIndex)?.replace(Regex("[^0-9.]"), "") ?: ""
-                        val balanceStr = tokens.getOrNull(balanceIndex)?.replace(Regex("[^0-9.]"), "") ?: "0"
-
-                        val debit = debitStr.toDoubleOrNull() ?: 0.0
-                        val credit = creditStr.toDoubleOrNull() ?: 0.0
-                        val balance = balanceStr.toDoubleOrNull() ?: 0.0
+                        val debit = abs(AmountParser.parsePaiseOrZero(tokens.getOrNull(debitIndex)))
+                        val credit = abs(AmountParser.parsePaiseOrZero(tokens.getOrNull(creditIndex)))
+                        val balance = AmountParser.parsePaiseOrZero(tokens.getOrNull(balanceIndex))
 
                         if (debit > 0 || credit > 0) {
                             val amount = if (debit > 0) debit else credit
@@ -631,9 +548,9 @@ class UniversalStatementParser : StatementParser {
                                     valueDate = valueDate,
                                     description = description,
                                     reference = reference,
-                                    amount = amount,
+                                    amountPaise = amount,
                                     direction = direction,
-                                    balanceAfterTxn = balance
+                                    balanceAfterTxnPaise = balance
                                 )
                             )
                         }
@@ -1,7 +1,8 @@
 package com.bitflow.finance.data.parser
 
+import java.io.BufferedInputStream
 import java.io.BufferedReader
-import java.io.ByteArrayInputStream
+import java.io.Closeable
 import java.io.InputStream
 import java.io.InputStreamReader
 
@@ -9,14 +10,23 @@ import java.io.InputStreamReader
  * Factory that detects the bank statement format and returns the appropriate parser
  * 
  * Detection Strategy:
- * 1. Detect if file is Excel or CSV/text
- * 2. If Excel, convert to text format first
- * 3. Read first 40 lines of the file
+ * 1. Detect if file is Excel or CSV/text (peeks at the first 8 bytes only)
+ * 2. Read typed rows (Excel cells keep their date/number types; text lines become text cells)
+ * 3. Read first 40 rows of the file
  * 4. Look for identifying keywords in headers
  * 5. Return the matching parser implementation
+ *
+ * The file is never fully buffered: the 40 detection rows are replayed into the
+ * detected parser, which then streams the remaining rows one at a time.
  */
 object StatementParserFactory {
     
+    /** Number of leading lines inspected for format detection */
+    private const val DETECTION_LINE_LIMIT = 40
+    
+    /** Number of leading bytes inspected for file type detection */
+    private const val MAGIC_BYTES_LENGTH = 8
+    
     private val PARSERS = listOf(
         // Check Bitflow first (most specific - has "Particulars")
         ParserDetector(
@@ -66,22 +76,10 @@ object StatementParserFactory {
      * @throws UnknownStatementFormatException if no matching parser is found
      */
     fun detectParser(inputStream: InputStream): BankStatementParser {
-        // Read stream into byte array to preserve it
-        val bytes = inputStream.readBytes()
-        
-        // Read first 40 lines for detection
-        val previewStream = ByteArrayInputStream(bytes)
-        val reader = BufferedReader(InputStreamReader(previewStream))
-        val lines = mutableListOf<String>()
-        
-        try {
-            var linesRead = 0
-            var line = reader.readLine()
-            while (line != null && linesRead < 40) {
-                lines.add(line)
-                linesRead++
-                line = reader.readLine()
-            }
+        // Read only the first 40 lines for detection
+        val reader = BufferedReader(InputStreamReader(inputStream))
+        val lines = try {
+            readDetectionLines(reader.lineSequence().iterator())
         } catch (e: Exception) {
             println("[Parser Factory] Error reading file: ${e.message}")
             throw UnknownStatementFormatException("Failed to read file: ${e.message}")
@@ -125,44 +123,83 @@ object StatementParserFactory {
      * @throws StatementParsingException if parsing fails
      */
     fun parseStatement(inputStream: InputStream): ParseResult {
-        // Read into byte array to allow multiple reads
-        val bytes = inputStream.readBytes()
+        val result = parseStatementStreaming(inputStream).use { it.toParseResult() }
+        println("[Parser Factory] Parsed ${result.transactions.size} transactions, detected balance: ₹${result.detectedCurrentBalance}")
+        return result
+    }
+    
+    /**
+     * Streaming variant of [parseStatement]
+     * 
+     * Format detection only looks at a bounded prefix of the file; the returned
+     * stream parses the remaining rows on demand, so memory use does not grow
+     * with the size of the statement.
+     * 
+     * @param inputStream The statement file input stream (must stay open until the stream is consumed)
+     * @return StatementStream yielding transactions in file order; the caller must close it
+     * @throws UnknownStatementFormatException if format cannot be detected
+     * @throws StatementParsingException if the file cannot be read
+     */
+    fun parseStatementStreaming(inputStream: InputStream): StatementStream {
+        val input = if (inputStream.markSupported()) inputStream else BufferedInputStream(inputStream)
         
         // Detect if Excel file
-        val lines = if (isExcelFile(bytes)) {
-            println("[Parser Factory] Detected Excel file, converting to text...")
-            try {
-                val excelStream = ByteArrayInputStream(bytes)
-                ExcelReader.readExcelAsLines(excelStream)
-            } catch (e: Exception) {
-                println("[Parser Factory] Excel conversion failed: ${e.message}")
-                throw StatementParsingException("Failed to read Excel file: ${e.message}", e)
-            }
+        val rows = if (isExcelFile(peekMagicBytes(input))) {
+            println("[Parser Factory] Detected Excel file, reading typed rows...")
+            ExcelReader.readRows(input)
         } else {
             // Text file (CSV/TSV)
             println("[Parser Factory] Detected text file (CSV/TSV)")
-            val textStream = ByteArrayInputStream(bytes)
-            val reader = BufferedReader(InputStreamReader(textStream))
-            reader.readLines()
+            BufferedReader(InputStreamReader(input)).lineSequence()
+                .mapIndexed { index, line -> RawRow.fromCsvLine(index, line) }
         }
         
-        println("[Parser Factory] Read ${lines.size} lines for format detection")
-        
-        // Detect parser using lines
-        val parser = detectParserFromLines(lines)
-        
-        // Parse using detected parser
-        // Convert lines back to input stream
-        val textData = lines.joinToString("\n")
-        val parsingStream = ByteArrayInputStream(textData.toByteArray())
-        return parser.parse(parsingStream)
+        // Detect parser using the leading rows only
+        val iterator = rows.iterator()
+        try {
+            val detectionRows = readDetectionLines(iterator)
+            println("[Parser Factory] Read ${detectionRows.size} lines for format detection")
+            val parser = detectParserFromLines(detectionRows.map { it.toCsvLine() })
+            
+            // Replay the detection rows, then stream the rest of the file
+            return parser.parseRows(detectionRows.asSequence() + Sequence { iterator })
+                .closing(iterator as? Closeable)
+        } catch (e: Throwable) {
+            // No stream owns the rows yet: stop the Excel reader thread here
+            (iterator as? Closeable)?.close()
+            throw e
+        }
+    }
+    
+    private fun <T> readDetectionLines(iterator: Iterator<T>): List<T> {
+        val lines = mutableListOf<T>()
+        while (lines.size < DETECTION_LINE_LIMIT && iterator.hasNext()) {
+            lines.add(iterator.next())
+        }
+        return lines
+    }
+    
+    /**
+     * Read the leading magic bytes without consuming them
+     */
+    private fun peekMagicBytes(input: InputStream): ByteArray {
+        input.mark(MAGIC_BYTES_LENGTH)
+        val buffer = ByteArray(MAGIC_BYTES_LENGTH)
+        var read = 0
+        while (read < MAGIC_BYTES_LENGTH) {
+            val count = input.read(buffer, read, MAGIC_BYTES_LENGTH - read)
+            if (count < 0) break
+            read += count
+        }
+        input.reset()
+        return buffer.copyOf(read)
     }
     
     /**
      * Check if the file is an Excel file based on magic bytes
      */
     private fun isExcelFile(bytes: ByteArray): Boolean {
-        if (bytes.size < 8) return false
+        if (bytes.size < MAGIC_BYTES_LENGTH) return false
         
         // Check for Excel magic bytes
         // XLSX: PK (ZIP format) - 50 4B 03 04
@@ -0,0 +1,159 @@
+package com.bitflow.finance.data.parser
+
+import java.io.Closeable
+import java.time.LocalDate
+
+/**
+ * Single-pass view over a parsed statement
+ *
+ * Transactions are produced lazily by the detected parser while the underlying
+ * file is being read, so only the row currently being parsed is held in memory.
+ * The detected current balance is tracked incrementally and is final once the
+ * transactions have been consumed.
+ *
+ * A StatementStream can only be consumed once. It owns the source the rows are read
+ * from (e.g. the Excel reader thread), so close it, normally with `use`, even when
+ * it is not consumed to the end.
+ */
+class StatementStream(
+    private val transactions: Sequence<ParsedTransaction>,
+    private val balanceDetector: BalanceDetector
+) : Closeable {
+
+    private var source: Closeable? = null
+
+    /**
+     * Number of transactions consumed so far
+     */
+    var transactionCount: Int = 0
+        private set
+
+    /**
+     * Current balance detected from the rows consumed so far
+     */
+    val detectedCurrentBalance: Double
+        get() = balanceDetector.currentBalance()
+
+    /**
+     * Consume every transaction in file order
+     */
+    fun forEach(action: (ParsedTransaction) -> Unit) {
+        for (transaction in transactions) {
+            balanceDetector.accept(transaction)
+            transactionCount++
+            action(transaction)
+        }
+    }
+
+    /**
+     * Collect the whole statement (legacy, non-streaming behaviour)
+     */
+    fun toParseResult(): ParseResult {
+        val collected = mutableListOf<ParsedTransaction>()
+        forEach { collected.add(it) }
+        return ParseResult(collected, detectedCurrentBalance)
+    }
+
+    /**
+     * Take ownership of the row source, closed together with this stream
+     */
+    fun closing(source: Closeable?): StatementStream {
+        this.source = source
+        return this
+    }
+
+    override fun close() {
+        source?.close()
+        source = null
+    }
+}
+
+/**
+ * Incremental "current balance" detection, fed one transaction at a time in file order
+ */
+interface BalanceDetector {
+    fun accept(transaction: ParsedTransaction)
+    fun currentBalance(): Double
+}
+
+/**
+ * Picks the balance of the latest-dated transaction, using file order (ascending vs
+ * descending by date) to choose between the first and last row on that date.
+ * Opening balance / brought forward rows are ignored.
+ */
+class LatestDateBalanceDetector : BalanceDetector {
+
+    private var firstDate: LocalDate? = null
+    private var lastDate: LocalDate? = null
+    private var lastPositiveBalance = 0.0
+
+    private var latestValidDate: LocalDate? = null
+    private var firstOnLatestDate: ParsedTransaction? = null
+    private var lastOnLatestDate: ParsedTransaction? = null
+
+    override fun accept(transaction: ParsedTransaction) {
+        if (firstDate == null) firstDate = transaction.txnDate
+        lastDate = transaction.txnDate
+
+        if (transaction.balanceAfterTxn > 0.0) {
+            lastPositiveBalance = transaction.balanceAfterTxn
+        }
+
+        val isValid = transaction.balanceAfterTxn > 0.0 &&
+            !transaction.description.contains("Opening Balance", ignoreCase = true) &&
+            !transaction.description.contains("Brought Forward", ignoreCase = true) &&
+            !transaction.description.contains("B/F", ignoreCase = true)
+        if (!isValid) return
+
+        val latest = latestValidDate
+        when {
+            latest == null || transaction.txnDate.isAfter(latest) -> {
+                latestValidDate = transaction.txnDate
+                firstOnLatestDate = transaction
+                lastOnLatestDate = transaction
+            }
+            transaction.txnDate == latest -> lastOnLatestDate = transaction
+        }
+    }
+
+    override fun currentBalance(): Double {
+        val first = firstDate ?: return 0.0
+        val last = lastDate ?: return 0.0
+        if (latestValidDate == null) return lastPositiveBalance
+
+        val isDescending = first.isAfter(last)
+        val finalTransaction = if (isDescending) firstOnLatestDate else lastOnLatestDate
+        return finalTransaction?.balanceAfterTxn ?: 0.0
+    }
+}
+
+/**
+ * Picks the first or last row carrying a balance, depending on whether the file is
+ * ordered newest-first or oldest-first. Falls back to the highest balance when all
+ * rows share the same date.
+ */
+class FileOrderBalanceDetector : BalanceDetector {
+
+    private var first: ParsedTransaction? = null
+    private var last: ParsedTransaction? = null
+    private var maxBalance = 0.0
+
+    override fun accept(transaction: ParsedTransaction) {
+        if (transaction.balanceAfterTxn <= 0.0) return
+        if (first == null) first = transaction
+        last = transaction
+        maxBalance = maxOf(maxBalance, transaction.balanceAfterTxn)
+    }
+
+    override fun currentBalance(): Double {
+        val firstTxn = first ?: return 0.0
+        val lastTxn = last ?: return 0.0
+        if (firstTxn === lastTxn) return firstTxn.balanceAfterTxn
+
+        return when {
+            firstTxn.txnDate.isAfter(lastTxn.txnDate) -> firstTxn.balanceAfterTxn
+            firstTxn.txnDate.isBefore(lastTxn.txnDate) -> lastTxn.balanceAfterTxn
+            else -> maxBalance
+        }
+    }
+}
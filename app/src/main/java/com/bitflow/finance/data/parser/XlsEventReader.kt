@@ -0,0 +1,124 @@
+package com.bitflow.finance.data.parser
+
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory
+import org.apache.poi.hssf.eventusermodel.HSSFListener
+import org.apache.poi.hssf.eventusermodel.HSSFRequest
+import org.apache.poi.hssf.eventusermodel.MissingRecordAwareHSSFListener
+import org.apache.poi.hssf.eventusermodel.dummyrecord.LastCellOfRowDummyRecord
+import org.apache.poi.hssf.record.BOFRecord
+import org.apache.poi.hssf.record.BoolErrRecord
+import org.apache.poi.hssf.record.CellValueRecordInterface
+import org.apache.poi.hssf.record.DateWindow1904Record
+import org.apache.poi.hssf.record.FormulaRecord
+import org.apache.poi.hssf.record.LabelRecord
+import org.apache.poi.hssf.record.LabelSSTRecord
+import org.apache.poi.hssf.record.NumberRecord
+import org.apache.poi.hssf.record.Record
+import org.apache.poi.hssf.record.SSTRecord
+import org.apache.poi.hssf.record.StringRecord
+import org.apache.poi.poifs.filesystem.POIFSFileSystem
+import org.apache.poi.ss.usermodel.DateUtil
+import java.io.InputStream
+
+/**
+ * HSSF event-model XLS reader
+ *
+ * Walks the BIFF records of the first worksheet and emits typed rows directly,
+ * without building an HSSFWorkbook. Date cells are recognised through the
+ * format tracking listener and converted in the workbook's date system (1900 or 1904).
+ */
+internal object XlsEventReader {
+
+    fun read(inputStream: InputStream, onRow: (RawRow) -> Unit) {
+        POIFSFileSystem(inputStream).use { fs ->
+            val rowListener = RowListener(onRow)
+            val formatListener = FormatTrackingHSSFListener(MissingRecordAwareHSSFListener(rowListener))
+            rowListener.formatListener = formatListener
+
+            val request = HSSFRequest()
+            request.addListenerForAllRecords(formatListener)
+            HSSFEventFactory().processWorkbookEvents(request, fs)
+        }
+    }
+
+    private class RowListener(
+        private val onRow: (RawRow) -> Unit
+    ) : HSSFListener {
+
+        lateinit var formatListener: FormatTrackingHSSFListener
+
+        private var sharedStrings: SSTRecord? = null
+        private var worksheetIndex = -1
+        private var use1904Dates = false
+
+        private val cells = ArrayList<RawCell>()
+        private var rowHasValues = false
+
+        // Column of a formula whose string result follows in a StringRecord
+        private var pendingFormulaColumn = -1
+
+        override fun processRecord(record: Record) {
+            when (record) {
+                is BOFRecord -> if (record.type == BOFRecord.TYPE_WORKSHEET) worksheetIndex++
+                is SSTRecord -> sharedStrings = record
+                is DateWindow1904Record -> use1904Dates = record.windowing.toInt() == 1
+                else -> if (worksheetIndex == 0) processSheetRecord(record) // First sheet only
+            }
+        }
+
+        private fun processSheetRecord(record: Record) {
+            when (record) {
+                is LabelSSTRecord -> {
+                    val text = sharedStrings?.getString(record.sstIndex)?.string ?: ""
+                    setCell(record.column.toInt(), RawCell.Text(text.trim()))
+                }
+                is LabelRecord -> setCell(record.column.toInt(), RawCell.Text(record.value.trim()))
+                is NumberRecord -> setCell(record.column.toInt(), numericCell(record, record.value))
+                is FormulaRecord -> {
+                    if (record.hasCachedResultString()) {
+                        pendingFormulaColumn = record.column.toInt()
+                    } else {
+                        setCell(record.column.toInt(), numericCell(record, record.value))
+                    }
+                }
+                is StringRecord -> {
+                    if (pendingFormulaColumn >= 0) {
+                        setCell(pendingFormulaColumn, RawCell.Text(record.string.trim()))
+                        pendingFormulaColumn = -1
+                    }
+                }
+                is BoolErrRecord -> {
+                    if (record.isBoolean) {
+                        setCell(record.column.toInt(), RawCell.Bool(record.booleanValue))
+                    }
+                }
+                is LastCellOfRowDummyRecord -> {
+                    if (rowHasValues) {
+                        onRow(RawRow(record.row, ArrayList(cells)))
+                    }
+                    cells.clear()
+                    rowHasValues = false
+                }
+            }
+        }
+
+        private fun numericCell(record: CellValueRecordInterface, value: Double): RawCell {
+            val formatIndex = formatListener.getFormatIndex(record)
+            val formatString = formatListener.getFormatString(record)
+            return if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                RawCell.Date(DateUtil.getLocalDateTime(value, use1904Dates).toLocalDate())
+            } else {
+                RawCell.Number(value)
+            }
+        }
+
+        private fun setCell(column: Int, cell: RawCell) {
+            while (cells.size <= column) {
+                cells.add(RawCell.Empty)
+            }
+            cells[column] = cell
+            rowHasValues = true
+        }
+    }
+}
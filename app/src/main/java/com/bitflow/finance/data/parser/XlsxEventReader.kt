@@ -0,0 +1,162 @@
+package com.bitflow.finance.data.parser
+
+import org.apache.poi.openxml4j.opc.OPCPackage
+import org.apache.poi.ss.usermodel.DateUtil
+import org.apache.poi.util.XMLHelper
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable
+import org.apache.poi.xssf.eventusermodel.XSSFReader
+import org.apache.poi.xssf.model.SharedStrings
+import org.apache.poi.xssf.model.StylesTable
+import org.xml.sax.Attributes
+import org.xml.sax.InputSource
+import org.xml.sax.helpers.DefaultHandler
+import java.io.InputStream
+
+/**
+ * SAX based XLSX reader
+ *
+ * Streams the first worksheet's XML and emits typed rows directly, without
+ * building an XSSFWorkbook. Shared strings are read through the read-only table
+ * and date cells are recognised from their number format. Date serials follow
+ * the workbook's date system (1900, or 1904 for workbooks from older Mac Excel).
+ */
+internal object XlsxEventReader {
+
+    fun read(inputStream: InputStream, onRow: (RawRow) -> Unit) {
+        OPCPackage.open(inputStream).use { pkg ->
+            val reader = XSSFReader(pkg)
+            val strings = ReadOnlySharedStringsTable(pkg)
+            val styles = reader.stylesTable
+            val use1904Dates = reader.workbookData.use { isDate1904(it) }
+
+            val sheets = reader.sheetsData
+            if (!sheets.hasNext()) {
+                throw StatementParsingException("Excel file has no sheets")
+            }
+
+            // First sheet only
+            sheets.next().use { sheetStream ->
+                val xmlReader = XMLHelper.newXMLReader()
+                xmlReader.contentHandler = SheetHandler(styles, strings, use1904Dates, onRow)
+                xmlReader.parse(InputSource(sheetStream))
+            }
+        }
+    }
+
+    /**
+     * Whether workbook.xml's <workbookPr date1904="..."> selects the 1904 date system
+     */
+    private fun isDate1904(workbookXml: InputStream): Boolean {
+        var date1904 = false
+        val xmlReader = XMLHelper.newXMLReader()
+        xmlReader.contentHandler = object : DefaultHandler() {
+            override fun startElement(uri: String?, localName: String, qName: String?, attributes: Attributes) {
+                if (localName == "workbookPr") {
+                    val value = attributes.getValue("date1904")
+                    date1904 = value == "1" || value.equals("true", ignoreCase = true)
+                }
+            }
+        }
+        xmlReader.parse(InputSource(workbookXml))
+        return date1904
+    }
+
+    private class SheetHandler(
+        private val styles: StylesTable,
+        private val strings: SharedStrings,
+        private val use1904Dates: Boolean,
+        private val onRow: (RawRow) -> Unit
+    ) : DefaultHandler() {
+
+        private var rowIndex = -1
+        private val cells = ArrayList<RawCell>()
+
+        private var cellColumn = -1
+        private var cellType: String? = null
+        private var cellStyle: String? = null
+        private val cellValue = StringBuilder()
+        private var isCapturingValue = false
+
+        override fun startElement(uri: String?, localName: String, qName: String?, attributes: Attributes) {
+            when (localName) {
+                "row" -> {
+                    rowIndex = attributes.getValue("r")?.toIntOrNull()?.minus(1) ?: (rowIndex + 1)
+                    cells.clear()
+                }
+                "c" -> {
+                    cellColumn = columnIndex(attributes.getValue("r")) ?: cells.size
+                    cellType = attributes.getValue("t")
+                    cellStyle = attributes.getValue("s")
+                    cellValue.setLength(0)
+                }
+                // <v> holds the value, <t> the text of inline strings
+                "v", "t" -> isCapturingValue = true
+            }
+        }
+
+        override fun characters(ch: CharArray, start: Int, length: Int) {
+            if (isCapturingValue) {
+                cellValue.append(ch, start, length)
+            }
+        }
+
+        override fun endElement(uri: String?, localName: String, qName: String?) {
+            when (localName) {
+                "v", "t" -> isCapturingValue = false
+                "c" -> {
+                    while (cells.size < cellColumn) {
+                        cells.add(RawCell.Empty)
+                    }
+                    cells.add(toCell())
+                }
+                "row" -> {
+                    if (cells.isNotEmpty()) {
+                        onRow(RawRow(rowIndex, ArrayList(cells)))
+                    }
+                }
+            }
+        }
+
+        private fun toCell(): RawCell {
+            if (cellValue.isEmpty()) return RawCell.Empty
+            val raw = cellValue.toString()
+
+            return when (cellType) {
+                "s" -> {
+                    val index = raw.toIntOrNull() ?: return RawCell.Empty
+                    RawCell.Text(strings.getItemAt(index).string.trim())
+                }
+                "inlineStr", "str" -> RawCell.Text(raw.trim())
+                "b" -> RawCell.Bool(raw == "1")
+                "e" -> RawCell.Empty
+                else -> {
+                    val number = raw.toDoubleOrNull() ?: return RawCell.Text(raw.trim())
+                    if (isDateStyle() && DateUtil.isValidExcelDate(number)) {
+                        RawCell.Date(DateUtil.getLocalDateTime(number, use1904Dates).toLocalDate())
+                    } else {
+                        RawCell.Number(number)
+                    }
+                }
+            }
+        }
+
+        private fun isDateStyle(): Boolean {
+            val styleIndex = cellStyle?.toIntOrNull() ?: return false
+            val style = styles.getStyleAt(styleIndex) ?: return false
+            return DateUtil.isADateFormat(style.dataFormat.toInt(), style.dataFormatString)
+        }
+
+        /**
+         * Zero-based column index from a cell reference such as "AB12"
+         */
+        private fun columnIndex(reference: String?): Int? {
+            if (reference.isNullOrEmpty()) return null
+            var column = 0
+            for (ch in reference) {
+                if (ch !in 'A'..'Z') break
+                column = column * 26 + (ch - 'A' + 1)
+            }
+            return if (column == 0) null else column - 1
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.bitflow.finance.data.repository
 
 import com.bitflow.finance.data.local.dao.AccountDao
+import com.bitflow.finance.data.local.dao.LedgerDao
 import com.bitflow.finance.data.local.entity.AccountEntity
 import com.bitflow.finance.domain.model.Account
+import com.bitflow.finance.domain.model.Money
 import com.bitflow.finance.domain.repository.AccountRepository
 import com.bitflow.finance.domain.repository.AuthRepository
 import kotlinx.coroutines.flow.Flow
@@ -10,13 +12,21 @@ import kotlinx.coroutines.flow.flatMapLatest
 import kotlinx.coroutines.flow.flow
 import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.flow.first
+import java.time.LocalDate
 import javax.inject.Inject
+import kotlin.math.abs
 
 class AccountRepositoryImpl @Inject constructor(
     private val dao: AccountDao,
+    private val ledgerDao: LedgerDao,
     private val authRepository: AuthRepository
 ) : AccountRepository {
 
+    companion object {
+        // Half a paisa: smaller differences are floating point noise
+        private const val BALANCE_TOLERANCE = 0.005
+    }
+
     override fun getAllAccounts(): Flow<List<Account>> {
         return authRepository.currentUserId.flatMapLatest { userId ->
             dao.getAllAccounts(userId).map { entities -> entities.map { it.toDomain() } }
@@ -43,6 +53,23 @@ class AccountRepositoryImpl @Inject constructor(
         dao.updateBalance(accountId, newBalance, userId)
     }
 
+    override suspend fun getBalanceOn(accountId: Long, date: LocalDate): Double? {
+        val userId = authRepository.currentUserId.first()
+        val account = dao.getAccountById(accountId, userId) ?: return null
+        return account.initialBalance + Money.toRupees(ledgerDao.getClosingNetOn(accountId, date) ?: 0L)
+    }
+    
+    override suspend fun reconcileBalance(accountId: Long, date: LocalDate, statementBalance: Double): Double {
+        val ledgerBalance = getBalanceOn(accountId, date) ?: return 0.0
+        val correction = statementBalance - ledgerBalance
+        if (abs(correction) < BALANCE_TOLERANCE) return 0.0
+        
+        val userId = authRepository.currentUserId.first()
+        dao.adjustOpeningBalance(accountId, correction, userId)
+        println("[AccountRepository] Reconciled account $accountId on $date: ledger ₹$ledgerBalance, statement ₹$statementBalance")
+        return correction
+    }
+
     private fun AccountEntity.toDomain(): Account {
         return Account(
             id = id,
@@ -1,11 +1,17 @@
 package com.bitflow.finance.data.repository
 
+import com.bitflow.finance.data.local.FullTextSearch
 import com.bitflow.finance.data.local.dao.InvoiceDao
+import com.bitflow.finance.data.local.dao.InvoiceTotals
 import com.bitflow.finance.data.local.entity.InvoiceEntity
 import com.bitflow.finance.domain.repository.AuthRepository
 import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.combine
 import kotlinx.coroutines.flow.flatMapLatest
 import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.flowOf
+import java.time.YearMonth
+import java.time.ZoneId
 import javax.inject.Inject
 import javax.inject.Singleton
 
@@ -20,6 +26,44 @@ class InvoiceRepository @Inject constructor(
         }
     }
 
+    /**
+     * Invoices whose client name or number match every word of [query] as a prefix;
+     * all invoices for a blank query
+     */
+    fun searchInvoices(query: String): Flow<List<InvoiceEntity>> {
+        val match = FullTextSearch.prefixMatch(FullTextSearch.words(query)) ?: return getAllInvoices()
+        return authRepository.currentUserId.flatMapLatest { userId ->
+            invoiceDao.searchInvoices(match, userId)
+        }
+    }
+
+    fun getTotals(): Flow<InvoiceTotals> {
+        return authRepository.currentUserId.flatMapLatest { userId ->
+            invoiceDao.getTotals(Long.MIN_VALUE, Long.MAX_VALUE, userId)
+        }
+    }
+
+    /**
+     * Totals per calendar month (device time zone), in the order of [months]. Each
+     * month is one indexed date-range aggregate, so the cost follows the invoices in
+     * those months rather than the whole table.
+     */
+    fun getMonthlyTotals(months: List<YearMonth>): Flow<List<InvoiceTotals>> {
+        if (months.isEmpty()) return flowOf(emptyList())
+        val zone = ZoneId.systemDefault()
+        return authRepository.currentUserId.flatMapLatest { userId ->
+            combine(
+                months.map { month ->
+                    invoiceDao.getTotals(
+                        month.atDay(1).atStartOfDay(zone).toInstant().toEpochMilli(),
+                        month.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant().toEpochMilli(),
+                        userId
+                    )
+                }
+            ) { totals -> totals.toList() }
+        }
+    }
+
     suspend fun getInvoiceById(id: Long): InvoiceEntity? {
         val userId = authRepository.currentUserId.first()
         return invoiceDao.getInvoiceById(id, userId)
@@ -0,0 +1,96 @@
+package com.bitflow.finance.data.repository
+
+import com.bitflow.finance.domain.model.CategoryLearningRule
+import com.bitflow.finance.domain.model.MerchantPatternMatcher
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import java.util.concurrent.atomic.AtomicLong
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * In-memory copy of the current user's learning rules
+ *
+ * Category suggestions look a rule up on every keystroke in Add Activity and on
+ * every correction, and each import matches its whole batch against all rules. The
+ * rules are loaded once per user, kept in a map keyed by merchant pattern, and the
+ * [MerchantPatternMatcher] over them is compiled on first use.
+ *
+ * Writes go through the cache ([write]): the database write and the in-memory update
+ * happen under the same lock, so a concurrent load never sees one without the other.
+ * Each update replaces the snapshot, so readers need no lock and the matcher is rebuilt
+ * only after the rules change. A different user id drops the snapshot and reloads.
+ *
+ * Every learning_rules write must go through [write], or the cache goes stale.
+ */
+@Singleton
+class LearningRuleCache @Inject constructor() {
+
+    private class Snapshot(val userId: String, val rules: List<CategoryLearningRule>) {
+        // Same pick as findRuleByMerchant for duplicate patterns: the first in load order
+        val byPattern: Map<String, CategoryLearningRule> = HashMap<String, CategoryLearningRule>(rules.size * 2).also { map ->
+            for (rule in rules) map.putIfAbsent(rule.descriptionPattern, rule)
+        }
+        val matcher: MerchantPatternMatcher by lazy { MerchantPatternMatcher(rules) }
+    }
+
+    private val mutex = Mutex()
+    @Volatile
+    private var snapshot: Snapshot? = null
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+
+    /** Reads answered from memory */
+    val hitCount: Long get() = hits.get()
+
+    /** Reads that had to load the rules from the database */
+    val missCount: Long get() = misses.get()
+
+    /**
+     * The rule with exactly this [pattern], or null
+     */
+    suspend fun find(userId: String, pattern: String, load: suspend () -> List<CategoryLearningRule>): CategoryLearningRule? =
+        snapshotFor(userId, load).byPattern[pattern]
+
+    /**
+     * The matcher compiled from [userId]'s current rules
+     */
+    suspend fun matcher(userId: String, load: suspend () -> List<CategoryLearningRule>): MerchantPatternMatcher =
+        snapshotFor(userId, load).matcher
+
+    /**
+     * Runs the database write [block] and applies [update] to the cached rules when
+     * [userId]'s rules are loaded. If they are not, the next read loads them from the
+     * database, which already has the change.
+     */
+    suspend fun <T> write(
+        userId: String,
+        block: suspend () -> T,
+        update: (rules: List<CategoryLearningRule>, result: T) -> List<CategoryLearningRule>
+    ): T = mutex.withLock {
+        val result = block()
+        val current = snapshot
+        if (current != null && current.userId == userId) {
+            snapshot = Snapshot(userId, update(current.rules, result).sortedWith(LOAD_ORDER))
+        }
+        result
+    }
+
+    private suspend fun snapshotFor(userId: String, load: suspend () -> List<CategoryLearningRule>): Snapshot {
+        snapshot?.let { if (it.userId == userId) { hits.incrementAndGet(); return it } }
+        return mutex.withLock {
+            snapshot?.let { if (it.userId == userId) { hits.incrementAndGet(); return@withLock it } }
+            misses.incrementAndGet()
+            val loaded = Snapshot(userId, load())
+            snapshot = loaded
+            println("[LearningRuleCache] Loaded ${loaded.rules.size} rules (hits=${hits.get()}, misses=${misses.get()})")
+            loaded
+        }
+    }
+
+    private companion object {
+        // Order of LearningRuleDao.getAllRules; the matcher breaks confidence ties by it
+        val LOAD_ORDER: Comparator<CategoryLearningRule> = compareByDescending<CategoryLearningRule> { it.confidenceScore }
+            .thenByDescending { it.usageCount }
+    }
+}
@@ -0,0 +1,83 @@
+package com.bitflow.finance.data.repository
+
+import com.bitflow.finance.data.local.dao.LedgerDao
+import com.bitflow.finance.data.local.entity.AccountDailyLedgerEntity
+import com.bitflow.finance.domain.model.LedgerCheckResult
+import com.bitflow.finance.domain.repository.AuthRepository
+import kotlinx.coroutines.flow.first
+import javax.inject.Inject
+
+/**
+ * Verifies the trigger-maintained balance ledger against the transactions table
+ * and optionally repairs it by rebuilding
+ *
+ * Each account's total and every per-day movement and closing figure is recomputed
+ * with GROUP BY queries and compared exactly (all figures are whole paise). This reads every
+ * transaction once, so it is meant for diagnostics and recovery (e.g. after a
+ * restore), not for regular balance reads.
+ */
+class LedgerConsistencyChecker @Inject constructor(
+    private val ledgerDao: LedgerDao,
+    private val authRepository: AuthRepository
+) {
+
+    suspend fun verify(repair: Boolean = false): LedgerCheckResult {
+        val userId = authRepository.currentUserId.first()
+        val stored = ledgerDao.getLedger(userId).associateBy { it.accountId }
+        val expected = ledgerDao.computeLedger(userId).associateBy { it.accountId }
+        val mismatches = mutableListOf<String>()
+
+        val accountIds = stored.keys + expected.keys
+        for (accountId in accountIds) {
+            val storedTotal = stored[accountId]
+            val expectedTotal = expected[accountId]
+            if (storedTotal == null || expectedTotal == null) {
+                mismatches.add("Account $accountId: ledger row ${if (storedTotal == null) "missing" else "unexpected"}")
+            } else if (storedTotal.count != expectedTotal.count || storedTotal.netPaise != expectedTotal.netPaise) {
+                mismatches.add(
+                    "Account $accountId: ledger net ${storedTotal.netPaise} paise (${storedTotal.count} txns), " +
+                        "expected ${expectedTotal.netPaise} (${expectedTotal.count} txns)"
+                )
+            }
+            checkDays(accountId, userId, mismatches)
+        }
+
+        val shouldRepair = repair && mismatches.isNotEmpty()
+        if (shouldRepair) {
+            ledgerDao.rebuild()
+        }
+        println("[Ledger] Checked ${accountIds.size} accounts: ${mismatches.size} mismatches${if (shouldRepair) ", rebuilt" else ""}")
+        mismatches.forEach { println("[Ledger] $it") }
+        return LedgerCheckResult(accountIds.size, mismatches, repaired = shouldRepair)
+    }
+
+    private suspend fun checkDays(accountId: Long, userId: String, mismatches: MutableList<String>) {
+        val storedDays = ledgerDao.getDailyLedger(accountId)
+        val expectedDays = ledgerDao.computeDailyLedger(accountId, userId)
+        if (storedDays.size != expectedDays.size) {
+            mismatches.add("Account $accountId: ${storedDays.size} ledger days, expected ${expectedDays.size}")
+            return
+        }
+
+        var closingNet = 0L
+        for (i in expectedDays.indices) {
+            val expectedDay = expectedDays[i]
+            val storedDay = storedDays[i]
+            closingNet += expectedDay.netChangePaise
+            if (!sameDay(storedDay, expectedDay, closingNet)) {
+                mismatches.add(
+                    "Account $accountId on day ${expectedDay.day}: ledger change ${storedDay.netChangePaise} " +
+                        "closing ${storedDay.closingNetPaise}, expected ${expectedDay.netChangePaise} closing $closingNet"
+                )
+                // Later closing figures are off by the same error; report the first day only
+                return
+            }
+        }
+    }
+
+    private fun sameDay(stored: AccountDailyLedgerEntity, expected: AccountDailyLedgerEntity, closingNet: Long) =
+        stored.day == expected.day &&
+            stored.count == expected.count &&
+            stored.netChangePaise == expected.netChangePaise &&
+            stored.closingNetPaise == closingNet
+}
@@ -5,6 +5,7 @@ import com.bitflow.finance.data.local.entity.SplitExpenseEntity
 import com.bitflow.finance.data.local.entity.SplitExpenseShareEntity
 import com.bitflow.finance.data.local.entity.SplitGroupEntity
 import com.bitflow.finance.data.local.entity.SplitGroupMemberEntity
+import com.bitflow.finance.domain.model.Money
 import com.bitflow.finance.domain.repository.SplitRepository
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.flow
@@ -118,7 +119,8 @@ class SplitRepositoryImpl @Inject constructor(
                 return Result.failure(Exception("Expense must be split among at least 1 member"))
             }
             
-            if (totalAmount <= 0) {
+            val totalPaise = Money.toPaise(totalAmount)
+            if (totalPaise <= 0) {
                 return Result.failure(Exception("Amount must be greater than 0"))
             }
             
@@ -127,7 +129,7 @@ class SplitRepositoryImpl @Inject constructor(
                 expenseId = expenseId,
                 groupId = groupId,
                 description = description,
-                totalAmount = totalAmount,
+                totalAmountPaise = totalPaise,
                 paidBy = paidBy,
                 expenseDate = System.currentTimeMillis(),
                 createdAt = System.currentTimeMillis(),
@@ -136,15 +138,15 @@ class SplitRepositoryImpl @Inject constructor(
             
             splitDao.insertExpense(expense)
             
-            // Calculate equal split
-            val shareAmount = totalAmount / memberUserIds.size
+            // Equal split in whole paise; the shares add up to the total exactly
+            val shares = Money.split(totalPaise, memberUserIds.size)
             
             // Create shares for each member
-            memberUserIds.forEach { userId ->
+            memberUserIds.forEachIndexed { index, userId ->
                 val share = SplitExpenseShareEntity(
                     expenseId = expenseId,
                     userId = userId,
-                    shareAmount = shareAmount,
+                    shareAmountPaise = shares[index],
                     isPaid = userId == paidBy, // Person who paid has already paid their share
                     paidAt = if (userId == paidBy) System.currentTimeMillis() else null
                 )
@@ -192,7 +194,7 @@ class SplitRepositoryImpl @Inject constructor(
                 groups.forEach { group ->
                     val groupBalance = splitDao.getGroupBalance(group.groupId, userId)
                     if (groupBalance != null) {
-                        val netBalance = groupBalance.owedAmount - groupBalance.owingAmount
+                        val netBalance = Money.toRupees(groupBalance.owedPaise - groupBalance.owingPaise)
                         balanceMap[group.groupId] = netBalance
                     } else {
                         balanceMap[group.groupId] = 0.0
@@ -0,0 +1,125 @@
+package com.bitflow.finance.data.repository
+
+import androidx.paging.PagingSource
+import androidx.paging.PagingState
+import androidx.room.InvalidationTracker
+import com.bitflow.finance.data.local.TransactionSearchQuery
+import com.bitflow.finance.data.local.dao.TransactionDao
+import com.bitflow.finance.data.local.entity.TransactionEntity
+import com.bitflow.finance.domain.model.TransactionFilter
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import java.time.LocalDate
+import java.time.LocalDateTime
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Position in the transaction feed, which is ordered by (txnDate, createdAt, id) descending
+ */
+data class TransactionFeedCursor(
+    val txnDate: LocalDate,
+    val createdAt: LocalDateTime,
+    val id: Long
+) {
+    companion object {
+        fun of(entity: TransactionEntity) = TransactionFeedCursor(entity.txnDate, entity.createdAt, entity.id)
+    }
+}
+
+/**
+ * Keyset-paged transaction feed, newest first
+ *
+ * Pages continue from the last (append) or first (prepend) row already loaded,
+ * so loading page n costs the same as page 1, and rows inserted or deleted above
+ * the visible window do not shift it the way LIMIT/OFFSET pages would. The source
+ * invalidates itself when the transactions table changes, like Room's own
+ * PagingSource, and Paging reloads around the row the list was anchored on.
+ */
+class TransactionPagingSource(
+    private val transactionDao: TransactionDao,
+    private val invalidationTracker: InvalidationTracker,
+    private val userId: String,
+    private val filter: TransactionFilter
+) : PagingSource<TransactionFeedCursor, TransactionEntity>() {
+
+    private val startDate = filter.startDate ?: EARLIEST
+    private val endDate = filter.endDate ?: LATEST
+    private val search = TransactionSearchQuery.parse(filter.query)
+
+    private val observer = object : InvalidationTracker.Observer(arrayOf("transactions")) {
+        override fun onInvalidated(tables: Set<String>) {
+            invalidate()
+        }
+    }
+    private val observing = AtomicBoolean(false)
+
+    init {
+        registerInvalidatedCallback { invalidationTracker.removeObserver(observer) }
+    }
+
+    override suspend fun load(params: LoadParams<TransactionFeedCursor>): LoadResult<TransactionFeedCursor, TransactionEntity> {
+        if (observing.compareAndSet(false, true)) {
+            withContext(Dispatchers.IO) { invalidationTracker.addObserver(observer) }
+        }
+
+        val key = params.key
+        val limit = filter.limit
+        val rows = when {
+            limit != null -> firstPage(limit)
+            params is LoadParams.Prepend && key != null -> pageBefore(key, params.loadSize).asReversed()
+            key == null -> firstPage(params.loadSize)
+            // A refresh resumes at its key's row: rows after (txnDate, createdAt, id + 1) start with that row
+            params is LoadParams.Refresh -> pageAfter(key.copy(id = key.id + 1), params.loadSize)
+            else -> pageAfter(key, params.loadSize)
+        }
+        if (invalid) return LoadResult.Invalid()
+
+        val first = rows.firstOrNull()?.let(TransactionFeedCursor::of)
+        val last = rows.lastOrNull()?.let(TransactionFeedCursor::of)
+        return LoadResult.Page(
+            data = rows,
+            prevKey = when {
+                limit != null -> null
+                params is LoadParams.Prepend -> if (rows.size < params.loadSize) null else first
+                key == null -> null
+                else -> first ?: key
+            },
+            nextKey = when {
+                limit != null -> null
+                params is LoadParams.Prepend -> last ?: key
+                rows.size < params.loadSize -> null
+                else -> last
+            }
+        )
+    }
+
+    /**
+     * Restart at about half an initial load above the item the list is anchored on
+     */
+    override fun getRefreshKey(state: PagingState<TransactionFeedCursor, TransactionEntity>): TransactionFeedCursor? {
+        val anchorPosition = state.anchorPosition ?: return null
+        val startPosition = anchorPosition - state.config.initialLoadSize / 2
+        if (startPosition <= 0) return null
+        return state.closestItemToPosition(startPosition)?.let(TransactionFeedCursor::of)
+    }
+
+    private suspend fun firstPage(limit: Int) = transactionDao.getFeedFirstPage(
+        userId, startDate, endDate, filter.accountId, search.match, search.minPaise, search.maxPaise, limit
+    )
+
+    private suspend fun pageAfter(cursor: TransactionFeedCursor, limit: Int) = transactionDao.getFeedPageAfter(
+        userId, startDate, endDate, filter.accountId, search.match, search.minPaise, search.maxPaise,
+        cursor.txnDate, cursor.createdAt, cursor.id, limit
+    )
+
+    private suspend fun pageBefore(cursor: TransactionFeedCursor, limit: Int) = transactionDao.getFeedPageBefore(
+        userId, startDate, endDate, filter.accountId, search.match, search.minPaise, search.maxPaise,
+        cursor.txnDate, cursor.createdAt, cursor.id, limit
+    )
+
+    companion object {
+        // Open date bounds, stored as epoch days like every txnDate
+        internal val EARLIEST: LocalDate = LocalDate.of(1, 1, 1)
+        internal val LATEST: LocalDate = LocalDate.of(9999, 12, 31)
+    }
+}
@@ -1,33 +1,72 @@
 package com.bitflow.finance.data.repository
 
+import androidx.paging.Pager
+import androidx.paging.PagingConfig
+import androidx.paging.PagingData
+import androidx.paging.insertSeparators
+import androidx.paging.map
+import androidx.room.InvalidationTracker
+import com.bitflow.finance.data.local.MonthlyRollup
+import com.bitflow.finance.data.local.TransactionSearchQuery
+import com.bitflow.finance.data.local.TransactionTags
 import com.bitflow.finance.data.local.dao.CategoryDao
+import com.bitflow.finance.data.local.dao.CategoryTotal
+import com.bitflow.finance.data.local.dao.DirectionTotal
 import com.bitflow.finance.data.local.dao.LearningRuleDao
+import com.bitflow.finance.data.local.dao.LedgerDao
+import com.bitflow.finance.data.local.dao.MonthlyRollupDao
+import com.bitflow.finance.data.local.dao.ReferenceMatch
+import com.bitflow.finance.data.local.dao.TagDao
+import com.bitflow.finance.data.local.dao.TagTotal
 import com.bitflow.finance.data.local.dao.TransactionDao
 import com.bitflow.finance.data.local.entity.CategoryEntity
 import com.bitflow.finance.data.local.entity.LearningRuleEntity
 import com.bitflow.finance.data.local.entity.TransactionEntity
+import com.bitflow.finance.data.local.entity.TransactionTagEntity
 import com.bitflow.finance.domain.model.Activity
 import com.bitflow.finance.domain.model.ActivityType
 import com.bitflow.finance.domain.model.Category
 import com.bitflow.finance.domain.model.CategoryLearningRule
+import com.bitflow.finance.domain.model.LedgerCheckResult
+import com.bitflow.finance.domain.model.MerchantExtractor
+import com.bitflow.finance.domain.model.MerchantPatternMatcher
+import com.bitflow.finance.domain.model.Money
 import com.bitflow.finance.domain.model.RecurringPattern
+import com.bitflow.finance.domain.model.StoredReference
 import com.bitflow.finance.domain.model.SubscriptionDetectionCard
+import com.bitflow.finance.domain.model.TransactionFeedItem
+import com.bitflow.finance.domain.model.TransactionFilter
+import com.bitflow.finance.domain.model.TransactionReference
 import com.bitflow.finance.domain.repository.TransactionRepository
 import com.bitflow.finance.domain.repository.AuthRepository
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.flowOf
 import kotlinx.coroutines.flow.map
 import java.time.LocalDate
+import java.time.YearMonth
 import javax.inject.Inject
 
 class TransactionRepositoryImpl @Inject constructor(
     private val transactionDao: TransactionDao,
+    private val monthlyRollupDao: MonthlyRollupDao,
+    private val tagDao: TagDao,
+    private val ledgerDao: LedgerDao,
+    private val ledgerConsistencyChecker: LedgerConsistencyChecker,
     private val categoryDao: CategoryDao,
     private val learningRuleDao: LearningRuleDao,
+    private val learningRuleCache: LearningRuleCache,
+    private val invalidationTracker: InvalidationTracker,
     private val authRepository: AuthRepository
 ) : TransactionRepository {
 
+    companion object {
+        // SQLite allows 999 bound parameters per statement
+        private const val IN_LIST_CHUNK_SIZE = 900
+        private const val FEED_PAGE_SIZE = 50
+    }
+
     override fun getAllTransactions(): Flow<List<Activity>> {
         return authRepository.currentUserId.flatMapLatest { userId ->
             transactionDao.getAllTransactions(userId).map { entities -> entities.map { it.toDomain() } }
@@ -46,19 +85,111 @@ class TransactionRepositoryImpl @Inject constructor(
         }
     }
 
+    override fun getTransactionFeed(filter: TransactionFilter): Flow<PagingData<TransactionFeedItem>> {
+        return authRepository.currentUserId.flatMapLatest { userId ->
+            Pager(PagingConfig(pageSize = FEED_PAGE_SIZE, enablePlaceholders = false)) {
+                TransactionPagingSource(transactionDao, invalidationTracker, userId, filter)
+            }.flow
+        }.map { pagingData ->
+            pagingData
+                .map { TransactionFeedItem.Row(it.toDomain()) }
+                .insertSeparators<TransactionFeedItem.Row, TransactionFeedItem> { before, after ->
+                    val date = after?.activity?.activityDate
+                    if (date != null && date != before?.activity?.activityDate) TransactionFeedItem.DateHeader(date) else null
+                }
+        }
+    }
+
+    override fun countTransactions(filter: TransactionFilter): Flow<Int> {
+        val search = TransactionSearchQuery.parse(filter.query)
+        return authRepository.currentUserId.flatMapLatest { userId ->
+            transactionDao.countFeed(
+                userId,
+                filter.startDate ?: TransactionPagingSource.EARLIEST,
+                filter.endDate ?: TransactionPagingSource.LATEST,
+                filter.accountId,
+                search.match,
+                search.minPaise,
+                search.maxPaise
+            ).map { count -> filter.limit?.let { minOf(it, count) } ?: count }
+        }
+    }
+
+    override fun searchTransactions(query: String, limit: Int): Flow<List<Activity>> {
+        val search = TransactionSearchQuery.parse(query)
+        val match = search.match ?: return flowOf(emptyList())
+        return authRepository.currentUserId.flatMapLatest { userId ->
+            transactionDao.searchRanked(match, search.minPaise, search.maxPaise, userId, limit)
+                .map { entities -> entities.map { it.toDomain() } }
+        }
+    }
+
+    override fun getDirectionTotals(startDate: LocalDate, endDate: LocalDate, accountId: Long?): Flow<List<DirectionTotal>> {
+        return authRepository.currentUserId.flatMapLatest { userId ->
+            transactionDao.getDirectionTotals(startDate, endDate, accountId, userId)
+        }
+    }
+
+    override fun getCategoryTotals(
+        type: ActivityType,
+        startDate: LocalDate,
+        endDate: LocalDate,
+        accountId: Long?
+    ): Flow<List<CategoryTotal>> {
+        return authRepository.currentUserId.flatMapLatest { userId ->
+            transactionDao.getCategoryTotals(type, startDate, endDate, accountId, userId)
+        }
+    }
+
+    override fun getMonthlyDirectionTotals(
+        fromMonth: YearMonth?,
+        toMonth: YearMonth?,
+        accountId: Long?
+    ): Flow<List<DirectionTotal>> {
+        val from = fromMonth?.let { MonthlyRollup.yyyymm(it) } ?: MonthlyRollup.ALL_MONTHS_FROM
+        val to = toMonth?.let { MonthlyRollup.yyyymm(it) } ?: MonthlyRollup.ALL_MONTHS_TO
+        return authRepository.currentUserId.flatMapLatest { userId ->
+            monthlyRollupDao.getDirectionTotals(from, to, accountId, userId)
+        }
+    }
+
+    override suspend fun rebuildMonthlyRollup() {
+        monthlyRollupDao.rebuild()
+        println("[TransactionRepository] Monthly rollup rebuilt")
+    }
+
     override suspend fun insertTransaction(transaction: Activity): Long {
         val userId = authRepository.currentUserId.first()
-        return transactionDao.insertTransaction(transaction.toEntity(userId))
+        val id = transactionDao.insertTransaction(transaction.toEntity(userId))
+        val tags = TransactionTags.normalise(transaction.tags)
+        if (id != -1L && tags.isNotEmpty()) {
+            tagDao.insertTags(tags.map { TransactionTagEntity(id, it, userId) })
+        }
+        return id
     }
 
-    override suspend fun insertTransactions(transactions: List<Activity>) {
+    override suspend fun insertTransactions(transactions: List<Activity>): Int {
         // Batch insert without per-transaction logging for performance
-        if (transactions.isNotEmpty()) {
-            val userId = authRepository.currentUserId.first()
-            println("[TransactionRepository] Batch inserting ${transactions.size} transactions")
-            transactionDao.insertTransactions(transactions.map { it.toEntity(userId) })
-            println("[TransactionRepository] Batch insert completed")
+        if (transactions.isEmpty()) return 0
+        
+        val userId = authRepository.currentUserId.first()
+        println("[TransactionRepository] Batch inserting ${transactions.size} transactions")
+        val entities = transactions.map { it.toEntity(userId) }
+        var rowIds: List<Long> = emptyList()
+        // One ledger batch: back-dated rows shift later days' closing balances once, not per row
+        ledgerDao.batch { rowIds = transactionDao.insertTransactions(entities) }
+        // Ignored rows come back as -1
+        val insertedCount = rowIds.count { it != -1L }
+        val tags = ArrayList<TransactionTagEntity>()
+        for (i in rowIds.indices) {
+            if (rowIds[i] == -1L) continue
+            TransactionTags.normalise(transactions[i].tags).mapTo(tags) { TransactionTagEntity(rowIds[i], it, userId) }
         }
+        if (tags.isNotEmpty()) {
+            tagDao.insertTags(tags)
+        }
+        println("[TransactionRepository] Batch insert completed: $insertedCount inserted, ${rowIds.size - insertedCount} ignored")
+        return insertedCount
     }
 
     override suspend fun updateTransaction(transaction: Activity) {
@@ -73,14 +204,41 @@ class TransactionRepositoryImpl @Inject constructor(
         description: String
     ): Activity? {
         val userId = authRepository.currentUserId.first()
-        return transactionDao.findExistingTransaction(accountId, date, amount, description, userId)?.toDomain()
+        return transactionDao.findExistingTransaction(accountId, date, Money.toPaise(amount), description, userId)?.toDomain()
     }
 
     override suspend fun getTransactionById(id: Long): Activity? {
         val userId = authRepository.currentUserId.first()
-        return transactionDao.getTransactionById(id, userId)?.toDomain()
+        val entity = transactionDao.getTransactionById(id, userId) ?: return null
+        return entity.toDomain().copy(tags = tagDao.getTags(id))
     }
 
+    override suspend fun getTags(transactionId: Long): List<String> = tagDao.getTags(transactionId)
+
+    override suspend fun setTags(transactionId: Long, tags: List<String>) {
+        val userId = authRepository.currentUserId.first()
+        // Only tag the caller's own transactions
+        if (transactionDao.getTransactionById(transactionId, userId) == null) return
+        tagDao.replaceTags(transactionId, userId, TransactionTags.normalise(tags))
+    }
+
+    override fun getAllTags(): Flow<List<String>> {
+        return authRepository.currentUserId.flatMapLatest { userId -> tagDao.getAllTags(userId) }
+    }
+
+    override fun getTransactionsWithTag(tag: String): Flow<List<Activity>> {
+        return authRepository.currentUserId.flatMapLatest { userId ->
+            tagDao.getTransactionsWithTag(tag.trim(), userId).map { entities -> entities.map { it.toDomain() } }
+        }
+    }
+
+    override fun getTagTotals(type: ActivityType, startDate: LocalDate, endDate: LocalDate): Flow<List<TagTotal>> {
+        return authRepository.currentUserId.flatMapLatest { userId ->
+            tagDao.getTagTotals(type, startDate, endDate, userId)
+        }
+    }
+
+    // Tags are not read here: list reads leave Activity.tags empty (see getTags)
     private fun TransactionEntity.toDomain(): Activity {
         return Activity(
             id = id,
@@ -89,15 +247,18 @@ class TransactionRepositoryImpl @Inject constructor(
             valueDate = valueDate,
             description = description,
             reference = reference,
-            amount = amount,
+            amount = Money.toRupees(amountPaise),
             type = direction,
             categoryId = categoryId,
-            tags = tags,
+            merchantName = merchantName,
             billPhotoUri = billPhotoUri,
             notes = notes,
-            balanceAfterTxn = balanceAfterTxn,
+            balanceAfterTxn = balanceAfterTxnPaise?.let(Money::toRupees),
             createdAt = createdAt,
-            updatedAt = updatedAt
+            updatedAt = updatedAt,
+            isAutoCategorized = isAutoCategorized,
+            confidenceScore = confidenceScore,
+            fingerprint = fingerprint
         )
     }
 
@@ -110,15 +271,20 @@ class TransactionRepositoryImpl @Inject constructor(
             valueDate = valueDate,
             description = description,
             reference = reference,
-            amount = amount,
+            amountPaise = Money.toPaise(amount),
             direction = type,
             categoryId = categoryId,
-            tags = tags,
+            // Imports extract it while parsing; other writes derive it here
+            merchantName = merchantName ?: MerchantExtractor.extractOrNull(description),
             billPhotoUri = billPhotoUri,
             notes = notes,
-            balanceAfterTxn = balanceAfterTxn,
+            balanceAfterTxnPaise = balanceAfterTxn?.let(Money::toPaise),
+            isAutoCategorized = isAutoCategorized,
+            confidenceScore = confidenceScore,
             createdAt = createdAt,
-            updatedAt = updatedAt
+            updatedAt = updatedAt,
+            fingerprint = fingerprint,
+            referenceNorm = TransactionReference.normalise(reference)
         )
     }
     
@@ -146,7 +312,13 @@ class TransactionRepositoryImpl @Inject constructor(
         transactionDao.updateTransactionsCategory(sourceCategoryId, targetCategoryId, userId)
         
         // Update learning rules
-        learningRuleDao.updateRulesCategory(sourceCategoryId, targetCategoryId, userId)
+        learningRuleCache.write(
+            userId,
+            block = { learningRuleDao.updateRulesCategory(sourceCategoryId, targetCategoryId, userId) },
+            update = { rules, _ ->
+                rules.map { if (it.categoryId == sourceCategoryId) it.copy(categoryId = targetCategoryId) else it }
+            }
+        )
         
         // Add source usage count to target
         val sourceCategory = categoryDao.getCategoryById(sourceCategoryId, userId)
@@ -174,20 +346,30 @@ class TransactionRepositoryImpl @Inject constructor(
         categoryDao.insertCategory(category.toEntity(userId))
     }
     
-    // Learning rule methods
+    // Learning rule methods (served from LearningRuleCache, written through it)
     override suspend fun insertLearningRule(rule: CategoryLearningRule) {
         val userId = authRepository.currentUserId.first()
-        learningRuleDao.insertRule(rule.toEntity(userId))
+        val entity = rule.toEntity(userId)
+        learningRuleCache.write(
+            userId,
+            block = { learningRuleDao.insertRule(entity) },
+            update = { rules, id -> rules.filter { it.id != id } + entity.copy(id = id).toDomain() }
+        )
     }
     
     override suspend fun updateLearningRule(rule: CategoryLearningRule) {
         val userId = authRepository.currentUserId.first()
-        learningRuleDao.updateRule(rule.toEntity(userId))
+        val entity = rule.toEntity(userId)
+        learningRuleCache.write(
+            userId,
+            block = { learningRuleDao.updateRule(entity) },
+            update = { rules, _ -> rules.map { if (it.id == entity.id) entity.toDomain() else it } }
+        )
     }
     
     override suspend fun findLearningRule(pattern: String): CategoryLearningRule? {
         val userId = authRepository.currentUserId.first()
-        return learningRuleDao.findRuleByMerchant(pattern, userId)?.toDomain()
+        return learningRuleCache.find(userId, pattern) { loadLearningRules(userId) }
     }
     
     override suspend fun getAllLearningRules(): Flow<List<CategoryLearningRule>> {
@@ -198,6 +380,14 @@ class TransactionRepositoryImpl @Inject constructor(
         }
     }
     
+    override suspend fun getLearningRuleMatcher(): MerchantPatternMatcher {
+        val userId = authRepository.currentUserId.first()
+        return learningRuleCache.matcher(userId) { loadLearningRules(userId) }
+    }
+    
+    private suspend fun loadLearningRules(userId: String): List<CategoryLearningRule> =
+        learningRuleDao.getAllRules(userId).first().map { it.toDomain() }
+    
     // Recurring pattern methods (subscriptions)
     override suspend fun insertRecurringPattern(pattern: RecurringPattern) {
         // TODO: Create RecurringPatternEntity and DAO
@@ -215,6 +405,11 @@ class TransactionRepositoryImpl @Inject constructor(
         return null
     }
     
+    override suspend fun getTransactionsForSubscriptionDetection(startDate: LocalDate): List<Activity> {
+        val userId = authRepository.currentUserId.first()
+        return transactionDao.getTransactionsForSubscriptionDetection(startDate, userId).map { it.toDomain() }
+    }
+    
     override suspend fun getUnconfirmedSubscriptions(): List<SubscriptionDetectionCard> {
         // TODO: Implement when RecurringPatternDao exists
         return emptyList()
@@ -233,13 +428,13 @@ class TransactionRepositoryImpl @Inject constructor(
     // Daily Pulse calculation methods
     override suspend fun getMonthlyIncome(): Double {
         val userId = authRepository.currentUserId.first()
-        val startOfMonth = LocalDate.now().withDayOfMonth(1)
-        val endOfMonth = LocalDate.now().withDayOfMonth(LocalDate.now().lengthOfMonth())
+        val month = MonthlyRollup.yyyymm(YearMonth.now())
         
-        return transactionDao.getTransactionsInPeriod(startOfMonth, endOfMonth, userId)
+        return monthlyRollupDao.getDirectionTotals(month, month, null, userId)
             .first()
             .filter { it.direction == ActivityType.INCOME }
-            .sumOf { it.amount }
+            .sumOf { it.totalPaise }
+            .let(Money::toRupees)
     }
     
     override suspend fun getMonthlyFixedExpenses(): Double {
@@ -251,13 +446,15 @@ class TransactionRepositoryImpl @Inject constructor(
         val userId = authRepository.currentUserId.first()
         val today = LocalDate.now()
         
-        return transactionDao.getTransactionsInPeriod(today, today, userId)
+        // A single day is below the rollup's resolution: aggregate in SQL over the date index
+        return transactionDao.getDirectionTotals(today, today, null, userId)
             .first()
             .filter { it.direction == ActivityType.EXPENSE }
-            .sumOf { it.amount }
+            .sumOf { it.totalPaise }
+            .let(Money::toRupees)
     }
     
-    override suspend fun getRecentTransactions(limit: Int): Flow<List<Activity>> {
+    override fun getRecentTransactions(limit: Int): Flow<List<Activity>> {
         return authRepository.currentUserId.flatMapLatest { userId ->
             transactionDao.getRecentTransactions(limit, userId).map { entities ->
                 entities.map { it.toDomain() }
@@ -272,21 +469,36 @@ class TransactionRepositoryImpl @Inject constructor(
     }
     
     // Performance optimization methods
-    override suspend fun getAllTransactionsForDeduplication(accountId: Long): List<Activity> {
-        val userId = authRepository.currentUserId.first()
-        return transactionDao.getAllTransactionsSync(accountId, userId).map { it.toDomain() }
+    override suspend fun findTransactionsByFingerprint(fingerprints: Collection<Long>): List<Activity> {
+        if (fingerprints.isEmpty()) return emptyList()
+        
+        // Chunked to stay below SQLite's bound parameter limit
+        val matches = ArrayList<Activity>()
+        fingerprints.distinct().chunked(IN_LIST_CHUNK_SIZE).forEach { chunk ->
+            transactionDao.findByFingerprints(chunk).mapTo(matches) { it.toDomain() }
+        }
+        return matches
     }
     
-    override suspend fun calculateAccountBalance(accountId: Long, initialBalance: Double): Double {
+    override suspend fun findReferenceMatches(accountId: Long, references: Collection<String?>): List<StoredReference> {
+        val normalised = references.mapNotNullTo(HashSet()) { TransactionReference.normalise(it) }
+        if (normalised.isEmpty()) return emptyList()
+        
         val userId = authRepository.currentUserId.first()
-        return transactionDao.calculateBalance(accountId, initialBalance, userId)
+        val matches = ArrayList<StoredReference>()
+        normalised.chunked(IN_LIST_CHUNK_SIZE).forEach { chunk ->
+            transactionDao.findReferenceMatches(accountId, chunk, userId).mapTo(matches) { it.toDomain() }
+        }
+        return matches
     }
     
-    override suspend fun getLatestTransactionBalance(accountId: Long): Double? {
+    override suspend fun getAllTransactionsForDeduplication(accountId: Long): List<Activity> {
         val userId = authRepository.currentUserId.first()
-        // Get the most recent transaction that has a balance recorded
-        val latestTransaction = transactionDao.getLatestTransactionWithBalance(accountId, userId)
-        return latestTransaction?.balanceAfterTxn?.takeIf { it > 0.0 }
+        return transactionDao.getAllTransactionsSync(accountId, userId).map { it.toDomain() }
+    }
+    
+    override suspend fun verifyBalanceLedger(repair: Boolean): LedgerCheckResult {
+        return ledgerConsistencyChecker.verify(repair)
     }
     
     // Conversion functions
@@ -318,6 +530,15 @@ class TransactionRepositoryImpl @Inject constructor(
         )
     }
     
+    private fun ReferenceMatch.toDomain(): StoredReference {
+        return StoredReference(
+            referenceNorm = referenceNorm,
+            date = txnDate,
+            amountPaise = amountPaise,
+            type = direction
+        )
+    }
+    
     private fun LearningRuleEntity.toDomain(): CategoryLearningRule {
         return CategoryLearningRule(
             id = id,
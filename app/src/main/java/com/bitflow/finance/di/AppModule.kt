@@ -1,8 +1,12 @@
 package com.bitflow.finance.di
 
 import android.content.Context
+import androidx.room.InvalidationTracker
 import androidx.room.Room
 import com.bitflow.finance.data.local.AppDatabase
+import com.bitflow.finance.data.local.BalanceLedger
+import com.bitflow.finance.data.local.MonthlyRollup
+import com.bitflow.finance.data.local.TransactionTags
 import com.bitflow.finance.data.local.dao.AccountDao
 import com.bitflow.finance.data.local.dao.CategoryDao
 import com.bitflow.finance.data.local.dao.InvoiceDao
@@ -11,6 +15,9 @@ import com.bitflow.finance.data.local.dao.TransactionDao
 import com.bitflow.finance.data.local.dao.UserAccountDao
 import com.bitflow.finance.data.local.dao.FriendDao
 import com.bitflow.finance.data.local.dao.SplitDao
+import com.bitflow.finance.data.local.dao.MonthlyRollupDao
+import com.bitflow.finance.data.local.dao.LedgerDao
+import com.bitflow.finance.data.local.dao.TagDao
 import com.bitflow.finance.data.parser.UniversalStatementParser
 import com.bitflow.finance.data.parser.StatementParser
 import dagger.Module
@@ -41,7 +48,20 @@ object AppModule {
             AppDatabase.MIGRATION_6_7,
             AppDatabase.MIGRATION_7_8,
             AppDatabase.MIGRATION_8_9,
-            AppDatabase.MIGRATION_9_10
+            AppDatabase.MIGRATION_9_10,
+            AppDatabase.MIGRATION_10_11,
+            AppDatabase.MIGRATION_11_12,
+            AppDatabase.MIGRATION_12_13,
+            AppDatabase.MIGRATION_13_14,
+            AppDatabase.MIGRATION_14_15,
+            AppDatabase.MIGRATION_15_16,
+            AppDatabase.MIGRATION_16_17,
+            AppDatabase.MIGRATION_17_18,
+            AppDatabase.MIGRATION_18_19,
+            AppDatabase.MIGRATION_19_20,
+            AppDatabase.MIGRATION_20_21,
+            AppDatabase.MIGRATION_21_22,
+            AppDatabase.MIGRATION_22_23
         )
         .addCallback(object : androidx.room.RoomDatabase.Callback() {
             override fun onCreate(db: androidx.sqlite.db.SupportSQLiteDatabase) {
@@ -49,6 +69,14 @@ object AppModule {
                 // Insert built-in categories on fresh database creation
                 AppDatabase.insertBuiltInCategories(db)
             }
+            
+            override fun onOpen(db: androidx.sqlite.db.SupportSQLiteDatabase) {
+                super.onOpen(db)
+                // Triggers are not part of Room's schema: (re)create them on fresh and recreated databases
+                MonthlyRollup.createTriggers(db)
+                BalanceLedger.createTriggers(db)
+                TransactionTags.createTriggers(db)
+            }
         })
         .fallbackToDestructiveMigration()
         .build()
@@ -78,6 +106,18 @@ object AppModule {
     @Provides
     fun provideSplitDao(database: AppDatabase): SplitDao = database.splitDao()
 
+    @Provides
+    fun provideMonthlyRollupDao(database: AppDatabase): MonthlyRollupDao = database.monthlyRollupDao()
+
+    @Provides
+    fun provideLedgerDao(database: AppDatabase): LedgerDao = database.ledgerDao()
+
+    @Provides
+    fun provideTagDao(database: AppDatabase): TagDao = database.tagDao()
+
+    @Provides
+    fun provideInvalidationTracker(database: AppDatabase): InvalidationTracker = database.invalidationTracker
+
     @Provides
     fun provideStatementParser(@ApplicationContext context: Context): StatementParser {
         val parser = UniversalStatementParser()
@@ -0,0 +1,16 @@
+package com.bitflow.finance.domain.model
+
+/**
+ * Outcome of verifying the running-balance ledger against the transactions table
+ * @param accountsChecked Accounts with transactions or ledger rows
+ * @param mismatches Human readable description of each difference found
+ * @param repaired True if the ledger was rebuilt because of the mismatches
+ */
+data class LedgerCheckResult(
+    val accountsChecked: Int,
+    val mismatches: List<String>,
+    val repaired: Boolean
+) {
+    val isConsistent: Boolean
+        get() = mismatches.isEmpty()
+}
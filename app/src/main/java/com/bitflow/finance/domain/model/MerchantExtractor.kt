@@ -0,0 +1,194 @@
+package com.bitflow.finance.domain.model
+
+/**
+ * Merchant name from a bank statement narration
+ *
+ * Banks wrap the counterparty in channel-specific framing:
+ *  - UPI: "UPI/DR/<rrn>/<name>/<bank>/<vpa>" or "UPI/<rrn>/DR/<name>/<bank>/<vpa>"
+ *  - IMPS, NEFT, RTGS: "IMPS-<rrn>-<name>-<ifsc>-...", "NEFT CR-<utr>-<name>-...",
+ *    "NEFT*<ifsc>*<utr>*<name>", "IMPS/P2A/<rrn>/<bank>/<name>", "N/<utr>/<ifsc>/<name>"
+ *  - Card: "VDE-6845-<terminal> -<name, 25 columns><city> IN", "VISA POS TXN AT US/<name>",
+ *    "OTHPOS<id><name>--"
+ *  - ATM: "ATM WDL-<place>  ..."
+ *  - Cheque clearing: "BY CLG <bank> <date> <place>  <drawer>"
+ * optionally behind "TO TRANSFER-", "BY TRANSFER-", "RETURN " or "REFUND-".
+ * [extract] recognises the channel from the leading characters and slices the name
+ * field out with a hand-written scan; anything else keeps the text up to the first
+ * field separator.
+ *
+ * The result is lower-cased and always a substring of the lower-cased description,
+ * so it can be stored as a learning-rule pattern and found again with contains().
+ * An empty result means no merchant could be told apart (e.g. a card narration with
+ * only a terminal number).
+ *
+ * Results are kept in an LRU cache: imports, subscription scans and category
+ * learning see the same narrations over and over.
+ */
+object MerchantExtractor {
+
+    private const val CACHE_SIZE = 2048
+
+    // Card narrations print the merchant in a fixed-width column
+    private const val CARD_NAME_WIDTH = 25
+
+    private val WRAPPERS = listOf("TO TRANSFER-", "BY TRANSFER-", "BY DEBIT CARD-", "RETURN ", "REFUND-")
+    private val CARD_POS_PREFIXES = listOf("OTHPOS", "OTHPG", "SBIPOS", "SBIPG")
+
+    private val cache = object : LinkedHashMap<String, String>(CACHE_SIZE, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, String>?) = size > CACHE_SIZE
+    }
+
+    /**
+     * The merchant named in [description], lower-cased, or "" when there is none
+     */
+    fun extract(description: String): String {
+        synchronized(cache) { cache[description]?.let { return it } }
+        val merchant = clean(nameField(description))
+        synchronized(cache) { cache[description] = merchant }
+        return merchant
+    }
+
+    /**
+     * Stored form of [extract] (transactions.merchantName): null when there is no merchant
+     */
+    fun extractOrNull(description: String): String? = extract(description).ifEmpty { null }
+
+    /**
+     * Grouping key for merchant names: lower-case letters and digits separated by
+     * single spaces, everything else dropped ("RAZ*IRCTC " -> "razirctc")
+     */
+    fun normalise(name: String): String {
+        val normalised = StringBuilder(name.length)
+        var pendingSpace = false
+        for (ch in name) {
+            val c = ch.lowercaseChar()
+            if (c in 'a'..'z' || c in '0'..'9') {
+                if (pendingSpace && normalised.isNotEmpty()) normalised.append(' ')
+                pendingSpace = false
+                normalised.append(c)
+            } else if (c.isWhitespace()) {
+                pendingSpace = true
+            }
+        }
+        return normalised.toString()
+    }
+
+    /**
+     * The raw text of the name field, before padding and trailing numbers are removed
+     */
+    private fun nameField(description: String): String {
+        // SBI ends every narration with "--"
+        val text = description.removeSuffix("--")
+        var start = 0
+        while (start < text.length && text[start].isWhitespace()) start++
+        var unwrapped = true
+        while (unwrapped) {
+            unwrapped = false
+            for (wrapper in WRAPPERS) {
+                if (text.startsWith(wrapper, start, ignoreCase = true)) {
+                    start += wrapper.length
+                    unwrapped = true
+                }
+            }
+        }
+
+        return when {
+            text.startsWith("UPI/", start, ignoreCase = true) -> field(text, start + 4, '/', 2)
+            text.startsWith("IMPS/", start, ignoreCase = true) -> field(text, start + 5, '/', 3)
+            text.startsWith("NEFT*", start, ignoreCase = true) -> field(text, start + 5, '*', 2)
+            text.startsWith("N/", start) || text.startsWith("R/", start) -> field(text, start + 2, '/', 2)
+            text.startsWith("IMPS", start, ignoreCase = true) ||
+                text.startsWith("NEFT", start, ignoreCase = true) ||
+                text.startsWith("RTGS", start, ignoreCase = true) -> {
+                // "<channel> CR-<utr>-<name>-...": the name follows the second dash
+                val dash = text.indexOf('-', start)
+                if (dash < 0) text.substring(start) else field(text, dash + 1, '-', 1)
+            }
+            isCardHeader(text, start) -> {
+                // The terminal id can hold '/' but never '-'
+                val dash = text.indexOf('-', start + 9)
+                if (dash < 0) "" else text.substring(dash + 1, minOf(text.length, dash + 1 + CARD_NAME_WIDTH))
+            }
+            text.startsWith("VISA POS TXN AT ", start, ignoreCase = true) -> {
+                var from = start + 16
+                // Two-letter country code ("US/GITHUB, INC.")
+                if (from + 2 < text.length && text[from + 2] == '/' && text[from].isLetter() && text[from + 1].isLetter()) {
+                    from += 3
+                }
+                text.substring(from)
+            }
+            text.startsWith("ATM WDL-", start, ignoreCase = true) -> text.substring(start + 8)
+            text.startsWith("BY CLG ", start, ignoreCase = true) -> {
+                // "BY CLG <bank> <date> <place>  <drawer>": the drawer follows the padding
+                val padding = text.indexOf("  ", start)
+                if (padding < 0) "" else text.substring(padding)
+            }
+            else -> cardPosName(text, start) ?: untilSeparator(text, start)
+        }
+    }
+
+    /**
+     * "VDE-6845-", "VIE-6845-", "NDA-6845-": three letters, the card's last four digits
+     */
+    private fun isCardHeader(text: String, start: Int): Boolean {
+        if (start + 9 > text.length) return false
+        for (i in start until start + 3) if (text[i] !in 'A'..'Z') return false
+        if (text[start + 3] != '-' || text[start + 8] != '-') return false
+        for (i in start + 4 until start + 8) if (text[i] !in '0'..'9') return false
+        return true
+    }
+
+    /**
+     * SBI card narrations: "OTHPOS409308815279BLOOMBAY ENTERPRISES PPUNE--"
+     */
+    private fun cardPosName(text: String, start: Int): String? {
+        val prefix = CARD_POS_PREFIXES.firstOrNull { text.startsWith(it, start, ignoreCase = true) } ?: return null
+        var from = start + prefix.length
+        while (from < text.length && (text[from].isWhitespace() || text[from] in '0'..'9')) from++
+        val end = text.indexOf("--", from)
+        return text.substring(from, if (end < 0) text.length else end)
+    }
+
+    /**
+     * Unrecognised narrations and manual notes: the text before the first '/' or '-'
+     */
+    private fun untilSeparator(text: String, start: Int): String {
+        var end = start
+        while (end < text.length && text[end] != '/' && text[end] != '-') end++
+        return text.substring(start, end)
+    }
+
+    /**
+     * The [index]th [delimiter]-separated field after [from], or "" past the last one
+     */
+    private fun field(text: String, from: Int, delimiter: Char, index: Int): String {
+        var start = from
+        repeat(index) {
+            val next = text.indexOf(delimiter, start)
+            if (next < 0) return ""
+            start = next + 1
+        }
+        val end = text.indexOf(delimiter, start)
+        return text.substring(start, if (end < 0) text.length else end)
+    }
+
+    /**
+     * Cut the field at its column padding (two or more spaces), trim it and drop
+     * trailing words without letters ("WIX.COM 1108912441", "ZOOM.US +1888-799-9666")
+     */
+    private fun clean(field: String): String {
+        var start = 0
+        while (start < field.length && field[start].isWhitespace()) start++
+        var end = field.indexOf("  ", start).let { if (it < 0) field.length else it }
+        while (end > start) {
+            while (end > start && field[end - 1].isWhitespace()) end--
+            var wordStart = end
+            while (wordStart > start && !field[wordStart - 1].isWhitespace()) wordStart--
+            var hasLetter = false
+            for (i in wordStart until end) if (field[i].isLetter()) hasLetter = true
+            if (hasLetter) break
+            end = wordStart
+        }
+        return field.substring(start, end).lowercase()
+    }
+}
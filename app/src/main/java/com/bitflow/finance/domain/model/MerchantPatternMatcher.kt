@@ -0,0 +1,127 @@
+package com.bitflow.finance.domain.model
+
+import java.util.ArrayDeque
+
+/**
+ * Learning-rule lookup over transaction descriptions (Aho–Corasick automaton)
+ *
+ * All rule patterns are compiled once into one trie with failure links, so a
+ * description is matched against every rule in a single pass over its characters
+ * instead of one contains() per rule. Each state also records the best rule ending
+ * there or at any of its suffix states, so picking the winner costs nothing extra.
+ *
+ * Same result as filtering [rules] with contains(pattern, ignoreCase = true) and taking
+ * maxByOrNull { confidenceScore }: the highest confidence wins and ties go to the rule
+ * listed first. Matching is case-insensitive by lower-casing each character.
+ *
+ * Immutable once built; safe to share between threads.
+ */
+class MerchantPatternMatcher(private val rules: List<CategoryLearningRule>) {
+
+    // Children of state s are childChars/childTargets[childStart[s] until childStart[s + 1]], sorted by char
+    private val childStart: IntArray
+    private val childChars: CharArray
+    private val childTargets: IntArray
+    private val failure: IntArray
+    // Index into rules of the best rule matched on reaching a state, -1 for none
+    private val best: IntArray
+
+    init {
+        val children = arrayListOf(HashMap<Char, Int>())
+        val own = arrayListOf(-1)
+
+        rules.forEachIndexed { index, rule ->
+            var state = 0
+            for (ch in rule.descriptionPattern) {
+                val c = ch.lowercaseChar()
+                state = children[state].getOrPut(c) {
+                    children.add(HashMap())
+                    own.add(-1)
+                    children.size - 1
+                }
+            }
+            if (own[state] < 0 || isBetter(index, own[state])) own[state] = index
+        }
+
+        val stateCount = children.size
+        childStart = IntArray(stateCount + 1)
+        for (state in 0 until stateCount) childStart[state + 1] = childStart[state] + children[state].size
+        childChars = CharArray(childStart[stateCount])
+        childTargets = IntArray(childStart[stateCount])
+        for (state in 0 until stateCount) {
+            var slot = childStart[state]
+            for ((c, target) in children[state].entries.sortedBy { it.key }) {
+                childChars[slot] = c
+                childTargets[slot] = target
+                slot++
+            }
+        }
+
+        // Breadth-first, so a state's failure target is finished before the state itself
+        failure = IntArray(stateCount)
+        best = IntArray(stateCount)
+        best[0] = own[0]
+        val queue = ArrayDeque<Int>()
+        for ((_, child) in children[0]) queue.add(child)
+        while (queue.isNotEmpty()) {
+            val state = queue.poll()
+            val fallback = failure[state]
+            best[state] = when {
+                own[state] < 0 -> best[fallback]
+                best[fallback] < 0 || isBetter(own[state], best[fallback]) -> own[state]
+                else -> best[fallback]
+            }
+            for ((c, child) in children[state]) {
+                var f = failure[state]
+                var next = child(f, c)
+                while (next < 0 && f != 0) {
+                    f = failure[f]
+                    next = child(f, c)
+                }
+                failure[child] = if (next >= 0 && next != child) next else 0
+                queue.add(child)
+            }
+        }
+    }
+
+    /**
+     * The highest-confidence rule whose pattern occurs in [description], or null
+     */
+    fun bestMatch(description: String): CategoryLearningRule? {
+        var state = 0
+        var found = best[0]
+        for (ch in description) {
+            val c = ch.lowercaseChar()
+            var next = child(state, c)
+            while (next < 0 && state != 0) {
+                state = failure[state]
+                next = child(state, c)
+            }
+            state = if (next >= 0) next else 0
+            val candidate = best[state]
+            if (candidate >= 0 && (found < 0 || isBetter(candidate, found))) found = candidate
+        }
+        return if (found >= 0) rules[found] else null
+    }
+
+    private fun child(state: Int, c: Char): Int {
+        var low = childStart[state]
+        var high = childStart[state + 1] - 1
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+            val midChar = childChars[mid]
+            when {
+                midChar < c -> low = mid + 1
+                midChar > c -> high = mid - 1
+                else -> return childTargets[mid]
+            }
+        }
+        return -1
+    }
+
+    private fun isBetter(a: Int, b: Int): Boolean {
+        val confidenceA = rules[a].confidenceScore
+        val confidenceB = rules[b].confidenceScore
+        return confidenceA > confidenceB || (confidenceA == confidenceB && a < b)
+    }
+}
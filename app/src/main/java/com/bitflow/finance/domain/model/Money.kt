@@ -0,0 +1,29 @@
+package com.bitflow.finance.domain.model
+
+import kotlin.math.roundToLong
+
+/**
+ * Fixed-point money: amounts are stored, summed and compared as whole paise (Long)
+ *
+ * Transaction amounts, ledger and rollup figures and split shares are INTEGER paise
+ * columns, so SQL SUMs are exact and dedup keys compare primitives. Rupees as
+ * Double remain only at the edges: user input, display and the domain models the
+ * screens read ([Activity.amount]).
+ */
+object Money {
+
+    fun toPaise(rupees: Double): Long = (rupees * 100).roundToLong()
+
+    fun toRupees(paise: Long): Double = paise / 100.0
+
+    /**
+     * Split [totalPaise] into [parts] shares that differ by at most one paisa and add up
+     * to the total exactly; the first shares take the leftover paise
+     */
+    fun split(totalPaise: Long, parts: Int): List<Long> {
+        require(parts > 0) { "parts must be positive" }
+        val share = totalPaise / parts
+        val remainder = totalPaise % parts
+        return List(parts) { index -> if (index < remainder) share + 1 else share }
+    }
+}
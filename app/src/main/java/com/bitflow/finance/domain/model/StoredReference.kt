@@ -0,0 +1,14 @@
+package com.bitflow.finance.domain.model
+
+import java.time.LocalDate
+
+/**
+ * A stored transaction found by its normalised reference (see [TransactionReference]),
+ * with what is needed to tell a re-import from a reversal reusing the reference
+ */
+data class StoredReference(
+    val referenceNorm: String,
+    val date: LocalDate,
+    val amountPaise: Long,
+    val type: ActivityType
+)
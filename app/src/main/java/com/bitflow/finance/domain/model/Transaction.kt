@@ -17,6 +17,8 @@ data class Activity(
     val amount: Double,
     val type: ActivityType,
     val categoryId: Long?,
+    // Derived from the description on write (see MerchantExtractor); null when it names none
+    val merchantName: String? = null,
     val tags: List<String> = emptyList(),
     val billPhotoUri: String? = null,
     val notes: String? = null,
@@ -25,7 +27,9 @@ data class Activity(
     val updatedAt: LocalDateTime = LocalDateTime.now(),
     // Auto-learning fields
     val isAutoCategorized: Boolean = false,
-    val confidenceScore: Float? = null
+    val confidenceScore: Float? = null,
+    // Import deduplication: set for statement imports only (see TransactionFingerprint)
+    val fingerprint: Long? = null
 )
 
 // Legacy type alias for backward compatibility during migration
@@ -0,0 +1,28 @@
+package com.bitflow.finance.domain.model
+
+import java.time.LocalDate
+
+/**
+ * Filters of the paged transaction feed, applied in SQL
+ * @param startDate First day to include (null = no lower bound)
+ * @param endDate Last day to include (null = no upper bound)
+ * @param accountId Single account, or null for all accounts
+ * @param query Search box text: words are prefix-matched against description, merchant,
+ * notes and reference; numbers filter the amount (`250`, `100-500`, `>500`, `<=200`)
+ * @param limit Only the newest [limit] rows, loaded as a single page
+ */
+data class TransactionFilter(
+    val startDate: LocalDate? = null,
+    val endDate: LocalDate? = null,
+    val accountId: Long? = null,
+    val query: String? = null,
+    val limit: Int? = null
+)
+
+/**
+ * Entry of the paged transaction feed: a transaction, or a header starting each day
+ */
+sealed class TransactionFeedItem {
+    data class DateHeader(val date: LocalDate) : TransactionFeedItem()
+    data class Row(val activity: Activity) : TransactionFeedItem()
+}
@@ -0,0 +1,121 @@
+package com.bitflow.finance.domain.model
+
+import java.time.LocalDate
+
+/**
+ * Content fingerprint of an imported statement transaction
+ *
+ * A 64-bit hash of (account, transaction date, amount in paise, normalised
+ * description, normalised reference). It is persisted in the transactions table
+ * behind an index, so an import finds the stored copies of its rows with one lookup
+ * instead of loading every existing row. The index is not unique: a statement can
+ * list the same charge twice on one day, and two different rows can share a hash,
+ * so every match is confirmed with [sameContent].
+ *
+ * Normalisation: descriptions and references are lowercased, trimmed and have
+ * inner whitespace runs collapsed; a missing reference hashes like a blank one.
+ *
+ * The value is stored, so this function must never change without a migration
+ * that recomputes every fingerprint.
+ */
+object TransactionFingerprint {
+
+    private const val FNV_OFFSET_BASIS = -0x340d631b7bdddcdbL // 0xcbf29ce484222325
+    private const val FNV_PRIME = 0x100000001b3L
+
+    // Separates the text fields so ("ab", "c") and ("a", "bc") differ
+    private const val FIELD_SEPARATOR = 0x1F
+
+    fun of(activity: Activity): Long = of(
+        accountId = activity.accountId,
+        date = activity.activityDate,
+        amountPaise = Money.toPaise(activity.amount),
+        description = activity.description,
+        reference = activity.reference
+    )
+
+    fun of(accountId: Long, date: LocalDate, amountPaise: Long, description: String, reference: String?): Long {
+        var hash = FNV_OFFSET_BASIS
+        hash = hashLong(hash, accountId)
+        hash = hashLong(hash, date.toEpochDay())
+        hash = hashLong(hash, amountPaise)
+        hash = hashNormalised(hash, description)
+        hash = (hash xor FIELD_SEPARATOR.toLong()) * FNV_PRIME
+        hash = hashNormalised(hash, reference ?: "")
+        return mix(hash)
+    }
+
+    /**
+     * True if [a] and [b] have the same fingerprinted content: the fields compared
+     * exactly, descriptions and references after normalisation
+     */
+    fun sameContent(a: Activity, b: Activity): Boolean =
+        a.accountId == b.accountId &&
+            a.activityDate == b.activityDate &&
+            Money.toPaise(a.amount) == Money.toPaise(b.amount) &&
+            normalise(a.description) == normalise(b.description) &&
+            normalise(a.reference ?: "") == normalise(b.reference ?: "")
+
+    /**
+     * [text] as hashed by [hashNormalised]
+     */
+    private fun normalise(text: String): String {
+        val normalised = StringBuilder(text.length)
+        var pendingSpace = false
+        for (ch in text) {
+            if (ch.isWhitespace()) {
+                if (normalised.isNotEmpty()) pendingSpace = true
+                continue
+            }
+            if (pendingSpace) {
+                normalised.append(' ')
+                pendingSpace = false
+            }
+            normalised.append(ch.lowercaseChar())
+        }
+        return normalised.toString()
+    }
+
+    private fun hashLong(hash: Long, value: Long): Long {
+        var h = hash
+        for (shift in 0 until 64 step 8) {
+            h = (h xor ((value ushr shift) and 0xFF)) * FNV_PRIME
+        }
+        return h
+    }
+
+    /**
+     * Hash text as lowercase, trimmed, with whitespace runs collapsed to one space
+     */
+    private fun hashNormalised(hash: Long, text: String): Long {
+        var h = hash
+        var pendingSpace = false
+        var started = false
+        for (ch in text) {
+            if (ch.isWhitespace()) {
+                if (started) pendingSpace = true
+                continue
+            }
+            if (pendingSpace) {
+                h = (h xor ' '.code.toLong()) * FNV_PRIME
+                pendingSpace = false
+            }
+            h = (h xor ch.lowercaseChar().code.toLong()) * FNV_PRIME
+            started = true
+        }
+        return h
+    }
+
+    /**
+     * Final avalanche step (MurmurHash3 fmix64)
+     */
+    private fun mix(value: Long): Long {
+        var h = value
+        h = h xor (h ushr 33)
+        h *= -0xae502812aa7333L // 0xff51afd7ed558ccd
+        h = h xor (h ushr 33)
+        h *= -0x3b314601e57a13adL // 0xc4ceb9fe1a85ec53
+        h = h xor (h ushr 33)
+        return h
+    }
+}
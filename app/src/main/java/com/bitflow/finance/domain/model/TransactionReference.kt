@@ -0,0 +1,74 @@
+package com.bitflow.finance.domain.model
+
+/**
+ * Normalised form of a statement reference that identifies one transaction:
+ * a UPI/IMPS RRN or a NEFT/RTGS UTR
+ *
+ * Banks print the same reference with different case, spacing, punctuation and
+ * labels ("UTR: SBIN-4231 1234 5678", "sbin423112345678"), so only letters and
+ * digits are kept, uppercased, and a leading UTR/RRN/REF label is dropped.
+ *
+ * Only values shaped like a per-transaction ID are kept:
+ * - RRN: exactly 12 digits
+ * - UTR: 16 to 22 letters and digits starting with the 4-letter bank code, at least 8 digits
+ *
+ * Everything else normalises to null. In particular the Ref column of some banks
+ * (SBI's "TRANSFER TO 4897691162095") names the pooled account the money went
+ * through, which many unrelated transactions share.
+ *
+ * The result is stored in transactions.referenceNorm, so this function must never
+ * change without a migration that recomputes the column.
+ */
+object TransactionReference {
+
+    private const val RRN_LENGTH = 12
+    private const val BANK_CODE_LENGTH = 4
+    private const val MIN_UTR_LENGTH = 16
+    private const val MAX_UTR_LENGTH = 22
+    private const val MIN_UTR_DIGITS = 8
+
+    // Labels printed in front of the ID, longest first
+    private val LABELS = listOf("UTRNO", "RRNNO", "REFNO", "UTR", "RRN", "REF")
+
+    // First words of account-transfer descriptions that some banks print as the reference
+    private val TRANSFER_WORDS = setOf("TRANSFER", "TO", "FROM", "BY")
+
+    fun normalise(reference: String?): String? {
+        if (reference.isNullOrBlank()) return null
+        if (firstWord(reference) in TRANSFER_WORDS) return null
+
+        val normalised = StringBuilder(reference.length)
+        for (ch in reference) {
+            if (ch in '0'..'9') {
+                normalised.append(ch)
+            } else if (ch in 'a'..'z' || ch in 'A'..'Z') {
+                normalised.append(ch.uppercaseChar())
+            }
+        }
+        val value = normalised.toString()
+        // "UTRSBIN..." is itself UTR-shaped, so the label goes first
+        val label = LABELS.firstOrNull { value.startsWith(it) }
+        val unlabelled = label?.let { value.substring(it.length) }
+        if (unlabelled != null && isTransactionId(unlabelled)) return unlabelled
+        return value.takeIf { isTransactionId(it) }
+    }
+
+    private fun isTransactionId(value: String): Boolean {
+        if (value.length == RRN_LENGTH && value.all { it in '0'..'9' }) return true
+        if (value.length !in MIN_UTR_LENGTH..MAX_UTR_LENGTH) return false
+        for (i in 0 until BANK_CODE_LENGTH) {
+            if (value[i] !in 'A'..'Z') return false
+        }
+        return value.count { it in '0'..'9' } >= MIN_UTR_DIGITS
+    }
+
+    /**
+     * First run of letters, uppercased, or "" when the value starts with a digit
+     */
+    private fun firstWord(reference: String): String {
+        val start = reference.indexOfFirst { !it.isWhitespace() }
+        var end = start
+        while (end < reference.length && reference[end].isLetter()) end++
+        return reference.substring(start, end).uppercase()
+    }
+}
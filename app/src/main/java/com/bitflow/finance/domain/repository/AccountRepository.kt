@@ -2,6 +2,7 @@ package com.bitflow.finance.domain.repository
 
 import com.bitflow.finance.domain.model.Account
 import kotlinx.coroutines.flow.Flow
+import java.time.LocalDate
 
 interface AccountRepository {
     fun getAllAccounts(): Flow<List<Account>>
@@ -9,4 +10,17 @@ interface AccountRepository {
     suspend fun insertAccount(account: Account): Long
     suspend fun updateAccount(account: Account)
     suspend fun updateBalance(accountId: Long, newBalance: Double)
+    
+    /**
+     * Closing balance of the account on [date], from the running-balance ledger
+     */
+    suspend fun getBalanceOn(accountId: Long, date: LocalDate): Double?
+    
+    /**
+     * Align the ledger with a balance printed on a statement: if the closing balance
+     * on [date] differs from [statementBalance], the opening balance is shifted by
+     * the difference
+     * @return The correction applied (0.0 if the ledger already agreed)
+     */
+    suspend fun reconcileBalance(accountId: Long, date: LocalDate, statementBalance: Double): Double
 }
@@ -1,23 +1,92 @@
 package com.bitflow.finance.domain.repository
 
 import com.bitflow.finance.domain.model.Activity
+import com.bitflow.finance.domain.model.ActivityType
 import com.bitflow.finance.domain.model.Category
 import com.bitflow.finance.domain.model.CategoryLearningRule
+import com.bitflow.finance.domain.model.MerchantPatternMatcher
 import com.bitflow.finance.domain.model.RecurringPattern
+import com.bitflow.finance.domain.model.StoredReference
 import com.bitflow.finance.domain.model.SubscriptionDetectionCard
+import com.bitflow.finance.domain.model.TransactionFeedItem
+import com.bitflow.finance.domain.model.TransactionFilter
+import androidx.paging.PagingData
 import kotlinx.coroutines.flow.Flow
 import java.time.LocalDate
+import java.time.YearMonth
 
 interface TransactionRepository {
     // Activity methods (legacy Transaction name for compatibility)
     fun getAllTransactions(): Flow<List<Activity>>
     fun getTransactionsForAccount(accountId: Long): Flow<List<Activity>>
     fun getTransactionsInPeriod(startDate: LocalDate, endDate: LocalDate): Flow<List<Activity>>
+
+    /**
+     * Paged transaction feed, newest first, with a [TransactionFeedItem.DateHeader]
+     * before each day's rows; filters are applied in SQL
+     */
+    fun getTransactionFeed(filter: TransactionFilter): Flow<PagingData<TransactionFeedItem>>
+    fun countTransactions(filter: TransactionFilter): Flow<Int>
+
+    /**
+     * Full-text search over description, merchant, notes and reference, best matches
+     * first; amount syntax in [query] narrows the results (see TransactionFilter.query)
+     */
+    fun searchTransactions(query: String, limit: Int): Flow<List<Activity>>
+    
+    // Analysis aggregates (computed in SQL; accountId null = all accounts)
+    fun getDirectionTotals(
+        startDate: LocalDate,
+        endDate: LocalDate,
+        accountId: Long?
+    ): Flow<List<com.bitflow.finance.data.local.dao.DirectionTotal>>
+    fun getCategoryTotals(
+        type: ActivityType,
+        startDate: LocalDate,
+        endDate: LocalDate,
+        accountId: Long?
+    ): Flow<List<com.bitflow.finance.data.local.dao.CategoryTotal>>
+    
+    /**
+     * Totals per direction from the monthly rollup for months in [fromMonth, toMonth]
+     * (null = unbounded on that side); accountId null = all accounts
+     */
+    fun getMonthlyDirectionTotals(
+        fromMonth: YearMonth?,
+        toMonth: YearMonth?,
+        accountId: Long?
+    ): Flow<List<com.bitflow.finance.data.local.dao.DirectionTotal>>
+    
+    /**
+     * Recompute the monthly rollup from the transactions table
+     */
+    suspend fun rebuildMonthlyRollup()
     suspend fun insertTransaction(transaction: Activity): Long
-    suspend fun insertTransactions(transactions: List<Activity>)
+    /**
+     * Batch insert in one transaction
+     * @return Number of rows inserted
+     */
+    suspend fun insertTransactions(transactions: List<Activity>): Int
+    /**
+     * Update the transaction row; its tags are left as they are (see [setTags])
+     */
     suspend fun updateTransaction(transaction: Activity)
     suspend fun findExistingTransaction(accountId: Long, date: LocalDate, amount: Double, description: String): Activity?
+    /**
+     * The transaction with its tags loaded; list reads leave [Activity.tags] empty
+     */
     suspend fun getTransactionById(id: Long): Activity?
+
+    // Tag methods (tags live in their own table and are loaded only on request)
+    suspend fun getTags(transactionId: Long): List<String>
+    suspend fun setTags(transactionId: Long, tags: List<String>)
+    fun getAllTags(): Flow<List<String>>
+    fun getTransactionsWithTag(tag: String): Flow<List<Activity>>
+    fun getTagTotals(
+        type: ActivityType,
+        startDate: LocalDate,
+        endDate: LocalDate
+    ): Flow<List<com.bitflow.finance.data.local.dao.TagTotal>>
     
     // Category methods
     fun getAllCategories(): Flow<List<Category>>
@@ -36,11 +105,22 @@ interface TransactionRepository {
     suspend fun updateLearningRule(rule: CategoryLearningRule)
     suspend fun findLearningRule(pattern: String): CategoryLearningRule?
     suspend fun getAllLearningRules(): Flow<List<CategoryLearningRule>>
+
+    /**
+     * Matcher over all of the current user's learning rules; compiled once and
+     * reused until a rule changes
+     */
+    suspend fun getLearningRuleMatcher(): MerchantPatternMatcher
     
     // Subscription detection methods
     suspend fun insertRecurringPattern(pattern: RecurringPattern)
     suspend fun updateRecurringPattern(pattern: RecurringPattern)
     suspend fun findRecurringPattern(merchantName: String): RecurringPattern?
+
+    /**
+     * Transactions since [startDate] that name a merchant, by merchant then newest first
+     */
+    suspend fun getTransactionsForSubscriptionDetection(startDate: LocalDate): List<Activity>
     suspend fun getUnconfirmedSubscriptions(): List<SubscriptionDetectionCard>
     suspend fun confirmSubscription(patternId: Long)
     suspend fun dismissSubscription(patternId: Long)
@@ -49,12 +129,29 @@ interface TransactionRepository {
     suspend fun getMonthlyIncome(): Double
     suspend fun getMonthlyFixedExpenses(): Double
     suspend fun getTodayExpenses(): Double
-    suspend fun getRecentTransactions(limit: Int): Flow<List<Activity>>
+    fun getRecentTransactions(limit: Int): Flow<List<Activity>>
     
     // Performance optimization methods
+    /**
+     * Import deduplication: stored transactions carrying any of [fingerprints]
+     * (see [com.bitflow.finance.domain.model.TransactionFingerprint]); callers confirm
+     * each match on its fields
+     */
+    suspend fun findTransactionsByFingerprint(fingerprints: Collection<Long>): List<Activity>
+    
+    /**
+     * Stored transactions of the account whose normalised reference matches one of
+     * [references] (raw statement values; see [com.bitflow.finance.domain.model.TransactionReference])
+     */
+    suspend fun findReferenceMatches(
+        accountId: Long,
+        references: Collection<String?>
+    ): List<StoredReference>
     suspend fun getAllTransactionsForDeduplication(accountId: Long): List<Activity>
-    suspend fun calculateAccountBalance(accountId: Long, initialBalance: Double): Double
     
-    // Get the latest transaction balance from statements
-    suspend fun getLatestTransactionBalance(accountId: Long): Double?
+    /**
+     * Verify the running-balance ledger against the transactions table, rebuilding
+     * it when [repair] is set and a mismatch is found
+     */
+    suspend fun verifyBalanceLedger(repair: Boolean): com.bitflow.finance.domain.model.LedgerCheckResult
 }
@@ -3,9 +3,11 @@ package com.bitflow.finance.domain.usecase
 import com.bitflow.finance.domain.model.Activity
 import com.bitflow.finance.domain.model.Category
 import com.bitflow.finance.domain.model.CategoryLearningRule
+import com.bitflow.finance.domain.model.MerchantExtractor
+import com.bitflow.finance.domain.model.MerchantPatternMatcher
 import com.bitflow.finance.domain.repository.TransactionRepository
-import kotlinx.coroutines.flow.first
 import javax.inject.Inject
+import javax.inject.Singleton
 import java.time.LocalDateTime
 
 /**
@@ -14,6 +16,7 @@ import java.time.LocalDateTime
  * Philosophy: Never ask user to create rules. Learn silently from corrections.
  * When user changes category on an activity, we automatically create a learning rule.
  */
+@Singleton
 class AutoLearnCategoryUseCase @Inject constructor(
     private val transactionRepository: TransactionRepository
 ) {
@@ -26,8 +29,8 @@ class AutoLearnCategoryUseCase @Inject constructor(
         oldCategoryId: Long?,
         newCategoryId: Long
     ) {
-        // Extract learning pattern from description
-        val pattern = extractPattern(activity.description)
+        // Learning pattern from the merchant stored at import, or from the description
+        val pattern = patternOf(activity.merchantName ?: MerchantExtractor.extract(activity.description))
         
         if (pattern.isNotBlank()) {
             // Check if a rule already exists
@@ -85,18 +88,20 @@ class AutoLearnCategoryUseCase @Inject constructor(
 
     /**
      * Apply auto-learning to batch of activities (e.g., after import)
+     * Each description is matched against all rules in one pass (see [MerchantPatternMatcher])
      */
     suspend fun autoCategorizeBatch(activities: List<Activity>): List<Activity> {
-        val rules = transactionRepository.getAllLearningRules().first()
+        if (activities.none { it.categoryId == null }) return activities
+        val matcher = transactionRepository.getLearningRuleMatcher()
         
         return activities.map { activity ->
             if (activity.categoryId == null) {
-                val suggestion = findBestMatch(activity.description, rules)
-                if (suggestion != null) {
+                val rule = matcher.bestMatch(activity.description)
+                if (rule != null) {
                     activity.copy(
-                        categoryId = suggestion.first,
+                        categoryId = rule.categoryId,
                         isAutoCategorized = true,
-                        confidenceScore = suggestion.second
+                        confidenceScore = rule.confidenceScore
                     )
                 } else {
                     activity
@@ -107,41 +112,17 @@ class AutoLearnCategoryUseCase @Inject constructor(
         }
     }
 
-    private fun findBestMatch(
-        description: String,
-        rules: List<CategoryLearningRule>
-    ): Pair<Long, Float>? {
-        val pattern = extractPattern(description)
-        
-        return rules
-            .filter { description.contains(it.descriptionPattern, ignoreCase = true) }
-            .maxByOrNull { it.confidenceScore }
-            ?.let { Pair(it.categoryId, it.confidenceScore) }
-    }
-
     /**
-     * Extract key pattern from description
+     * Learning pattern for a description: its merchant (see [MerchantExtractor]),
+     * cut to [MAX_PATTERN_LENGTH]. Still a substring of the description, so
+     * [MerchantPatternMatcher] finds it again in later imports.
      * E.g., "UPI/DR/203290292730/NETFLIX/BKID/..." -> "netflix"
      */
-    private fun extractPattern(description: String): String {
-        // Remove common UPI prefixes and transaction IDs
-        val cleaned = description
-            .replace(Regex("UPI/(CR|DR)/\\d+/"), "")
-            .replace(Regex("/BKID/.*"), "")
-            .replace(Regex("/PYTM/.*"), "")
-            .replace(Regex("/HDFC/.*"), "")
-            .replace(Regex("/SBIN/.*"), "")
-            .replace(Regex("/YESB/.*"), "")
-            .replace(Regex("/IBKL/.*"), "")
-            .replace(Regex("/UBIN/.*"), "")
-            .replace(Regex("/FDRL/.*"), "")
-            .replace(Regex("/AIRP/.*"), "")
-            .replace(Regex("/UTIB/.*"), "")
-            .trim()
-            .split("/")
-            .firstOrNull { it.length > 3 } // Take first meaningful word
-            ?: ""
-        
-        return cleaned.lowercase().take(20) // Limit pattern length
+    private fun extractPattern(description: String): String = patternOf(MerchantExtractor.extract(description))
+
+    private fun patternOf(merchant: String): String = merchant.take(MAX_PATTERN_LENGTH).trimEnd()
+
+    private companion object {
+        const val MAX_PATTERN_LENGTH = 20
     }
 }
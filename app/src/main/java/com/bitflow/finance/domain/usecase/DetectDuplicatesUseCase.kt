@@ -1,5 +1,7 @@
 package com.bitflow.finance.domain.usecase
 
+import com.bitflow.finance.data.parser.ParsedTransaction
+import com.bitflow.finance.domain.model.Money
 import com.bitflow.finance.domain.repository.TransactionRepository
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
@@ -18,6 +20,9 @@ class DetectDuplicatesUseCase @Inject constructor(
      * 1. Exact match: date + amount + description
      * 2. Close match: date ± 1 day + amount + similar description
      * 3. Reference match: same reference number (if available)
+     *
+     * Loads the account's transactions on every call; use [checkStatement] for
+     * more than one row.
      */
     suspend operator fun invoke(
         accountId: Long,
@@ -26,95 +31,33 @@ class DetectDuplicatesUseCase @Inject constructor(
         description: String,
         reference: String?
     ): DuplicateCheckResult = withContext(Dispatchers.IO) {
-        
-        // Strategy 1: Exact match
         val existingTransactions = transactionRepository.getAllTransactionsForDeduplication(accountId)
-        
-        val exactKey = "$date|$amount|$description"
-        val hasExactMatch = existingTransactions.any { 
-            "${it.activityDate}|${it.amount}|${it.description}" == exactKey
-        }
-        
-        if (hasExactMatch) {
-            return@withContext DuplicateCheckResult(
-                isDuplicate = true,
-                matchType = MatchType.EXACT,
-                confidence = 1.0
-            )
-        }
-        
-        // Strategy 2: Reference number match (high confidence)
-        if (!reference.isNullOrBlank()) {
-            val hasReferenceMatch = existingTransactions.any { txn ->
-                !txn.reference.isNullOrBlank() && 
-                txn.reference.equals(reference, ignoreCase = true)
-            }
-            
-            if (hasReferenceMatch) {
-                return@withContext DuplicateCheckResult(
-                    isDuplicate = true,
-                    matchType = MatchType.REFERENCE,
-                    confidence = 0.95
-                )
-            }
-        }
-        
-        // Strategy 3: Close match (date ± 1 day, same amount, similar description)
-        val closeMatches = existingTransactions.filter { txn ->
-            val daysDiff = Math.abs(java.time.temporal.ChronoUnit.DAYS.between(txn.activityDate, date))
-            val amountMatch = Math.abs(txn.amount - amount) < 0.01 // Account for floating point
-            val descSimilarity = calculateSimilarity(txn.description, description)
-            
-            daysDiff <= 1 && amountMatch && descSimilarity > 0.8
-        }
-        
-        if (closeMatches.isNotEmpty()) {
-            return@withContext DuplicateCheckResult(
-                isDuplicate = true,
-                matchType = MatchType.CLOSE,
-                confidence = 0.85
-            )
-        }
-        
-        // No duplicate found
-        DuplicateCheckResult(
-            isDuplicate = false,
-            matchType = null,
-            confidence = 0.0
-        )
+        val storedReferences = StoredReferences(transactionRepository.findReferenceMatches(accountId, listOf(reference)))
+        DuplicateMatcher(existingTransactions, storedReferences).check(date, Money.toPaise(amount), description, reference)
     }
     
-    private fun calculateSimilarity(s1: String, s2: String): Double {
-        val str1 = s1.lowercase().trim()
-        val str2 = s2.lowercase().trim()
-        
-        if (str1 == str2) return 1.0
-        if (str1.isEmpty() || str2.isEmpty()) return 0.0
-        
-        // Levenshtein distance similarity
-        val maxLen = maxOf(str1.length, str2.length)
-        val distance = levenshteinDistance(str1, str2)
-        return 1.0 - (distance.toDouble() / maxLen)
-    }
-    
-    private fun levenshteinDistance(s1: String, s2: String): Int {
-        val dp = Array(s1.length + 1) { IntArray(s2.length + 1) }
-        
-        for (i in 0..s1.length) dp[i][0] = i
-        for (j in 0..s2.length) dp[0][j] = j
+    /**
+     * Check every row of a parsed statement against the account's existing transactions
+     * The account is loaded once and bucketed by amount and date (see [DuplicateMatcher]),
+     * and all references are checked in one indexed lookup; rows are checked against
+     * stored transactions only, not against each other.
+     * @return One result per transaction, in the same order
+     */
+    suspend fun checkStatement(
+        accountId: Long,
+        transactions: List<ParsedTransaction>
+    ): List<DuplicateCheckResult> = withContext(Dispatchers.IO) {
+        val existingTransactions = transactionRepository.getAllTransactionsForDeduplication(accountId)
+        val storedReferences = StoredReferences(
+            transactionRepository.findReferenceMatches(accountId, transactions.map { it.reference })
+        )
         
-        for (i in 1..s1.length) {
-            for (j in 1..s2.length) {
-                val cost = if (s1[i - 1] == s2[j - 1]) 0 else 1
-                dp[i][j] = minOf(
-                    dp[i - 1][j] + 1,      // deletion
-                    dp[i][j - 1] + 1,      // insertion
-                    dp[i - 1][j - 1] + cost // substitution
-                )
+        withContext(Dispatchers.Default) {
+            val matcher = DuplicateMatcher(existingTransactions, storedReferences)
+            transactions.map { txn ->
+                matcher.check(txn.txnDate, txn.amountPaise, txn.description, txn.reference)
             }
         }
-        
-        return dp[s1.length][s2.length]
     }
     
     data class DuplicateCheckResult(
@@ -25,10 +25,10 @@ class DetectSubscriptionsUseCase @Inject constructor(
     suspend fun detectRecurringPayments(): List<RecurringPattern> {
         val activities = transactionRepository.getAllTransactions().first()
         
-        // Group activities by merchant name (extracted from description)
+        // Group activities by the merchant stored when they were written
         val merchantGroups = activities
             .filter { it.type == com.bitflow.finance.domain.model.ActivityType.EXPENSE }
-            .groupBy { extractMerchantName(it.description) }
+            .groupBy { it.merchantName.orEmpty() }
             .filter { it.key.isNotBlank() }
         
         val patterns = mutableListOf<RecurringPattern>()
@@ -123,33 +123,6 @@ class DetectSubscriptionsUseCase @Inject constructor(
             }
     }
 
-    /**
-     * Extract merchant name from transaction description
-     */
-    private fun extractMerchantName(description: String): String {
-        // Common patterns in UPI/card transactions
-        val patterns = listOf(
-            Regex("(?:UPI/(?:CR|DR)/\\d+/)([^/]+)"),  // UPI transactions
-            Regex("(?:OTHPG|SBIPG|OTHPOS)\\s+\\w+\\s+(.+?)\\s+[A-Z]{2,}"),  // Card transactions
-            Regex("(?:ATM WDL-)(.+?)\\s{2,}"),  // ATM withdrawals
-        )
-        
-        for (pattern in patterns) {
-            val match = pattern.find(description)
-            if (match != null && match.groupValues.size > 1) {
-                return match.groupValues[1].trim().lowercase()
-            }
-        }
-        
-        // Fallback: take first meaningful word
-        return description
-            .split("/", " ")
-            .firstOrNull { it.length > 3 }
-            ?.trim()
-            ?.lowercase()
-            ?: ""
-    }
-
     /**
      * Check if a value is close to a target within a tolerance
      */
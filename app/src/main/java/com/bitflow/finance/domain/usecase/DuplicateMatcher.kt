@@ -0,0 +1,194 @@
+package com.bitflow.finance.domain.usecase
+
+import com.bitflow.finance.domain.model.Activity
+import com.bitflow.finance.domain.model.Money
+import com.bitflow.finance.domain.usecase.DetectDuplicatesUseCase.DuplicateCheckResult
+import com.bitflow.finance.domain.usecase.DetectDuplicatesUseCase.MatchType
+import java.time.LocalDate
+import kotlin.math.abs
+
+/**
+ * Duplicate lookup over one account's existing transactions
+ *
+ * Built once per statement and then queried for every incoming row. Existing rows
+ * are sorted by (amount in paise, epoch day), so the rows sharing a candidate's
+ * amount within ±1 day form one contiguous bucket found by binary search. Exact
+ * and close matching only ever look inside that bucket, which for real statements
+ * holds a handful of rows at most.
+ *
+ * Close matching uses a bounded edit distance: only the diagonal band that can
+ * still stay above the similarity threshold is computed, with two rolling rows,
+ * and the comparison stops as soon as every cell in a row is over the bound.
+ *
+ * Reference matches come from [storedReferences], which is looked up in the
+ * database's reference index rather than built from [existing].
+ *
+ * Not thread-safe (normalised descriptions are cached lazily).
+ */
+class DuplicateMatcher(
+    private val existing: List<Activity>,
+    private val storedReferences: StoredReferences
+) {
+
+    companion object {
+        /** Descriptions must be strictly more similar than this to be a close match */
+        private const val CLOSE_MATCH_SIMILARITY = 0.8
+    }
+
+    private val paise = LongArray(existing.size)
+    private val epochDays = LongArray(existing.size)
+    private val order: IntArray
+    private val sortedPaise: LongArray
+    private val sortedDays: LongArray
+    private val normalisedDescriptions = arrayOfNulls<String>(existing.size)
+
+    // Reused by editDistanceWithin() so comparisons allocate nothing in steady state
+    private var previousRow = IntArray(16)
+    private var currentRow = IntArray(16)
+
+    init {
+        for (i in existing.indices) {
+            val activity = existing[i]
+            paise[i] = Money.toPaise(activity.amount)
+            epochDays[i] = activity.activityDate.toEpochDay()
+        }
+
+        order = existing.indices.sortedWith(
+            compareBy<Int>({ paise[it] }, { epochDays[it] })
+        ).toIntArray()
+        sortedPaise = LongArray(order.size) { paise[order[it]] }
+        sortedDays = LongArray(order.size) { epochDays[order[it]] }
+    }
+
+    /**
+     * Check one incoming transaction against the existing rows
+     * Strategies, in order: exact (date + amount + description), reference number,
+     * close (date ± 1 day + amount + similar description)
+     */
+    fun check(
+        date: LocalDate,
+        amountPaise: Long,
+        description: String,
+        reference: String?
+    ): DuplicateCheckResult {
+        val candidatePaise = amountPaise
+        val candidateDay = date.toEpochDay()
+        val bucketStart = lowerBound(candidatePaise, candidateDay - 1)
+        var bucketEnd = bucketStart
+        while (bucketEnd < order.size &&
+            sortedPaise[bucketEnd] == candidatePaise &&
+            sortedDays[bucketEnd] <= candidateDay + 1
+        ) {
+            bucketEnd++
+        }
+
+        // Strategy 1: Exact match
+        for (slot in bucketStart until bucketEnd) {
+            if (sortedDays[slot] == candidateDay && existing[order[slot]].description == description) {
+                return DuplicateCheckResult(isDuplicate = true, matchType = MatchType.EXACT, confidence = 1.0)
+            }
+        }
+
+        // Strategy 2: Reference number match (high confidence)
+        if (storedReferences.containsReference(reference)) {
+            return DuplicateCheckResult(isDuplicate = true, matchType = MatchType.REFERENCE, confidence = 0.95)
+        }
+
+        // Strategy 3: Close match (date ± 1 day, same amount, similar description)
+        if (bucketEnd > bucketStart) {
+            val candidate = description.lowercase().trim()
+            for (slot in bucketStart until bucketEnd) {
+                val index = order[slot]
+                if (isSimilar(normalisedDescription(index), candidate)) {
+                    return DuplicateCheckResult(isDuplicate = true, matchType = MatchType.CLOSE, confidence = 0.85)
+                }
+            }
+        }
+
+        // No duplicate found
+        return DuplicateCheckResult(isDuplicate = false, matchType = null, confidence = 0.0)
+    }
+
+    private fun normalisedDescription(index: Int): String =
+        normalisedDescriptions[index] ?: existing[index].description.lowercase().trim().also {
+            normalisedDescriptions[index] = it
+        }
+
+    /**
+     * Same outcome as `1 - levenshtein(a, b) / maxLength > CLOSE_MATCH_SIMILARITY`
+     * without computing the full distance
+     */
+    private fun isSimilar(a: String, b: String): Boolean {
+        if (a == b) return true
+        if (a.isEmpty() || b.isEmpty()) return false
+
+        val maxLength = maxOf(a.length, b.length)
+        // Largest distance that still clears the threshold
+        var maxDistance = (maxLength * (1 - CLOSE_MATCH_SIMILARITY)).toInt()
+        while (maxDistance >= 0 && 1.0 - maxDistance.toDouble() / maxLength <= CLOSE_MATCH_SIMILARITY) {
+            maxDistance--
+        }
+        if (maxDistance < 0) return false
+        return editDistanceWithin(a, b, maxDistance)
+    }
+
+    /**
+     * Banded Levenshtein: true if the edit distance of [a] and [b] is at most [bound]
+     */
+    private fun editDistanceWithin(a: String, b: String, bound: Int): Boolean {
+        if (abs(a.length - b.length) > bound) return false
+        if (previousRow.size <= b.length) {
+            previousRow = IntArray(b.length + 1)
+            currentRow = IntArray(b.length + 1)
+        }
+        val outside = bound + 1
+        var previous = previousRow
+        var current = currentRow
+
+        for (j in 0..b.length) previous[j] = if (j <= bound) j else outside
+
+        for (i in 1..a.length) {
+            val from = maxOf(1, i - bound)
+            val to = minOf(b.length, i + bound)
+            current[0] = if (i <= bound) i else outside
+            if (from > 1) current[from - 1] = outside
+
+            var rowMin = current[0]
+            val ch = a[i - 1]
+            for (j in from..to) {
+                val cost = if (ch == b[j - 1]) 0 else 1
+                val value = minOf(
+                    previous[j] + 1,        // deletion
+                    current[j - 1] + 1,     // insertion
+                    previous[j - 1] + cost  // substitution
+                ).coerceAtMost(outside)
+                current[j] = value
+                if (value < rowMin) rowMin = value
+            }
+            if (to < b.length) current[to + 1] = outside
+
+            // Every path through this row is already over the bound
+            if (rowMin > bound) return false
+
+            val swap = previous
+            previous = current
+            current = swap
+        }
+        return previous[b.length] <= bound
+    }
+
+    /**
+     * First sorted slot whose (paise, day) is not less than the given key
+     */
+    private fun lowerBound(targetPaise: Long, targetDay: Long): Int {
+        var low = 0
+        var high = order.size
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            val less = sortedPaise[mid] < targetPaise ||
+                (sortedPaise[mid] == targetPaise && sortedDays[mid] < targetDay)
+            if (less) low = mid + 1 else high = mid
+        }
+        return low
+    }
+}
@@ -2,234 +2,373 @@ package com.bitflow.finance.domain.usecase
 
 import com.bitflow.finance.data.parser.StatementParserFactory
 import com.bitflow.finance.domain.model.Activity
+import com.bitflow.finance.domain.model.MerchantExtractor
+import com.bitflow.finance.domain.model.Money
+import com.bitflow.finance.domain.model.TransactionFingerprint
 import com.bitflow.finance.domain.repository.AccountRepository
 import com.bitflow.finance.domain.repository.TransactionRepository
 import kotlinx.coroutines.Dispatchers
+import java.time.LocalDate
+import kotlinx.coroutines.async
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
 import kotlinx.coroutines.withContext
 import java.io.InputStream
 import javax.inject.Inject
 
 /**
  * Background import with progress tracking using smart parser
+ * 
+ * Multiple files are parsed in parallel and written in a single batch.
  */
 class ImportStatementBackgroundUseCase @Inject constructor(
     private val transactionRepository: TransactionRepository,
     private val accountRepository: AccountRepository,
-    private val detectDuplicates: DetectDuplicatesUseCase
+    private val autoLearnCategory: AutoLearnCategoryUseCase
 ) {
     
+    companion object {
+        /** Files parsed at the same time; parsing is CPU bound */
+        private val MAX_PARALLEL_PARSES = Runtime.getRuntime().availableProcessors().coerceIn(1, 4)
+    }
+    
+    /**
+     * Import several statements into one account
+     * 
+     * Pipeline:
+     * 1. Parse: files are parsed concurrently on the CPU pool, at most
+     *    [MAX_PARALLEL_PARSES] at a time, and each file's fingerprints and reference
+     *    numbers are looked up in the database's indexes
+     * 2. Dedup: a single stage walks the files in order. The n-th copy of a row in a
+     *    file is a duplicate when the row is already stored, or accepted from the batch,
+     *    at least n times ([StoredFingerprints], [TransactionDedupIndex]); identical
+     *    rows repeated within one statement are all kept. Rows with an RRN/UTR are
+     *    counted the same way by (reference, date, amount, direction), so a re-import
+     *    whose description was reformatted is still recognised
+     * 3. Categorize: the learning rules are loaded once and every accepted
+     *    transaction is matched in memory ([AutoLearnCategoryUseCase.autoCategorizeBatch]),
+     *    so categories arrive with the insert instead of one update per row later
+     * 4. Write: all accepted transactions are inserted in one batch
+     * 
+     * Progress and results are still reported per file; [BatchImportResult.stageTimings]
+     * has the time spent in each stage.
+     */
     suspend operator fun invoke(
         accountId: Long,
         inputStreamsWithNames: List<Pair<String, InputStream>>,
         onProgress: (ImportProgress) -> Unit
-    ): BatchImportResult = withContext(Dispatchers.IO) {
+    ): BatchImportResult = coroutineScope {
+        val totalFiles = inputStreamsWithNames.size
+        val startNanos = System.nanoTime()
         
-        val results = mutableListOf<FileResult>()
-        var totalProcessed = 0
-        var totalImported = 0
-        var totalSkipped = 0
-        var totalDuplicates = 0
+        // Stage 1: parse all files concurrently (bounded)
+        val parseSlots = Semaphore(MAX_PARALLEL_PARSES)
+        val parsedFiles = inputStreamsWithNames.mapIndexed { index, (fileName, stream) ->
+            async(Dispatchers.Default) {
+                parseSlots.withPermit {
+                    parseFile(accountId, index, totalFiles, fileName, stream, onProgress)
+                }
+            }
+        }
         
-        inputStreamsWithNames.forEachIndexed { index, (fileName, stream) ->
-            try {
-                // Update progress
-                onProgress(ImportProgress(
-                    currentFile = index + 1,
-                    totalFiles = inputStreamsWithNames.size,
-                    fileName = fileName,
-                    status = ProgressStatus.PARSING,
-                    processedTransactions = 0,
-                    totalTransactions = 0
-                ))
-                
-                // Parse file using smart parser factory
-                val parseResult = StatementParserFactory.parseStatement(stream)
-                val parsedTransactions = parseResult.transactions
-                val detectedBalance = parseResult.detectedCurrentBalance
-                
-                println("[BackgroundImport] File: $fileName - Parsed ${parsedTransactions.size} transactions")
-                println("[BackgroundImport] File: $fileName - Detected balance: ₹$detectedBalance")
-                
+        // Stage 2: dedup in file order against stored and already accepted rows
+        val accepted = TransactionDedupIndex()
+        val acceptedReferences = StoredReferences.Occurrences()
+        
+        val results = arrayOfNulls<FileResult>(totalFiles)
+        val transactionsToInsert = mutableListOf<Activity>()
+        var detectedBalance: Double? = null
+        var detectedBalanceDate: LocalDate? = null
+        var parseEndNanos = startNanos
+        var dedupNanos = 0L
+        
+        parsedFiles.forEachIndexed { index, deferred ->
+            val parsed = deferred.await()
+            val fileName = parsed.fileName
+            parseEndNanos = maxOf(parseEndNanos, parsed.finishedAtNanos)
+            val dedupStartNanos = System.nanoTime()
+            
+            if (parsed.error != null) {
+                results[index] = failedResult(fileName, parsed.error)
                 onProgress(ImportProgress(
                     currentFile = index + 1,
-                    totalFiles = inputStreamsWithNames.size,
+                    totalFiles = totalFiles,
                     fileName = fileName,
-                    status = ProgressStatus.CHECKING_DUPLICATES,
+                    status = ProgressStatus.FAILED,
                     processedTransactions = 0,
-                    totalTransactions = parsedTransactions.size
+                    totalTransactions = 0,
+                    errorMessage = parsed.error
                 ))
-                
-                // Load existing transactions once for this file (major performance optimization)
-                val existingTransactions = transactionRepository.getAllTransactionsForDeduplication(accountId)
-                val existingKeys = existingTransactions.map { 
-                    "${it.activityDate}|${it.amount}|${it.description}"
-                }.toSet()
-                
-                // Process transactions with duplicate detection
-                var fileImported = 0
-                var fileSkipped = 0
-                var fileDuplicates = 0
-                val transactionsToInsert = mutableListOf<Activity>()
-                
-                // Convert all parsed transactions to Activity objects first
-                val activities = parsedTransactions.map { parsed ->
-                    Activity(
-                        accountId = accountId,
-                        activityDate = parsed.txnDate,
-                        valueDate = parsed.valueDate,
-                        description = parsed.description,
-                        reference = parsed.reference,
-                        amount = parsed.amount,
-                        type = parsed.direction,
-                        categoryId = null,
-                        tags = emptyList(),
-                        balanceAfterTxn = parsed.balanceAfterTxn
-                    )
+                return@forEachIndexed
+            }
+            
+            val parsedCount = parsed.activities.size
+            onProgress(ImportProgress(
+                currentFile = index + 1,
+                totalFiles = totalFiles,
+                fileName = fileName,
+                status = ProgressStatus.CHECKING_DUPLICATES,
+                processedTransactions = 0,
+                totalTransactions = parsedCount
+            ))
+            
+            var fileImported = 0
+            var fileDuplicates = 0
+            // Occurrence ordinal of each row within this file
+            val occurrences = TransactionDedupIndex(parsedCount)
+            val referenceOccurrences = StoredReferences.Occurrences()
+            
+            parsed.activities.forEachIndexed { txnIndex, activity ->
+                val occurrence = occurrences.add(activity)
+                val referenceKey = StoredReferences.Key.of(
+                    activity.reference, activity.activityDate, Money.toPaise(activity.amount), activity.type
+                )
+                val referenceOccurrence = referenceKey?.let { referenceOccurrences.add(it) }
+                val isDuplicate = occurrence < parsed.storedFingerprints.count(activity) + accepted.count(activity) ||
+                    (referenceKey != null &&
+                        referenceOccurrence!! < parsed.storedReferences.count(referenceKey) + acceptedReferences.count(referenceKey))
+                if (!isDuplicate) {
+                    accepted.add(activity)
+                    referenceKey?.let { acceptedReferences.add(it) }
+                    transactionsToInsert.add(activity)
+                    fileImported++
+                } else {
+                    fileDuplicates++
                 }
                 
-                // Check duplicates using pre-loaded data (fast!)
-                activities.forEachIndexed { txnIndex, activity ->
-                    // Fast exact match check using set
-                    val key = "${activity.activityDate}|${activity.amount}|${activity.description}"
-                    val isDuplicate = existingKeys.contains(key)
-                    
-                    if (!isDuplicate) {
-                        transactionsToInsert.add(activity)
-                        fileImported++
-                    } else {
-                        fileDuplicates++
-                    }
-                    
-                    // Update progress every 50 transactions (reduced UI updates for speed)
-                    if (txnIndex % 50 == 0) {
-                        onProgress(ImportProgress(
-                            currentFile = index + 1,
-                            totalFiles = inputStreamsWithNames.size,
-                            fileName = fileName,
-                            status = ProgressStatus.IMPORTING,
-                            processedTransactions = txnIndex + 1,
-                            totalTransactions = parsedTransactions.size
-                        ))
-                    }
+                // Update progress every 50 transactions (reduced UI updates for speed)
+                if (txnIndex % 50 == 0) {
+                    onProgress(ImportProgress(
+                        currentFile = index + 1,
+                        totalFiles = totalFiles,
+                        fileName = fileName,
+                        status = ProgressStatus.IMPORTING,
+                        processedTransactions = txnIndex + 1,
+                        totalTransactions = parsedCount
+                    ))
                 }
-                
-                // Insert transactions
-                if (transactionsToInsert.isNotEmpty()) {
-                    transactionRepository.insertTransactions(transactionsToInsert)
-                    // Update account balance using the detected balance from parser
-                    updateAccountBalance(accountId, detectedBalance)
+            }
+            
+            // Reconcile against the statement that ends last, whatever order the files came in
+            val lastDate = parsed.activities.maxOfOrNull { it.activityDate }
+            val latestSoFar = detectedBalanceDate
+            if (lastDate != null && parsed.detectedBalance > 0.0 && (latestSoFar == null || lastDate >= latestSoFar)) {
+                detectedBalance = parsed.detectedBalance
+                detectedBalanceDate = lastDate
+            }
+            
+            results[index] = FileResult(
+                fileName = fileName,
+                success = true,
+                parsedCount = parsedCount,
+                importedCount = fileImported,
+                skippedCount = 0,
+                duplicatesCount = fileDuplicates,
+                errorMessage = null
+            )
+            dedupNanos += System.nanoTime() - dedupStartNanos
+        }
+        
+        // Stage 3: categorize the whole batch against the learning rules, loaded once
+        val categorizeStartNanos = System.nanoTime()
+        val categorized = try {
+            autoLearnCategory.autoCategorizeBatch(transactionsToInsert)
+        } catch (e: Exception) {
+            // Uncategorized rows are still worth importing
+            println("[BackgroundImport] Auto-categorization skipped: ${e.message}")
+            transactionsToInsert
+        }
+        val autoCategorized = categorized.count { it.isAutoCategorized }
+        val categorizeNanos = System.nanoTime() - categorizeStartNanos
+        
+        // Stage 4: single batch write for every file
+        val writeStartNanos = System.nanoTime()
+        val writeError = withContext(Dispatchers.IO) {
+            try {
+                if (categorized.isNotEmpty()) {
+                    val inserted = transactionRepository.insertTransactions(categorized)
+                    println("[BackgroundImport] Inserted $inserted of ${categorized.size} transactions from $totalFiles files ($autoCategorized auto-categorized)")
+                    // Reconcile the ledger with the closing balance of the latest statement
+                    val balance = detectedBalance
+                    val balanceDate = detectedBalanceDate
+                    if (balance != null && balanceDate != null) {
+                        updateAccountBalance(accountId, balance, balanceDate)
+                    }
                 }
-                
-                totalProcessed += parsedTransactions.size
-                totalImported += fileImported
-                totalSkipped += fileSkipped
-                totalDuplicates += fileDuplicates
-                
-                results.add(
-                    FileResult(
-                        fileName = fileName,
-                        success = true,
-                        parsedCount = parsedTransactions.size,
-                        importedCount = fileImported,
-                        skippedCount = fileSkipped,
-                        duplicatesCount = fileDuplicates,
-                        errorMessage = null
-                    )
-                )
-                
-                onProgress(ImportProgress(
-                    currentFile = index + 1,
-                    totalFiles = inputStreamsWithNames.size,
-                    fileName = fileName,
-                    status = ProgressStatus.COMPLETED,
-                    processedTransactions = parsedTransactions.size,
-                    totalTransactions = parsedTransactions.size
-                ))
-                
+                null
             } catch (e: Exception) {
-                println("[BackgroundImport] Error processing $fileName: ${e.message}")
+                println("[BackgroundImport] Error writing transactions: ${e.message}")
                 e.printStackTrace()
-                
-                results.add(
-                    FileResult(
-                        fileName = fileName,
-                        success = false,
-                        parsedCount = 0,
-                        importedCount = 0,
-                        skippedCount = 0,
-                        duplicatesCount = 0,
-                        errorMessage = e.message ?: "Unknown error"
-                    )
-                )
-                
-                onProgress(ImportProgress(
-                    currentFile = index + 1,
-                    totalFiles = inputStreamsWithNames.size,
-                    fileName = fileName,
-                    status = ProgressStatus.FAILED,
-                    processedTransactions = 0,
-                    totalTransactions = 0,
-                    errorMessage = e.message
-                ))
+                e.message ?: "Unknown error"
             }
         }
+        val writeNanos = System.nanoTime() - writeStartNanos
         
+        val stageTimings = StageTimings(
+            parseMillis = (parseEndNanos - startNanos) / 1_000_000,
+            dedupMillis = dedupNanos / 1_000_000,
+            categorizeMillis = categorizeNanos / 1_000_000,
+            writeMillis = writeNanos / 1_000_000
+        )
+        println("[BackgroundImport] Stages: $stageTimings")
+        
+        results.forEachIndexed { index, result ->
+            if (result == null || !result.success) return@forEachIndexed
+            
+            if (writeError != null) {
+                results[index] = failedResult(result.fileName, writeError)
+            }
+            onProgress(ImportProgress(
+                currentFile = index + 1,
+                totalFiles = totalFiles,
+                fileName = result.fileName,
+                status = if (writeError == null) ProgressStatus.COMPLETED else ProgressStatus.FAILED,
+                processedTransactions = if (writeError == null) result.parsedCount else 0,
+                totalTransactions = result.parsedCount,
+                errorMessage = writeError
+            ))
+        }
+        
+        val fileResults = results.filterNotNull()
+        val successful = fileResults.filter { it.success }
         BatchImportResult(
-            totalFiles = inputStreamsWithNames.size,
-            successfulFiles = results.count { it.success },
-            failedFiles = results.count { !it.success },
-            totalProcessed = totalProcessed,
-            totalImported = totalImported,
-            totalSkipped = totalSkipped,
-            totalDuplicates = totalDuplicates,
-            fileResults = results
+            totalFiles = totalFiles,
+            successfulFiles = successful.size,
+            failedFiles = fileResults.size - successful.size,
+            totalProcessed = successful.sumOf { it.parsedCount },
+            totalImported = successful.sumOf { it.importedCount },
+            totalSkipped = successful.sumOf { it.skippedCount },
+            totalDuplicates = successful.sumOf { it.duplicatesCount },
+            totalAutoCategorized = if (writeError == null) autoCategorized else 0,
+            fileResults = fileResults,
+            stageTimings = stageTimings
         )
     }
     
     /**
-     * Update account balance using the detected balance from the parser
+     * Parse one file into activities; failures are captured, not thrown, so one
+     * bad file does not cancel the others
+     */
+    private suspend fun parseFile(
+        accountId: Long,
+        index: Int,
+        totalFiles: Int,
+        fileName: String,
+        stream: InputStream,
+        onProgress: (ImportProgress) -> Unit
+    ): ParsedFile {
+        return try {
+            onProgress(ImportProgress(
+                currentFile = index + 1,
+                totalFiles = totalFiles,
+                fileName = fileName,
+                status = ProgressStatus.PARSING,
+                processedTransactions = 0,
+                totalTransactions = 0
+            ))
+            
+            // Parse file using smart parser factory, streaming rows straight into
+            // Activity objects so no intermediate copy of the statement is kept
+            val activities = mutableListOf<Activity>()
+            val detectedBalance = StatementParserFactory.parseStatementStreaming(stream).use { statement ->
+                statement.forEach { parsed ->
+                    activities.add(
+                        Activity(
+                            accountId = accountId,
+                            activityDate = parsed.txnDate,
+                            valueDate = parsed.valueDate,
+                            description = parsed.description,
+                            reference = parsed.reference,
+                            amount = parsed.amount,
+                            type = parsed.direction,
+                            categoryId = null,
+                            merchantName = MerchantExtractor.extractOrNull(parsed.description),
+                            tags = emptyList(),
+                            balanceAfterTxn = parsed.balanceAfterTxn,
+                            fingerprint = TransactionFingerprint.of(
+                                accountId = accountId,
+                                date = parsed.txnDate,
+                                amountPaise = parsed.amountPaise,
+                                description = parsed.description,
+                                reference = parsed.reference
+                            )
+                        )
+                    )
+                }
+                statement.detectedCurrentBalance
+            }
+            
+            println("[BackgroundImport] File: $fileName - Parsed ${activities.size} transactions")
+            println("[BackgroundImport] File: $fileName - Detected balance: ₹$detectedBalance")
+            
+            // Indexed lookups per file instead of loading the account's transactions
+            val (storedFingerprints, storedReferences) = withContext(Dispatchers.IO) {
+                StoredFingerprints(transactionRepository.findTransactionsByFingerprint(activities.mapNotNull { it.fingerprint })) to
+                    StoredReferences(transactionRepository.findReferenceMatches(accountId, activities.map { it.reference }))
+            }
+            
+            ParsedFile(fileName, activities, storedFingerprints, storedReferences, detectedBalance, error = null)
+        } catch (e: Exception) {
+            println("[BackgroundImport] Error processing $fileName: ${e.message}")
+            e.printStackTrace()
+            ParsedFile(fileName, emptyList(), StoredFingerprints(emptyList()), StoredReferences(emptyList()), 0.0, error = e.message ?: "Unknown error")
+        }
+    }
+    
+    private fun failedResult(fileName: String, errorMessage: String) = FileResult(
+        fileName = fileName,
+        success = false,
+        parsedCount = 0,
+        importedCount = 0,
+        skippedCount = 0,
+        duplicatesCount = 0,
+        errorMessage = errorMessage
+    )
+    
+    /**
+     * Reconcile the account's balance ledger with the balance detected by the parser
      * 
-     * The parser has already done the smart work of detecting file order
-     * (ascending vs descending) and extracting the correct current balance.
+     * The inserted rows have already moved the ledger (it is maintained on write);
+     * this only corrects the opening balance when the statement disagrees. The parser
+     * has detected file order (ascending vs descending), so the detected balance is
+     * the closing balance on the statement's latest date.
      * 
-     * @param accountId The account to update
+     * @param accountId The account to reconcile
      * @param detectedBalance The current balance detected by the smart parser
+     * @param balanceDate The statement's latest transaction date
      */
-    private suspend fun updateAccountBalance(accountId: Long, detectedBalance: Double) {
+    private suspend fun updateAccountBalance(accountId: Long, detectedBalance: Double, balanceDate: LocalDate) {
         try {
-            println("[BackgroundImport] === BALANCE UPDATE ===")
+            println("[BackgroundImport] === BALANCE RECONCILIATION ===")
             println("[BackgroundImport] Account ID: $accountId")
             
-            var currentBalance = detectedBalance
-            
-            // Only use fallback if parser didn't detect a valid balance
-            if (currentBalance <= 0.0) {
-                println("[BackgroundImport] ⚠️ Parser detected balance is 0 or negative, using fallback...")
-                
-                // Try database
-                currentBalance = transactionRepository.getLatestTransactionBalance(accountId) ?: 0.0
-                if (currentBalance > 0.0) {
-                    println("[BackgroundImport] ✓ Using database latest balance: ₹$currentBalance")
-                } else {
-                    // Final fallback: Calculate
-                    val account = accountRepository.getAccountById(accountId) ?: return
-                    currentBalance = transactionRepository.calculateAccountBalance(accountId, account.initialBalance)
-                    println("[BackgroundImport] ⚠️ Fallback to calculation: ₹$currentBalance (initial: ₹${account.initialBalance})")
-                }
-            } else {
-                println("[BackgroundImport] ✓ Using parser-detected balance: ₹$currentBalance")
+            // Only reconcile against a valid parser-detected balance
+            if (detectedBalance <= 0.0) {
+                println("[BackgroundImport] ⚠️ Parser detected balance is 0 or negative, keeping ledger balance")
+                return
             }
             
-            // Update account balance
-            accountRepository.updateBalance(accountId, currentBalance)
-            println("[BackgroundImport] ✅ Account balance updated to: ₹$currentBalance")
+            val correction = accountRepository.reconcileBalance(accountId, balanceDate, detectedBalance)
+            println("[BackgroundImport] ✅ Balance on $balanceDate reconciled to ₹$detectedBalance (correction ₹$correction)")
             
         } catch (e: Exception) {
-            println("[BackgroundImport] ❌ Error updating account balance: ${e.message}")
+            println("[BackgroundImport] ❌ Error reconciling account balance: ${e.message}")
             e.printStackTrace()
         }
     }
     
+    private class ParsedFile(
+        val fileName: String,
+        val activities: List<Activity>,
+        val storedFingerprints: StoredFingerprints,
+        val storedReferences: StoredReferences,
+        val detectedBalance: Double,
+        val error: String?,
+        // Parsing is over once this is built; parse time is measured to the last file's
+        val finishedAtNanos: Long = System.nanoTime()
+    )
+    
     data class ImportProgress(
         val currentFile: Int,
         val totalFiles: Int,
@@ -256,7 +395,22 @@ class ImportStatementBackgroundUseCase @Inject constructor(
         val totalImported: Int,
         val totalSkipped: Int,
         val totalDuplicates: Int,
-        val fileResults: List<FileResult>
+        val totalAutoCategorized: Int,
+        val fileResults: List<FileResult>,
+        val stageTimings: StageTimings
+    )
+    
+    /**
+     * Wall-clock milliseconds per pipeline stage. Files are parsed concurrently and
+     * dedup starts on the first file while later ones are still parsing, so parse
+     * runs from the start of the import until the last file is parsed and dedup
+     * counts only its own work.
+     */
+    data class StageTimings(
+        val parseMillis: Long,
+        val dedupMillis: Long,
+        val categorizeMillis: Long,
+        val writeMillis: Long
     )
     
     data class FileResult(
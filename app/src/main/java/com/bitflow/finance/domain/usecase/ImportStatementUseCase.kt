@@ -1,8 +1,11 @@
 package com.bitflow.finance.domain.usecase
 
+import com.bitflow.finance.data.parser.ParsedTransaction
 import com.bitflow.finance.data.parser.StatementParser
 import com.bitflow.finance.domain.model.Activity
 import com.bitflow.finance.domain.model.ActivityType
+import com.bitflow.finance.domain.model.MerchantExtractor
+import com.bitflow.finance.domain.model.TransactionFingerprint
 import com.bitflow.finance.domain.repository.TransactionRepository
 import java.io.InputStream
 import javax.inject.Inject
@@ -62,40 +65,50 @@ class ImportStatementUseCase @Inject constructor(
         return ImportResult(totalImported, totalSkipped, fileResults)
     }
 
-    private suspend fun processTransactions(accountId: Long, parsedTransactions: List<com.bitflow.finance.data.parser.ParsedTransaction>): ImportResult {
+    private suspend fun processTransactions(accountId: Long, parsedTransactions: List<ParsedTransaction>): ImportResult {
         println("[ImportUseCase] Processing ${parsedTransactions.size} parsed transactions")
         var importedCount = 0
         var skippedCount = 0
 
-        // Performance optimization: Get all existing transactions once
-        val existingTransactions = transactionRepository.getAllTransactionsForDeduplication(accountId)
+        val fingerprints = parsedTransactions.map { parsed ->
+            TransactionFingerprint.of(accountId, parsed.txnDate, parsed.amountPaise, parsed.description, parsed.reference)
+        }
         
-        // Create lookup set for fast duplicate detection: "date|amount|description"
-        val existingKeys = existingTransactions.map { 
-            "${it.activityDate}|${it.amount}|${it.description}"
-        }.toSet()
-        println("[ImportUseCase] Existing transactions: ${existingKeys.size}")
+        // Performance optimization: one indexed lookup instead of loading the account's transactions
+        val storedFingerprints = StoredFingerprints(transactionRepository.findTransactionsByFingerprint(fingerprints))
+        // Catches re-imports whose description was reformatted, which changes the fingerprint
+        val storedReferences = StoredReferences(
+            transactionRepository.findReferenceMatches(accountId, parsedTransactions.map { it.reference })
+        )
 
         val transactionsToInsert = mutableListOf<Activity>()
+        // Occurrence ordinal of each row: a charge listed twice on one day is two rows
+        val occurrences = TransactionDedupIndex(parsedTransactions.size)
+        val referenceOccurrences = StoredReferences.Occurrences()
 
-        for (parsed in parsedTransactions) {
-            // Fast duplicate check using in-memory set
-            val key = "${parsed.txnDate}|${parsed.amount}|${parsed.description}"
-            
-            if (key !in existingKeys) {
-                transactionsToInsert.add(
-                    Activity(
-                        accountId = accountId,
-                        activityDate = parsed.txnDate,
-                        valueDate = parsed.valueDate,
-                        description = parsed.description,
-                        reference = parsed.reference,
-                        amount = parsed.amount,
-                        type = parsed.direction,
-                        categoryId = null, // Auto-categorization logic can go here
-                        tags = emptyList()
-                    )
-                )
+        parsedTransactions.forEachIndexed { index, parsed ->
+            val fingerprint = fingerprints[index]
+            val activity = Activity(
+                accountId = accountId,
+                activityDate = parsed.txnDate,
+                valueDate = parsed.valueDate,
+                description = parsed.description,
+                reference = parsed.reference,
+                amount = parsed.amount,
+                type = parsed.direction,
+                categoryId = null, // Auto-categorization logic can go here
+                merchantName = MerchantExtractor.extractOrNull(parsed.description),
+                tags = emptyList(),
+                fingerprint = fingerprint
+            )
+            // The n-th copy is new only if fewer than n copies are stored, by content or by reference
+            val occurrence = occurrences.add(activity)
+            val referenceKey = StoredReferences.Key.of(parsed.reference, parsed.txnDate, parsed.amountPaise, parsed.direction)
+            val referenceOccurrence = referenceKey?.let { referenceOccurrences.add(it) }
+            val isDuplicate = occurrence < storedFingerprints.count(activity) ||
+                (referenceKey != null && referenceOccurrence!! < storedReferences.count(referenceKey))
+            if (!isDuplicate) {
+                transactionsToInsert.add(activity)
                 importedCount++
             } else {
                 skippedCount++
@@ -106,24 +119,35 @@ class ImportStatementUseCase @Inject constructor(
         if (transactionsToInsert.isNotEmpty()) {
             transactionRepository.insertTransactions(transactionsToInsert)
             
-            // Update account balance based on new transactions
-            updateAccountBalance(accountId)
+            // Balances follow the ledger; only check it against the statement
+            reconcileAccountBalance(accountId, parsedTransactions)
         }
 
         return ImportResult(importedCount, skippedCount)
     }
     
-    private suspend fun updateAccountBalance(accountId: Long) {
+    /**
+     * Reconcile the account's balance ledger with the statement's closing balance
+     * The inserted rows have already moved the ledger; this only corrects the opening
+     * balance when the statement's printed balance disagrees with it.
+     */
+    private suspend fun reconcileAccountBalance(
+        accountId: Long,
+        parsedTransactions: List<ParsedTransaction>
+    ) {
         try {
-            val account = accountRepository.getAccountById(accountId) ?: return
-            
-            // Optimized: Use direct calculation query from repository
-            val calculatedBalance = transactionRepository.calculateAccountBalance(accountId, account.initialBalance)
+            // Closing row: the last one in an ascending statement, the first in a descending one
+            val ascending = parsedTransactions.first().txnDate <= parsedTransactions.last().txnDate
+            val closing = if (ascending) parsedTransactions.last() else parsedTransactions.first()
+            if (closing.balanceAfterTxn <= 0.0) {
+                println("[ImportUseCase] No statement balance to reconcile account $accountId against")
+                return
+            }
             
-            println("[ImportUseCase] Updating account $accountId balance: ${account.currentBalance} -> $calculatedBalance")
-            accountRepository.updateBalance(accountId, calculatedBalance)
+            val correction = accountRepository.reconcileBalance(accountId, closing.txnDate, closing.balanceAfterTxn)
+            println("[ImportUseCase] Reconciled account $accountId balance on ${closing.txnDate} (correction ₹$correction)")
         } catch (e: Exception) {
-            println("[ImportUseCase] Error updating account balance: ${e.message}")
+            println("[ImportUseCase] Error reconciling account balance: ${e.message}")
         }
     }
 }
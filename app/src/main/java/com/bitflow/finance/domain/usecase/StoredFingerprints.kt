@@ -0,0 +1,27 @@
+package com.bitflow.finance.domain.usecase
+
+import com.bitflow.finance.domain.model.Activity
+import com.bitflow.finance.domain.model.TransactionFingerprint
+
+/**
+ * Stored transactions found by one batch
+ * [com.bitflow.finance.domain.repository.TransactionRepository.findTransactionsByFingerprint]
+ * lookup
+ *
+ * The fingerprint only narrows the search: a stored row is a copy of an incoming one
+ * when its fields match too ([TransactionFingerprint.sameContent]), so a 64-bit
+ * collision never turns a new transaction into a duplicate.
+ */
+class StoredFingerprints(matches: List<Activity>) {
+
+    private val byFingerprint: Map<Long?, List<Activity>> = matches.groupBy { it.fingerprint }
+
+    /**
+     * How many stored transactions have [activity]'s content
+     */
+    fun count(activity: Activity): Int {
+        val fingerprint = activity.fingerprint ?: TransactionFingerprint.of(activity)
+        val candidates = byFingerprint[fingerprint] ?: return 0
+        return candidates.count { TransactionFingerprint.sameContent(it, activity) }
+    }
+}
@@ -0,0 +1,77 @@
+package com.bitflow.finance.domain.usecase
+
+import com.bitflow.finance.domain.model.ActivityType
+import com.bitflow.finance.domain.model.StoredReference
+import com.bitflow.finance.domain.model.TransactionReference
+import java.time.LocalDate
+
+/**
+ * Reference numbers already stored for an account, as returned by one batch
+ * [com.bitflow.finance.domain.repository.TransactionRepository.findReferenceMatches] lookup
+ *
+ * Incoming references are normalised with [TransactionReference] before lookup, so
+ * only RRN/UTR-shaped values take part. For import deduplication the reference only
+ * narrows the candidates: a stored row is a copy when its date, amount and direction
+ * match too ([count]), and the caller compares that count with the row's occurrence
+ * ordinal like it does for fingerprints.
+ */
+class StoredReferences(matches: List<StoredReference>) {
+
+    private val references = HashSet<String>(matches.size * 2)
+    private val counts = HashMap<Key, Int>(matches.size * 2)
+
+    init {
+        for (match in matches) {
+            references.add(match.referenceNorm)
+            counts.merge(Key(match.referenceNorm, match.date, match.amountPaise, match.type), 1, Int::plus)
+        }
+    }
+
+    /**
+     * True if any stored transaction carries this reference
+     */
+    fun containsReference(reference: String?): Boolean {
+        val normalised = TransactionReference.normalise(reference) ?: return false
+        return normalised in references
+    }
+
+    /**
+     * How many stored transactions match [key]
+     */
+    fun count(key: Key): Int = counts[key] ?: 0
+
+    /**
+     * Rows per [Key] seen so far in a file or batch, for occurrence ordinals
+     */
+    class Occurrences {
+        private val counts = HashMap<Key, Int>()
+
+        /**
+         * Add one row
+         * @return How many rows with [key] had been added before (its occurrence ordinal)
+         */
+        fun add(key: Key): Int {
+            val before = counts[key] ?: 0
+            counts[key] = before + 1
+            return before
+        }
+
+        fun count(key: Key): Int = counts[key] ?: 0
+    }
+
+    /**
+     * Identity of a transaction by reference: the same reference with another date,
+     * amount or direction (e.g. a reversal) is a different transaction
+     */
+    data class Key(val referenceNorm: String, val date: LocalDate, val amountPaise: Long, val type: ActivityType) {
+        companion object {
+            /**
+             * Key of a statement row, or null when its reference cannot identify it
+             */
+            fun of(reference: String?, date: LocalDate, amountPaise: Long, type: ActivityType): Key? {
+                val normalised = TransactionReference.normalise(reference) ?: return null
+                return Key(normalised, date, amountPaise, type)
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.bitflow.finance.domain.usecase
 
-import com.bitflow.finance.data.local.entity.TransactionEntity
+import com.bitflow.finance.domain.model.Activity
+import com.bitflow.finance.domain.model.MerchantExtractor
 import com.bitflow.finance.domain.model.RecurringPattern
 import com.bitflow.finance.domain.model.RecurrenceFrequency
 import java.time.LocalDate
@@ -29,16 +30,16 @@ class SubscriptionDetective @Inject constructor() {
      * Returns only high-confidence patterns worth showing to user.
      */
     suspend fun detectPotentialSubscriptions(
-        transactions: List<TransactionEntity>,
+        transactions: List<Activity>,
         lookbackMonths: Int = 3
     ): List<RecurringPattern> {
         val cutoffDate = LocalDate.now().minusMonths(lookbackMonths.toLong())
-        val recentTransactions = transactions.filter { it.txnDate >= cutoffDate }
+        val recentTransactions = transactions.filter { it.activityDate >= cutoffDate }
         
         // Group by merchant name
         val groupedByMerchant = recentTransactions
             .filter { !it.merchantName.isNullOrBlank() }
-            .groupBy { normalizeMerchantName(it.merchantName!!) }
+            .groupBy { MerchantExtractor.normalise(it.merchantName!!) }
         
         val patterns = mutableListOf<RecurringPattern>()
         
@@ -59,13 +60,13 @@ class SubscriptionDetective @Inject constructor() {
      */
     private fun analyzePattern(
         merchantName: String,
-        transactions: List<TransactionEntity>
+        transactions: List<Activity>
     ): RecurringPattern? {
         if (transactions.size < MIN_OCCURRENCES) return null
         
-        val sortedTransactions = transactions.sortedBy { it.txnDate }
+        val sortedTransactions = transactions.sortedBy { it.activityDate }
         val amounts = sortedTransactions.map { it.amount }
-        val dates = sortedTransactions.map { it.txnDate }
+        val dates = sortedTransactions.map { it.activityDate }
         
         // Check amount consistency
         val avgAmount = amounts.average()
@@ -136,16 +137,4 @@ class SubscriptionDetective @Inject constructor() {
         val avgDeviation = deviations.average()
         return (1f - avgDeviation.toFloat()).coerceIn(0f, 1f)
     }
-    
-    /**
-     * Normalize merchant name for matching
-     * Removes special characters, extra spaces, etc.
-     */
-    private fun normalizeMerchantName(name: String): String {
-        return name
-            .trim()
-            .lowercase()
-            .replace(Regex("[^a-z0-9\\s]"), "")
-            .replace(Regex("\\s+"), " ")
-    }
 }
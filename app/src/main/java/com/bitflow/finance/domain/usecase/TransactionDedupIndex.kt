@@ -0,0 +1,176 @@
+package com.bitflow.finance.domain.usecase
+
+import com.bitflow.finance.domain.model.Activity
+import com.bitflow.finance.domain.model.Money
+import com.bitflow.finance.domain.model.TransactionFingerprint
+
+/**
+ * Compact multiset of transaction identities for duplicate detection during import
+ *
+ * A transaction's identity is its [TransactionFingerprint] content (account, date,
+ * amount in paise, normalised description and reference). Instead of one
+ * "date|amount|description" String per row, each identity is kept as its 64-bit
+ * fingerprint in a primitive open-addressing table with a count of how often it
+ * was added: 16 bytes per slot, no per-row objects, and lookups that allocate nothing.
+ *
+ * Collision verification: every slot also stores an independent 32-bit check hash
+ * of the same identity. Two identities only compare equal when both hashes match;
+ * rows whose fingerprints collide but whose check hashes differ are kept as
+ * separate entries.
+ *
+ * Counting (instead of a plain set) lets a statement carry the same row more than
+ * once: [add] returns the row's occurrence ordinal, so the second identical POS
+ * charge of a day is occurrence 1, not a duplicate of occurrence 0.
+ *
+ * Not thread-safe.
+ */
+class TransactionDedupIndex(expectedSize: Int = 16) {
+
+    companion object {
+        private const val EMPTY = 0L
+        private const val MAX_LOAD_FACTOR = 0.75
+
+        private const val CHECK_SEED = 0x5bd1e995
+
+        /**
+         * Build an index from existing transactions
+         */
+        fun of(activities: Collection<Activity>): TransactionDedupIndex {
+            val index = TransactionDedupIndex(activities.size)
+            activities.forEach { index.add(it) }
+            return index
+        }
+    }
+
+    private var hashes: LongArray
+    private var checks: IntArray
+    private var counts: IntArray
+    private var mask: Int
+
+    /** Number of distinct identities in the index */
+    var size: Int = 0
+        private set
+
+    init {
+        val capacity = capacityFor(expectedSize)
+        hashes = LongArray(capacity)
+        checks = IntArray(capacity)
+        counts = IntArray(capacity)
+        mask = capacity - 1
+    }
+
+    /**
+     * Add one occurrence of [activity]'s identity
+     * @return How many times it had been added before (its occurrence ordinal)
+     */
+    fun add(activity: Activity): Int {
+        val hash = hashOf(activity)
+        val check = checkOf(activity)
+
+        var slot = slotFor(hash)
+        while (hashes[slot] != EMPTY) {
+            if (hashes[slot] == hash && checks[slot] == check) return counts[slot]++
+            slot = (slot + 1) and mask
+        }
+        hashes[slot] = hash
+        checks[slot] = check
+        counts[slot] = 1
+        size++
+
+        if (size > (hashes.size * MAX_LOAD_FACTOR).toInt()) {
+            grow()
+        }
+        return 0
+    }
+
+    /**
+     * How many times [activity]'s identity has been added
+     */
+    fun count(activity: Activity): Int {
+        val hash = hashOf(activity)
+        val check = checkOf(activity)
+
+        var slot = slotFor(hash)
+        while (hashes[slot] != EMPTY) {
+            if (hashes[slot] == hash && checks[slot] == check) return counts[slot]
+            slot = (slot + 1) and mask
+        }
+        return 0
+    }
+
+    fun contains(activity: Activity): Boolean = count(activity) > 0
+
+    private fun hashOf(activity: Activity): Long {
+        val hash = activity.fingerprint ?: TransactionFingerprint.of(activity)
+        return if (hash == EMPTY) 1L else hash
+    }
+
+    /**
+     * 32-bit hash of the fingerprint's fields, normalised the same way but mixed
+     * independently of it
+     */
+    private fun checkOf(activity: Activity): Int {
+        val epochDay = activity.activityDate.toEpochDay()
+        val paise = Money.toPaise(activity.amount)
+        var check = CHECK_SEED
+        check = check * 31 + (activity.accountId xor (activity.accountId ushr 32)).toInt()
+        check = check * 31 + (epochDay xor (epochDay ushr 32)).toInt()
+        check = check * 31 + (paise xor (paise ushr 32)).toInt()
+        check = checkNormalised(check, activity.description)
+        check = check * 31 + 0x1F
+        check = checkNormalised(check, activity.reference ?: "")
+        return check xor (check ushr 16)
+    }
+
+    /**
+     * Fold text in as lowercase, trimmed, with whitespace runs collapsed to one space
+     */
+    private fun checkNormalised(seed: Int, text: String): Int {
+        var check = seed
+        var pendingSpace = false
+        var started = false
+        for (ch in text) {
+            if (ch.isWhitespace()) {
+                if (started) pendingSpace = true
+                continue
+            }
+            if (pendingSpace) {
+                check = check * 31 + ' '.code
+                pendingSpace = false
+            }
+            check = check * 31 + ch.lowercaseChar().code
+            started = true
+        }
+        return check
+    }
+
+    private fun slotFor(hash: Long): Int = (hash xor (hash ushr 32)).toInt() and mask
+
+    private fun grow() {
+        val oldHashes = hashes
+        val oldChecks = checks
+        val oldCounts = counts
+        val capacity = oldHashes.size * 2
+        hashes = LongArray(capacity)
+        checks = IntArray(capacity)
+        counts = IntArray(capacity)
+        mask = capacity - 1
+
+        for (i in oldHashes.indices) {
+            val hash = oldHashes[i]
+            if (hash == EMPTY) continue
+            var slot = slotFor(hash)
+            while (hashes[slot] != EMPTY) {
+                slot = (slot + 1) and mask
+            }
+            hashes[slot] = hash
+            checks[slot] = oldChecks[i]
+            counts[slot] = oldCounts[i]
+        }
+    }
+
+    private fun capacityFor(expectedSize: Int): Int {
+        val needed = (maxOf(expectedSize, 8) / MAX_LOAD_FACTOR).toInt() + 1
+        return Integer.highestOneBit(needed - 1) shl 1
+    }
+}
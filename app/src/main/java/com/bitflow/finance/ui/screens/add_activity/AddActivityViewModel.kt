@@ -5,6 +5,7 @@ import androidx.lifecycle.viewModelScope
 import com.bitflow.finance.domain.model.Activity
 import com.bitflow.finance.domain.model.ActivityType
 import com.bitflow.finance.domain.model.Category
+import com.bitflow.finance.domain.model.MerchantExtractor
 import com.bitflow.finance.domain.repository.TransactionRepository
 import com.bitflow.finance.domain.usecase.AutoLearnCategoryUseCase
 import dagger.hilt.android.lifecycle.HiltViewModel
@@ -131,17 +132,18 @@ class AddActivityViewModel @Inject constructor(
         val categoryId = state.selectedCategoryId ?: return
 
         viewModelScope.launch {
-            val merchantName = extractMerchantName(state.note)
+            val merchantName = MerchantExtractor.extract(state.note)
             
             val activity = Activity(
                 accountId = 1L, // TODO: Get from selected account
                 activityDate = state.activityDate,
                 valueDate = state.activityDate,
-                description = merchantName.ifEmpty { state.note.ifEmpty { "Manual entry" } },
+                description = state.note.trim().take(50).ifEmpty { "Manual entry" },
                 reference = null,
                 amount = amount,
                 type = state.activityType,
                 categoryId = categoryId,
+                merchantName = merchantName.ifEmpty { null },
                 notes = state.note.ifEmpty { null },
                 isAutoCategorized = state.isAutoCategorized
             )
@@ -163,13 +165,6 @@ class AddActivityViewModel @Inject constructor(
             _uiState.value = _uiState.value.copy(isActivitySaved = true)
         }
     }
-    
-    /**
-     * Extract merchant name from note for learning
-     */
-    private fun extractMerchantName(note: String): String {
-        return note.trim().take(50).ifEmpty { "" }
-    }
 }
 
 data class AddActivityUiState(
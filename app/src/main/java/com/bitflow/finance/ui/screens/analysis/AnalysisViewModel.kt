@@ -3,6 +3,8 @@ package com.bitflow.finance.ui.screens.analysis
 import androidx.compose.ui.graphics.Color
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
+import com.bitflow.finance.data.local.dao.CategoryTotal
+import com.bitflow.finance.data.local.dao.DirectionTotal
 import com.bitflow.finance.domain.model.ActivityType
 import com.bitflow.finance.domain.repository.TransactionRepository
 import com.bitflow.finance.ui.components.TimeFilter
@@ -16,6 +18,7 @@ import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.flatMapLatest
 import kotlinx.coroutines.flow.stateIn
 
 @HiltViewModel
@@ -28,50 +31,45 @@ class AnalysisViewModel @Inject constructor(
     private val selectedFilter = MutableStateFlow(TimeFilter.THIS_MONTH)
     private val selectedAccountId = MutableStateFlow<Long?>(null) // null = all accounts
 
+    /**
+     * Aggregates for the selected period and account, computed in SQL so the cost
+     * follows the number of categories rather than the number of transactions
+     */
+    private val totals = combine(selectedFilter, selectedAccountId) { filter, accountId -> filter to accountId }
+        .flatMapLatest { (filter, accountId) ->
+            val (startDate, endDate) = if (filter == TimeFilter.ALL || filter == TimeFilter.LAST_10) {
+                UNBOUNDED_START to UNBOUNDED_END
+            } else {
+                getDateRangeForFilter(filter)
+            }
+            combine(
+                transactionRepository.getDirectionTotals(startDate, endDate, accountId),
+                transactionRepository.getCategoryTotals(ActivityType.EXPENSE, startDate, endDate, accountId)
+            ) { directionTotals, expenseCategoryTotals ->
+                AnalysisTotals(accountId, directionTotals, expenseCategoryTotals)
+            }
+        }
+
     val uiState: StateFlow<AnalysisUiState> = combine(
-        transactionRepository.getAllTransactions(),
+        totals,
         transactionRepository.getAllCategories(),
         settingsRepository.currencySymbol,
-        selectedFilter,
-        selectedAccountId,
         accountRepository.getAllAccounts()
-    ) { args: Array<Any?> ->
-        val transactions = args[0] as List<com.bitflow.finance.domain.model.Activity>
-        val categories = args[1] as List<com.bitflow.finance.domain.model.Category>
-        val currency = args[2] as String
-        val filter = args[3] as TimeFilter
-        val accountId = args[4] as Long?
-        val accounts = args[5] as List<com.bitflow.finance.domain.model.Account>
-
-            // Apply date filter
-            val dateRange = getDateRangeForFilter(filter)
-            var filteredTransactions = if (filter == TimeFilter.ALL || filter == TimeFilter.LAST_10) {
-                transactions
-            } else {
-                transactions.filter { it.activityDate >= dateRange.first && it.activityDate <= dateRange.second }
-            }
-            
-            // Apply account filter
-            if (accountId != null) {
-                filteredTransactions = filteredTransactions.filter { it.accountId == accountId }
-            }
-            
-            val totalIncome = filteredTransactions
-                .filter { it.type == ActivityType.INCOME }
-                .sumOf { it.amount }
-            val totalExpense = filteredTransactions
-                .filter { it.type == ActivityType.EXPENSE }
-                .sumOf { it.amount }
+    ) { totals, categories, currency, accounts ->
+            val totalIncome = totals.directionTotals
+                .filter { it.direction == ActivityType.INCOME }
+                .sumOf { it.total }
+            val totalExpense = totals.directionTotals
+                .filter { it.direction == ActivityType.EXPENSE }
+                .sumOf { it.total }
 
             // Calculate Category Breakdown
-            val expenseTransactions = filteredTransactions.filter { it.type == ActivityType.EXPENSE }
             val categoryMap = categories.associateBy { it.id }
             
-            val breakdown = expenseTransactions
-                .groupBy { it.categoryId }
-                .map { (catId, txns) ->
-                    val amount = txns.sumOf { it.amount }
-                    val category = categoryMap[catId]
+            val breakdown = totals.expenseCategoryTotals
+                .map { categoryTotal ->
+                    val amount = categoryTotal.total
+                    val category = categoryMap[categoryTotal.categoryId]
                     CategoryBreakdown(
                         categoryName = category?.name ?: "Uncategorized",
                         icon = category?.icon ?: "📁",
@@ -81,10 +79,6 @@ class AnalysisViewModel @Inject constructor(
                     )
                 }
                 .sortedByDescending { it.amount }
-
-            // Prepare Chart Data (Keep existing logic for now if needed, or remove if replacing with Donut)
-            // The prompt asks for Donut Chart, so we might not need the bar chart data anymore.
-            // But let's keep it just in case or for a secondary view.
             
             AnalysisUiState(
                 totalIncome = totalIncome,
@@ -93,8 +87,8 @@ class AnalysisViewModel @Inject constructor(
                 categoryBreakdown = breakdown,
                 currencySymbol = currency,
                 accounts = accounts,
-                selectedAccountId = accountId,
-                transactionCount = filteredTransactions.size
+                selectedAccountId = totals.accountId,
+                transactionCount = totals.directionTotals.sumOf { it.count }
             )
         }
         .stateIn(
@@ -110,6 +104,18 @@ class AnalysisViewModel @Inject constructor(
     fun setAccountFilter(accountId: Long?) {
         selectedAccountId.value = accountId
     }
+    
+    private class AnalysisTotals(
+        val accountId: Long?,
+        val directionTotals: List<DirectionTotal>,
+        val expenseCategoryTotals: List<CategoryTotal>
+    )
+    
+    private companion object {
+        // Date bounds for unfiltered periods (dates are stored as ISO strings)
+        val UNBOUNDED_START: LocalDate = LocalDate.of(1, 1, 1)
+        val UNBOUNDED_END: LocalDate = LocalDate.of(9999, 12, 31)
+    }
 }
 
 data class AnalysisUiState(
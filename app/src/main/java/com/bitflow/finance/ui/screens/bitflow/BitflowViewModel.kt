@@ -6,12 +6,11 @@ import com.bitflow.finance.data.repository.InvoiceRepository
 import dagger.hilt.android.lifecycle.HiltViewModel
 import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.StateFlow
-import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.combine
 import kotlinx.coroutines.flow.stateIn
 import javax.inject.Inject
 
-import java.time.Instant
-import java.time.ZoneId
+import java.time.YearMonth
 import java.time.format.DateTimeFormatter
 import java.util.Locale
 
@@ -20,64 +19,38 @@ class BitflowViewModel @Inject constructor(
     repository: InvoiceRepository
 ) : ViewModel() {
 
-    val uiState: StateFlow<BitflowUiState> = repository.getAllInvoices()
-        .map { invoices ->
-            val totalRevenue = invoices.sumOf { it.amount }
-            val paidAmount = invoices.filter { it.isPaid }.sumOf { it.amount }
-            val unpaidAmount = invoices.filter { !it.isPaid }.sumOf { it.amount }
-            val totalInvoices = invoices.size
-            val paidInvoicesCount = invoices.count { it.isPaid }
-            val unpaidInvoicesCount = invoices.count { !it.isPaid }
+    // Chart months, oldest first, ending with the current month
+    private val chartMonths = YearMonth.now().let { now ->
+        (CHART_MONTHS - 1 downTo 0).map { now.minusMonths(it.toLong()) }
+    }
 
-            // Calculate monthly revenue for the last 6 months
-            val monthlyRevenue = invoices
-                .groupBy { invoice ->
-                    val date = Instant.ofEpochMilli(invoice.date)
-                        .atZone(ZoneId.systemDefault())
-                        .toLocalDate()
-                    date.format(DateTimeFormatter.ofPattern("MMM", Locale.ENGLISH))
-                }
-                .mapValues { entry -> entry.value.sumOf { it.amount } }
-                .toList()
-                .sortedBy { 
-                    // Simple sort by month index is tricky with just "MMM", 
-                    // but for now let's just take the data as is or rely on the query order if it was time based.
-                    // Since the query is ORDER BY date DESC, the list will be reverse chronological.
-                    // We want chronological for the chart.
-                    // Let's do it properly.
-                    0 
-                } 
-            
-            // Re-doing the monthly logic to ensure correct order
-            val now = java.time.LocalDate.now()
-            val last6Months = (0..5).map { i ->
-                now.minusMonths(i.toLong())
-            }.reversed()
-            
-            val chartData = last6Months.map { month ->
-                val monthName = month.format(DateTimeFormatter.ofPattern("MMM", Locale.ENGLISH))
-                val monthRevenue = invoices.filter { 
-                    val invoiceDate = Instant.ofEpochMilli(it.date).atZone(ZoneId.systemDefault()).toLocalDate()
-                    invoiceDate.month == month.month && invoiceDate.year == month.year
-                }.sumOf { it.amount }
-                monthName to monthRevenue.toFloat()
+    // Totals and per-month revenue are aggregated in SQL; no invoice rows are loaded
+    val uiState: StateFlow<BitflowUiState> = combine(
+        repository.getTotals(),
+        repository.getMonthlyTotals(chartMonths)
+    ) { totals, monthly ->
+        val monthFormat = DateTimeFormatter.ofPattern("MMM", Locale.ENGLISH)
+        BitflowUiState(
+            totalRevenue = totals.total,
+            paidAmount = totals.paidTotal,
+            unpaidAmount = totals.unpaidTotal,
+            totalInvoices = totals.count,
+            paidInvoicesCount = totals.paidCount,
+            unpaidInvoicesCount = totals.unpaidCount,
+            monthlyRevenue = chartMonths.zip(monthly) { month, monthTotals ->
+                month.format(monthFormat) to monthTotals.total.toFloat()
             }
-
-            BitflowUiState(
-                totalRevenue = totalRevenue,
-                paidAmount = paidAmount,
-                unpaidAmount = unpaidAmount,
-                totalInvoices = totalInvoices,
-                paidInvoicesCount = paidInvoicesCount,
-                unpaidInvoicesCount = unpaidInvoicesCount,
-                monthlyRevenue = chartData
-            )
-        }
+        )
+    }
         .stateIn(
             scope = viewModelScope,
             started = SharingStarted.WhileSubscribed(5000),
             initialValue = BitflowUiState()
         )
+
+    private companion object {
+        const val CHART_MONTHS = 6
+    }
 }
 
 data class BitflowUiState(
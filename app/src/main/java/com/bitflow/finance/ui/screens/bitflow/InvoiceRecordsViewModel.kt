@@ -14,7 +14,9 @@ import kotlinx.coroutines.launch
 
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.asStateFlow
-import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.map
 
 @HiltViewModel
 class InvoiceRecordsViewModel @Inject constructor(
@@ -24,23 +26,16 @@ class InvoiceRecordsViewModel @Inject constructor(
     private val _searchQuery = MutableStateFlow("")
     val searchQuery = _searchQuery.asStateFlow()
 
-    val invoices: StateFlow<List<InvoiceEntity>> = combine(
-        repository.getAllInvoices(),
-        _searchQuery
-    ) { list, query ->
-        if (query.isBlank()) {
-            list
-        } else {
-            list.filter { 
-                it.clientName.contains(query, ignoreCase = true) || 
-                it.invoiceNumber.contains(query, ignoreCase = true) 
-            }
-        }
-    }.stateIn(
-        scope = viewModelScope,
-        started = SharingStarted.WhileSubscribed(5000),
-        initialValue = emptyList()
-    )
+    // Matching runs in SQL against the invoices_fts index
+    val invoices: StateFlow<List<InvoiceEntity>> = _searchQuery
+        .map { it.trim() }
+        .distinctUntilChanged()
+        .flatMapLatest { query -> repository.searchInvoices(query) }
+        .stateIn(
+            scope = viewModelScope,
+            started = SharingStarted.WhileSubscribed(5000),
+            initialValue = emptyList()
+        )
 
     fun onSearchQueryChange(query: String) {
         _searchQuery.value = query
@@ -26,12 +26,16 @@ import androidx.compose.ui.text.style.TextAlign
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
 import androidx.hilt.navigation.compose.hiltViewModel
+import androidx.paging.LoadState
+import androidx.paging.compose.collectAsLazyPagingItems
+import androidx.paging.compose.itemContentType
+import androidx.paging.compose.itemKey
 import com.bitflow.finance.domain.model.Activity
 import com.bitflow.finance.domain.model.ActivityType
 import com.bitflow.finance.domain.model.RecurringPattern
+import com.bitflow.finance.domain.model.TransactionFeedItem
 import com.bitflow.finance.ui.components.FilterChipsRow
-import com.bitflow.finance.ui.components.TimeFilter
-import com.bitflow.finance.ui.components.getDateRangeForFilter
+import com.bitflow.finance.ui.screens.transactions.feedKey
 import java.time.format.DateTimeFormatter
 
 /**
@@ -48,34 +52,7 @@ fun DailyPulseHomeScreen(
     onAnalyticsClick: () -> Unit
 ) {
     val uiState by viewModel.uiState.collectAsState()
-    var selectedFilter by remember { mutableStateOf(TimeFilter.THIS_MONTH) }
-    
-    // Apply filter to activities and ensure proper sorting
-    val filteredActivities = remember(uiState.recentActivities, selectedFilter) {
-        val activities = uiState.recentActivities
-        
-        val filtered = if (selectedFilter == TimeFilter.ALL) {
-            activities
-        } else {
-            val dateRange = getDateRangeForFilter(selectedFilter)
-            activities.filter { activity ->
-                activity.activityDate >= dateRange.first && activity.activityDate <= dateRange.second
-            }
-        }
-        
-        // Sort by date descending (newest first), then by ID for consistent ordering
-        val sorted = filtered.sortedWith(
-            compareByDescending<Activity> { it.activityDate }
-                .thenByDescending { it.id }
-        )
-        
-        // Apply LAST_10 limit after sorting
-        if (selectedFilter == TimeFilter.LAST_10) {
-            sorted.take(10)
-        } else {
-            sorted
-        }
-    }
+    val activities = viewModel.recentActivities.collectAsLazyPagingItems()
 
     Scaffold(
         topBar = {
@@ -183,7 +160,7 @@ fun DailyPulseHomeScreen(
                         fontWeight = FontWeight.Bold
                     )
                     Text(
-                        "${filteredActivities.size} transactions",
+                        "${uiState.filteredActivityCount} transactions",
                         style = MaterialTheme.typography.bodySmall,
                         color = MaterialTheme.colorScheme.onSurfaceVariant
                     )
@@ -193,29 +170,41 @@ fun DailyPulseHomeScreen(
             // Filter Chips
             item {
                 FilterChipsRow(
-                    selectedFilter = selectedFilter,
-                    onFilterSelected = { selectedFilter = it }
+                    selectedFilter = uiState.selectedFilter,
+                    onFilterSelected = viewModel::selectFilter
                 )
             }
 
-            if (filteredActivities.isEmpty()) {
+            if (activities.itemCount == 0 && activities.loadState.refresh is LoadState.NotLoading) {
                 item {
                     EmptyStateMessage(
-                        message = if (uiState.recentActivities.isEmpty()) 
+                        message = if (uiState.totalActivityCount == 0) 
                             "No activities yet" 
                         else 
                             "No activities in this period"
                     )
                 }
             } else {
-                items(filteredActivities) { activity ->
-                    SwipeableActivityItem(
-                        activity = activity,
-                        isPrivacyMode = uiState.isPrivacyMode,
-                        onClick = { onActivityClick(activity.id) },
-                        onDelete = { viewModel.deleteActivity(activity.id) },
-                        onEdit = { /* Navigate to edit */ }
-                    )
+                items(
+                    count = activities.itemCount,
+                    key = activities.itemKey { it.feedKey() },
+                    contentType = activities.itemContentType { it::class.simpleName }
+                ) { index ->
+                    when (val item = activities[index]) {
+                        is TransactionFeedItem.DateHeader -> Text(
+                            text = item.date.format(DateTimeFormatter.ofPattern("EEE, dd MMM yyyy")),
+                            style = MaterialTheme.typography.labelLarge,
+                            color = MaterialTheme.colorScheme.onSurfaceVariant
+                        )
+                        is TransactionFeedItem.Row -> SwipeableActivityItem(
+                            activity = item.activity,
+                            isPrivacyMode = uiState.isPrivacyMode,
+                            onClick = { onActivityClick(item.activity.id) },
+                            onDelete = { viewModel.deleteActivity(item.activity.id) },
+                            onEdit = { /* Navigate to edit */ }
+                        )
+                        null -> Unit
+                    }
                 }
             }
             }
@@ -2,17 +2,28 @@ package com.bitflow.finance.ui.screens.home
 
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
-import com.bitflow.finance.domain.model.Activity
+import androidx.paging.PagingData
+import androidx.paging.cachedIn
+import com.bitflow.finance.data.local.dao.DirectionTotal
 import com.bitflow.finance.domain.model.ActivityType
+import com.bitflow.finance.domain.model.Money
 import com.bitflow.finance.domain.model.RecurringPattern
+import com.bitflow.finance.domain.model.TransactionFeedItem
+import com.bitflow.finance.domain.model.TransactionFilter
 import com.bitflow.finance.domain.repository.TransactionRepository
 import com.bitflow.finance.domain.usecase.SubscriptionDetective
+import com.bitflow.finance.ui.components.TimeFilter
+import com.bitflow.finance.ui.components.getDateRangeForFilter
 import dagger.hilt.android.lifecycle.HiltViewModel
+import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.flatMapLatest
 import kotlinx.coroutines.launch
 import java.time.LocalDate
+import java.time.YearMonth
 import java.time.temporal.ChronoUnit
 import javax.inject.Inject
 
@@ -20,16 +31,26 @@ import javax.inject.Inject
 class DailyPulseViewModel @Inject constructor(
     private val transactionRepository: TransactionRepository,
     private val subscriptionDetective: SubscriptionDetective,
-    private val settingsRepository: com.bitflow.finance.domain.repository.SettingsRepository
+    private val settingsRepository: com.bitflow.finance.domain.repository.SettingsRepository,
+    private val accountRepository: com.bitflow.finance.domain.repository.AccountRepository
 ) : ViewModel() {
 
     private val _uiState = MutableStateFlow(DailyPulseUiState())
     val uiState: StateFlow<DailyPulseUiState> = _uiState.asStateFlow()
 
+    private val _selectedFilter = MutableStateFlow(TimeFilter.THIS_MONTH)
+
+    /**
+     * Paged activity feed for the selected time filter, filtered in SQL
+     */
+    val recentActivities: Flow<PagingData<TransactionFeedItem>> = _selectedFilter
+        .flatMapLatest { filter -> transactionRepository.getTransactionFeed(filter.toTransactionFilter()) }
+        .cachedIn(viewModelScope)
+
     init {
         loadUserName()
         loadAccountBalance()
-        loadRecentActivities()
+        loadActivityCounts()
         // Subscriptions detection removed for simpler startup
     }
 
@@ -42,37 +63,27 @@ class DailyPulseViewModel @Inject constructor(
     }
 
     /**
-     * Calculate actual balance from all transactions
+     * Balance from the accounts' running-balance ledger, this month's flow from the
+     * monthly rollup, today's spend from a single-day aggregate; none of these read
+     * individual transactions
      */
     private fun loadAccountBalance() {
         viewModelScope.launch {
-            transactionRepository.getAllTransactions().collect { transactions ->
-                // Calculate total income and expenses from all transactions
-                val totalIncome = transactions
-                    .filter { it.type == ActivityType.INCOME }
-                    .sumOf { it.amount }
-                
-                val totalExpenses = transactions
-                    .filter { it.type == ActivityType.EXPENSE }
-                    .sumOf { it.amount }
-                
-                val currentBalance = totalIncome - totalExpenses
+            val today = LocalDate.now()
+            val thisMonth = YearMonth.from(today)
+            combine(
+                accountRepository.getAllAccounts(),
+                transactionRepository.getMonthlyDirectionTotals(thisMonth, thisMonth, null),
+                transactionRepository.getDirectionTotals(today, today, null)
+            ) { accounts, month, day -> Triple(accounts, month, day) }.collect { (accounts, month, day) ->
+                val currentBalance = accounts.sumOf { it.currentBalance }
                 
                 // Calculate today's expenses
-                val today = LocalDate.now()
-                val todayExpenses = transactions
-                    .filter { it.activityDate == today && it.type == ActivityType.EXPENSE }
-                    .sumOf { it.amount }
+                val todayExpenses = day.totalFor(ActivityType.EXPENSE)
                 
                 // Calculate this month's stats
-                val startOfMonth = today.withDayOfMonth(1)
-                val monthIncome = transactions
-                    .filter { it.activityDate >= startOfMonth && it.type == ActivityType.INCOME }
-                    .sumOf { it.amount }
-                
-                val monthExpenses = transactions
-                    .filter { it.activityDate >= startOfMonth && it.type == ActivityType.EXPENSE }
-                    .sumOf { it.amount }
+                val monthIncome = month.totalFor(ActivityType.INCOME)
+                val monthExpenses = month.totalFor(ActivityType.EXPENSE)
 
                 // Determine pulse status based on monthly flow
                 val pulseStatus = when {
@@ -92,31 +103,47 @@ class DailyPulseViewModel @Inject constructor(
         }
     }
 
+    private fun List<DirectionTotal>.totalFor(type: ActivityType): Double =
+        Money.toRupees(filter { it.direction == type }.sumOf { it.totalPaise })
+
     /**
-     * Load all activities for filtering - they're already sorted by date DESC in DAO
+     * Row counts for the feed header and empty state, counted in SQL
      */
-    private fun loadRecentActivities() {
+    private fun loadActivityCounts() {
         viewModelScope.launch {
-            transactionRepository.getAllTransactions().collect { activities ->
-                // Activities are already sorted by txnDate DESC from DAO
-                _uiState.value = _uiState.value.copy(recentActivities = activities)
+            combine(
+                _selectedFilter.flatMapLatest { filter ->
+                    transactionRepository.countTransactions(filter.toTransactionFilter())
+                },
+                transactionRepository.countTransactions(TransactionFilter())
+            ) { filtered, total -> filtered to total }.collect { (filtered, total) ->
+                _uiState.value = _uiState.value.copy(filteredActivityCount = filtered, totalActivityCount = total)
             }
         }
     }
 
+    fun selectFilter(filter: TimeFilter) {
+        _selectedFilter.value = filter
+        _uiState.value = _uiState.value.copy(selectedFilter = filter)
+    }
+
+    private fun TimeFilter.toTransactionFilter(): TransactionFilter = when (this) {
+        TimeFilter.ALL -> TransactionFilter()
+        TimeFilter.LAST_10 -> TransactionFilter(limit = 10)
+        else -> getDateRangeForFilter(this).let { (start, end) -> TransactionFilter(startDate = start, endDate = end) }
+    }
+
     /**
      * Phase 3: Detect potential subscriptions
      */
     private fun detectSubscriptions() {
         viewModelScope.launch {
             val threeMonthsAgo = LocalDate.now().minusMonths(3)
-            val allTransactions = mutableListOf<com.bitflow.finance.data.local.entity.TransactionEntity>()
-            
-            // TODO: Get transactions from repository
-            // val transactions = transactionRepository.getTransactionsForSubscriptionDetection(threeMonthsAgo)
+            // Indexed on the merchant stored at import, no description parsing here
+            val transactions = transactionRepository.getTransactionsForSubscriptionDetection(threeMonthsAgo)
             
             val patterns = subscriptionDetective.detectPotentialSubscriptions(
-                transactions = allTransactions,
+                transactions = transactions,
                 lookbackMonths = 3
             )
 
@@ -169,7 +196,9 @@ data class DailyPulseUiState(
     val monthIncome: Double = 0.0,
     val monthExpenses: Double = 0.0,
     val pulseStatus: PulseStatus = PulseStatus.GOOD,
-    val recentActivities: List<Activity> = emptyList(),
+    val selectedFilter: TimeFilter = TimeFilter.THIS_MONTH,
+    val filteredActivityCount: Int = 0,
+    val totalActivityCount: Int = 0,
     val potentialSubscriptions: List<RecurringPattern> = emptyList(),
     val isPrivacyMode: Boolean = false
 )
@@ -28,7 +28,7 @@ class HomeViewModel @Inject constructor(
 
     val uiState: StateFlow<HomeUiState> = combine(
         accountRepository.getAllAccounts(),
-        transactionRepository.getAllTransactions(),
+        transactionRepository.getRecentTransactions(RECENT_TRANSACTIONS),
         settingsRepository.currencySymbol,
         settingsRepository.isPrivacyModeEnabled,
         settingsRepository.userName,
@@ -42,7 +42,7 @@ class HomeViewModel @Inject constructor(
         val selectedAccountId = flows[5] as Long?
         
         println("[HomeViewModel] Accounts count: ${accounts.size}")
-        println("[HomeViewModel] Transactions count: ${transactions.size}")
+        println("[HomeViewModel] Recent transactions: ${transactions.size}")
         
         val totalBalance = if (selectedAccountId != null) {
             accounts.find { it.id == selectedAccountId }?.currentBalance ?: 0.0
@@ -52,7 +52,7 @@ class HomeViewModel @Inject constructor(
 
         HomeUiState(
             accounts = accounts,
-            recentTransactions = transactions.take(10),
+            recentTransactions = transactions,
             totalNetWorth = totalBalance,
             currencySymbol = currency,
             isPrivacyMode = isPrivacyMode,
@@ -75,6 +75,10 @@ class HomeViewModel @Inject constructor(
     fun selectAccount(accountId: Long?) {
         _selectedAccountId.value = if (_selectedAccountId.value == accountId) null else accountId
     }
+
+    private companion object {
+        const val RECENT_TRANSACTIONS = 10
+    }
 }
 
 data class HomeUiState(
@@ -107,7 +107,7 @@ class ImportStatementViewModel @Inject constructor(
                         }
                     )
                     
-                    println("[ImportViewModel] Import complete: ${result.totalImported} imported, ${result.totalDuplicates} duplicates")
+                    println("[ImportViewModel] Import complete: ${result.totalImported} imported, ${result.totalDuplicates} duplicates, ${result.totalAutoCategorized} auto-categorized")
                     
                     _uiState.value = _uiState.value.copy(
                         isLoading = false,
@@ -1,9 +1,7 @@
 package com.bitflow.finance.ui.screens.transactions
 
-import androidx.compose.foundation.ExperimentalFoundationApi
 import androidx.compose.foundation.layout.*
 import androidx.compose.foundation.lazy.LazyColumn
-import androidx.compose.foundation.lazy.items
 import androidx.compose.foundation.shape.RoundedCornerShape
 import androidx.compose.material.icons.Icons
 import androidx.compose.material.icons.filled.ArrowBack
@@ -15,23 +13,24 @@ import androidx.compose.ui.graphics.Color
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.unit.dp
 import androidx.hilt.navigation.compose.hiltViewModel
+import androidx.paging.compose.collectAsLazyPagingItems
+import androidx.paging.compose.itemContentType
+import androidx.paging.compose.itemKey
+import com.bitflow.finance.domain.model.TransactionFeedItem
 import com.bitflow.finance.ui.screens.home.TransactionItem
 import java.time.LocalDate
 import java.time.format.DateTimeFormatter
 
-@OptIn(ExperimentalMaterial3Api::class, ExperimentalFoundationApi::class)
+@OptIn(ExperimentalMaterial3Api::class)
 @Composable
 fun TransactionsScreen(
     viewModel: TransactionsViewModel = hiltViewModel(),
     onBackClick: () -> Unit,
     onTransactionClick: (Long) -> Unit
 ) {
-    val transactions by viewModel.transactions.collectAsState()
+    val transactions = viewModel.transactions.collectAsLazyPagingItems()
     val searchQuery by viewModel.searchQuery.collectAsState()
-
-    val groupedTransactions = remember(transactions) {
-        transactions.groupBy { it.activityDate }
-    }
+    val bestMatches by viewModel.bestMatches.collectAsState()
 
     Scaffold(
         topBar = {
@@ -60,33 +59,66 @@ fun TransactionsScreen(
             modifier = Modifier.padding(padding),
             contentPadding = PaddingValues(bottom = 24.dp)
         ) {
-            groupedTransactions.forEach { (date, txns) ->
-                stickyHeader {
-                    DateHeader(date)
+            if (bestMatches.isNotEmpty()) {
+                item(key = "best-matches-header") {
+                    SectionHeader("Best matches")
+                }
+                bestMatches.forEach { transaction ->
+                    item(key = "best-${transaction.id}") {
+                        Box(modifier = Modifier.padding(horizontal = 24.dp, vertical = 6.dp)) {
+                            TransactionItem(
+                                transaction = transaction,
+                                currencySymbol = "₹", // TODO: Inject settings
+                                isPrivacyMode = false, // TODO: Inject settings
+                                onClick = { onTransactionClick(transaction.id) }
+                            )
+                        }
+                    }
                 }
-                items(txns) { transaction ->
-                    Box(modifier = Modifier.padding(horizontal = 24.dp, vertical = 6.dp)) {
+            }
+            items(
+                count = transactions.itemCount,
+                key = transactions.itemKey { it.feedKey() },
+                contentType = transactions.itemContentType { it::class.simpleName }
+            ) { index ->
+                when (val item = transactions[index]) {
+                    is TransactionFeedItem.DateHeader -> DateHeader(item.date)
+                    is TransactionFeedItem.Row -> Box(modifier = Modifier.padding(horizontal = 24.dp, vertical = 6.dp)) {
                         TransactionItem(
-                            transaction = transaction,
+                            transaction = item.activity,
                             currencySymbol = "₹", // TODO: Inject settings
                             isPrivacyMode = false, // TODO: Inject settings
-                            onClick = { onTransactionClick(transaction.id) }
+                            onClick = { onTransactionClick(item.activity.id) }
                         )
                     }
+                    null -> Unit
                 }
             }
         }
     }
 }
 
+/**
+ * Stable LazyColumn key of a feed entry
+ */
+fun TransactionFeedItem.feedKey(): String = when (this) {
+    is TransactionFeedItem.DateHeader -> "date-$date"
+    is TransactionFeedItem.Row -> "txn-${activity.id}"
+}
+
 @Composable
 fun DateHeader(date: LocalDate) {
+    SectionHeader(date.format(DateTimeFormatter.ofPattern("dd MMMM yyyy")))
+}
+
+@Composable
+private fun SectionHeader(text: String) {
     Surface(
         color = MaterialTheme.colorScheme.background,
         modifier = Modifier.fillMaxWidth()
     ) {
         Text(
-            text = date.format(DateTimeFormatter.ofPattern("dd MMMM yyyy")),
+            text = text,
             modifier = Modifier.padding(horizontal = 24.dp, vertical = 12.dp),
             style = MaterialTheme.typography.labelLarge,
             fontWeight = FontWeight.SemiBold,
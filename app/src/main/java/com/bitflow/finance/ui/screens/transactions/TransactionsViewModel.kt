@@ -2,6 +2,11 @@ package com.bitflow.finance.ui.screens.transactions
 
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
+import androidx.paging.PagingData
+import androidx.paging.cachedIn
+import com.bitflow.finance.domain.model.Activity
+import com.bitflow.finance.domain.model.TransactionFeedItem
+import com.bitflow.finance.domain.model.TransactionFilter
 import com.bitflow.finance.domain.repository.TransactionRepository
 import dagger.hilt.android.lifecycle.HiltViewModel
 import kotlinx.coroutines.flow.*
@@ -15,21 +20,31 @@ class TransactionsViewModel @Inject constructor(
     private val _searchQuery = MutableStateFlow("")
     val searchQuery = _searchQuery.asStateFlow()
 
-    val transactions = combine(
-        repository.getAllTransactions(),
-        _searchQuery
-    ) { transactions, query ->
-        if (query.isBlank()) {
-            transactions
-        } else {
-            transactions.filter { 
-                it.description.contains(query, ignoreCase = true) || 
-                it.amount.toString().contains(query)
-            }
+    // Search runs in SQL once typing pauses; clearing the box applies immediately
+    private val appliedQuery = _searchQuery
+        .map { it.trim() }
+        .debounce { if (it.isEmpty()) 0L else SEARCH_DEBOUNCE_MS }
+        .distinctUntilChanged()
+
+    val transactions: Flow<PagingData<TransactionFeedItem>> = appliedQuery
+        .flatMapLatest { query -> repository.getTransactionFeed(TransactionFilter(query = query)) }
+        .cachedIn(viewModelScope)
+
+    /**
+     * Highest-ranked full-text matches, shown above the date-ordered results
+     */
+    val bestMatches: StateFlow<List<Activity>> = appliedQuery
+        .flatMapLatest { query ->
+            if (query.isEmpty()) flowOf(emptyList()) else repository.searchTransactions(query, BEST_MATCHES)
         }
-    }.stateIn(viewModelScope, SharingStarted.WhileSubscribed(5000), emptyList())
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(5000), emptyList())
 
     fun onSearchQueryChange(query: String) {
         _searchQuery.value = query
     }
+
+    private companion object {
+        const val SEARCH_DEBOUNCE_MS = 300L
+        const val BEST_MATCHES = 3
+    }
 }
@@ -0,0 +1,88 @@
+package com.bitflow.finance.data.local
+
+import org.junit.Assert.assertEquals
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import java.time.LocalDate
+import java.time.LocalDateTime
+import kotlin.random.Random
+
+/**
+ * Date column decoding for a full-history read: ISO strings (up to schema 17) vs
+ * epoch days / epoch millis ([Converters])
+ *
+ * Skipped by default; run with RUN_BENCHMARKS=true ./gradlew :app:testDebugUnitTest
+ * --tests "*DateStorageBenchmarkTest*"
+ */
+class DateStorageBenchmarkTest {
+
+    private val converters = Converters()
+
+    @Before
+    fun requireBenchmarkFlag() {
+        assumeTrue(System.getenv("RUN_BENCHMARKS") == "true")
+    }
+
+    @Test
+    fun epochValues_roundTrip() {
+        rows(10_000).forEach { (date, timestamp) ->
+            assertEquals(date, converters.fromEpochDay(converters.dateToEpochDay(date)))
+            assertEquals(timestamp, converters.fromTimestamp(converters.dateToTimestamp(timestamp)))
+        }
+    }
+
+    @Test
+    fun decode_fullHistory() {
+        val rows = rows(ROWS)
+        val isoDates = rows.map { it.first.toString() }
+        val isoTimestamps = rows.map { it.second.toString() }
+        val epochDays = rows.map { it.first.toEpochDay() }
+        val epochMillis = rows.map { converters.dateToTimestamp(it.second)!! }
+
+        // Each row decodes txnDate plus createdAt and updatedAt
+        val decodeIso = {
+            for (i in rows.indices) {
+                LocalDate.parse(isoDates[i])
+                LocalDateTime.parse(isoTimestamps[i])
+                LocalDateTime.parse(isoTimestamps[i])
+            }
+        }
+        val decodeEpoch = {
+            for (i in rows.indices) {
+                converters.fromEpochDay(epochDays[i])
+                converters.fromTimestamp(epochMillis[i])
+                converters.fromTimestamp(epochMillis[i])
+            }
+        }
+        repeat(3) { decodeIso(); decodeEpoch() }
+
+        val isoMillis = timed(decodeIso)
+        val epochMillisTaken = timed(decodeEpoch)
+        println("[Benchmark] rows=$ROWS isoDecode=${isoMillis}ms epochDecode=${epochMillisTaken}ms")
+    }
+
+    private fun timed(block: () -> Unit): Long {
+        val start = System.nanoTime()
+        block()
+        return (System.nanoTime() - start) / 1_000_000
+    }
+
+    /**
+     * Ten years of dates with millisecond creation times, as imports and manual entry store them
+     */
+    private fun rows(count: Int): List<Pair<LocalDate, LocalDateTime>> {
+        val random = Random(17)
+        val first = LocalDate.of(2015, 1, 1)
+        return List(count) {
+            val date = first.plusDays(random.nextLong(3_650))
+            date to date.atStartOfDay()
+                .plusSeconds(random.nextLong(86_400))
+                .plusNanos(random.nextLong(1_000) * 1_000_000)
+        }
+    }
+
+    companion object {
+        private const val ROWS = 200_000
+    }
+}
@@ -0,0 +1,185 @@
+package com.bitflow.finance.data.local
+
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.sql.Connection
+import java.sql.DriverManager
+import java.sql.Types
+
+/**
+ * Query plan regression tests: EXPLAIN QUERY PLAN for every @Query of the transaction,
+ * split, learning-rule and tag DAOs against an in-memory SQLite holding the tables and
+ * indexes declared on the entities
+ *
+ * Queries and schema are read from the sources, so a new query or a dropped index is
+ * checked without touching this test. A query fails if its plan scans a table instead
+ * of searching an index or the rowid.
+ */
+class QueryPlanTest {
+
+    private lateinit var connection: Connection
+    private val tables = HashSet<String>()
+
+    @Before
+    fun createSchema() {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:")
+        connection.createStatement().use { statement ->
+            sourceDir("entity").listFiles()!!
+                .filter { it.extension == "kt" }
+                .map { it.readText() }
+                .filter { "@Entity(" in it && "@Fts4" !in it }
+                .forEach { source -> entityDdl(source).forEach { statement.execute(it) } }
+            statement.execute(TransactionSearch.CREATE_TABLE_SQL)
+        }
+    }
+
+    @After
+    fun close() {
+        connection.close()
+    }
+
+    @Test
+    fun daoQueries_searchInsteadOfScanning() {
+        val failures = DAOS.flatMap { queriesOf(it) }.mapNotNull { query ->
+            val plan = plan(query.sql)
+            if (plan.any { isTableScan(it, query.sql) }) "${query.name}: ${plan.joinToString(" | ")}" else null
+        }
+        assertTrue("Full table scans:\n" + failures.joinToString("\n"), failures.isEmpty())
+    }
+
+    @Test
+    fun reviewedQueries_useTheirIndexes() {
+        val queries = DAOS.flatMap { queriesOf(it) }
+        EXPECTED_INDEXES.forEach { (name, index) ->
+            val matching = queries.filter { it.name == name }
+            assertTrue("No query $name", matching.isNotEmpty())
+            matching.forEach { query ->
+                val plan = plan(query.sql)
+                assertTrue("$name: ${plan.joinToString(" | ")}", plan.any { "INDEX $index " in "$it " })
+            }
+        }
+    }
+
+    private data class DaoQuery(val name: String, val sql: String)
+
+    /**
+     * The @Query strings of one DAO, with file-level constants substituted and
+     * named parameters turned into positional ones
+     */
+    private fun queriesOf(dao: String): List<DaoQuery> {
+        val source = File(sourceDir("dao"), "$dao.kt").readText()
+        val constants = CONSTANT.findAll(source).associate { it.groupValues[1] to it.groupValues[2] }
+        val queries = QUERY.findAll(source).map { match ->
+            val literal = match.groups[1]?.value ?: match.groupValues[2].replace("\\\"", "\"")
+            val sql = TEMPLATE.replace(literal) { constants.getValue(it.groupValues[1]) }
+            DaoQuery("$dao.${match.groupValues[3]}", PARAMETER.replace(sql, "?"))
+        }.toList()
+        // Every @Query must have been recognised, or queries would go unchecked
+        assertEquals("$dao @Query count", Regex("@Query\\(").findAll(source).count(), queries.size)
+        return queries
+    }
+
+    private fun plan(sql: String): List<String> =
+        connection.prepareStatement("EXPLAIN QUERY PLAN $sql").use { statement ->
+            for (i in 1..statement.parameterMetaData.parameterCount) statement.setNull(i, Types.NULL)
+            statement.executeQuery().use { rows ->
+                val details = ArrayList<String>()
+                while (rows.next()) details.add(rows.getString("detail"))
+                details
+            }
+        }
+
+    /**
+     * "SCAN x" on a stored table or an alias of one; virtual (FTS) tables and
+     * subqueries are not counted
+     */
+    private fun isTableScan(detail: String, sql: String): Boolean {
+        val scanned = SCAN.find(detail)?.groupValues?.get(1) ?: return false
+        if ("VIRTUAL TABLE" in detail) return false
+        val aliases = ALIAS.findAll(sql).associate { it.groupValues[2] to it.groupValues[1] }
+        return scanned in tables || aliases[scanned] in tables
+    }
+
+    /**
+     * CREATE TABLE and CREATE INDEX statements for one Room entity source file
+     */
+    private fun entityDdl(source: String): List<String> {
+        val table = Regex("""tableName\s*=\s*"(\w+)"""").find(source)!!.groupValues[1]
+        tables.add(table)
+        val header = source.substringBefore("data class")
+        val body = source.substringAfter("data class").substringBefore("\n)")
+
+        val columns = ArrayList<String>()
+        var primaryKey: List<String>? = null
+        for (line in body.lines()) {
+            val field = FIELD.find(line) ?: continue
+            val name = COLUMN_NAME.find(line)?.groupValues?.get(1) ?: field.groupValues[1]
+            val type = field.groupValues[2]
+            if ("@PrimaryKey" in line) {
+                if ("autoGenerate = true" in line) {
+                    columns.add("`$name` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL")
+                    continue
+                }
+                primaryKey = listOf(name)
+            }
+            columns.add("`$name` ${affinity(type)}" + if (type.endsWith("?")) "" else " NOT NULL")
+        }
+        Regex("""primaryKeys\s*=\s*\[([^\]]*)]""").find(header)?.let { primaryKey = quoted(it.groupValues[1]) }
+        primaryKey?.let { keys -> columns.add("PRIMARY KEY(${keys.joinToString(", ") { "`$it`" }})") }
+
+        val statements = mutableListOf("CREATE TABLE `$table` (${columns.joinToString(", ")})")
+        INDEX.findAll(header).forEach { index ->
+            val indexColumns = quoted(index.groupValues[1])
+            val options = index.groupValues[2]
+            val name = Regex("""name = "(\w+)"""").find(options)?.groupValues?.get(1)
+                ?: "index_${table}_${indexColumns.joinToString("_")}"
+            val unique = if ("unique = true" in options) "UNIQUE " else ""
+            statements.add("CREATE ${unique}INDEX `$name` ON `$table` (${indexColumns.joinToString(", ") { "`$it`" }})")
+        }
+        return statements
+    }
+
+    private fun affinity(type: String): String = when (type.removeSuffix("?")) {
+        "Long", "Int", "Short", "Byte", "Boolean", "LocalDate", "LocalDateTime" -> "INTEGER"
+        "Double", "Float" -> "REAL"
+        else -> "TEXT"
+    }
+
+    private fun quoted(list: String): List<String> = Regex("\"(\\w+)\"").findAll(list).map { it.groupValues[1] }.toList()
+
+    private fun sourceDir(name: String): File =
+        listOf("src/main/java", "app/src/main/java")
+            .map { File(it, "com/bitflow/finance/data/local/$name") }
+            .first { it.isDirectory }
+
+    companion object {
+        private val DAOS = listOf("TransactionDao", "SplitDao", "LearningRuleDao", "TagDao")
+
+        /** Queries the index review added or reshaped an index for */
+        private val EXPECTED_INDEXES = mapOf(
+            "TransactionDao.getRecentTransactions" to "idx_user_date_created",
+            "TransactionDao.getTransactionsForAccount" to "idx_dedup",
+            "TransactionDao.findExistingTransaction" to "idx_dedup",
+            "TransactionDao.getTransactionsByMerchant" to "idx_user_merchant_date",
+            "TransactionDao.updateTransactionsCategory" to "idx_user_category"
+        )
+
+        private val QUERY = Regex(
+            "@Query\\(\\s*(?:\"\"\"(.*?)\"\"\"|\"((?:[^\"\\\\]|\\\\.)*)\")\\s*\\)\\s*" +
+                "(?:@\\w+(?:\\([^)]*\\))?\\s*)*(?:suspend\\s+)?fun\\s+(\\w+)",
+            RegexOption.DOT_MATCHES_ALL
+        )
+        private val CONSTANT = Regex("const val (\\w+) = \"\"\"(.*?)\"\"\"", RegexOption.DOT_MATCHES_ALL)
+        private val TEMPLATE = Regex("\\$\\{?(\\w+)}?")
+        private val PARAMETER = Regex("(?<![:\\w]):(\\w+)")
+        private val SCAN = Regex("^SCAN (?:TABLE )?(\\w+)")
+        private val ALIAS = Regex("(?:FROM|JOIN)\\s+(\\w+)\\s+(?:AS\\s+)?(\\w+)", RegexOption.IGNORE_CASE)
+        private val FIELD = Regex("val (\\w+): ([\\w.<>]+\\??)")
+        private val COLUMN_NAME = Regex("@ColumnInfo\\(name = \"(\\w+)\"\\)")
+        private val INDEX = Regex("Index\\(value = \\[([^\\]]*)]([^)]*)\\)")
+    }
+}
@@ -0,0 +1,55 @@
+package com.bitflow.finance.data.local
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class TransactionSearchQueryTest {
+
+    @Test
+    fun parse_words_becomePrefixTerms() {
+        val query = TransactionSearchQuery.parse("  Amazon PAY ")
+
+        assertEquals("amazon* pay*", query.match)
+        assertFalse(query.hasAmountFilter)
+    }
+
+    @Test
+    fun parse_punctuationAndOperators_areSplitIntoPlainTerms() {
+        val query = TransactionSearchQuery.parse("UPI/DR swiggy@yes NOT")
+
+        assertEquals("upi* dr* swiggy* yes* not*", query.match)
+    }
+
+    @Test
+    fun parse_exactAmount_filtersAroundValue() {
+        val query = TransactionSearchQuery.parse("swiggy ₹1,200.50")
+
+        assertEquals("swiggy*", query.match)
+        assertEquals(120_050L, query.minPaise)
+        assertEquals(120_050L, query.maxPaise)
+    }
+
+    @Test
+    fun parse_rangeAndComparisons_intersect() {
+        val query = TransactionSearchQuery.parse("500-100 >=200 <450")
+
+        assertNull(query.match)
+        assertEquals(20_000L, query.minPaise)
+        assertEquals(44_999L, query.maxPaise)
+    }
+
+    @Test
+    fun parse_longDigitRun_isSearchedAsReference() {
+        val query = TransactionSearchQuery.parse("409297068518")
+
+        assertEquals("409297068518*", query.match)
+        assertFalse(query.hasAmountFilter)
+    }
+
+    @Test
+    fun parse_blank_matchesEverything() {
+        assertEquals(TransactionSearchQuery.EMPTY, TransactionSearchQuery.parse("   "))
+    }
+}
@@ -0,0 +1,83 @@
+package com.bitflow.finance.data.parser
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class AmountParserTest {
+
+    @Test
+    fun parsePaise_digitGrouping() {
+        assertEquals(12345678L, AmountParser.parsePaise("1,23,456.78"))
+        assertEquals(12345678L, AmountParser.parsePaise("123,456.78"))
+        assertEquals(12345678L, AmountParser.parsePaise("123456.78"))
+        assertEquals(1000000000L, AmountParser.parsePaise("1,00,00,000"))
+    }
+
+    @Test
+    fun parsePaise_drCrSuffix() {
+        assertEquals(-50000L, AmountParser.parsePaise("500.00 Dr"))
+        assertEquals(-50000L, AmountParser.parsePaise("500.00DR."))
+        assertEquals(50000L, AmountParser.parsePaise("500.00 Cr"))
+        assertEquals(50000L, AmountParser.parsePaise("500.00 cr."))
+    }
+
+    @Test
+    fun parsePaise_negatives() {
+        assertEquals(-50000L, AmountParser.parsePaise("(500.00)"))
+        assertEquals(-123450L, AmountParser.parsePaise("(₹1,234.50)"))
+        assertEquals(-25000L, AmountParser.parsePaise("-250.00"))
+        assertEquals(-25000L, AmountParser.parsePaise("250.00-"))
+        assertEquals(25000L, AmountParser.parsePaise("+250"))
+    }
+
+    @Test
+    fun parsePaise_currencyMarkers() {
+        assertEquals(100050L, AmountParser.parsePaise("₹1,000.50"))
+        assertEquals(100050L, AmountParser.parsePaise("₹ 1,000.50"))
+        assertEquals(25000L, AmountParser.parsePaise("Rs. 250"))
+        assertEquals(25000L, AmountParser.parsePaise("Rs250"))
+        assertEquals(25000L, AmountParser.parsePaise("rs.250.00"))
+        assertEquals(120000L, AmountParser.parsePaise("INR 1,200"))
+        assertEquals(120000L, AmountParser.parsePaise("1,200 INR"))
+        assertEquals(120000L, AmountParser.parsePaise("1,200₹"))
+    }
+
+    @Test
+    fun parsePaise_rupeeOnlySuffix() {
+        assertEquals(100000L, AmountParser.parsePaise("1,000/-"))
+        assertEquals(100000L, AmountParser.parsePaise("Rs. 1,000/-"))
+    }
+
+    @Test
+    fun parsePaise_fractionDigits() {
+        assertEquals(1250L, AmountParser.parsePaise("12.5"))
+        assertEquals(1200L, AmountParser.parsePaise("12."))
+        assertEquals(50L, AmountParser.parsePaise(".50"))
+        // More than two fraction digits round half-up on the third
+        assertEquals(1234L, AmountParser.parsePaise("12.344"))
+        assertEquals(1235L, AmountParser.parsePaise("12.345"))
+        assertEquals(1235L, AmountParser.parsePaise("12.3459"))
+        assertEquals(100L, AmountParser.parsePaise("0.995"))
+    }
+
+    @Test
+    fun parsePaise_range() {
+        assertEquals(4250L, AmountParser.parsePaise("xx 42.50 yy", 3, 8))
+        assertEquals(4250L, AmountParser.parsePaise("|  42.50  |", 1, 10))
+    }
+
+    @Test
+    fun parsePaise_invalidInput() {
+        for (text in listOf("", "   ", "abc", "Rs.", "-", "()", "(500.00", "1.2.3", ",100", "100.5,0", "12 apples", "Dr 500")) {
+            assertEquals("\"$text\"", AmountParser.INVALID, AmountParser.parsePaise(text))
+        }
+    }
+
+    @Test
+    fun parsePaiseOrZero_blankAndInvalidAreZero() {
+        assertEquals(0L, AmountParser.parsePaiseOrZero(null))
+        assertEquals(0L, AmountParser.parsePaiseOrZero(""))
+        assertEquals(0L, AmountParser.parsePaiseOrZero("N/A"))
+        assertEquals(-100000L, AmountParser.parsePaiseOrZero("1,000.00 Dr"))
+    }
+}
@@ -0,0 +1,57 @@
+package com.bitflow.finance.data.parser
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+import java.time.LocalDate
+
+class StatementDateResolverTest {
+
+    @Test
+    fun numericDates_areDayFirst() {
+        assertEquals(LocalDate.of(2024, 4, 3), StatementDateResolver.resolve("03/04/2024"))
+        assertEquals(LocalDate.of(2024, 4, 3), StatementDateResolver.resolve("3/4/2024"))
+        assertEquals(LocalDate.of(2024, 12, 31), StatementDateResolver.resolve("31/12/2024"))
+        assertEquals(LocalDate.of(2024, 4, 3), StatementDateResolver.resolve("03.04.2024"))
+        // Month-first dates are not guessed at
+        assertNull(StatementDateResolver.resolve("12/31/2024"))
+    }
+
+    @Test
+    fun twoDigitYears_areThisCentury() {
+        assertEquals(LocalDate.of(2024, 8, 5), StatementDateResolver.resolve("05-08-24"))
+        assertEquals(LocalDate.of(2024, 7, 10), StatementDateResolver.resolve("10-Jul-24"))
+        assertEquals(LocalDate.of(2099, 12, 31), StatementDateResolver.resolve("31-12-99"))
+        assertEquals(LocalDate.of(2000, 1, 1), StatementDateResolver.resolve("1 Jan 00"))
+    }
+
+    @Test
+    fun monthNames() {
+        assertEquals(LocalDate.of(2024, 7, 10), StatementDateResolver.resolve("10 Jul 2024"))
+        assertEquals(LocalDate.of(2024, 7, 10), StatementDateResolver.resolve("10-JUL-24"))
+        assertEquals(LocalDate.of(2024, 9, 1), StatementDateResolver.resolve("1 September 2024"))
+        assertNull(StatementDateResolver.resolve("10 Jux 2024"))
+    }
+
+    @Test
+    fun isoDatesAndTimes() {
+        assertEquals(LocalDate.of(2024, 8, 1), StatementDateResolver.resolve("2024-08-01"))
+        assertEquals(LocalDate.of(2024, 8, 1), StatementDateResolver.resolve("2024-08-01T10:15:00"))
+        assertEquals(LocalDate.of(2024, 8, 1), StatementDateResolver.resolve(" 01/08/2024 10:15 "))
+    }
+
+    @Test
+    fun invalidDates() {
+        assertEquals(LocalDate.of(2024, 2, 29), StatementDateResolver.resolve("29/02/2024"))
+        for (text in listOf("29/02/2023", "30/02/2024", "31/04/2024", "00/04/2024", "123/04/2024", "01/04", "", "Opening Balance")) {
+            assertNull("\"$text\"", StatementDateResolver.resolve(text))
+        }
+    }
+
+    @Test
+    fun layoutChangesWithinFile() {
+        val cells = listOf("01/04/2024", "02/04/2024", "03/04/2024", "04-Apr-24", "2024-04-05", "06.04.2024", "07/04/2024")
+
+        assertEquals((1..7).map { LocalDate.of(2024, 4, it) }, cells.map { StatementDateResolver.resolve(it) })
+    }
+}
@@ -0,0 +1,291 @@
+package com.bitflow.finance.data.parser
+
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.BufferedReader
+import java.io.ByteArrayInputStream
+import java.io.File
+import java.io.InputStreamReader
+import java.io.OutputStream
+import java.io.PrintStream
+import java.lang.management.ManagementFactory
+import java.lang.management.MemoryType
+import java.time.LocalDate
+import java.time.format.DateTimeFormatter
+import java.time.format.DateTimeParseException
+import java.util.Locale
+
+/**
+ * Statement ingestion benchmarks
+ *
+ * Skipped by default; run with RUN_BENCHMARKS=true ./gradlew :app:testDebugUnitTest
+ * --tests "*StatementParserBenchmarkTest*"
+ */
+class StatementParserBenchmarkTest {
+
+    @Before
+    fun requireBenchmarkFlag() {
+        assumeTrue(System.getenv("RUN_BENCHMARKS") == "true")
+    }
+
+    @Test
+    fun peakHeap_materialisedVsStreaming() {
+        for (rows in listOf(10_000, 100_000, 1_000_000)) {
+            val file = writeSbiCsv(rows)
+            try {
+                val legacyPeak = measurePeakHeap { parseMaterialised(file) }
+                val streamingPeak = measurePeakHeap { parseStreaming(file) }
+                println(
+                    "[Benchmark] rows=$rows file=${file.length() / 1024}KB " +
+                        "materialised=${legacyPeak / MB}MB streaming=${streamingPeak / MB}MB"
+                )
+            } finally {
+                file.delete()
+            }
+        }
+    }
+
+    @Test
+    fun excelReader_eventVsWorkbook() {
+        // Sample statements live in the repository root (unit tests run from the module dir)
+        val samples = File("..").listFiles { file ->
+            file.extension.equals("xls", ignoreCase = true) || file.extension.equals("xlsx", ignoreCase = true)
+        }.orEmpty()
+        assumeTrue(samples.isNotEmpty())
+
+        for (sample in samples) {
+            val bytes = sample.readBytes()
+            val workbook = measure(ITERATIONS) {
+                var rows = 0
+                ExcelReader.readRowsWithWorkbook(ByteArrayInputStream(bytes)) { rows++ }
+                rows
+            }
+            val event = measure(ITERATIONS) {
+                var rows = 0
+                ExcelReader.readRows(ByteArrayInputStream(bytes)) { rows++ }
+                rows
+            }
+            println(
+                "[Benchmark] ${sample.name}: workbook=${workbook.first / ITERATIONS}us " +
+                    "${workbook.second / ITERATIONS / 1024}KB/run, event=${event.first / ITERATIONS}us " +
+                    "${event.second / ITERATIONS / 1024}KB/run"
+            )
+        }
+    }
+
+    @Test
+    fun rowParsing_typedVsStringifiedCells() {
+        val typedRows = sbiExcelRows(ROW_COUNT)
+        // What the parser used to receive for Excel input: cells flattened to CSV text
+        val stringifiedRows = typedRows.map { RawRow.fromCsvLine(it.rowIndex, it.toCsvLine()) }
+
+        val stringified = measure(ITERATIONS) {
+            SbiStatementParser().parseRows(stringifiedRows.asSequence()).countAll()
+        }
+        val typed = measure(ITERATIONS) {
+            SbiStatementParser().parseRows(typedRows.asSequence()).countAll()
+        }
+        println(
+            "[Benchmark] rows=$ROW_COUNT stringified=${stringified.first * 1_000 / ITERATIONS / ROW_COUNT}ns/row " +
+                "${stringified.second / ITERATIONS / ROW_COUNT}B/row, typed=${typed.first * 1_000 / ITERATIONS / ROW_COUNT}ns/row " +
+                "${typed.second / ITERATIONS / ROW_COUNT}B/row"
+        )
+    }
+
+    @Test
+    fun dateParsing_formatterListVsResolver() {
+        val dates = (0 until ROW_COUNT).map { i ->
+            "%02d/%02d/2024".format((i % 28) + 1, (i / 28 % 12) + 1)
+        }
+        // The per-row loop the parsers used before: try each pattern, catch the misses
+        val formatters = listOf("d MMM yyyy", "dd MMM yyyy", "d/M/yyyy", "dd/MM/yyyy", "d-M-yyyy", "dd-MM-yyyy")
+            .map { DateTimeFormatter.ofPattern(it, Locale.ENGLISH) }
+
+        val formatterList = measure(ITERATIONS) {
+            var parsed = 0
+            for (date in dates) {
+                for (formatter in formatters) {
+                    try {
+                        LocalDate.parse(date, formatter)
+                        parsed++
+                        break
+                    } catch (e: DateTimeParseException) {
+                        // Try next format
+                    }
+                }
+            }
+            parsed
+        }
+        val resolver = measure(ITERATIONS) {
+            dates.count { StatementDateResolver.resolve(it) != null }
+        }
+        val statement = measure(ITERATIONS) {
+            SbiStatementParser().parseLines(sbiCsvLines(ROW_COUNT)).countAll()
+        }
+        println(
+            "[Benchmark] rows=$ROW_COUNT formatterList=${rowsPerSecond(formatterList.first)} rows/s, " +
+                "resolver=${rowsPerSecond(resolver.first)} rows/s, " +
+                "full SBI parse=${rowsPerSecond(statement.first)} rows/s"
+        )
+    }
+
+    @Test
+    fun amountParsing_regexVsAmountParser() {
+        val amounts = (0 until ROW_COUNT).map { i ->
+            when (i % 4) {
+                0 -> "%,d.%02d".format(Locale.ENGLISH, i * 37L, i % 100)
+                1 -> "₹ %d.%02d".format(i * 13L, i % 100)
+                2 -> "%d.%02d Cr".format(i * 7L, i % 100)
+                else -> "1,23,%03d.50".format(i % 1_000)
+            }
+        }
+
+        // The per-cell cleanup the parsers used before
+        val regex = measure(ITERATIONS) {
+            amounts.count { (it.replace(Regex("[^0-9.]"), "").toDoubleOrNull() ?: 0.0) > 0 }
+        }
+        val amountParser = measure(ITERATIONS) {
+            amounts.count { AmountParser.parsePaise(it) > 0 }
+        }
+        println(
+            "[Benchmark] cells=$ROW_COUNT regex=${regex.first * 1_000 / ITERATIONS / ROW_COUNT}ns/cell " +
+                "${regex.second / ITERATIONS / ROW_COUNT}B/cell, amountParser=" +
+                "${amountParser.first * 1_000 / ITERATIONS / ROW_COUNT}ns/cell " +
+                "${amountParser.second / ITERATIONS / ROW_COUNT}B/cell"
+        )
+    }
+
+    private fun rowsPerSecond(totalMicros: Long): Long =
+        ROW_COUNT.toLong() * ITERATIONS * 1_000_000 / maxOf(totalMicros, 1)
+
+    /**
+     * Run [block] repeatedly after a warm-up
+     * @return Total microseconds and total bytes allocated by this thread
+     */
+    private fun measure(iterations: Int, block: () -> Int): Pair<Long, Long> {
+        val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        val threadId = Thread.currentThread().id
+        val originalOut = System.out
+        System.setOut(PrintStream(NullOutputStream))
+        try {
+            repeat(iterations) { block() }
+
+            val allocatedBefore = threads.getThreadAllocatedBytes(threadId)
+            val start = System.nanoTime()
+            repeat(iterations) { block() }
+            val elapsedMicros = (System.nanoTime() - start) / 1_000
+            return elapsedMicros to threads.getThreadAllocatedBytes(threadId) - allocatedBefore
+        } finally {
+            System.setOut(originalOut)
+        }
+    }
+
+    /**
+     * The pre-streaming ingestion path: whole file as bytes, as lines, joined back
+     * into one String, re-encoded and split into lines again by the parser
+     */
+    private fun parseMaterialised(file: File): Int {
+        val bytes = file.inputStream().use { it.readBytes() }
+        val lines = BufferedReader(InputStreamReader(ByteArrayInputStream(bytes))).readLines()
+        val parser = StatementParserFactory.detectParser(ByteArrayInputStream(bytes))
+        val textData = lines.joinToString("\n")
+        return parser.parse(ByteArrayInputStream(textData.toByteArray())).transactions.size
+    }
+
+    private fun parseStreaming(file: File): Int {
+        var count = 0
+        file.inputStream().use { input ->
+            StatementParserFactory.parseStatementStreaming(input).use { stream -> stream.forEach { count++ } }
+        }
+        return count
+    }
+
+    private fun StatementStream.countAll(): Int {
+        forEach { }
+        return transactionCount
+    }
+
+    private fun measurePeakHeap(block: () -> Int): Long {
+        val pools = ManagementFactory.getMemoryPoolMXBeans().filter { it.type == MemoryType.HEAP }
+        System.gc()
+        val baseline = pools.sumOf { it.usage.used }
+        pools.forEach { it.resetPeakUsage() }
+
+        val originalOut = System.out
+        System.setOut(PrintStream(NullOutputStream))
+        try {
+            block()
+        } finally {
+            System.setOut(originalOut)
+        }
+
+        return pools.sumOf { it.peakUsage.used } - baseline
+    }
+
+    private fun writeSbiCsv(rows: Int): File {
+        val file = File.createTempFile("sbi-benchmark-", ".csv")
+        file.bufferedWriter().use { writer ->
+            sbiCsvLines(rows).forEach { line ->
+                writer.write(line)
+                writer.write("\n")
+            }
+        }
+        return file
+    }
+
+    private fun sbiCsvLines(rows: Int): Sequence<String> = sequence {
+        yield("Txn Date,Value Date,Description,Ref No./Cheque No.,Debit,Credit,Balance")
+        var balance = 10_000_000.0
+        for (i in 0 until rows) {
+            val day = (i % 28) + 1
+            val month = (i / 28 % 12) + 1
+            val amount = (i % 5_000) + 10
+            balance -= amount
+            yield(
+                "%02d/%02d/2024,%02d/%02d/2024,TO TRANSFER-UPI/DR/%012d/MERCHANT%d/SBIN/upi--,TRANSFER TO %d,%d, ,\"%.2f\""
+                    .format(day, month, day, month, i, i % 997, i, amount, balance)
+            )
+        }
+    }
+
+    /**
+     * SBI-style rows as the Excel event readers emit them: date and number cells typed
+     */
+    private fun sbiExcelRows(rows: Int): List<RawRow> {
+        val header = RawRow(
+            0,
+            listOf("Txn Date", "Value Date", "Description", "Ref No./Cheque No.", "Debit", "Credit", "Balance")
+                .map { RawCell.Text(it) }
+        )
+        var balance = 10_000_000.0
+        val data = (0 until rows).map { i ->
+            val date = LocalDate.of(2024, (i / 28 % 12) + 1, (i % 28) + 1)
+            val amount = ((i % 5_000) + 10).toDouble()
+            balance -= amount
+            RawRow(
+                i + 1,
+                listOf(
+                    RawCell.Date(date),
+                    RawCell.Date(date),
+                    RawCell.Text("TO TRANSFER-UPI/DR/%012d/MERCHANT%d/SBIN/upi--".format(i, i % 997)),
+                    RawCell.Text("TRANSFER TO $i"),
+                    RawCell.Number(amount),
+                    RawCell.Empty,
+                    RawCell.Number(balance)
+                )
+            )
+        }
+        return listOf(header) + data
+    }
+
+    private object NullOutputStream : OutputStream() {
+        override fun write(b: Int) = Unit
+    }
+
+    private companion object {
+        const val MB = 1024 * 1024
+        const val ITERATIONS = 20
+        const val ROW_COUNT = 100_000
+    }
+}
@@ -0,0 +1,186 @@
+package com.bitflow.finance.data.parser
+
+import com.bitflow.finance.domain.model.ActivityType
+import org.apache.poi.xssf.usermodel.XSSFWorkbook
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.nio.charset.StandardCharsets
+import java.time.LocalDate
+import java.util.Locale
+
+class StatementParserFactoryTest {
+
+    private val start = LocalDate.of(2024, 4, 1)
+
+    @Test
+    fun parseStatementStreaming_replaysDetectionRows() {
+        // 60 data rows: the first 39 are read during detection, the rest are streamed
+        StatementParserFactory.parseStatementStreaming(sbiCsv(preambleLines = 0, rows = 60)).use { stream ->
+            val descriptions = mutableListOf<String>()
+            stream.forEach { descriptions.add(it.description) }
+
+            assertEquals((0 until 60).map { "UPI/DR/MERCHANT $it" }, descriptions)
+            assertEquals(60, stream.transactionCount)
+        }
+    }
+
+    @Test
+    fun parseStatementStreaming_headerOnLastDetectionRow() {
+        val result = StatementParserFactory.parseStatement(sbiCsv(preambleLines = 39, rows = 5))
+
+        assertEquals((0 until 5).map { start.plusDays(it.toLong()) }, result.transactions.map { it.txnDate })
+        assertEquals(5_000L, result.transactions[2].amountPaise)
+    }
+
+    @Test
+    fun parseStatementStreaming_detectsClosingBalance() {
+        val result = StatementParserFactory.parseStatement(sbiCsv(preambleLines = 3, rows = 50))
+
+        assertEquals(50, result.transactions.size)
+        assertEquals(result.transactions.last().balanceAfterTxn, result.detectedCurrentBalance, 0.001)
+    }
+
+    @Test
+    fun parseStatementStreaming_closeStopsExcelReaderAfterEarlyAbort() {
+        // Far more rows than the reader buffers, so the reader thread is blocked on a full queue
+        val input = sbiXlsx(rows = 1_000)
+        val before = excelReaderThreads()
+
+        var consumed = 0
+        try {
+            StatementParserFactory.parseStatementStreaming(input).use { stream ->
+                stream.forEach {
+                    if (++consumed == 3) throw IllegalStateException("abort")
+                }
+            }
+        } catch (e: IllegalStateException) {
+            // Expected: the consumer gave up mid-stream
+        }
+
+        val started = excelReaderThreads() - before
+        started.forEach { it.join(5_000) }
+        assertEquals(3, consumed)
+        assertTrue("ExcelReader thread still running", started.none { it.isAlive })
+    }
+
+    @Test
+    fun latestDateBalance_ascendingUsesLastRowOfLatestDate() {
+        val balance = detect(
+            LatestDateBalanceDetector(),
+            txn(1, 1_000.0, "Opening Balance"),
+            txn(1, 900.0),
+            txn(2, 800.0),
+            txn(2, 750.0),
+            txn(3, 0.0, "Pending")
+        )
+        assertEquals(750.0, balance, 0.001)
+    }
+
+    @Test
+    fun latestDateBalance_descendingUsesFirstRowOfLatestDate() {
+        val balance = detect(
+            LatestDateBalanceDetector(),
+            txn(3, 650.0),
+            txn(3, 700.0),
+            txn(2, 800.0),
+            txn(1, 900.0),
+            txn(1, 1_000.0, "Balance B/F")
+        )
+        assertEquals(650.0, balance, 0.001)
+    }
+
+    @Test
+    fun latestDateBalance_ignoresBroughtForwardRows() {
+        val balance = detect(
+            LatestDateBalanceDetector(),
+            txn(1, 900.0),
+            txn(2, 800.0),
+            txn(5, 5_000.0, "Brought Forward")
+        )
+        assertEquals(800.0, balance, 0.001)
+    }
+
+    @Test
+    fun fileOrderBalance_followsFileOrder() {
+        assertEquals(800.0, detect(FileOrderBalanceDetector(), txn(1, 900.0), txn(2, 850.0), txn(3, 800.0)), 0.001)
+        assertEquals(900.0, detect(FileOrderBalanceDetector(), txn(3, 900.0), txn(2, 850.0), txn(1, 800.0)), 0.001)
+        // Rows without a balance are skipped
+        assertEquals(800.0, detect(FileOrderBalanceDetector(), txn(1, 900.0), txn(2, 800.0), txn(3, 0.0)), 0.001)
+    }
+
+    @Test
+    fun fileOrderBalance_sameDateUsesHighestBalance() {
+        assertEquals(950.0, detect(FileOrderBalanceDetector(), txn(1, 900.0), txn(1, 950.0), txn(1, 700.0)), 0.001)
+        assertEquals(0.0, detect(FileOrderBalanceDetector(), txn(1, 0.0)), 0.001)
+    }
+
+    private fun detect(detector: BalanceDetector, vararg transactions: ParsedTransaction): Double {
+        transactions.forEach { detector.accept(it) }
+        return detector.currentBalance()
+    }
+
+    private fun txn(day: Int, balance: Double, description: String = "UPI/DR/MERCHANT") = ParsedTransaction(
+        txnDate = start.plusDays(day.toLong()),
+        valueDate = null,
+        description = description,
+        reference = null,
+        amountPaise = 10_000L,
+        direction = ActivityType.EXPENSE,
+        balanceAfterTxnPaise = Math.round(balance * 100)
+    )
+
+    private fun excelReaderThreads(): Set<Thread> =
+        Thread.getAllStackTraces().keys.filter { it.name == "ExcelReader" }.toSet()
+
+    /**
+     * SBI-style XLSX: the header, then one debit per day with text dates
+     */
+    private fun sbiXlsx(rows: Int): ByteArrayInputStream {
+        val bytes = ByteArrayOutputStream()
+        XSSFWorkbook().use { workbook ->
+            val sheet = workbook.createSheet("Statement")
+            val header = listOf("Txn Date", "Value Date", "Description", "Ref No./Cheque No.", "Debit", "Credit", "Balance")
+            val headerRow = sheet.createRow(0)
+            header.forEachIndexed { column, title -> headerRow.createCell(column).setCellValue(title) }
+            var balance = 1_000_000.0
+            for (i in 0 until rows) {
+                val date = "%02d/%02d/%d".format(Locale.ENGLISH, 1 + i % 28, 1 + i / 28 % 12, 2024)
+                balance -= 100.0
+                val row = sheet.createRow(i + 1)
+                row.createCell(0).setCellValue(date)
+                row.createCell(1).setCellValue(date)
+                row.createCell(2).setCellValue("UPI/DR/MERCHANT $i")
+                row.createCell(3).setCellValue("REF$i")
+                row.createCell(4).setCellValue(100.0)
+                row.createCell(6).setCellValue(balance)
+            }
+            workbook.write(bytes)
+        }
+        return ByteArrayInputStream(bytes.toByteArray())
+    }
+
+    /**
+     * SBI-style CSV: [preambleLines] account details, the header, then one debit per day
+     */
+    private fun sbiCsv(preambleLines: Int, rows: Int): ByteArrayInputStream {
+        val csv = StringBuilder()
+        repeat(preambleLines) { csv.append("Account Detail $it      :,value $it,,,,,\n") }
+        csv.append("Txn Date,Value Date,Description,Ref No./Cheque No.,Debit,Credit,Balance\n")
+        var balance = 100_000.0
+        for (i in 0 until rows) {
+            val date = start.plusDays(i.toLong())
+            val amount = i * 10 + 30
+            balance -= amount
+            csv.append(
+                "%02d/%02d/%d,%02d/%02d/%d,UPI/DR/MERCHANT %d,REF%d,%d, ,\"%.2f\"\n".format(
+                    Locale.ENGLISH, date.dayOfMonth, date.monthValue, date.year, date.dayOfMonth, date.monthValue, date.year,
+                    i, i, amount, balance
+                )
+            )
+        }
+        return ByteArrayInputStream(csv.toString().toByteArray(StandardCharsets.UTF_8))
+    }
+}
@@ -0,0 +1,65 @@
+package com.bitflow.finance.data.repository
+
+import com.bitflow.finance.domain.model.CategoryLearningRule
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertSame
+import org.junit.Test
+
+class LearningRuleCacheTest {
+
+    private val stored = mutableMapOf(
+        "alice" to mutableListOf(rule(1, "swiggy", 10), rule(2, "netflix", 20)),
+        "bob" to mutableListOf(rule(3, "swiggy", 30))
+    )
+    private var loads = 0
+
+    private fun load(userId: String): suspend () -> List<CategoryLearningRule> = {
+        loads++
+        stored.getValue(userId).toList()
+    }
+
+    @Test
+    fun find_loadsOncePerUser() = runBlocking {
+        val cache = LearningRuleCache()
+
+        assertEquals(10L, cache.find("alice", "swiggy", load("alice"))?.categoryId)
+        assertEquals(20L, cache.find("alice", "netflix", load("alice"))?.categoryId)
+        assertNull(cache.find("alice", "zomato", load("alice")))
+
+        assertEquals(1, loads)
+        assertEquals(1L, cache.missCount)
+        assertEquals(2L, cache.hitCount)
+    }
+
+    @Test
+    fun find_userSwitchReloads() = runBlocking {
+        val cache = LearningRuleCache()
+
+        assertEquals(10L, cache.find("alice", "swiggy", load("alice"))?.categoryId)
+        assertEquals(30L, cache.find("bob", "swiggy", load("bob"))?.categoryId)
+        assertNull(cache.find("bob", "netflix", load("bob")))
+
+        assertEquals(2, loads)
+    }
+
+    @Test
+    fun write_updatesLoadedRulesAndMatcher() = runBlocking {
+        val cache = LearningRuleCache()
+        val before = cache.matcher("alice", load("alice"))
+
+        val added = rule(4, "zomato", 40)
+        cache.write("alice", block = { stored.getValue("alice").add(added); added.id }, update = { rules, _ -> rules + added })
+
+        assertEquals(40L, cache.find("alice", "zomato", load("alice"))?.categoryId)
+        val after = cache.matcher("alice", load("alice"))
+        assertEquals(40L, after.bestMatch("UPI/DR/123/ZOMATO/YESB/upi")?.categoryId)
+        assertSame(after, cache.matcher("alice", load("alice")))
+        assertNull(before.bestMatch("UPI/DR/123/ZOMATO/YESB/upi"))
+        assertEquals(1, loads)
+    }
+
+    private fun rule(id: Long, pattern: String, categoryId: Long) =
+        CategoryLearningRule(id = id, descriptionPattern = pattern, categoryId = categoryId)
+}
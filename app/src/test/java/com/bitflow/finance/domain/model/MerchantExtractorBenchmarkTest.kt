@@ -0,0 +1,120 @@
+package com.bitflow.finance.domain.model
+
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import kotlin.random.Random
+
+/**
+ * Merchant extraction throughput: per-call Regex normalisation vs MerchantExtractor
+ *
+ * Skipped by default; run with RUN_BENCHMARKS=true ./gradlew :app:testDebugUnitTest
+ * --tests "*MerchantExtractorBenchmarkTest*"
+ */
+class MerchantExtractorBenchmarkTest {
+
+    @Before
+    fun requireBenchmarkFlag() {
+        assumeTrue(System.getenv("RUN_BENCHMARKS") == "true")
+    }
+
+    @Test
+    fun extraction_regexVsTokenizer() {
+        // Unique narrations, far more than the cache holds: every extract() is a miss
+        val unique = descriptions(DESCRIPTIONS)
+        // A subscription rescan: the same few hundred narrations again and again
+        val repeated = List(DESCRIPTIONS) { unique[it % 500] }
+
+        repeat(3) {
+            unique.take(5_000).forEach {
+                legacyExtractPattern(it)
+                legacyExtractMerchantName(it)
+                MerchantExtractor.extract(it)
+            }
+        }
+
+        val pattern = time { unique.count { legacyExtractPattern(it).isNotEmpty() } }
+        val merchantName = time { unique.count { legacyExtractMerchantName(it).isNotEmpty() } }
+        val cold = time { unique.count { MerchantExtractor.extract(it).isNotEmpty() } }
+        val warm = time { repeated.count { MerchantExtractor.extract(it).isNotEmpty() } }
+
+        println(
+            "[Benchmark] descriptions=$DESCRIPTIONS extractPattern=${pattern}ms extractMerchantName=${merchantName}ms " +
+                "extractor=${cold}ms extractor(cached)=${warm}ms"
+        )
+    }
+
+    private inline fun time(block: () -> Int): Long {
+        val start = System.nanoTime()
+        block()
+        return (System.nanoTime() - start) / 1_000_000
+    }
+
+    /**
+     * What AutoLearnCategoryUseCase.extractPattern did per call
+     */
+    private fun legacyExtractPattern(description: String): String {
+        val cleaned = description
+            .replace(Regex("UPI/(CR|DR)/\\d+/"), "")
+            .replace(Regex("/BKID/.*"), "")
+            .replace(Regex("/PYTM/.*"), "")
+            .replace(Regex("/HDFC/.*"), "")
+            .replace(Regex("/SBIN/.*"), "")
+            .replace(Regex("/YESB/.*"), "")
+            .replace(Regex("/IBKL/.*"), "")
+            .replace(Regex("/UBIN/.*"), "")
+            .replace(Regex("/FDRL/.*"), "")
+            .replace(Regex("/AIRP/.*"), "")
+            .replace(Regex("/UTIB/.*"), "")
+            .trim()
+            .split("/")
+            .firstOrNull { it.length > 3 }
+            ?: ""
+        return cleaned.lowercase().take(20)
+    }
+
+    /**
+     * What DetectSubscriptionsUseCase.extractMerchantName did per call
+     */
+    private fun legacyExtractMerchantName(description: String): String {
+        val patterns = listOf(
+            Regex("(?:UPI/(?:CR|DR)/\\d+/)([^/]+)"),
+            Regex("(?:OTHPG|SBIPG|OTHPOS)\\s+\\w+\\s+(.+?)\\s+[A-Z]{2,}"),
+            Regex("(?:ATM WDL-)(.+?)\\s{2,}"),
+        )
+        for (pattern in patterns) {
+            val match = pattern.find(description)
+            if (match != null && match.groupValues.size > 1) {
+                return match.groupValues[1].trim().lowercase()
+            }
+        }
+        return description.split("/", " ").firstOrNull { it.length > 3 }?.trim()?.lowercase() ?: ""
+    }
+
+    /**
+     * Narrations in the UPI, IMPS, NEFT and card formats of the sample statements
+     */
+    private fun descriptions(count: Int): List<String> {
+        val random = Random(22)
+        return List(count) { i ->
+            val merchant = MERCHANTS[random.nextInt(MERCHANTS.size)]
+            val reference = 400_000_000_000L + random.nextLong(99_999_999_999L)
+            when (i % 5) {
+                0 -> "TO TRANSFER-UPI/DR/$reference/$merchant/YESB/q${reference % 10_000}@ybl/UPI--"
+                1 -> "UPI/$reference/DR/${merchant.take(4)}/UTIB/${merchant.lowercase()}@axl"
+                2 -> "IMPS-$reference-$merchant-SBIN0001857-XXXXXXX${reference % 10_000}-SALARY"
+                3 -> "NEFT CR-AXISCN$reference-$merchant --UTIB0001506-PAYOUT"
+                else -> "VDE-6845-${reference % 100_000_000}   -${merchant.padEnd(25).take(25)}MUMBAI       IN"
+            }
+        }
+    }
+
+    private companion object {
+        const val DESCRIPTIONS = 100_000
+
+        val MERCHANTS = listOf(
+            "SWIGGY", "ZOMATO", "AMAZON PAY INDIA PRIVATE", "NETFLIX", "RAZORPAY SOFTWARE PRIVATE LIMITED",
+            "TATA PLAY LIMITED", "Mr KANHA", "PRATIK KALIDAS CHAVAN", "GOOGLE PLAY", "IRCTC", "BLINKIT", "ZEPTO"
+        )
+    }
+}
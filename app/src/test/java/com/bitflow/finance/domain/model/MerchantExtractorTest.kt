@@ -0,0 +1,56 @@
+package com.bitflow.finance.domain.model
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class MerchantExtractorTest {
+
+    /**
+     * Every narration in merchant_extraction_golden.tsv (taken from the sample
+     * statements in the repository root) extracts to its recorded merchant
+     */
+    @Test
+    fun extract_sampleStatements_matchGoldenFile() {
+        val rows = golden()
+        assertTrue(rows.size > 300)
+
+        val mismatches = rows.mapNotNull { (description, merchant) ->
+            val actual = MerchantExtractor.extract(description)
+            if (actual == merchant) null else "$description\n  expected '$merchant', got '$actual'"
+        }
+        assertTrue("${mismatches.size} mismatches:\n" + mismatches.joinToString("\n"), mismatches.isEmpty())
+    }
+
+    @Test
+    fun extract_isSubstringOfDescription() {
+        // Learning rules are matched back with contains(), so the pattern must occur in the text
+        golden().forEach { (description, _) ->
+            val merchant = MerchantExtractor.extract(description)
+            assertTrue(description, description.lowercase().contains(merchant))
+        }
+    }
+
+    @Test
+    fun extract_channels() {
+        assertEquals("swiggy", MerchantExtractor.extract("TO TRANSFER-UPI/DR/409374856309/SWIGGY/YESB/swiggy@yes/Debit M--"))
+        assertEquals("razorpay softwar", MerchantExtractor.extract("BY TRANSFER-NEFT*HDFC0000001*N325240123456*RAZORPAY SOFTWAR--"))
+        assertEquals("bloombay enterprises ppune", MerchantExtractor.extract("by debit card-OTHPOS409308815279BLOOMBAY ENTERPRISES PPUNE--"))
+        assertEquals("andheri east", MerchantExtractor.extract("ATM WDL-ANDHERI EAST  MUMBAI"))
+        assertEquals("swiggy dinner", MerchantExtractor.extract("Swiggy dinner"))
+        assertEquals("", MerchantExtractor.extract("   "))
+    }
+
+    @Test
+    fun normalise_dropsPunctuationAndCollapsesSpaces() {
+        assertEquals("razirctc", MerchantExtractor.normalise(" RAZ*IRCTC "))
+        assertEquals("github inc", MerchantExtractor.normalise("GitHub,   Inc."))
+    }
+
+    private fun golden(): List<Pair<String, String>> {
+        val stream = javaClass.classLoader!!.getResourceAsStream("merchant_extraction_golden.tsv")!!
+        return stream.bufferedReader().readLines()
+            .filter { it.isNotEmpty() && !it.startsWith("#") }
+            .map { line -> line.substringBefore('\t') to line.substringAfter('\t') }
+    }
+}
@@ -0,0 +1,121 @@
+package com.bitflow.finance.domain.model
+
+import org.junit.Assert.assertEquals
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import kotlin.random.Random
+
+/**
+ * Learning-rule matching benchmark: contains() per rule vs MerchantPatternMatcher
+ *
+ * Skipped by default; run with RUN_BENCHMARKS=true ./gradlew :app:testDebugUnitTest
+ * --tests "*MerchantPatternMatcherBenchmarkTest*"
+ */
+class MerchantPatternMatcherBenchmarkTest {
+
+    @Before
+    fun requireBenchmarkFlag() {
+        assumeTrue(System.getenv("RUN_BENCHMARKS") == "true")
+    }
+
+    @Test
+    fun matcher_agreesWithContainsScan() {
+        val rules = rules(RULES)
+        val matcher = MerchantPatternMatcher(rules)
+        descriptions(5_000).forEachIndexed { index, description ->
+            assertEquals("row $index: $description", containsScan(rules, description), matcher.bestMatch(description))
+        }
+    }
+
+    @Test
+    fun matcher_rulesTimesDescriptions() {
+        val rules = rules(RULES)
+        val descriptions = descriptions(DESCRIPTIONS)
+        repeat(3) {
+            val warmUp = MerchantPatternMatcher(rules)
+            descriptions.take(5_000).forEach { description ->
+                warmUp.bestMatch(description)
+                containsScan(rules, description)
+            }
+        }
+
+        var start = System.nanoTime()
+        val matcher = MerchantPatternMatcher(rules)
+        val buildMillis = (System.nanoTime() - start) / 1_000_000
+        start = System.nanoTime()
+        val matched = descriptions.count { matcher.bestMatch(it) != null }
+        val matcherMillis = (System.nanoTime() - start) / 1_000_000
+
+        start = System.nanoTime()
+        val scanMatched = descriptions.count { containsScan(rules, it) != null }
+        val scanMillis = (System.nanoTime() - start) / 1_000_000
+
+        assertEquals(scanMatched, matched)
+        println(
+            "[Benchmark] rules=$RULES descriptions=$DESCRIPTIONS matched=$matched " +
+                "containsScan=${scanMillis}ms matcher=${matcherMillis}ms (build ${buildMillis}ms)"
+        )
+    }
+
+    /**
+     * What AutoLearnCategoryUseCase did per description before the automaton
+     */
+    private fun containsScan(rules: List<CategoryLearningRule>, description: String): CategoryLearningRule? =
+        rules.filter { description.contains(it.descriptionPattern, ignoreCase = true) }
+            .maxByOrNull { it.confidenceScore }
+
+    /**
+     * Merchant-like patterns as extractPattern leaves them, with overlapping prefixes
+     * and suffixes ("swiggy", "swiggyinstamart", "instamart") and repeated confidences
+     */
+    private fun rules(count: Int): List<CategoryLearningRule> {
+        val random = Random(21)
+        return List(count) { i ->
+            val base = MERCHANTS[i % MERCHANTS.size]
+            val pattern = when (i % 4) {
+                0 -> base
+                1 -> "$base${i / MERCHANTS.size}"
+                2 -> "${MERCHANTS[(i * 7) % MERCHANTS.size]}$base"
+                else -> "$base ${syllables(random, 2)}"
+            }
+            CategoryLearningRule(
+                id = i.toLong(),
+                descriptionPattern = pattern,
+                categoryId = (i % 40).toLong(),
+                confidenceScore = (5 + random.nextInt(6)) / 10f
+            )
+        }
+    }
+
+    /**
+     * Statement descriptions in the UPI and card formats the parsers produce
+     */
+    private fun descriptions(count: Int): List<String> {
+        val random = Random(50)
+        return List(count) { i ->
+            val merchant = if (i % 3 == 0) syllables(random, 3) else MERCHANTS[random.nextInt(MERCHANTS.size)] +
+                if (i % 2 == 0) "" else "${random.nextInt(600)}"
+            when (i % 3) {
+                0 -> "UPI/DR/%012d/%s/SBIN/upi".format(i, merchant.uppercase())
+                1 -> "POS %s BANGALORE IN %06d".format(merchant.uppercase(), i)
+                else -> "NEFT CR-%s-%08d".format(merchant, i)
+            }
+        }
+    }
+
+    private fun syllables(random: Random, count: Int): String =
+        (0 until count).joinToString("") { SYLLABLES[random.nextInt(SYLLABLES.size)] }
+
+    private companion object {
+        const val RULES = 2_000
+        const val DESCRIPTIONS = 50_000
+
+        val MERCHANTS = listOf(
+            "swiggy", "zomato", "instamart", "netflix", "amazon", "flipkart", "uber", "ola", "rapido",
+            "bigbasket", "zepto", "blinkit", "myntra", "nykaa", "irctc", "makemytrip", "airtel", "jio",
+            "bescom", "hpcl", "iocl", "apollo", "medplus", "decathlon", "dmart", "reliance", "spotify"
+        )
+        val SYLLABLES = listOf("ka", "ri", "mo", "ta", "ne", "shi", "ra", "pu", "lo", "van", "de", "gi")
+    }
+}
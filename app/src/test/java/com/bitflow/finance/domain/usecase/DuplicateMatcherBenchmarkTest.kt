@@ -0,0 +1,169 @@
+package com.bitflow.finance.domain.usecase
+
+import com.bitflow.finance.domain.model.Activity
+import com.bitflow.finance.domain.model.ActivityType
+import com.bitflow.finance.domain.model.Money
+import com.bitflow.finance.domain.model.StoredReference
+import com.bitflow.finance.domain.model.TransactionReference
+import com.bitflow.finance.domain.usecase.DetectDuplicatesUseCase.DuplicateCheckResult
+import com.bitflow.finance.domain.usecase.DetectDuplicatesUseCase.MatchType
+import org.junit.Assert.assertEquals
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import java.time.LocalDate
+import java.time.temporal.ChronoUnit
+
+/**
+ * Statement duplicate detection benchmark: full scan with full Levenshtein vs DuplicateMatcher
+ *
+ * Skipped by default; run with RUN_BENCHMARKS=true ./gradlew :app:testDebugUnitTest
+ * --tests "*DuplicateMatcherBenchmarkTest*"
+ */
+class DuplicateMatcherBenchmarkTest {
+
+    @Before
+    fun requireBenchmarkFlag() {
+        assumeTrue(System.getenv("RUN_BENCHMARKS") == "true")
+    }
+
+    @Test
+    fun matcher_agreesWithFullScan() {
+        // The full scan is quadratic, so agreement is checked on a small account
+        val existing = existing(2_000)
+        val incoming = incoming(existing, 300)
+        val matcher = DuplicateMatcher(existing, storedReferences(existing))
+
+        incoming.forEachIndexed { index, candidate ->
+            val expected = fullScan(existing, candidate)
+            val actual = matcher.check(candidate.activityDate, Money.toPaise(candidate.amount), candidate.description, candidate.reference)
+            assertEquals("row $index: ${candidate.description}", expected, actual)
+        }
+    }
+
+    @Test
+    fun matcher_statementAgainstLargeAccount() {
+        val existing = existing(EXISTING_ROWS)
+        val incoming = incoming(existing, INCOMING_ROWS)
+
+        // Warm up on a slice, then measure building plus checking the whole statement
+        val warmUp = DuplicateMatcher(existing.subList(0, 10_000), storedReferences(existing.subList(0, 10_000)))
+        incoming.forEach { warmUp.check(it.activityDate, Money.toPaise(it.amount), it.description, it.reference) }
+
+        val start = System.nanoTime()
+        val matcher = DuplicateMatcher(existing, storedReferences(existing))
+        val buildMillis = (System.nanoTime() - start) / 1_000_000
+        val counts = IntArray(MatchType.values().size + 1)
+        incoming.forEach {
+            val result = matcher.check(it.activityDate, Money.toPaise(it.amount), it.description, it.reference)
+            counts[result.matchType?.ordinal ?: MatchType.values().size]++
+        }
+        val totalMillis = (System.nanoTime() - start) / 1_000_000
+
+        println(
+            "[Benchmark] existing=$EXISTING_ROWS incoming=$INCOMING_ROWS build=${buildMillis}ms " +
+                "total=${totalMillis}ms exact=${counts[MatchType.EXACT.ordinal]} " +
+                "reference=${counts[MatchType.REFERENCE.ordinal]} close=${counts[MatchType.CLOSE.ordinal]} " +
+                "new=${counts[MatchType.values().size]}"
+        )
+    }
+
+    /**
+     * The strategies as DetectDuplicatesUseCase ran them before bucketing
+     */
+    private fun fullScan(existing: List<Activity>, candidate: Activity): DuplicateCheckResult {
+        val exactKey = "${candidate.activityDate}|${candidate.amount}|${candidate.description}"
+        if (existing.any { "${it.activityDate}|${it.amount}|${it.description}" == exactKey }) {
+            return DuplicateCheckResult(true, MatchType.EXACT, 1.0)
+        }
+        val reference = candidate.reference
+        if (!reference.isNullOrBlank() &&
+            existing.any { !it.reference.isNullOrBlank() && it.reference.equals(reference, ignoreCase = true) }
+        ) {
+            return DuplicateCheckResult(true, MatchType.REFERENCE, 0.95)
+        }
+        val close = existing.any {
+            Math.abs(ChronoUnit.DAYS.between(it.activityDate, candidate.activityDate)) <= 1 &&
+                Math.abs(it.amount - candidate.amount) < 0.01 &&
+                similarity(it.description, candidate.description) > 0.8
+        }
+        if (close) return DuplicateCheckResult(true, MatchType.CLOSE, 0.85)
+        return DuplicateCheckResult(false, null, 0.0)
+    }
+
+    private fun similarity(s1: String, s2: String): Double {
+        val a = s1.lowercase().trim()
+        val b = s2.lowercase().trim()
+        if (a == b) return 1.0
+        if (a.isEmpty() || b.isEmpty()) return 0.0
+        val dp = Array(a.length + 1) { IntArray(b.length + 1) }
+        for (i in 0..a.length) dp[i][0] = i
+        for (j in 0..b.length) dp[0][j] = j
+        for (i in 1..a.length) {
+            for (j in 1..b.length) {
+                val cost = if (a[i - 1] == b[j - 1]) 0 else 1
+                dp[i][j] = minOf(dp[i - 1][j] + 1, dp[i][j - 1] + 1, dp[i - 1][j - 1] + cost)
+            }
+        }
+        return 1.0 - dp[a.length][b.length].toDouble() / maxOf(a.length, b.length)
+    }
+
+    /**
+     * What the reference index lookup returns for these rows
+     */
+    private fun storedReferences(existing: List<Activity>) = StoredReferences(
+        existing.mapNotNull { activity ->
+            TransactionReference.normalise(activity.reference)?.let { StoredReference(it, activity.activityDate, Money.toPaise(activity.amount), activity.type) }
+        }
+    )
+
+    private fun existing(count: Int): List<Activity> {
+        val start = LocalDate.of(2020, 1, 1)
+        return (0 until count).map { i ->
+            activity(
+                date = start.plusDays((i / 20).toLong()),
+                amount = (i % 500) * 10 + 10 + (i % 7) / 100.0,
+                description = "UPI/DR/%012d/MERCHANT%d/SBIN/upi".format(i, i % 97),
+                reference = if (i % 3 == 0) "%012d".format(i) else null
+            )
+        }
+    }
+
+    /**
+     * A statement that mixes exact repeats, near repeats (shifted a day, one field
+     * edited), reused references and new rows
+     */
+    private fun incoming(existing: List<Activity>, count: Int): List<Activity> {
+        val lastDate = existing.last().activityDate
+        return (0 until count).map { i ->
+            val source = existing[(i * 7919) % existing.size]
+            when (i % 5) {
+                0 -> source
+                1 -> source.copy(
+                    activityDate = source.activityDate.plusDays(1),
+                    description = source.description.replace("SBIN", "HDFC"),
+                    reference = null
+                )
+                2 -> source.copy(description = "NEFT CR ${source.description.reversed()}", reference = null)
+                3 -> activity(lastDate.plusDays(1 + i / 50L), 123.45 + i, "POS/NEW MERCHANT $i", "REF%08d".format(i * 3))
+                else -> activity(lastDate.plusDays(1 + i / 50L), 99.0 + i, "ATM WDL $i", null)
+            }
+        }
+    }
+
+    private fun activity(date: LocalDate, amount: Double, description: String, reference: String?) = Activity(
+        accountId = 1,
+        activityDate = date,
+        valueDate = null,
+        description = description,
+        reference = reference,
+        amount = amount,
+        type = ActivityType.EXPENSE,
+        categoryId = null
+    )
+
+    private companion object {
+        const val EXISTING_ROWS = 200_000
+        const val INCOMING_ROWS = 5_000
+    }
+}
@@ -0,0 +1,121 @@
+package com.bitflow.finance.domain.usecase
+
+import android.content.Context
+import com.bitflow.finance.data.parser.ParsedTransaction
+import com.bitflow.finance.data.parser.SbiStatementParser
+import com.bitflow.finance.data.parser.StatementParser
+import com.bitflow.finance.domain.model.Activity
+import com.bitflow.finance.domain.model.Money
+import com.bitflow.finance.domain.model.StoredReference
+import com.bitflow.finance.domain.model.TransactionReference
+import com.bitflow.finance.domain.repository.AccountRepository
+import com.bitflow.finance.domain.repository.TransactionRepository
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.InputStream
+import java.lang.reflect.Proxy
+import java.time.LocalDate
+
+class ImportStatementUseCaseTest {
+
+    private val stored = mutableListOf<Activity>()
+    private val useCase = ImportStatementUseCase(SbiCsvParser(), FakeTransactionRepository(stored), FakeAccountRepository())
+
+    @Test
+    fun sharedPoolReference_doesNotMakeRowsDuplicates() = runBlocking {
+        // SBI's Ref column names the pooled transfer account, shared by unrelated UPI payments
+        val first = useCase(ACCOUNT_ID, statement(
+            "02-Apr-24,02-Apr-24,TO TRANSFER-UPI/DR/409374856309/SWIGGY/YESB/swiggy@yes/Debit M--,TRANSFER TO 4897691162095,162, ,936.3"
+        ))
+        val second = useCase(ACCOUNT_ID, statement(
+            "05-Apr-24,05-Apr-24,TO TRANSFER-UPI/DR/409323508043/Mr KANHA/CBIN/q872849215/UPI--,TRANSFER TO 4897691162095,162, ,774.3",
+            "06-Apr-24,06-Apr-24,TO TRANSFER-UPI/DR/409611223344/ZOMATO/YESB/zomato@yes/UPI--,TRANSFER TO 4897691162095,162, ,612.3"
+        ))
+
+        assertEquals(1, first.importedCount)
+        assertEquals(2, second.importedCount)
+        assertEquals(0, second.skippedCount)
+        assertEquals(3, stored.size)
+    }
+
+    @Test
+    fun transactionReference_catchesReformattedReimport() = runBlocking {
+        useCase(ACCOUNT_ID, statement(
+            "02-Apr-24,02-Apr-24,UPI/DR/409374856309/SWIGGY,409374856309,162, ,936.3"
+        ))
+        val reimport = useCase(ACCOUNT_ID, statement(
+            "02-Apr-24,02-Apr-24,UPI-DR-409374856309-SWIGGY-YESB,409374856309,162, ,936.3",
+            "02-Apr-24,02-Apr-24,UPI/DR/409374856310/SWIGGY,409374856310,162, ,774.3"
+        ))
+
+        assertEquals(1, reimport.importedCount)
+        assertEquals(1, reimport.skippedCount)
+    }
+
+    @Test
+    fun transactionReference_respectsOccurrenceOrdinal() = runBlocking {
+        val row = "02-Apr-24,02-Apr-24,UPI/DR/409374856309/SWIGGY,409374856309,162, ,936.3"
+        useCase(ACCOUNT_ID, statement(row))
+        // One copy is stored, the statement now lists it twice (reformatted): only the second is new
+        val reimport = useCase(ACCOUNT_ID, statement(
+            "02-Apr-24,02-Apr-24,UPI DR 409374856309 SWIGGY,409374856309,162, ,936.3",
+            "02-Apr-24,02-Apr-24,UPI DR 409374856309 SWIGGY,409374856309,162, ,774.3"
+        ))
+
+        assertEquals(1, reimport.importedCount)
+        assertEquals(1, reimport.skippedCount)
+    }
+
+    private fun statement(vararg rows: String): InputStream =
+        (listOf(HEADER) + rows).joinToString("\n").byteInputStream()
+
+    private class SbiCsvParser : StatementParser {
+        override suspend fun parse(inputStream: InputStream): List<ParsedTransaction> =
+            SbiStatementParser().parseLines(inputStream.bufferedReader().lineSequence()).toParseResult().transactions
+
+        override fun initialize(context: Context) = Unit
+    }
+
+    /**
+     * The repository calls an import makes, over an in-memory table
+     */
+    private class FakeTransactionRepository(
+        private val stored: MutableList<Activity>
+    ) : TransactionRepository by unsupported() {
+
+        override suspend fun findTransactionsByFingerprint(fingerprints: Collection<Long>): List<Activity> =
+            stored.filter { it.fingerprint in fingerprints }
+
+        override suspend fun findReferenceMatches(accountId: Long, references: Collection<String?>): List<StoredReference> {
+            val normalised = references.mapNotNullTo(HashSet()) { TransactionReference.normalise(it) }
+            return stored.mapNotNull { activity ->
+                TransactionReference.normalise(activity.reference)
+                    ?.takeIf { activity.accountId == accountId && it in normalised }
+                    ?.let { StoredReference(it, activity.activityDate, Money.toPaise(activity.amount), activity.type) }
+            }
+        }
+
+        override suspend fun insertTransactions(transactions: List<Activity>): Int {
+            stored.addAll(transactions)
+            return transactions.size
+        }
+    }
+
+    private class FakeAccountRepository : AccountRepository by unsupported() {
+        override suspend fun reconcileBalance(accountId: Long, date: LocalDate, statementBalance: Double): Double = 0.0
+    }
+
+    private companion object {
+        const val ACCOUNT_ID = 7L
+        const val HEADER = "Txn Date,Value Date,Description,Ref No./Cheque No.,Debit,Credit,Balance"
+
+        /**
+         * Implementation whose every call fails; fakes override what the test uses
+         */
+        inline fun <reified T> unsupported(): T = Proxy.newProxyInstance(
+            T::class.java.classLoader,
+            arrayOf(T::class.java)
+        ) { _, method, _ -> throw UnsupportedOperationException(method.name) } as T
+    }
+}
@@ -0,0 +1,45 @@
+package com.bitflow.finance.domain.usecase
+
+import com.bitflow.finance.domain.model.Activity
+import com.bitflow.finance.domain.model.ActivityType
+import com.bitflow.finance.domain.model.TransactionFingerprint
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.time.LocalDate
+
+class StoredFingerprintsTest {
+
+    @Test
+    fun count_repeatedStoredRows() {
+        val charge = activity("ATM CHARGES")
+        val stored = StoredFingerprints(listOf(charge, charge.copy(id = 2), activity("SMS CHARGES")))
+
+        assertEquals(2, stored.count(activity("atm  charges ")))
+        assertEquals(0, stored.count(activity("ATM CHARGES", amount = 21.0)))
+    }
+
+    @Test
+    fun count_confirmsFieldsBehindTheFingerprint() {
+        // A stored row sharing the 64-bit fingerprint but not the content is not a copy
+        val incoming = activity("NETFLIX")
+        val collision = activity("SPOTIFY").copy(fingerprint = incoming.fingerprint)
+
+        assertEquals(0, StoredFingerprints(listOf(collision)).count(incoming))
+        assertEquals(1, StoredFingerprints(listOf(collision, incoming)).count(incoming))
+    }
+
+    private fun activity(description: String, amount: Double = 17.7): Activity {
+        val activity = Activity(
+            id = 1,
+            accountId = 1,
+            activityDate = LocalDate.of(2024, 3, 15),
+            valueDate = null,
+            description = description,
+            reference = null,
+            amount = amount,
+            type = ActivityType.EXPENSE,
+            categoryId = null
+        )
+        return activity.copy(fingerprint = TransactionFingerprint.of(activity))
+    }
+}
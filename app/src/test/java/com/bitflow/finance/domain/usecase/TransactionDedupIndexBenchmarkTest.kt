@@ -0,0 +1,101 @@
+package com.bitflow.finance.domain.usecase
+
+import com.bitflow.finance.domain.model.Activity
+import com.bitflow.finance.domain.model.ActivityType
+import org.junit.Assert.assertEquals
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import java.lang.management.ManagementFactory
+import java.time.LocalDate
+
+/**
+ * Import dedup index benchmark: "date|amount|description" String set vs TransactionDedupIndex
+ *
+ * Skipped by default; run with RUN_BENCHMARKS=true ./gradlew :app:testDebugUnitTest
+ * --tests "*TransactionDedupIndexBenchmarkTest*"
+ */
+class TransactionDedupIndexBenchmarkTest {
+
+    @Before
+    fun requireBenchmarkFlag() {
+        assumeTrue(System.getenv("RUN_BENCHMARKS") == "true")
+    }
+
+    @Test
+    fun dedup_stringSetVsPrimitiveIndex() {
+        val existing = activities(EXISTING_ROWS, offset = 0)
+        // Half of the incoming statement overlaps the existing rows
+        val incoming = activities(INCOMING_ROWS, offset = EXISTING_ROWS - INCOMING_ROWS / 2)
+
+        var stringSet: Set<String>? = null
+        val stringSetBytes = retainedBytes {
+            stringSet = existing.map { "${it.activityDate}|${it.amount}|${it.description}" }.toSet()
+        }
+        var index: TransactionDedupIndex? = null
+        val indexBytes = retainedBytes { index = TransactionDedupIndex.of(existing) }
+
+        val stringLookup = measure {
+            incoming.count { "${it.activityDate}|${it.amount}|${it.description}" in stringSet!! }
+        }
+        val indexLookup = measure { incoming.count { index!!.contains(it) } }
+
+        assertEquals(stringLookup.result, indexLookup.result)
+        println(
+            "[Benchmark] existing=$EXISTING_ROWS stringSet=${stringSetBytes / EXISTING_ROWS}B/row " +
+                "index=${indexBytes / EXISTING_ROWS}B/row; lookups=$INCOMING_ROWS " +
+                "stringSet=${stringLookup.micros}us ${stringLookup.allocatedBytes / 1024}KB " +
+                "index=${indexLookup.micros}us ${indexLookup.allocatedBytes / 1024}KB"
+        )
+    }
+
+    private class Measurement(val result: Int, val micros: Long, val allocatedBytes: Long)
+
+    /**
+     * Run [block] once to warm up, then once measured
+     */
+    private fun measure(block: () -> Int): Measurement {
+        val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        val threadId = Thread.currentThread().id
+        block()
+
+        val allocatedBefore = threads.getThreadAllocatedBytes(threadId)
+        val start = System.nanoTime()
+        val result = block()
+        val micros = (System.nanoTime() - start) / 1_000
+        return Measurement(result, micros, threads.getThreadAllocatedBytes(threadId) - allocatedBefore)
+    }
+
+    /**
+     * Heap still in use after [block] once garbage has been collected
+     */
+    private fun retainedBytes(block: () -> Unit): Long {
+        val runtime = Runtime.getRuntime()
+        System.gc()
+        val before = runtime.totalMemory() - runtime.freeMemory()
+        block()
+        System.gc()
+        return runtime.totalMemory() - runtime.freeMemory() - before
+    }
+
+    private fun activities(count: Int, offset: Int): List<Activity> {
+        val start = LocalDate.of(2020, 1, 1)
+        return (offset until offset + count).map { i ->
+            Activity(
+                accountId = 1,
+                activityDate = start.plusDays((i / 20).toLong()),
+                valueDate = null,
+                description = "TO TRANSFER-UPI/DR/%012d/MERCHANT%d/SBIN/upi--".format(i, i % 997),
+                reference = null,
+                amount = (i % 5_000) + 10 + (i % 100) / 100.0,
+                type = ActivityType.EXPENSE,
+                categoryId = null
+            )
+        }
+    }
+
+    private companion object {
+        const val EXISTING_ROWS = 200_000
+        const val INCOMING_ROWS = 20_000
+    }
+}
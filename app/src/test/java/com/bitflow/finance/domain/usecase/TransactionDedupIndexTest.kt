@@ -0,0 +1,64 @@
+package com.bitflow.finance.domain.usecase
+
+import com.bitflow.finance.domain.model.Activity
+import com.bitflow.finance.domain.model.ActivityType
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.time.LocalDate
+
+class TransactionDedupIndexTest {
+
+    @Test
+    fun add_returnsOccurrenceOrdinal() {
+        val index = TransactionDedupIndex()
+
+        assertEquals(0, index.add(activity("POS SWIGGY BANGALORE")))
+        assertEquals(1, index.add(activity("POS SWIGGY BANGALORE")))
+        assertEquals(0, index.add(activity("POS SWIGGY BANGALORE", amount = 99.0)))
+
+        assertEquals(2, index.count(activity("POS SWIGGY BANGALORE")))
+        assertEquals(2, index.size)
+    }
+
+    @Test
+    fun descriptionsAreNormalised() {
+        val index = TransactionDedupIndex.of(listOf(activity("UPI/Swiggy  Instamart ")))
+
+        assertTrue(index.contains(activity("  upi/swiggy instamart")))
+        assertFalse(index.contains(activity("upi/swiggyinstamart")))
+    }
+
+    @Test
+    fun collidingFingerprints_areKeptApart() {
+        // Same 64-bit fingerprint, different content: the check hash tells them apart
+        val index = TransactionDedupIndex()
+        index.add(activity("NETFLIX", fingerprint = 42L))
+
+        assertFalse(index.contains(activity("SPOTIFY", fingerprint = 42L)))
+        assertEquals(0, index.add(activity("SPOTIFY", fingerprint = 42L)))
+        assertEquals(2, index.size)
+    }
+
+    @Test
+    fun growsPastInitialCapacity() {
+        val index = TransactionDedupIndex(expectedSize = 4)
+        repeat(1_000) { index.add(activity("ROW $it")) }
+
+        assertEquals(1_000, index.size)
+        repeat(1_000) { assertEquals(1, index.count(activity("ROW $it"))) }
+    }
+
+    private fun activity(description: String, amount: Double = 250.0, fingerprint: Long? = null) = Activity(
+        accountId = 1,
+        activityDate = LocalDate.of(2024, 3, 15),
+        valueDate = null,
+        description = description,
+        reference = null,
+        amount = amount,
+        type = ActivityType.EXPENSE,
+        categoryId = null,
+        fingerprint = fingerprint
+    )
+}